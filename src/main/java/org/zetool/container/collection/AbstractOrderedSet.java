@@ -0,0 +1,107 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.collection;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.zetool.container.localization.CollectionLocalization;
+
+/**
+ * The common part of the sets that store their elements by ID and find neighbouring elements by searching their
+ * storage. The iteration and the string representation only need {@link #first()} and {@link #successor(Object)}, the
+ * subclasses implement the storage.
+ *
+ * @param <E> the type of elements in the set
+ */
+abstract class AbstractOrderedSet<E> implements Iterable<E> {
+
+    /**
+     * Returns the element with the smallest ID.
+     *
+     * @return the element with the smallest ID, {@code null} if the set is empty
+     */
+    public abstract E first();
+
+    /**
+     * Returns the element with the smallest ID higher than the ID of {@code element}, if {@code element} is contained.
+     *
+     * @param element the element which successor is wanted
+     * @return the successor of {@code element} or null if the element is the last or is not contained
+     */
+    public abstract E successor(E element);
+
+    /**
+     * Returns the ID of an element as it is shown by {@link #toString()}.
+     *
+     * @param element the element
+     * @return the ID of the element
+     */
+    abstract long id(E element);
+
+    /**
+     * Returns an iterator over the elements in the order of their IDs. Each step searches the successor of the
+     * previous element.
+     *
+     * @return an iterator for the elements of this set
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private E next = first();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public E next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                E result = next;
+                next = successor(result);
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException(CollectionLocalization.LOC.getString(
+                        "zet.collection.RemovalNotSupportedException"));
+            }
+        };
+    }
+
+    /**
+     * Returns a String containing the IDs of all elements stored in the set.
+     *
+     * @return a String containing the IDs of all stored elements
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("[");
+        final Iterator<E> it = this.iterator();
+        if (it.hasNext()) {
+            sb.append(id(it.next()));
+        }
+        while (it.hasNext()) {
+            sb.append(" ");
+            sb.append(id(it.next()));
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+}
@@ -19,6 +19,7 @@ import org.zetool.container.mapping.Identifiable;
 import org.zetool.container.util.ArrayIterator;
 import org.zetool.container.mapping.IdentifiableCloneable;
 import java.lang.reflect.Array;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -425,9 +426,11 @@ public class ArraySet<E extends IdentifiableCloneable> implements IdentifiableCo
         return new ArraySet<>(c);
     }
 
+    /**
+     * Removes all elements. Runtime O(capacity), see {@link VersionedArraySet} for a set that can be cleared in O(1).
+     */
     public void clear() {
-        for (int i = 0; i < elements.length; ++i) {
-            remove(i);
-        }
+        Arrays.fill(elements, null);
+        size = 0;
     }
 }
@@ -53,7 +53,7 @@ public class CombinedCollection<E extends Identifiable> implements IdentifiableC
 
     @Override
     public boolean isEmpty() {
-        return false;
+        return one.isEmpty() && two.isEmpty();
     }
 
     @Override
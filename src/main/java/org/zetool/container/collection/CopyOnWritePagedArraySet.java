@@ -0,0 +1,310 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.collection;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import org.zetool.container.mapping.Identifiable;
+import org.zetool.container.util.CopyOnWritePages;
+
+/**
+ * An array based set of {@link Identifiable} objects like {@link ArraySet} whose {@link #clone()} shares the stored
+ * elements with the original. The slots are stored in pages of {@link CopyOnWritePages#PAGE_SIZE} elements, a page is
+ * copied only when it is written the first time after cloning. Cloning a set and adding or removing a few elements
+ * costs O(number of pages + modified pages) instead of O(capacity).
+ * <p>
+ * As in {@code ArraySet}, the elements are ordered by their IDs. Operations searching for neighbouring elements skip
+ * pages that have never been written, but run in O(capacity) in the worst case.</p>
+ *
+ * @param <E> the type of elements in the set
+ */
+public class CopyOnWritePagedArraySet<E extends Identifiable> extends AbstractOrderedSet<E>
+        implements IdentifiableCollection<E>, Cloneable {
+
+    /** Creates, copies and clears pages of elements. */
+    private static final CopyOnWritePages.PageType<Object[]> PAGE_TYPE = new CopyOnWritePages.PageType<Object[]>() {
+        @Override
+        public Object[] create() {
+            return new Object[CopyOnWritePages.PAGE_SIZE];
+        }
+
+        @Override
+        public Object[] copy(Object[] page) {
+            return page.clone();
+        }
+
+        @Override
+        public void clear(Object[] page, int from, int to) {
+            Arrays.fill(page, from, to, null);
+        }
+    };
+
+    /** The pages storing the elements by their ID. */
+    private CopyOnWritePages<Object[]> pages;
+    /** The number of elements. */
+    private int size;
+
+    /**
+     * Constructs a {@code CopyOnWritePagedArraySet} containing no elements with a capacity to store elements with IDs
+     * from zero to {@code capacity-1}.
+     *
+     * @param capacity the highest possible ID for elements plus one.
+     */
+    public CopyOnWritePagedArraySet(int capacity) {
+        pages = new CopyOnWritePages<>(PAGE_TYPE, capacity);
+    }
+
+    private CopyOnWritePagedArraySet(CopyOnWritePages<Object[]> pages, int size) {
+        this.pages = pages;
+        this.size = size;
+    }
+
+    /**
+     * Adds an element to the set and returns whether the insertion was successful. The insertion fails if the ID of the
+     * element is negative or outside the capacity. Runtime O(1), O(page size) for the first write to a shared page.
+     *
+     * @param element element to be add.
+     * @return {@code true} if the element could have been added, {@code false} if the ID is out of range
+     */
+    @Override
+    public boolean add(E element) {
+        int id = element.id();
+        if (id < 0 || id >= pages.size()) {
+            return false;
+        }
+        Object[] page = pages.getWritable(id >>> CopyOnWritePages.PAGE_BITS);
+        if (page[id & CopyOnWritePages.PAGE_MASK] == null) {
+            size++;
+        }
+        page[id & CopyOnWritePages.PAGE_MASK] = element;
+        return true;
+    }
+
+    /**
+     * Removes the element having the same ID as {@code element}. Runtime O(1), O(page size) for the first write to a
+     * shared page.
+     *
+     * @param element the element to be removed
+     * @return {@code true} if the ID is within the capacity
+     */
+    @Override
+    public boolean remove(E element) {
+        int id = element.id();
+        if (id < 0 || id >= pages.size()) {
+            return false;
+        }
+        if (slot(id) != null) {
+            pages.getWritable(id >>> CopyOnWritePages.PAGE_BITS)[id & CopyOnWritePages.PAGE_MASK] = null;
+            size--;
+        }
+        return true;
+    }
+
+    @Override
+    public E removeLast() {
+        E e = last();
+        if (e != null) {
+            remove(e);
+        }
+        return e;
+    }
+
+    /**
+     * Returns whether the element is contained in the set. As for {@link ArraySet} the test checks for the specified
+     * element, not for an element having the same ID. Runtime O(1).
+     *
+     * @param element the element that shall be checked for containedness.
+     * @return whether {@code element} is contained in the set
+     */
+    @Override
+    public boolean contains(E element) {
+        int id = element.id();
+        return 0 <= id && id < pages.size() && slot(id) == element;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public E get(int id) {
+        if (id < 0 || id >= pages.size()) {
+            throw new ArrayIndexOutOfBoundsException(id);
+        }
+        return element(id);
+    }
+
+    @Override
+    public E first() {
+        return successor(0);
+    }
+
+    @Override
+    public E last() {
+        return predecessor(pages.size() - 1);
+    }
+
+    @Override
+    public E predecessor(E element) {
+        return contains(element) ? predecessor(element.id() - 1) : null;
+    }
+
+    @Override
+    public E successor(E element) {
+        return contains(element) ? successor(element.id() + 1) : null;
+    }
+
+    @Override
+    long id(E element) {
+        return element.id();
+    }
+
+    /**
+     * Removes all elements by dropping all pages. Runtime O(number of pages).
+     */
+    public void clear() {
+        pages.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the capacity of the set. The capacity is one higher than highest accepted ID.
+     *
+     * @return the capacity of the set
+     */
+    public int getCapacity() {
+        return pages.size();
+    }
+
+    /**
+     * Sets the the capacity of the set. Elements with IDs greater or equal to {@code capacity} will be cut off.
+     *
+     * @param capacity the capacity to be set.
+     */
+    public void setCapacity(int capacity) {
+        for (int id = pages.size() - 1; id >= capacity; id--) {
+            if (slot(id) != null) {
+                size--;
+            }
+        }
+        pages.setSize(capacity);
+    }
+
+    /**
+     * Returns the number of pages that are not shared with a clone or the original.
+     *
+     * @return the number of exclusively owned pages
+     */
+    public int getOwnedPageCount() {
+        return pages.getOwnedPageCount();
+    }
+
+    /**
+     * Returns the hash code of this set, the sum of the hash codes of the contained elements.
+     *
+     * @return the hash code of this set
+     */
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (E e : this) {
+            h += e.hashCode();
+        }
+        return h;
+    }
+
+    /**
+     * Returns whether an object is equal to this set. The result is true if and only if the argument is a
+     * {@code CopyOnWritePagedArraySet} including the same number of elements where all the elements are pairwise equal
+     * according to their {@code equals}-Method.
+     *
+     * @param o object to compare.
+     * @return {@code true} if the given object represents an equal set, {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || o.getClass() != getClass()) {
+            return false;
+        }
+        CopyOnWritePagedArraySet<?> set = (CopyOnWritePagedArraySet<?>) o;
+        if (size != set.size) {
+            return false;
+        }
+        Iterator<?> i1 = this.iterator();
+        Iterator<?> i2 = set.iterator();
+        while (i1.hasNext()) {
+            if (!i1.next().equals(i2.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a shallow copy of this set containing the same elements. The pages are shared until either set modifies
+     * them. Runtime O(number of pages).
+     *
+     * @return a set containing the same elements
+     */
+    @Override
+    public CopyOnWritePagedArraySet<E> clone() {
+        return new CopyOnWritePagedArraySet<>(pages.share(), size);
+    }
+
+    private E predecessor(int index) {
+        while (index > -1) {
+            Object[] page = pages.get(index >>> CopyOnWritePages.PAGE_BITS);
+            if (page == null) {
+                index = (index & ~CopyOnWritePages.PAGE_MASK) - 1;
+            } else if (page[index & CopyOnWritePages.PAGE_MASK] != null) {
+                return element(index);
+            } else {
+                index--;
+            }
+        }
+        return null;
+    }
+
+    private E successor(int index) {
+        while (index < pages.size()) {
+            Object[] page = pages.get(index >>> CopyOnWritePages.PAGE_BITS);
+            if (page == null) {
+                index = (index | CopyOnWritePages.PAGE_MASK) + 1;
+            } else if (page[index & CopyOnWritePages.PAGE_MASK] != null) {
+                return element(index);
+            } else {
+                index++;
+            }
+        }
+        return null;
+    }
+
+    private Object slot(int id) {
+        Object[] page = pages.get(id >>> CopyOnWritePages.PAGE_BITS);
+        return page == null ? null : page[id & CopyOnWritePages.PAGE_MASK];
+    }
+
+    @SuppressWarnings("unchecked")
+    private E element(int index) {
+        return (E) slot(index);
+    }
+}
@@ -0,0 +1,361 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.collection;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import org.zetool.container.mapping.LongIdentifiable;
+
+/**
+ * The {@code LongArraySet} class represents a set of {@link LongIdentifiable} objects. It is the counterpart of
+ * {@link ArraySet} for elements whose IDs exceed {@code Integer.MAX_VALUE}. The elements are stored by their IDs in
+ * pages of fixed size that are allocated when the first element of a page is added, so that no single array has to
+ * hold the whole capacity. The elements are ordered by their IDs. As {@code IdentifiableCollection} is restricted to
+ * integer IDs and sizes, the class provides the same methods, but using {@code long} values.
+ *
+ * @param <E> the type of elements in the set
+ */
+public class LongArraySet<E extends LongIdentifiable> extends AbstractOrderedSet<E> implements Cloneable {
+
+    /** The number of bits of an ID that address an element within a page. */
+    private static final int PAGE_BITS = 16;
+    /** The number of elements per page. */
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    /** Masks the position of an ID within its page. */
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /** The pages storing the elements by their ID. A {@code null} page does not contain any element. */
+    private Object[][] pages;
+    /** The number of elements within each page, used to release and skip empty pages. */
+    private int[] pageSizes;
+    /** The capacity, i.e. the highest accepted ID plus one. */
+    private long capacity;
+    /** The number of stored elements. */
+    private long size;
+
+    /**
+     * Constructs a {@code LongArraySet} containing no elements with a capacity to store elements with IDs from zero to
+     * {@code capacity-1}.
+     *
+     * @param capacity the highest possible ID for elements plus one.
+     */
+    public LongArraySet(long capacity) {
+        this.pages = new Object[pageCount(capacity)][];
+        this.pageSizes = new int[pages.length];
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds an element to the {@code LongArraySet} and returns whether the insertion was successful. The insertion fails
+     * if the ID of the element is negative or outside the capacity. Runtime O(1) (O(page size) if a new page is used).
+     *
+     * @param element element to be add.
+     * @return {@code true} if the element could have been added, {@code false} if the ID is out of range
+     */
+    public boolean add(E element) {
+        long id = element.id();
+        if (id < 0 || id >= capacity) {
+            return false;
+        }
+        int p = (int) (id >>> PAGE_BITS);
+        if (pages[p] == null) {
+            pages[p] = new Object[PAGE_SIZE];
+        }
+        if (pages[p][(int) (id & PAGE_MASK)] == null) {
+            size++;
+            pageSizes[p]++;
+        }
+        pages[p][(int) (id & PAGE_MASK)] = element;
+        return true;
+    }
+
+    /**
+     * Removes the element having the same ID as the element {@code element}. Pages that become empty are released.
+     * Runtime O(1).
+     *
+     * @param element element to be removed.
+     * @return {@code true} if the ID is within the capacity
+     */
+    public boolean remove(E element) {
+        return remove(element.id());
+    }
+
+    private boolean remove(long id) {
+        if (id < 0 || id >= capacity) {
+            return false;
+        }
+        int p = (int) (id >>> PAGE_BITS);
+        if (pages[p] != null && pages[p][(int) (id & PAGE_MASK)] != null) {
+            pages[p][(int) (id & PAGE_MASK)] = null;
+            size--;
+            if (--pageSizes[p] == 0) {
+                pages[p] = null;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes and returns the element with the highest ID.
+     *
+     * @return the removed element, or {@code null} if the set is empty
+     */
+    public E removeLast() {
+        final E e = last();
+        if (e != null) {
+            remove(e);
+        }
+        return e;
+    }
+
+    /**
+     * Returns whether the element is contained in this {@code LongArraySet}. The test checks for containedness of the
+     * specified element (not for containedness of an element having the same ID). Runtime O(1).
+     *
+     * @param element the element that shall be checked for containedness.
+     * @return whether the element {@code element} contained in this {@code LongArraySet}.
+     */
+    public boolean contains(E element) {
+        long id = element.id();
+        return id >= 0 && id < capacity && get(id) == element;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of stored elements. Runtime O(1).
+     *
+     * @return the number of stored elements
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the element with the ID {@code id} or {@code null} if no element with this ID is stored. Runtime O(1).
+     *
+     * @param id the ID that shall be checked
+     * @return the element with the ID {@code id}, {@code null} if no element with this ID is stored.
+     * @throws ArrayIndexOutOfBoundsException if the ID is outside of the capacity
+     */
+    @SuppressWarnings("unchecked")
+    public E get(long id) {
+        if (id < 0 || id >= capacity) {
+            throw new ArrayIndexOutOfBoundsException(Long.toString(id));
+        }
+        Object[] page = pages[(int) (id >>> PAGE_BITS)];
+        return page == null ? null : (E) page[(int) (id & PAGE_MASK)];
+    }
+
+    /**
+     * Returns the element with the smallest ID. Empty pages are skipped, so the runtime is O(number of pages + page
+     * size).
+     *
+     * @return the element with the smallest ID, {@code null} if the set is empty
+     */
+    @Override
+    public E first() {
+        return successor(0);
+    }
+
+    /**
+     * Returns the element with the highest ID. Empty pages are skipped, so the runtime is O(number of pages + page
+     * size).
+     *
+     * @return the element with the highest ID, {@code null} if the set is empty
+     */
+    public E last() {
+        return predecessor(capacity - 1);
+    }
+
+    /**
+     * Returns the element with the highest ID smaller than the ID of {@code element}, if {@code element} is contained.
+     *
+     * @param element the element which predecessor is wanted
+     * @return the predecessor of {@code element} or null if the element is the first or is not contained
+     */
+    public E predecessor(E element) {
+        return contains(element) ? predecessor(element.id() - 1) : null;
+    }
+
+    /**
+     * Returns the element with the smallest ID higher than the ID of {@code element}, if {@code element} is contained.
+     *
+     * @param element the element which successor is wanted
+     * @return the successor of {@code element} or null if the element is the last or is not contained
+     */
+    @Override
+    public E successor(E element) {
+        return contains(element) ? successor(element.id() + 1) : null;
+    }
+
+    @Override
+    long id(E element) {
+        return element.id();
+    }
+
+    /**
+     * Returns the element with the highest ID less or equal to {@code id}.
+     *
+     * @param id the highest ID that is considered
+     * @return the element with the highest ID less or equal to {@code id}
+     */
+    @SuppressWarnings("unchecked")
+    private E predecessor(long id) {
+        while (id >= 0) {
+            Object[] page = pages[(int) (id >>> PAGE_BITS)];
+            if (page == null) {
+                id = (id & ~(long) PAGE_MASK) - 1;
+                continue;
+            }
+            for (int i = (int) (id & PAGE_MASK); i >= 0; --i) {
+                if (page[i] != null) {
+                    return (E) page[i];
+                }
+            }
+            id = (id & ~(long) PAGE_MASK) - 1;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the element with the smallest ID greater or equal to {@code id}.
+     *
+     * @param id the smallest ID that is considered
+     * @return the element with the smallest ID greater or equal to {@code id}
+     */
+    @SuppressWarnings("unchecked")
+    private E successor(long id) {
+        while (id < capacity) {
+            Object[] page = pages[(int) (id >>> PAGE_BITS)];
+            if (page != null) {
+                for (int i = (int) (id & PAGE_MASK); i < PAGE_SIZE; ++i) {
+                    if (page[i] != null) {
+                        return (E) page[i];
+                    }
+                }
+            }
+            id = (id | PAGE_MASK) + 1;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the capacity of this {@code LongArraySet}. The capacity is one higher than highest accepted ID.
+     *
+     * @return the capacity of this {@code LongArraySet}.
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the the capacity of this {@code LongArraySet}. Elements with IDs greater or equal to {@code capacity} will be
+     * cut off. Runtime O(number of pages + page size).
+     *
+     * @param capacity the capacity to be set.
+     */
+    public void setCapacity(long capacity) {
+        if (capacity < this.capacity) {
+            for (long id = capacity; id < this.capacity && id < ((capacity | PAGE_MASK) + 1); ++id) {
+                remove(id);
+            }
+            for (int p = pageCount(capacity); p < pages.length; ++p) {
+                size -= pageSizes[p];
+            }
+        }
+        int pageCount = pageCount(capacity);
+        pages = Arrays.copyOf(pages, pageCount);
+        pageSizes = Arrays.copyOf(pageSizes, pageCount);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Removes all elements by releasing all pages. Runtime O(number of pages).
+     */
+    public void clear() {
+        Arrays.fill(pages, null);
+        Arrays.fill(pageSizes, 0);
+        size = 0;
+    }
+
+    /**
+     * Returns the hash code of this set, the sum of the hash codes of the contained elements.
+     *
+     * @return the hash code of this set
+     */
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (E e : this) {
+            h += e.hashCode();
+        }
+        return h;
+    }
+
+    /**
+     * Returns whether an object is equal to this set. The result is true if and only if the argument is a
+     * {@code LongArraySet} including the same number of elements where all the elements are pairwise equal according to
+     * their {@code equals}-Method.
+     *
+     * @param o object to compare.
+     * @return {@code true} if the given object represents an equal set, {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || o.getClass() != getClass()) {
+            return false;
+        }
+        LongArraySet<?> set = (LongArraySet<?>) o;
+        if (size != set.size) {
+            return false;
+        }
+        Iterator<?> i1 = this.iterator();
+        Iterator<?> i2 = set.iterator();
+        while (i1.hasNext()) {
+            if (!i1.next().equals(i2.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a shallow copy of this set. In contrast to {@link ArraySet#clone()} the elements are not cloned, as
+     * {@link LongIdentifiable} objects are not required to be cloneable.
+     *
+     * @return a set containing the same elements
+     */
+    @Override
+    public LongArraySet<E> clone() {
+        LongArraySet<E> clone = new LongArraySet<>(capacity);
+        for (int p = 0; p < pages.length; ++p) {
+            clone.pages[p] = pages[p] == null ? null : pages[p].clone();
+        }
+        clone.pageSizes = pageSizes.clone();
+        clone.size = size;
+        return clone;
+    }
+
+    private static int pageCount(long capacity) {
+        if (capacity < 0) {
+            throw new NegativeArraySizeException(Long.toString(capacity));
+        }
+        return Math.toIntExact((capacity + PAGE_MASK) >>> PAGE_BITS);
+    }
+}
@@ -0,0 +1,258 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.collection;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.zetool.container.localization.CollectionLocalization;
+import org.zetool.container.mapping.Identifiable;
+
+/**
+ * Combines any number of {@link IdentifiableCollection}s with consecutive ID ranges into one collection, like a chain
+ * of {@link CombinedCollection}s without the nesting. Unless start IDs are given, each segment is assumed to contain
+ * the IDs from the sum of the sizes of the previous segments on, which are computed when the collection is created.
+ * Elements are routed to their segment by a binary search over the start IDs, so that every operation costs the same
+ * independent of the position of the segment.
+ * <p>
+ * The size is maintained for changes made through this collection and returned in O(1). Changes of the segments
+ * made directly are not reflected in the size.</p>
+ *
+ * @param <E> the type of the elements that shall be stored in this IdentifiableCollection. {@code E} must implement
+ * {@link Identifiable}.
+ */
+public class MultiCombinedCollection<E extends Identifiable> implements IdentifiableCollection<E> {
+
+    /** The combined collections in the order of their IDs. */
+    private final IdentifiableCollection<E>[] segments;
+    /** The first ID of each segment. */
+    private final int[] starts;
+    /** The number of elements in all segments. */
+    private int size;
+
+    /**
+     * Combines the given collections. The IDs of each collection start after the IDs of the previous collections.
+     *
+     * @param segments the collections in the order of their IDs
+     * @exception IllegalArgumentException if no collection is given
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public MultiCombinedCollection(IdentifiableCollection<E>... segments) {
+        this(Arrays.asList(segments));
+    }
+
+    /**
+     * Combines the given collections. The IDs of each collection start after the IDs of the previous collections.
+     *
+     * @param segments the collections in the order of their IDs
+     * @exception IllegalArgumentException if no collection is given
+     */
+    public MultiCombinedCollection(List<? extends IdentifiableCollection<E>> segments) {
+        this(segments, cumulativeSizes(segments));
+    }
+
+    /**
+     * Combines the given collections with explicitly given first IDs, e.g. for collections that are not filled yet.
+     *
+     * @param segments the collections in the order of their IDs
+     * @param starts the first ID of each collection, non-decreasing
+     * @exception IllegalArgumentException if no collection is given, the number of start IDs does not match or the
+     * start IDs decrease
+     */
+    @SuppressWarnings("unchecked")
+    public MultiCombinedCollection(List<? extends IdentifiableCollection<E>> segments, int[] starts) {
+        if (segments.isEmpty() || starts.length != segments.size()) {
+            throw new IllegalArgumentException("Expected one start ID for each of at least one collection.");
+        }
+        this.segments = (IdentifiableCollection<E>[]) segments.toArray(new IdentifiableCollection<?>[segments.size()]);
+        this.starts = starts.clone();
+        for (int i = 0; i < this.segments.length; ++i) {
+            if (i > 0 && starts[i] < starts[i - 1]) {
+                throw new IllegalArgumentException("Start IDs decrease at segment " + i + ".");
+            }
+            size += this.segments[i].size();
+        }
+    }
+
+    private static int[] cumulativeSizes(List<? extends IdentifiableCollection<?>> segments) {
+        int[] starts = new int[segments.size()];
+        for (int i = 1; i < starts.length; ++i) {
+            starts[i] = starts[i - 1] + segments.get(i - 1).size();
+        }
+        return starts;
+    }
+
+    /**
+     * Returns the index of the segment containing the ID. IDs before the first segment belong to the first segment.
+     * The search halves the range without branching on the comparison result.
+     */
+    private int segment(int id) {
+        int base = 0;
+        int length = starts.length;
+        while (length > 1) {
+            int half = length >>> 1;
+            base += starts[base + half] <= id ? half : 0;
+            length -= half;
+        }
+        return base;
+    }
+
+    @Override
+    public boolean add(E element) {
+        IdentifiableCollection<E> segment = segments[segment(element.id())];
+        int before = segment.size();
+        boolean added = segment.add(element);
+        size += segment.size() - before;
+        return added;
+    }
+
+    @Override
+    public boolean remove(E element) {
+        IdentifiableCollection<E> segment = segments[segment(element.id())];
+        int before = segment.size();
+        boolean removed = segment.remove(element);
+        size += segment.size() - before;
+        return removed;
+    }
+
+    @Override
+    public E removeLast() {
+        for (int i = segments.length - 1; i >= 0; --i) {
+            if (!segments[i].isEmpty()) {
+                int before = segments[i].size();
+                E last = segments[i].removeLast();
+                size += segments[i].size() - before;
+                return last;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean contains(E element) {
+        return segments[segment(element.id())].contains(element);
+    }
+
+    /**
+     * Returns whether this collection is empty. Runtime O(1).
+     *
+     * @return whether no segment contains an element
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of elements in all segments. Runtime O(1).
+     *
+     * @return the number of elements
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public E get(int id) {
+        return segments[segment(id)].get(id);
+    }
+
+    @Override
+    public E first() {
+        return firstFrom(0);
+    }
+
+    @Override
+    public E last() {
+        return lastUpTo(segments.length - 1);
+    }
+
+    @Override
+    public E predecessor(E element) {
+        int index = segment(element.id());
+        if (!segments[index].contains(element)) {
+            return null;
+        }
+        E predecessor = segments[index].predecessor(element);
+        return predecessor != null ? predecessor : lastUpTo(index - 1);
+    }
+
+    @Override
+    public E successor(E element) {
+        int index = segment(element.id());
+        if (!segments[index].contains(element)) {
+            return null;
+        }
+        E successor = segments[index].successor(element);
+        return successor != null ? successor : firstFrom(index + 1);
+    }
+
+    private E firstFrom(int index) {
+        for (int i = index; i < segments.length; ++i) {
+            if (!segments[i].isEmpty()) {
+                return segments[i].first();
+            }
+        }
+        return null;
+    }
+
+    private E lastUpTo(int index) {
+        for (int i = index; i >= 0; --i) {
+            if (!segments[i].isEmpty()) {
+                return segments[i].last();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns an iterator over the elements of all segments in the order of the segments.
+     *
+     * @return an iterator for the elements of this collection
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int index;
+            private Iterator<E> current = segments[0].iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && index + 1 < segments.length) {
+                    current = segments[++index].iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException(CollectionLocalization.LOC.getString(
+                        "zet.collection.RemovalNotSupportedException"));
+            }
+        };
+    }
+}
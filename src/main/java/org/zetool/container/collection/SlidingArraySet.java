@@ -0,0 +1,252 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.collection;
+
+import java.util.Arrays;
+import org.zetool.container.mapping.Identifiable;
+
+/**
+ * An array based set of {@link Identifiable} objects whose IDs lie in a window of consecutive IDs that moves forward,
+ * e.g. the nodes of the live time layers of a rolling time-expanded network. Like {@link ShiftedArraySet} the set
+ * stores the IDs from an offset on, but the array is used as a ring buffer: {@link #advance(int)} drops the elements
+ * with the smallest IDs and admits the same number of new IDs at the end of the window without copying or allocating.
+ * <p>
+ * As in {@code ArraySet}, the elements are ordered by their IDs. Operations searching for neighbouring elements run
+ * in O(capacity) in the worst case.</p>
+ *
+ * @param <E> the type of elements in the set
+ */
+public class SlidingArraySet<E extends Identifiable> extends AbstractOrderedSet<E>
+        implements IdentifiableCollection<E> {
+
+    /** The ring buffer of elements. The element with ID {@code offset} is stored at {@code head}. */
+    private final Object[] elements;
+    /** The smallest ID of the window. */
+    private int offset;
+    /** The slot of the smallest ID of the window. */
+    private int head;
+    /** The number of stored elements. */
+    private int size;
+
+    /**
+     * Constructs an empty set for the IDs from {@code offset} to {@code offset + capacity - 1}.
+     *
+     * @param capacity the number of IDs in the window
+     * @param offset the smallest ID of the window
+     * @exception NegativeArraySizeException if {@code capacity} is negative
+     */
+    public SlidingArraySet(int capacity, int offset) {
+        elements = new Object[capacity];
+        this.offset = offset;
+    }
+
+    /**
+     * Adds an element to the set and returns whether the insertion was successful. The insertion fails if the ID of the
+     * element is outside the window. Runtime O(1).
+     *
+     * @param element element to be add.
+     * @return {@code true} if the element could have been added, {@code false} if the ID is out of range
+     */
+    @Override
+    public boolean add(E element) {
+        int slot = slot(element.id());
+        if (slot < 0) {
+            return false;
+        }
+        if (elements[slot] == null) {
+            size++;
+        }
+        elements[slot] = element;
+        return true;
+    }
+
+    /**
+     * Removes the element having the same ID as {@code element}. Runtime O(1).
+     *
+     * @param element the element to be removed
+     * @return {@code true} if the ID is within the window
+     */
+    @Override
+    public boolean remove(E element) {
+        int slot = slot(element.id());
+        if (slot < 0) {
+            return false;
+        }
+        if (elements[slot] != null) {
+            size--;
+            elements[slot] = null;
+        }
+        return true;
+    }
+
+    @Override
+    public E removeLast() {
+        E e = last();
+        if (e != null) {
+            remove(e);
+        }
+        return e;
+    }
+
+    /**
+     * Returns whether the element is contained in the set. As for {@link ArraySet} the test checks for the specified
+     * element, not for an element having the same ID. Runtime O(1).
+     *
+     * @param element the element that shall be checked for containedness.
+     * @return whether {@code element} is contained in the set
+     */
+    @Override
+    public boolean contains(E element) {
+        int slot = slot(element.id());
+        return slot >= 0 && elements[slot] == element;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the element with the given ID or {@code null} if no element with this ID is stored or the ID is outside
+     * the window. Runtime O(1).
+     *
+     * @param id the ID that shall be checked
+     * @return the element with the ID {@code id} or {@code null}
+     */
+    @Override
+    public E get(int id) {
+        int slot = slot(id);
+        return slot < 0 ? null : element(slot);
+    }
+
+    @Override
+    public E first() {
+        return successor(0);
+    }
+
+    @Override
+    public E last() {
+        return predecessor(elements.length - 1);
+    }
+
+    @Override
+    public E predecessor(E element) {
+        return contains(element) ? predecessor(element.id() - offset - 1) : null;
+    }
+
+    @Override
+    public E successor(E element) {
+        return contains(element) ? successor(element.id() - offset + 1) : null;
+    }
+
+    @Override
+    long id(E element) {
+        return element.id();
+    }
+
+    /**
+     * Moves the window forward by {@code k} IDs. The elements with the {@code k} smallest IDs of the window are removed
+     * and the {@code k} IDs after the window become available. Runtime O(min(k, capacity)).
+     *
+     * @param k the number of IDs by which the window is moved
+     * @exception IllegalArgumentException if {@code k} is negative
+     */
+    public void advance(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Negative advance: " + k);
+        }
+        int dropped = Math.min(k, elements.length);
+        for (int index = 0; index < dropped; ++index) {
+            int slot = wrap(head + index);
+            if (elements[slot] != null) {
+                elements[slot] = null;
+                size--;
+            }
+        }
+        if (elements.length > 0) {
+            head = (int) ((head + (long) k) % elements.length);
+        }
+        offset += k;
+    }
+
+    /**
+     * Returns the smallest ID of the window.
+     *
+     * @return the smallest ID that can be stored
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the number of IDs in the window.
+     *
+     * @return the capacity of the set
+     */
+    public int getCapacity() {
+        return elements.length;
+    }
+
+    /**
+     * Removes all elements. The window is not moved. Runtime O(capacity).
+     */
+    public void clear() {
+        Arrays.fill(elements, null);
+        size = 0;
+    }
+
+    /**
+     * Returns the slot of the given ID, -1 if the ID is outside the window.
+     */
+    private int slot(int id) {
+        long index = (long) id - offset;
+        return index < 0 || index >= elements.length ? -1 : wrap(head + (int) index);
+    }
+
+    private int wrap(int slot) {
+        return slot >= elements.length ? slot - elements.length : slot;
+    }
+
+    /**
+     * Returns the element with the greatest ID whose position in the window is at most {@code index}.
+     */
+    private E predecessor(int index) {
+        while (index > -1 && elements[wrap(head + index)] == null) {
+            index--;
+        }
+        return index > -1 ? element(wrap(head + index)) : null;
+    }
+
+    /**
+     * Returns the element with the smallest ID whose position in the window is at least {@code index}.
+     */
+    private E successor(int index) {
+        while (index < elements.length && elements[wrap(head + index)] == null) {
+            index++;
+        }
+        return index < elements.length ? element(wrap(head + index)) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E element(int slot) {
+        return (E) elements[slot];
+    }
+}
@@ -0,0 +1,280 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.collection;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import org.zetool.container.mapping.Identifiable;
+
+/**
+ * An array based set of {@link Identifiable} objects like {@link ArraySet} that can be cleared in O(1). Each slot
+ * carries the epoch in which the element was added. {@link #clear()} starts a new epoch, elements added in previous
+ * epochs are treated as absent. This is useful if a set on a large domain is cleared often, but only a few elements
+ * are added in between.
+ * <p>
+ * As in {@code ArraySet}, the elements are ordered by their IDs. Operations searching for neighbouring elements run
+ * in O(capacity) in the worst case.</p>
+ *
+ * @param <E> the type of elements in the set
+ */
+public class VersionedArraySet<E extends Identifiable> extends AbstractOrderedSet<E>
+        implements IdentifiableCollection<E>, Cloneable {
+
+    /** The elements stored by their ID. Elements from previous epochs are stale. */
+    private Object[] elements;
+    /** The epoch in which the element of each slot was added. */
+    private int[] stamps;
+    /** The current epoch. */
+    private int epoch = 1;
+    /** The number of elements added in the current epoch. */
+    private int size;
+
+    /**
+     * Constructs a {@code VersionedArraySet} containing no elements with a capacity to store elements with IDs from zero
+     * to {@code capacity-1}.
+     *
+     * @param capacity the highest possible ID for elements plus one.
+     */
+    public VersionedArraySet(int capacity) {
+        elements = new Object[capacity];
+        stamps = new int[capacity];
+    }
+
+    /**
+     * Adds an element to the set and returns whether the insertion was successful. The insertion fails if the ID of the
+     * element is negative or outside the capacity. Runtime O(1).
+     *
+     * @param element element to be add.
+     * @return {@code true} if the element could have been added, {@code false} if the ID is out of range
+     */
+    @Override
+    public boolean add(E element) {
+        int id = element.id();
+        if (id < 0 || id >= elements.length) {
+            return false;
+        }
+        if (stamps[id] != epoch) {
+            stamps[id] = epoch;
+            size++;
+        }
+        elements[id] = element;
+        return true;
+    }
+
+    /**
+     * Removes the element having the same ID as {@code element}. Runtime O(1).
+     *
+     * @param element the element to be removed
+     * @return {@code true} if the ID is within the capacity
+     */
+    @Override
+    public boolean remove(E element) {
+        int id = element.id();
+        if (id < 0 || id >= elements.length) {
+            return false;
+        }
+        if (stamps[id] == epoch) {
+            stamps[id] = 0;
+            size--;
+        }
+        elements[id] = null;
+        return true;
+    }
+
+    @Override
+    public E removeLast() {
+        E e = last();
+        if (e != null) {
+            remove(e);
+        }
+        return e;
+    }
+
+    /**
+     * Returns whether the element is contained in the set. As for {@link ArraySet} the test checks for the specified
+     * element, not for an element having the same ID. Runtime O(1).
+     *
+     * @param element the element that shall be checked for containedness.
+     * @return whether {@code element} is contained in the set
+     */
+    @Override
+    public boolean contains(E element) {
+        int id = element.id();
+        return 0 <= id && id < elements.length && stamps[id] == epoch && elements[id] == element;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the element with the given ID or {@code null} if no element with this ID has been added since the last
+     * call of {@link #clear()}. Runtime O(1).
+     *
+     * @param id the ID that shall be checked
+     * @return the element with the ID {@code id} or {@code null}
+     */
+    @Override
+    public E get(int id) {
+        return stamps[id] == epoch ? element(id) : null;
+    }
+
+    @Override
+    public E first() {
+        return successor(0);
+    }
+
+    @Override
+    public E last() {
+        return predecessor(elements.length - 1);
+    }
+
+    @Override
+    public E predecessor(E element) {
+        return contains(element) ? predecessor(element.id() - 1) : null;
+    }
+
+    @Override
+    public E successor(E element) {
+        return contains(element) ? successor(element.id() + 1) : null;
+    }
+
+    @Override
+    long id(E element) {
+        return element.id();
+    }
+
+    /**
+     * Removes all elements by starting a new epoch. Runtime O(1), except for every {@code Integer.MAX_VALUE}-th call
+     * which resets all epochs in O(capacity).
+     */
+    public void clear() {
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            Arrays.fill(elements, null);
+            epoch = 1;
+        } else {
+            epoch++;
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns the capacity of the set. The capacity is one higher than highest accepted ID.
+     *
+     * @return the capacity of the set
+     */
+    public int getCapacity() {
+        return elements.length;
+    }
+
+    /**
+     * Sets the the capacity of the set. Elements with IDs greater or equal to {@code capacity} will be cut off. Runtime
+     * O(capacity).
+     *
+     * @param capacity the capacity to be set.
+     */
+    public void setCapacity(int capacity) {
+        for (int id = elements.length - 1; id >= capacity; id--) {
+            if (stamps[id] == epoch) {
+                size--;
+            }
+        }
+        elements = Arrays.copyOf(elements, capacity);
+        stamps = Arrays.copyOf(stamps, capacity);
+    }
+
+    /**
+     * Returns the hash code of this set, the sum of the hash codes of the contained elements.
+     *
+     * @return the hash code of this set
+     */
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (E e : this) {
+            h += e.hashCode();
+        }
+        return h;
+    }
+
+    /**
+     * Returns whether an object is equal to this set. The result is true if and only if the argument is a
+     * {@code VersionedArraySet} including the same number of elements where all the elements are pairwise equal
+     * according to their {@code equals}-Method.
+     *
+     * @param o object to compare.
+     * @return {@code true} if the given object represents an equal set, {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || o.getClass() != getClass()) {
+            return false;
+        }
+        VersionedArraySet<?> set = (VersionedArraySet<?>) o;
+        if (size != set.size) {
+            return false;
+        }
+        Iterator<?> i1 = this.iterator();
+        Iterator<?> i2 = set.iterator();
+        while (i1.hasNext()) {
+            if (!i1.next().equals(i2.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a shallow copy of this set containing the same elements.
+     *
+     * @return a set containing the same elements
+     */
+    @Override
+    public VersionedArraySet<E> clone() {
+        VersionedArraySet<E> clone = new VersionedArraySet<>(0);
+        clone.elements = elements.clone();
+        clone.stamps = stamps.clone();
+        clone.epoch = epoch;
+        clone.size = size;
+        return clone;
+    }
+
+    private E predecessor(int index) {
+        while (index > -1 && stamps[index] != epoch) {
+            index--;
+        }
+        return index > -1 ? element(index) : null;
+    }
+
+    private E successor(int index) {
+        while (index < elements.length && stamps[index] != epoch) {
+            index++;
+        }
+        return index < elements.length ? element(index) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E element(int index) {
+        return (E) elements[index];
+    }
+}
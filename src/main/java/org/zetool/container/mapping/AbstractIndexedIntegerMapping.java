@@ -0,0 +1,126 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+/**
+ * The common write path of the {@link IdentifiableIntegerMapping}s that maintain an index of their values, such as
+ * aggregates or prefix sums. All writes of single values pass through one method that updates the index by
+ * {@link #update(int, int, int)}. Operations writing the whole domain mark the index as stale instead, and it is
+ * rebuilt by {@link #rebuild()} when {@link #refresh()} is called by the next query.
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to integers.
+ * {@code D} must implement {@link Identifiable}.
+ */
+abstract class AbstractIndexedIntegerMapping<D extends Identifiable> extends IdentifiableIntegerMapping<D> {
+
+    /** Whether the index has to be rebuilt. */
+    private boolean stale = true;
+
+    AbstractIndexedIntegerMapping(int domainSize) {
+        super(domainSize);
+    }
+
+    AbstractIndexedIntegerMapping(IdentifiableIntegerMapping<D> mapping) {
+        super(mapping);
+    }
+
+    @Override
+    public void set(D identifiableObject, int value) {
+        int id = identifiableObject.id();
+        if (id >= getDomainSize()) {
+            setDomainSize(id + 1);
+        }
+        write(id, value);
+    }
+
+    @Override
+    public void increase(D identifiableObject, int amount) {
+        int id = identifiableObject.id();
+        if (id >= getDomainSize()) {
+            setDomainSize(id + 1);
+        }
+        write(id, Math.addExact(mapping[id], amount));
+    }
+
+    @Override
+    public void add(D identifiableObject, int value) {
+        set(identifiableObject, value);
+    }
+
+    @Override
+    public void decrease(D identifiableObject, int amount) {
+        int id = identifiableObject.id();
+        if (id >= getDomainSize()) {
+            setDomainSize(id + 1);
+        }
+        write(id, mapping[id] - amount);
+    }
+
+    @Override
+    public void initializeWith(int value) {
+        super.initializeWith(value);
+        stale = true;
+    }
+
+    @Override
+    public void setDomainSize(int value) {
+        super.setDomainSize(value);
+        stale = true;
+    }
+
+    @Override
+    void storeValueAt(int id, int value) {
+        write(id, value);
+    }
+
+    @Override
+    int[] writableDenseValues() {
+        stale = true;
+        return mapping;
+    }
+
+    /**
+     * Rebuilds the index if it is stale. Called by all queries of the index.
+     */
+    final void refresh() {
+        if (stale) {
+            rebuild();
+            stale = false;
+        }
+    }
+
+    /**
+     * Updates the index after the value of an ID has changed. Only called while the index is up to date.
+     *
+     * @param id the ID
+     * @param oldValue the previous value
+     * @param newValue the new value, already stored in the mapping
+     */
+    abstract void update(int id, int oldValue, int newValue);
+
+    /**
+     * Rebuilds the index from the values of the whole domain.
+     */
+    abstract void rebuild();
+
+    private void write(int id, int value) {
+        int old = mapping[id];
+        mapping[id] = value;
+        if (!stale) {
+            update(id, old, value);
+        }
+    }
+}
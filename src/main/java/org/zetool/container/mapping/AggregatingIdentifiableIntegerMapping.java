@@ -0,0 +1,157 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+/**
+ * An {@link IdentifiableIntegerMapping} that maintains aggregates of its values while they are written. The sum and
+ * the number of non-zero values are updated in O(1) per write, the minimum and maximum are kept in tournament trees
+ * that are updated in O(log n) per write. All aggregates are returned in O(1), which makes polling them cheap, e.g.
+ * for monitoring the progress of an algorithm in each iteration.
+ * <p>
+ * Operations writing the whole domain, such as {@link #initializeWith(int)}, {@link #setDomainSize(int)} and the bulk
+ * operations, invalidate the aggregates. They are recomputed in O(size of the domain) by the next query.</p>
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to integers.
+ * {@code D} must implement {@link Identifiable}.
+ */
+public class AggregatingIdentifiableIntegerMapping<D extends Identifiable> extends AbstractIndexedIntegerMapping<D> {
+
+    /** The tree of the minimal value. */
+    private final TournamentTree minimumTree = new TournamentTree(false);
+    /** The tree of the maximal value. */
+    private final TournamentTree maximumTree = new TournamentTree(true);
+    /** The sum of all values. */
+    private long sum;
+    /** The number of values different from {@code 0}. */
+    private int nonZeroCount;
+
+    /**
+     * Creates a new mapping with a domain of the given size, mapping all objects to {@code 0}.
+     *
+     * @param domainSize the initial size of the domain.
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public AggregatingIdentifiableIntegerMapping(int domainSize) {
+        super(domainSize);
+    }
+
+    /**
+     * Creates a new mapping containing the values of another mapping.
+     *
+     * @param mapping the mapping whose values are copied
+     */
+    public AggregatingIdentifiableIntegerMapping(IdentifiableIntegerMapping<D> mapping) {
+        super(mapping);
+    }
+
+    /**
+     * Returns the sum of all values. Runtime O(1) unless the aggregates have been invalidated.
+     *
+     * @return the sum of all values
+     */
+    public long getSum() {
+        refresh();
+        return sum;
+    }
+
+    /**
+     * Returns the number of objects mapped to a value other than {@code 0}. Runtime O(1) unless the aggregates have
+     * been invalidated.
+     *
+     * @return the number of non-zero values
+     */
+    public int getNonZeroCount() {
+        refresh();
+        return nonZeroCount;
+    }
+
+    /**
+     * Returns the minimal value, {@code Integer.MAX_VALUE} if the domain is empty. Runtime O(1) unless the aggregates
+     * have been invalidated.
+     *
+     * @return the minimal value
+     */
+    public int minimum() {
+        refresh();
+        int id = minimumTree.winner();
+        return id < 0 ? Integer.MAX_VALUE : mapping[id];
+    }
+
+    /**
+     * Returns the maximal value, {@code Integer.MIN_VALUE} if the domain is empty. Runtime O(1) unless the aggregates
+     * have been invalidated.
+     *
+     * @return the maximal value
+     */
+    @Override
+    public int maximum() {
+        refresh();
+        int id = maximumTree.winner();
+        return id < 0 ? Integer.MIN_VALUE : mapping[id];
+    }
+
+    /**
+     * Returns the smallest ID mapped to the minimal value. Runtime O(1) unless the aggregates have been invalidated.
+     *
+     * @return the ID of the minimal value, {@code -1} if the domain is empty
+     */
+    public int getMinimumId() {
+        refresh();
+        return minimumTree.winner();
+    }
+
+    /**
+     * Returns the smallest ID mapped to the maximal value. Runtime O(1) unless the aggregates have been invalidated.
+     *
+     * @return the ID of the maximal value, {@code -1} if the domain is empty
+     */
+    public int getMaximumId() {
+        refresh();
+        return maximumTree.winner();
+    }
+
+    /**
+     * Creates a copy of this mapping. Runtime O(number of values).
+     *
+     * @return a copy of this mapping.
+     */
+    @Override
+    public AggregatingIdentifiableIntegerMapping<D> clone() {
+        return new AggregatingIdentifiableIntegerMapping<>(this);
+    }
+
+    @Override
+    void update(int id, int oldValue, int newValue) {
+        sum += (long) newValue - oldValue;
+        nonZeroCount += (newValue != 0 ? 1 : 0) - (oldValue != 0 ? 1 : 0);
+        minimumTree.update(mapping, id);
+        maximumTree.update(mapping, id);
+    }
+
+    @Override
+    void rebuild() {
+        sum = 0;
+        nonZeroCount = 0;
+        for (int value : mapping) {
+            sum += value;
+            if (value != 0) {
+                nonZeroCount++;
+            }
+        }
+        minimumTree.build(mapping);
+        maximumTree.build(mapping);
+    }
+}
@@ -0,0 +1,236 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A mapping from times to arbitrary objects, like {@link TimeObjectMapping}, that stores the times in a sorted
+ * {@code int} array and the values in a parallel array. It is intended for timelines that are built by setting values
+ * at increasing times, e.g. snapshots recorded during a simulation. Setting a value after the last time is an append in
+ * amortized O(1), setting a value at an earlier time shifts the later entries. Lookups use a binary search without
+ * allocating, and {@link #between(int, int, ObjIntConsumer)} visits a range of entries without an iterator.
+ * <p>
+ * As in {@link TimeObjectMapping}, {@link #get(int)} returns the value set for exactly the given time. The value of
+ * the step containing a time is returned by {@link #getFloor(int)}.</p>
+ *
+ * @param <R> the type of the values
+ */
+public class ArrayTimeObjectMapping<R> implements Iterable<TimeObjectPair<R>>, Mapping<Integer, R> {
+
+    /** The times with a value in increasing order. Only the first {@code size} entries are used. */
+    private int[] times;
+    /** The values of the times. */
+    private Object[] values;
+    /** The number of times with a value. */
+    private int size;
+
+    /**
+     * Creates a new empty mapping, i.e. all times are mapped to {@code null}.
+     */
+    public ArrayTimeObjectMapping() {
+        this(16);
+    }
+
+    /**
+     * Creates a new empty mapping with space for the given number of times.
+     *
+     * @param capacity the number of times that can be set without growing the arrays
+     * @exception NegativeArraySizeException if {@code capacity} is negative
+     */
+    public ArrayTimeObjectMapping(int capacity) {
+        times = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * Returns the value set for exactly the specified time. Runtime O(log (number of times)).
+     *
+     * @param time the time for which the associated value is to be returned
+     * @return the value set for the time, {@code null} if there is none
+     */
+    public R get(int time) {
+        int index = Arrays.binarySearch(times, 0, size, time);
+        return index >= 0 ? value(index) : null;
+    }
+
+    @Override
+    public R get(Integer time) {
+        return get(time.intValue());
+    }
+
+    /**
+     * Returns the value of the latest time that is not after the specified time, i.e. the value of the step containing
+     * the time. Runtime O(log (number of times)).
+     *
+     * @param time the time for which the associated value is to be returned
+     * @return the value of the step containing the time, {@code null} if no earlier time has a value
+     */
+    public R getFloor(int time) {
+        int index = floorIndex(time);
+        return index >= 0 ? value(index) : null;
+    }
+
+    /**
+     * Returns the latest time that is not after the specified time and has a value. Runtime O(log (number of times)).
+     *
+     * @param time the time
+     * @return the start of the step containing the time, {@code Integer.MIN_VALUE} if no earlier time has a value
+     */
+    public int getFloorTime(int time) {
+        int index = floorIndex(time);
+        return index >= 0 ? times[index] : Integer.MIN_VALUE;
+    }
+
+    /**
+     * Returns the last time with a value.
+     *
+     * @return the last time with a value, {@code Integer.MIN_VALUE} if the mapping is empty
+     */
+    public int getLastTime() {
+        return size == 0 ? Integer.MIN_VALUE : times[size - 1];
+    }
+
+    /**
+     * Returns the number of times with a value.
+     *
+     * @return the number of times with a value
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Maps the time {@code time} to the object {@code value}. Runtime amortized O(1) if {@code time} is after the last
+     * time, O(log (number of times)) if the time already has a value, and O(number of later times) otherwise.
+     *
+     * @param time the time for which an association is to be made
+     * @param value the value to be associated with the time
+     */
+    public void set(int time, R value) {
+        if (size == 0 || time > times[size - 1]) {
+            ensureCapacity(size + 1);
+            times[size] = time;
+            values[size++] = value;
+            return;
+        }
+        int index = Arrays.binarySearch(times, 0, size, time);
+        if (index >= 0) {
+            values[index] = value;
+            return;
+        }
+        index = -index - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(times, index, times, index + 1, size - index);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        times[index] = time;
+        values[index] = value;
+        size++;
+    }
+
+    @Override
+    public void set(Integer time, R value) {
+        set(time.intValue(), value);
+    }
+
+    /**
+     * Passes the value and time of each time with a value from {@code fromTime} (inclusively) to {@code toTime}
+     * (exclusively) in increasing order to the action. No iterator or pair objects are created. Runtime O(log (number
+     * of times) + number of visited times).
+     *
+     * @param fromTime the first time of the range
+     * @param toTime the first time after the range
+     * @param action the action receiving each value and its time
+     */
+    public void between(int fromTime, int toTime, ObjIntConsumer<? super R> action) {
+        int index = floorIndex(fromTime - 1L) + 1;
+        for (; index < size && times[index] < toTime; ++index) {
+            action.accept(value(index), times[index]);
+        }
+    }
+
+    /**
+     * Returns an iterator over the time - value mappings in increasing order of time. Changes of the returned pairs are
+     * not written back to the mapping.
+     *
+     * @return an iterator over the time - value mappings
+     */
+    @Override
+    public Iterator<TimeObjectPair<R>> iterator() {
+        return new Iterator<TimeObjectPair<R>>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public TimeObjectPair<R> next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                TimeObjectPair<R> pair = new TimeObjectPair<>(times[index], value(index));
+                index++;
+                return pair;
+            }
+        };
+    }
+
+    /**
+     * Returns the index of the latest time that is not after {@code time}, -1 if there is none.
+     */
+    private int floorIndex(long time) {
+        if (time < Integer.MIN_VALUE) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(times, 0, size, (int) time);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    @SuppressWarnings("unchecked")
+    private R value(int index) {
+        return (R) values[index];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > times.length) {
+            int newCapacity = Math.max(capacity, times.length + (times.length >> 1) + 1);
+            times = Arrays.copyOf(times, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+
+    /**
+     * Returns a string representation of this mapping of the form {@code [time = value, ...]}.
+     *
+     * @return a string representation of this mapping
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size; ++i) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(times[i]).append(" = ").append(values[i]);
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,364 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * A mapping from identifiable objects to doubles that can be shared by multiple threads. The values are stored as raw
+ * bits in an {@link AtomicLongArray}, all operations on a single object are atomic. In contrast to
+ * {@link IdentifiableDoubleMapping} the size of the domain is fixed. Comparisons in {@link #compareAndSet} are made on
+ * the bits of the values, e.g. {@code 0.0} and {@code -0.0} are different.
+ * <p>
+ * Objects that are increased by many threads at the same time can be marked as contended using
+ * {@link #setContended(Identifiable)}. Their increases are spread over several cells, with the same relaxed semantics
+ * as described for {@link AtomicIdentifiableIntegerMapping}. As each cell is emptied by an atomic swap, no rounding
+ * residue remains in the cells. As the cells are added up in an arbitrary order, the result may differ in the last
+ * bits from sequential increases.</p>
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to doubles.
+ * {@code D} must implement {@link Identifiable}.
+ */
+public class AtomicIdentifiableDoubleMapping<D extends Identifiable> {
+
+    /** The raw bits of the values of the objects. */
+    private final AtomicLongArray values;
+    /** The additional cells for contended objects, {@code null} for all other objects. */
+    private final AtomicReferenceArray<StripedCells> cells;
+
+    /**
+     * Creates a new mapping with a domain of the given size, mapping all objects to {@code 0}.
+     *
+     * @param domainSize the size of the domain.
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public AtomicIdentifiableDoubleMapping(int domainSize) {
+        values = new AtomicLongArray(domainSize);
+        cells = new AtomicReferenceArray<>(domainSize);
+    }
+
+    /**
+     * Creates a new mapping containing the values of an {@link IdentifiableDoubleMapping}.
+     *
+     * @param mapping the mapping whose values are copied
+     */
+    public AtomicIdentifiableDoubleMapping(IdentifiableDoubleMapping<D> mapping) {
+        double[] source = mapping.denseValues();
+        values = new AtomicLongArray(source.length);
+        for (int id = 0; id < source.length; ++id) {
+            values.set(id, Double.doubleToRawLongBits(source[id]));
+        }
+        cells = new AtomicReferenceArray<>(source.length);
+    }
+
+    /**
+     * Returns the double associated with {@code identifiableObject}. For contended objects the result includes the
+     * increases stored in the cells.
+     *
+     * @param identifiableObject the object for which the associated value is to be returned.
+     * @return the double associated with {@code identifiableObject}
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public double getDouble(D identifiableObject) {
+        return read(identifiableObject.id());
+    }
+
+    /**
+     * Associates {@code identifiableObject} with {@code value}.
+     *
+     * @param identifiableObject the object for which an association is to be made.
+     * @param value the double to be associated with {@code identifiableObject}.
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public void set(D identifiableObject, double value) {
+        int id = consolidate(identifiableObject.id());
+        values.set(id, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Increases the value of {@code identifiableObject} by {@code amount}.
+     *
+     * @param identifiableObject the object for which the value is to be increased.
+     * @param amount the amount
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public void increase(D identifiableObject, double amount) {
+        int id = identifiableObject.id();
+        StripedCells cell = cells.get(id);
+        if (cell == null) {
+            update(id, amount, Double::sum);
+        } else {
+            cell.addDouble(amount);
+        }
+    }
+
+    /**
+     * Decreases the value of {@code identifiableObject} by {@code amount}.
+     *
+     * @param identifiableObject the object for which the value is to be decreased.
+     * @param amount the amount
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public void decrease(D identifiableObject, double amount) {
+        increase(identifiableObject, -amount);
+    }
+
+    /**
+     * Atomically increases the value of {@code identifiableObject} by {@code amount} and returns the previous value.
+     *
+     * @param identifiableObject the object for which the value is to be increased.
+     * @param amount the amount
+     * @return the previous value
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public double getAndIncrease(D identifiableObject, double amount) {
+        int id = consolidate(identifiableObject.id());
+        while (true) {
+            long current = values.get(id);
+            double previous = Double.longBitsToDouble(current);
+            if (values.compareAndSet(id, current, Double.doubleToRawLongBits(previous + amount))) {
+                return previous;
+            }
+        }
+    }
+
+    /**
+     * Atomically sets the value of {@code identifiableObject} to {@code update} if the bits of the current value equal
+     * those of {@code expect}.
+     *
+     * @param identifiableObject the object
+     * @param expect the expected value
+     * @param update the new value
+     * @return {@code true} if the value has been updated
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public boolean compareAndSet(D identifiableObject, double expect, double update) {
+        int id = consolidate(identifiableObject.id());
+        return values.compareAndSet(id, Double.doubleToRawLongBits(expect), Double.doubleToRawLongBits(update));
+    }
+
+    /**
+     * Atomically replaces the value of {@code identifiableObject} by the result of applying {@code operator} to the
+     * value and {@code x}. The operator may be applied multiple times if other threads interfere and thus must not
+     * have side effects.
+     *
+     * @param identifiableObject the object
+     * @param x the second operand
+     * @param operator the operator
+     * @return the new value
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public double accumulate(D identifiableObject, double x, DoubleBinaryOperator operator) {
+        int id = consolidate(identifiableObject.id());
+        return update(id, x, operator);
+    }
+
+    /**
+     * Atomically decreases the value of {@code identifiableObject} to {@code value} if {@code value} is smaller, as
+     * needed for the parallel relaxation of distance labels.
+     *
+     * @param identifiableObject the object
+     * @param value the candidate value
+     * @return {@code true} if the value has been decreased
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public boolean minUpdate(D identifiableObject, double value) {
+        int id = consolidate(identifiableObject.id());
+        long current = values.get(id);
+        while (value < Double.longBitsToDouble(current)) {
+            if (values.compareAndSet(id, current, Double.doubleToRawLongBits(value))) {
+                return true;
+            }
+            current = values.get(id);
+        }
+        return false;
+    }
+
+    /**
+     * Atomically increases the value of {@code identifiableObject} to {@code value} if {@code value} is larger.
+     *
+     * @param identifiableObject the object
+     * @param value the candidate value
+     * @return {@code true} if the value has been increased
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public boolean maxUpdate(D identifiableObject, double value) {
+        int id = consolidate(identifiableObject.id());
+        long current = values.get(id);
+        while (value > Double.longBitsToDouble(current)) {
+            if (values.compareAndSet(id, current, Double.doubleToRawLongBits(value))) {
+                return true;
+            }
+            current = values.get(id);
+        }
+        return false;
+    }
+
+    /**
+     * Marks {@code identifiableObject} as contended, so that increases are spread over several cells. Marking an
+     * object multiple times has no effect.
+     *
+     * @param identifiableObject the object
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public void setContended(D identifiableObject) {
+        cells.compareAndSet(identifiableObject.id(), null, new StripedCells());
+    }
+
+    /**
+     * Returns whether {@code identifiableObject} is marked as contended.
+     *
+     * @param identifiableObject the object
+     * @return {@code true} if increases of the object use cells
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public boolean isContended(D identifiableObject) {
+        return cells.get(identifiableObject.id()) != null;
+    }
+
+    /**
+     * Moves the increases stored in the cells of a contended object into its value. The object remains contended. Has
+     * no effect for other objects.
+     *
+     * @param identifiableObject the object
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public void consolidate(D identifiableObject) {
+        consolidate(identifiableObject.id());
+    }
+
+    /**
+     * Associates all objects with {@code value}. The operation is not atomic as a whole and should not run
+     * concurrently to other operations.
+     *
+     * @param value the new value of all objects
+     */
+    public void initializeWith(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        for (int id = 0; id < values.length(); ++id) {
+            StripedCells cell = cells.get(id);
+            if (cell != null) {
+                cell.drainDouble();
+            }
+            values.set(id, bits);
+        }
+    }
+
+    /**
+     * Returns the size of this mapping's domain. Runtime O(1).
+     *
+     * @return the size of this mapping's domain.
+     */
+    public int getDomainSize() {
+        return values.length();
+    }
+
+    /**
+     * Checks whether {@code identifiableObject}'s ID fits the size of the domain. Runtime O(1).
+     *
+     * @param identifiableObject the object to check
+     * @return {@code true} if values can be associated with the object
+     */
+    public boolean isDefinedFor(D identifiableObject) {
+        return 0 <= identifiableObject.id() && identifiableObject.id() < getDomainSize();
+    }
+
+    /**
+     * Creates a non-concurrent {@link IdentifiableDoubleMapping} containing the current values. The values of
+     * different objects are read one after another and are therefore not a consistent snapshot while other threads
+     * modify the mapping.
+     *
+     * @return a mapping containing the current values
+     */
+    public IdentifiableDoubleMapping<D> toMapping() {
+        double[] result = new double[values.length()];
+        for (int id = 0; id < result.length; ++id) {
+            result[id] = read(id);
+        }
+        return new IdentifiableDoubleMapping<>(result);
+    }
+
+    /**
+     * Returns a string representation of the current values in the format of {@link IdentifiableDoubleMapping}.
+     *
+     * @return a string representation of this mapping
+     */
+    @Override
+    public String toString() {
+        return toMapping().toString();
+    }
+
+    private double value(int id) {
+        return Double.longBitsToDouble(values.get(id));
+    }
+
+    /**
+     * Atomically replaces the value of an ID by the result of the operator.
+     *
+     * @param id the ID
+     * @param x the second operand
+     * @param operator the operator
+     * @return the new value
+     */
+    private double update(int id, double x, DoubleBinaryOperator operator) {
+        while (true) {
+            long current = values.get(id);
+            double next = operator.applyAsDouble(Double.longBitsToDouble(current), x);
+            if (values.compareAndSet(id, current, Double.doubleToRawLongBits(next))) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Returns the value of an ID including the increases stored in its cells. The read is repeated if increases are
+     * moved into the value at the same time, as the moved amount could be missed or counted twice otherwise.
+     *
+     * @param id the ID
+     * @return the current value
+     */
+    private double read(int id) {
+        StripedCells cell = cells.get(id);
+        if (cell == null) {
+            return value(id);
+        }
+        while (true) {
+            int version = cell.awaitVersion();
+            double result = value(id) + cell.sumDouble();
+            if (cell.isUnchanged(version)) {
+                return result;
+            }
+        }
+    }
+
+    private int consolidate(int id) {
+        StripedCells cell = cells.get(id);
+        if (cell != null) {
+            cell.lock();
+            try {
+                double sum = cell.drainDouble();
+                if (sum != 0) {
+                    update(id, sum, Double::sum);
+                }
+            } finally {
+                cell.unlock();
+            }
+        }
+        return id;
+    }
+}
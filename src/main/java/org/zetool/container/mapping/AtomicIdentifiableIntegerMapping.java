@@ -0,0 +1,369 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * A mapping from identifiable objects to integers that can be shared by multiple threads, e.g. to accumulate flow or
+ * to relax distance labels in parallel. The values are stored in an {@link AtomicIntegerArray} and all operations on
+ * a single object are atomic. In contrast to {@link IdentifiableIntegerMapping} the size of the domain is fixed.
+ * <p>
+ * Objects that are increased by many threads at the same time can be marked as contended using
+ * {@link #setContended(Identifiable)}. Increases of contended objects are spread over several cells instead of
+ * competing for a single value. For these objects {@link #get(Identifiable)} returns the sum of the value and the
+ * cells, which is exact once all concurrent increases have completed, but only a snapshot while they are in progress.
+ * All other operations on a contended object first move the cells into the value by
+ * {@link #consolidate(Identifiable)}. Each cell is emptied by an atomic swap, so that increases that happen
+ * concurrently are either moved or kept in their cell and are never lost. Reads retry while increases are moved, so
+ * that they never miss the moved amount. Increases that would overflow the value remain in the cells.</p>
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to integers.
+ * {@code D} must implement {@link Identifiable}.
+ */
+public class AtomicIdentifiableIntegerMapping<D extends Identifiable> {
+
+    /** The values of the objects. */
+    private final AtomicIntegerArray values;
+    /** The additional cells for contended objects, {@code null} for all other objects. */
+    private final AtomicReferenceArray<StripedCells> cells;
+
+    /**
+     * Creates a new mapping with a domain of the given size, mapping all objects to {@code 0}.
+     *
+     * @param domainSize the size of the domain.
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public AtomicIdentifiableIntegerMapping(int domainSize) {
+        values = new AtomicIntegerArray(domainSize);
+        cells = new AtomicReferenceArray<>(domainSize);
+    }
+
+    /**
+     * Creates a new mapping containing the values of an {@link IdentifiableIntegerMapping}.
+     *
+     * @param mapping the mapping whose values are copied
+     */
+    public AtomicIdentifiableIntegerMapping(IdentifiableIntegerMapping<D> mapping) {
+        values = new AtomicIntegerArray(mapping.denseValues());
+        cells = new AtomicReferenceArray<>(values.length());
+    }
+
+    /**
+     * Returns the integer associated with {@code identifiableObject}. For contended objects the result includes the
+     * increases stored in the cells.
+     *
+     * @param identifiableObject the object for which the associated value is to be returned.
+     * @return the integer associated with {@code identifiableObject}
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     * @exception ArithmeticException if the value of a contended object overflows
+     */
+    public int get(D identifiableObject) {
+        return read(identifiableObject.id());
+    }
+
+    /**
+     * Associates {@code identifiableObject} with {@code value}.
+     *
+     * @param identifiableObject the object for which an association is to be made.
+     * @param value the integer to be associated with {@code identifiableObject}.
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public void set(D identifiableObject, int value) {
+        int id = consolidate(identifiableObject.id());
+        values.set(id, value);
+    }
+
+    /**
+     * Increases the value of {@code identifiableObject} by {@code amount}.
+     *
+     * @param identifiableObject the object for which the value is to be increased.
+     * @param amount the amount
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     * @exception ArithmeticException if the value of a non-contended object overflows
+     */
+    public void increase(D identifiableObject, int amount) {
+        int id = identifiableObject.id();
+        StripedCells cell = cells.get(id);
+        if (cell == null) {
+            values.accumulateAndGet(id, amount, Math::addExact);
+        } else {
+            cell.add(amount);
+        }
+    }
+
+    /**
+     * Decreases the value of {@code identifiableObject} by {@code amount}.
+     *
+     * @param identifiableObject the object for which the value is to be decreased.
+     * @param amount the amount
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     * @exception ArithmeticException if the value of a non-contended object overflows
+     */
+    public void decrease(D identifiableObject, int amount) {
+        int id = identifiableObject.id();
+        StripedCells cell = cells.get(id);
+        if (cell == null) {
+            values.accumulateAndGet(id, amount, Math::subtractExact);
+        } else {
+            cell.add(-(long) amount);
+        }
+    }
+
+    /**
+     * Atomically increases the value of {@code identifiableObject} by {@code amount} and returns the previous value.
+     *
+     * @param identifiableObject the object for which the value is to be increased.
+     * @param amount the amount
+     * @return the previous value
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     * @exception ArithmeticException if the value overflows
+     */
+    public int getAndIncrease(D identifiableObject, int amount) {
+        int id = consolidate(identifiableObject.id());
+        return values.getAndAccumulate(id, amount, Math::addExact);
+    }
+
+    /**
+     * Atomically sets the value of {@code identifiableObject} to {@code update} if the current value equals
+     * {@code expect}.
+     *
+     * @param identifiableObject the object
+     * @param expect the expected value
+     * @param update the new value
+     * @return {@code true} if the value has been updated
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public boolean compareAndSet(D identifiableObject, int expect, int update) {
+        int id = consolidate(identifiableObject.id());
+        return values.compareAndSet(id, expect, update);
+    }
+
+    /**
+     * Atomically replaces the value of {@code identifiableObject} by the result of applying {@code operator} to the
+     * value and {@code x}. The operator may be applied multiple times if other threads interfere and thus must not
+     * have side effects.
+     *
+     * @param identifiableObject the object
+     * @param x the second operand
+     * @param operator the operator
+     * @return the new value
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public int accumulate(D identifiableObject, int x, IntBinaryOperator operator) {
+        int id = consolidate(identifiableObject.id());
+        return values.accumulateAndGet(id, x, operator);
+    }
+
+    /**
+     * Atomically decreases the value of {@code identifiableObject} to {@code value} if {@code value} is smaller, as
+     * needed for the parallel relaxation of distance labels.
+     *
+     * @param identifiableObject the object
+     * @param value the candidate value
+     * @return {@code true} if the value has been decreased
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public boolean minUpdate(D identifiableObject, int value) {
+        int id = consolidate(identifiableObject.id());
+        int current = values.get(id);
+        while (value < current) {
+            if (values.compareAndSet(id, current, value)) {
+                return true;
+            }
+            current = values.get(id);
+        }
+        return false;
+    }
+
+    /**
+     * Atomically increases the value of {@code identifiableObject} to {@code value} if {@code value} is larger.
+     *
+     * @param identifiableObject the object
+     * @param value the candidate value
+     * @return {@code true} if the value has been increased
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public boolean maxUpdate(D identifiableObject, int value) {
+        int id = consolidate(identifiableObject.id());
+        int current = values.get(id);
+        while (value > current) {
+            if (values.compareAndSet(id, current, value)) {
+                return true;
+            }
+            current = values.get(id);
+        }
+        return false;
+    }
+
+    /**
+     * Marks {@code identifiableObject} as contended, so that increases are spread over several cells. Marking an
+     * object multiple times has no effect.
+     *
+     * @param identifiableObject the object
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public void setContended(D identifiableObject) {
+        cells.compareAndSet(identifiableObject.id(), null, new StripedCells());
+    }
+
+    /**
+     * Returns whether {@code identifiableObject} is marked as contended.
+     *
+     * @param identifiableObject the object
+     * @return {@code true} if increases of the object use cells
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    public boolean isContended(D identifiableObject) {
+        return cells.get(identifiableObject.id()) != null;
+    }
+
+    /**
+     * Moves the increases stored in the cells of a contended object into its value. The object remains contended. Has
+     * no effect for other objects.
+     *
+     * @param identifiableObject the object
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     * @exception ArithmeticException if the value overflows, the increases remain in the cells in this case
+     */
+    public void consolidate(D identifiableObject) {
+        consolidate(identifiableObject.id());
+    }
+
+    /**
+     * Associates all objects with {@code value}. The operation is not atomic as a whole and should not run
+     * concurrently to other operations.
+     *
+     * @param value the new value of all objects
+     */
+    public void initializeWith(int value) {
+        for (int id = 0; id < values.length(); ++id) {
+            StripedCells cell = cells.get(id);
+            if (cell != null) {
+                cell.drain();
+            }
+            values.set(id, value);
+        }
+    }
+
+    /**
+     * Returns the size of this mapping's domain. Runtime O(1).
+     *
+     * @return the size of this mapping's domain.
+     */
+    public int getDomainSize() {
+        return values.length();
+    }
+
+    /**
+     * Checks whether {@code identifiableObject}'s ID fits the size of the domain. Runtime O(1).
+     *
+     * @param identifiableObject the object to check
+     * @return {@code true} if values can be associated with the object
+     */
+    public boolean isDefinedFor(D identifiableObject) {
+        return 0 <= identifiableObject.id() && identifiableObject.id() < getDomainSize();
+    }
+
+    /**
+     * Creates a non-concurrent {@link IdentifiableIntegerMapping} containing the current values. The values of
+     * different objects are read one after another and are therefore not a consistent snapshot while other threads
+     * modify the mapping.
+     *
+     * @return a mapping containing the current values
+     */
+    public IdentifiableIntegerMapping<D> toMapping() {
+        int[] result = new int[values.length()];
+        for (int id = 0; id < result.length; ++id) {
+            result[id] = read(id);
+        }
+        return new IdentifiableIntegerMapping<>(result);
+    }
+
+    /**
+     * Returns a string representation of the current values in the format of {@link IdentifiableIntegerMapping}.
+     *
+     * @return a string representation of this mapping
+     */
+    @Override
+    public String toString() {
+        return toMapping().toString();
+    }
+
+    /**
+     * Returns the value of an ID including the increases stored in its cells. The read is repeated if increases are
+     * moved into the value at the same time, as the moved amount could be missed or counted twice otherwise.
+     *
+     * @param id the ID
+     * @return the current value
+     * @exception ArithmeticException if the value overflows
+     */
+    private int read(int id) {
+        StripedCells cell = cells.get(id);
+        if (cell == null) {
+            return values.get(id);
+        }
+        while (true) {
+            int version = cell.awaitVersion();
+            long result = values.get(id) + cell.sum();
+            if (cell.isUnchanged(version)) {
+                return Math.toIntExact(result);
+            }
+        }
+    }
+
+    private int consolidate(int id) {
+        StripedCells cell = cells.get(id);
+        if (cell != null) {
+            cell.lock();
+            try {
+                // checked before draining, so that the increases remain in the cells if the value overflows
+                Math.toIntExact(values.get(id) + cell.sum());
+                long sum = cell.drain();
+                if (sum != 0 && !add(id, sum)) {
+                    // concurrent increases after the check overflow the value, they are put back
+                    cell.add(sum);
+                    throw new ArithmeticException("integer overflow");
+                }
+            } finally {
+                cell.unlock();
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Atomically adds an amount to the value of an ID unless the result overflows.
+     *
+     * @param id the ID
+     * @param amount the amount
+     * @return {@code true} if the amount has been added, {@code false} if the value would overflow
+     */
+    private boolean add(int id, long amount) {
+        while (true) {
+            int current = values.get(id);
+            long next = current + amount;
+            if (next != (int) next) {
+                return false;
+            }
+            if (values.compareAndSet(id, current, (int) next)) {
+                return true;
+            }
+        }
+    }
+}
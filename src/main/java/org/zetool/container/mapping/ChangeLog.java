@@ -0,0 +1,256 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Records the IDs of a domain whose values have been changed. Each ID is appended to a log the first time it is
+ * changed after a checkpoint, and the position of its latest entry is stored per ID. A checkpoint is the length of the
+ * log, the IDs changed since a checkpoint are the IDs whose latest entry is behind that position. Recording a change,
+ * taking a checkpoint and iterating the changes cost O(1) per change, independent of the size of the domain.
+ * <p>
+ * The log grows with each checkpoint that is followed by changes until {@link #reset()} is called. Also contains the
+ * variable length encoding used for the deltas of the tracked mappings.</p>
+ */
+final class ChangeLog {
+
+    /** The position of the latest log entry of each ID plus one, {@code 0} if the ID has not been logged. */
+    private int[] latest;
+    /** The logged IDs. */
+    private int[] log = new int[16];
+    /** The number of log entries. */
+    private int length;
+    /** The length of the log at the latest checkpoint. */
+    private int start;
+
+    ChangeLog(int domainSize) {
+        latest = new int[domainSize];
+    }
+
+    ChangeLog(ChangeLog other) {
+        latest = other.latest.clone();
+        log = other.log.clone();
+        length = other.length;
+        start = other.start;
+    }
+
+    /**
+     * Records a change of the value of an ID.
+     *
+     * @param id the ID
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    void mark(int id) {
+        if (latest[id] <= start) {
+            if (length == log.length) {
+                log = Arrays.copyOf(log, 2 * length);
+            }
+            log[length++] = id;
+            latest[id] = length;
+        }
+    }
+
+    /**
+     * Records a change of all IDs of the domain. Runtime O(size of the domain).
+     */
+    void markAll() {
+        for (int id = 0; id < latest.length; ++id) {
+            mark(id);
+        }
+    }
+
+    /**
+     * Returns a checkpoint for the current state. Later changes are recorded again even if the ID has been changed
+     * before.
+     *
+     * @return the checkpoint
+     */
+    int checkpoint() {
+        start = length;
+        return length;
+    }
+
+    /**
+     * Returns an iterator over the IDs changed since a checkpoint. Each ID is returned once, in the order of its latest
+     * change relative to the other IDs. The log must not be changed during the iteration.
+     *
+     * @param checkpoint a checkpoint returned since the last call of {@link #reset()}
+     * @return an iterator over the changed IDs
+     * @exception IllegalArgumentException if the checkpoint is invalid
+     */
+    PrimitiveIterator.OfInt changedSince(int checkpoint) {
+        checkCheckpoint(checkpoint);
+        return new PrimitiveIterator.OfInt() {
+            private int position = skip(checkpoint);
+
+            @Override
+            public boolean hasNext() {
+                return position < length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (position >= length) {
+                    throw new NoSuchElementException();
+                }
+                int id = log[position];
+                position = skip(position + 1);
+                return id;
+            }
+        };
+    }
+
+    /**
+     * Returns the IDs changed since a checkpoint in ascending order.
+     *
+     * @param checkpoint a checkpoint returned since the last call of {@link #reset()}
+     * @return the changed IDs, sorted
+     * @exception IllegalArgumentException if the checkpoint is invalid
+     */
+    int[] sortedChangedSince(int checkpoint) {
+        checkCheckpoint(checkpoint);
+        int[] ids = new int[length - checkpoint];
+        int count = 0;
+        for (int position = skip(checkpoint); position < length; position = skip(position + 1)) {
+            ids[count++] = log[position];
+        }
+        ids = Arrays.copyOf(ids, count);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Forgets all changes and invalidates all checkpoints. Runtime O(number of log entries).
+     */
+    void reset() {
+        for (int position = 0; position < length; ++position) {
+            if (log[position] < latest.length) {
+                latest[log[position]] = 0;
+            }
+        }
+        length = 0;
+        start = 0;
+    }
+
+    int getDomainSize() {
+        return latest.length;
+    }
+
+    /**
+     * Changes the size of the domain. Log entries of IDs that are cut off are skipped from now on.
+     *
+     * @param value the new size of the domain
+     */
+    void setDomainSize(int value) {
+        latest = Arrays.copyOf(latest, value);
+    }
+
+    private int skip(int position) {
+        while (position < length && !isLatest(position)) {
+            position++;
+        }
+        return position;
+    }
+
+    private boolean isLatest(int position) {
+        int id = log[position];
+        return id < latest.length && latest[id] == position + 1;
+    }
+
+    private void checkCheckpoint(int checkpoint) {
+        if (checkpoint < 0 || checkpoint > length) {
+            throw new IllegalArgumentException("Invalid checkpoint: " + checkpoint);
+        }
+    }
+
+    /**
+     * Writes a non-negative {@code int} using seven bits per byte.
+     *
+     * @param out the stream
+     * @param value the value
+     */
+    static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Writes a {@code long} as eight bytes, most significant first.
+     *
+     * @param out the stream
+     * @param value the value
+     */
+    static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int shift = Long.SIZE - 8; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    /**
+     * Reads the variable length encoded values of a delta.
+     */
+    static final class Reader {
+
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+                byte b = readByte();
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed delta: variable length integer too long");
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < Long.BYTES; ++i) {
+                value = (value << 8) | (readByte() & 0xff);
+            }
+            return value;
+        }
+
+        boolean hasRemaining() {
+            return position < data.length;
+        }
+
+        int remaining() {
+            return data.length - position;
+        }
+
+        private byte readByte() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Malformed delta: unexpected end of data");
+            }
+            return data[position++];
+        }
+    }
+}
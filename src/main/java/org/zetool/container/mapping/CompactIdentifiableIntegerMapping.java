@@ -0,0 +1,387 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+
+/**
+ * An {@link IdentifiableIntegerMapping} for small non-negative values, such as small capacities, levels or a handful
+ * of states. The values are packed into {@code long} words using 1, 2, 4, 8 or 16 bits per value, which reduces the
+ * memory compared to the 32 bits of {@link IdentifiableIntegerMapping} by a factor of 2 to 32.
+ * <p>
+ * The mapping starts with the smallest width that holds its values. If a value does not fit, all values are widened
+ * to the smallest sufficient width. Negative values and values of at least {@code 65536} switch the mapping to the
+ * dense array of the base class. {@link #initializeWith(int)} chooses the width anew. Reads and writes cost a few
+ * shifts and masks more than for the base class, widening costs O(size of the domain).</p>
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to integers.
+ * {@code D} must implement {@link Identifiable}.
+ */
+public class CompactIdentifiableIntegerMapping<D extends Identifiable> extends IdentifiableIntegerMapping<D> {
+
+    /** The largest number of bits per value used for packing. */
+    private static final int MAX_PACKED_BITS = 16;
+
+    /** The packed values, {@code null} if the dense representation is used. */
+    private long[] words;
+    /** The number of bits per value, one of 1, 2, 4, 8 and 16. */
+    private int bits;
+    /** The size of the domain if the packed representation is used. */
+    private int domainSize;
+
+    /**
+     * Creates a new compact mapping with a domain of the given size, mapping all objects to {@code 0}. Uses one bit
+     * per value until larger values are stored.
+     *
+     * @param domainSize the initial size of the domain.
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public CompactIdentifiableIntegerMapping(int domainSize) {
+        this(domainSize, 1);
+    }
+
+    /**
+     * Creates a new compact mapping with a domain of the given size, mapping all objects to {@code 0}. The initial
+     * width avoids widening if the maximal value is known in advance.
+     *
+     * @param domainSize the initial size of the domain.
+     * @param bits the initial number of bits per value, rounded up to 1, 2, 4, 8 or 16
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     * @exception IllegalArgumentException if {@code bits} is not between 1 and 16
+     */
+    public CompactIdentifiableIntegerMapping(int domainSize, int bits) {
+        if (domainSize < 0) {
+            throw new NegativeArraySizeException(Integer.toString(domainSize));
+        }
+        if (bits < 1 || bits > MAX_PACKED_BITS) {
+            throw new IllegalArgumentException("Bits per value must be between 1 and 16: " + bits);
+        }
+        this.bits = bitsFor((1 << bits) - 1);
+        this.domainSize = domainSize;
+        this.words = new long[wordCount(domainSize, this.bits)];
+    }
+
+    /**
+     * Creates a compact copy of an {@link IdentifiableIntegerMapping} using the smallest width for its values.
+     *
+     * @param mapping the mapping whose values are copied
+     */
+    public CompactIdentifiableIntegerMapping(IdentifiableIntegerMapping<D> mapping) {
+        int[] values = mapping.denseValues();
+        int maximum = 0;
+        boolean negative = false;
+        for (int value : values) {
+            maximum = Math.max(maximum, value);
+            negative |= value < 0;
+        }
+        this.domainSize = values.length;
+        this.bits = negative ? Integer.SIZE : bitsFor(maximum);
+        if (bits > MAX_PACKED_BITS) {
+            this.mapping = values.clone();
+        } else {
+            this.words = new long[wordCount(domainSize, bits)];
+            for (int id = 0; id < values.length; ++id) {
+                write(id, values[id]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bits currently used per value, which is 32 if the dense representation is used.
+     *
+     * @return the number of bits per value
+     */
+    public int getBitsPerValue() {
+        return bits;
+    }
+
+    @Override
+    public int get(D identifiableObject) {
+        if (words == null) {
+            return super.get(identifiableObject);
+        }
+        int id = identifiableObject.id();
+        checkIndex(id);
+        return read(id);
+    }
+
+    @Override
+    public void set(D identifiableObject, int value) {
+        if (words == null) {
+            super.set(identifiableObject, value);
+        } else {
+            int id = identifiableObject.id();
+            if (id < 0) {
+                throw new ArrayIndexOutOfBoundsException(id);
+            }
+            if (id >= domainSize) {
+                setDomainSize(id + 1);
+            }
+            store(id, value);
+        }
+    }
+
+    @Override
+    public void increase(D identifiableObject, int amount) {
+        if (words == null) {
+            super.increase(identifiableObject, amount);
+        } else {
+            int id = identifiableObject.id();
+            if (id >= domainSize) {
+                setDomainSize(id + 1);
+            }
+            checkIndex(id);
+            store(id, Math.addExact(read(id), amount));
+        }
+    }
+
+    @Override
+    public void add(D identifiableObject, int value) {
+        set(identifiableObject, value);
+    }
+
+    @Override
+    public void decrease(D identifiableObject, int amount) {
+        if (words == null) {
+            super.decrease(identifiableObject, amount);
+        } else {
+            int id = identifiableObject.id();
+            if (id >= domainSize) {
+                setDomainSize(id + 1);
+            }
+            checkIndex(id);
+            store(id, read(id) - amount);
+        }
+    }
+
+    /**
+     * Maps all objects to {@code value} using the smallest width that holds it. Runtime O(size of the domain).
+     *
+     * @param value the new value of all objects
+     */
+    @Override
+    public void initializeWith(int value) {
+        int size = getDomainSize();
+        int newBits = value < 0 ? Integer.SIZE : bitsFor(value);
+        if (newBits > MAX_PACKED_BITS) {
+            if (words != null) {
+                mapping = new int[size];
+                words = null;
+            }
+            super.initializeWith(value);
+        } else {
+            mapping = null;
+            domainSize = size;
+            bits = newBits;
+            words = new long[wordCount(size, bits)];
+            if (value != 0) {
+                long pattern = 0;
+                for (int shift = 0; shift < Long.SIZE; shift += bits) {
+                    pattern |= (long) value << shift;
+                }
+                Arrays.fill(words, pattern);
+            }
+        }
+        this.bits = newBits;
+    }
+
+    @Override
+    public int getDomainSize() {
+        return words == null ? super.getDomainSize() : domainSize;
+    }
+
+    @Override
+    public void setDomainSize(int value) {
+        if (words == null) {
+            super.setDomainSize(value);
+        } else {
+            if (value < 0) {
+                throw new NegativeArraySizeException(Integer.toString(value));
+            }
+            words = Arrays.copyOf(words, wordCount(value, bits));
+            if (value < domainSize) {
+                // clear the remaining values of the last word, they are visible when the domain grows again
+                int used = value % (Long.SIZE / bits);
+                if (used != 0) {
+                    words[words.length - 1] &= -1L >>> (Long.SIZE - used * bits);
+                }
+            }
+            domainSize = value;
+        }
+    }
+
+    @Override
+    public int maximum() {
+        if (words == null) {
+            return super.maximum();
+        }
+        int result = Integer.MIN_VALUE;
+        for (int id = 0; id < domainSize; ++id) {
+            result = Math.max(result, read(id));
+        }
+        return result;
+    }
+
+    @Override
+    public CompactIdentifiableIntegerMapping<D> clone() {
+        CompactIdentifiableIntegerMapping<D> clone = new CompactIdentifiableIntegerMapping<>(0);
+        clone.bits = bits;
+        clone.domainSize = domainSize;
+        clone.words = words == null ? null : words.clone();
+        clone.mapping = mapping == null ? null : mapping.clone();
+        return clone;
+    }
+
+    /**
+     * Compares this mapping to another {@link IdentifiableIntegerMapping}. The result is {@code true} if both mappings
+     * have domains of equal size and make the same associations, independent of their representation.
+     *
+     * @param o the object this mapping is to be compared with.
+     * @return {@code true} if the given object represents an equivalent mapping, {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof IdentifiableIntegerMapping)) {
+            return false;
+        }
+        return Arrays.equals(denseValues(), ((IdentifiableIntegerMapping<?>) o).denseValues());
+    }
+
+    @Override
+    public int hashCode() {
+        return words == null ? super.hashCode() : new IdentifiableIntegerMapping<>(denseValues()).hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return words == null ? super.toString() : new IdentifiableIntegerMapping<>(denseValues()).toString();
+    }
+
+    @Override
+    int valueAt(int id) {
+        if (words == null) {
+            return mapping[id];
+        }
+        checkIndex(id);
+        return read(id);
+    }
+
+    @Override
+    void storeValueAt(int id, int value) {
+        if (words == null) {
+            mapping[id] = value;
+        } else {
+            checkIndex(id);
+            store(id, value);
+        }
+    }
+
+    @Override
+    int[] denseValues() {
+        if (words == null) {
+            return mapping;
+        }
+        int[] values = new int[domainSize];
+        for (int id = 0; id < domainSize; ++id) {
+            values[id] = read(id);
+        }
+        return values;
+    }
+
+    @Override
+    int[] writableDenseValues() {
+        if (words != null) {
+            widen(Integer.SIZE);
+        }
+        return mapping;
+    }
+
+    /**
+     * Stores a value of an ID within the domain, widening the representation if necessary.
+     *
+     * @param id the ID
+     * @param value the new value
+     */
+    private void store(int id, int value) {
+        int required = value < 0 ? Integer.SIZE : bitsFor(value);
+        if (required > bits) {
+            widen(required);
+        }
+        if (words == null) {
+            mapping[id] = value;
+        } else {
+            write(id, value);
+        }
+    }
+
+    /**
+     * Rewrites all values using a larger width. Widths above 16 bits switch to the dense representation.
+     *
+     * @param newBits the new number of bits per value
+     */
+    private void widen(int newBits) {
+        int[] values = denseValues();
+        bits = newBits;
+        if (newBits > MAX_PACKED_BITS) {
+            mapping = values;
+            words = null;
+        } else {
+            words = new long[wordCount(domainSize, bits)];
+            for (int id = 0; id < domainSize; ++id) {
+                write(id, values[id]);
+            }
+        }
+    }
+
+    private int read(int id) {
+        int perWord = Long.SIZE / bits;
+        long word = words[id / perWord];
+        return (int) ((word >>> ((id % perWord) * bits)) & ((1L << bits) - 1));
+    }
+
+    private void write(int id, int value) {
+        int perWord = Long.SIZE / bits;
+        int shift = (id % perWord) * bits;
+        long mask = ((1L << bits) - 1) << shift;
+        int index = id / perWord;
+        words[index] = (words[index] & ~mask) | ((long) value << shift);
+    }
+
+    private void checkIndex(int id) {
+        if (id < 0 || id >= domainSize) {
+            throw new ArrayIndexOutOfBoundsException(id);
+        }
+    }
+
+    /**
+     * Returns the smallest width of 1, 2, 4, 8, 16 and 32 bits that holds a non-negative value.
+     *
+     * @param value the value
+     * @return the number of bits required to store the value
+     */
+    private static int bitsFor(int value) {
+        int bits = 1;
+        while (bits < Integer.SIZE && value >>> bits != 0) {
+            bits <<= 1;
+        }
+        return bits;
+    }
+
+    private static int wordCount(int domainSize, int bits) {
+        int perWord = Long.SIZE / bits;
+        return (domainSize + perWord - 1) / perWord;
+    }
+}
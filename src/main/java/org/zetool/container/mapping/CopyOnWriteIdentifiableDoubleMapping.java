@@ -0,0 +1,287 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.zetool.container.util.CopyOnWritePages;
+
+/**
+ * An {@link IdentifiableDoubleMapping} whose {@link #clone()} shares the stored values with the original. The values
+ * are stored in pages of {@link CopyOnWritePages#PAGE_SIZE} values, a page is copied only when it is written the first
+ * time after cloning. See {@link CopyOnWriteIdentifiableIntegerMapping} for details.
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to doubles.
+ * {@code D} must implement {@link Identifiable}.
+ */
+public class CopyOnWriteIdentifiableDoubleMapping<D extends Identifiable> extends IdentifiableDoubleMapping<D> {
+
+    /** Creates, copies and clears pages of doubles. */
+    private static final CopyOnWritePages.PageType<double[]> PAGE_TYPE = new CopyOnWritePages.PageType<double[]>() {
+        @Override
+        public double[] create() {
+            return new double[CopyOnWritePages.PAGE_SIZE];
+        }
+
+        @Override
+        public double[] copy(double[] page) {
+            return page.clone();
+        }
+
+        @Override
+        public void clear(double[] page, int from, int to) {
+            Arrays.fill(page, from, to, 0.0);
+        }
+    };
+
+    /** The pages storing the values. */
+    private CopyOnWritePages<double[]> pages;
+
+    /**
+     * Creates a new mapping with a domain of the given size, mapping all objects to {@code 0}. Runtime O(number of
+     * pages).
+     *
+     * @param domainSize the initial size of the domain.
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public CopyOnWriteIdentifiableDoubleMapping(int domainSize) {
+        pages = new CopyOnWritePages<>(PAGE_TYPE, domainSize);
+    }
+
+    /**
+     * Creates a new mapping containing the values of an {@link IdentifiableDoubleMapping}.
+     *
+     * @param mapping the mapping whose values are copied
+     */
+    public CopyOnWriteIdentifiableDoubleMapping(IdentifiableDoubleMapping<D> mapping) {
+        double[] values = mapping.denseValues();
+        pages = new CopyOnWritePages<>(PAGE_TYPE, values.length);
+        for (int p = 0; p < pages.getPageCount(); ++p) {
+            int from = p << CopyOnWritePages.PAGE_BITS;
+            System.arraycopy(values, from, pages.getWritable(p), 0,
+                    Math.min(CopyOnWritePages.PAGE_SIZE, values.length - from));
+        }
+    }
+
+    private CopyOnWriteIdentifiableDoubleMapping(CopyOnWritePages<double[]> pages) {
+        this.pages = pages;
+    }
+
+    @Override
+    public double getDouble(D identifiableObject) {
+        int id = identifiableObject.id();
+        checkIndex(id);
+        double[] page = pages.get(id >>> CopyOnWritePages.PAGE_BITS);
+        return page == null ? 0.0 : page[id & CopyOnWritePages.PAGE_MASK];
+    }
+
+    @Override
+    public void set(D identifiableObject, double value) {
+        int id = identifiableObject.id();
+        if (id < 0) {
+            throw new ArrayIndexOutOfBoundsException(id);
+        }
+        if (id >= pages.size()) {
+            pages.setSize(id + 1);
+        }
+        pages.getWritable(id >>> CopyOnWritePages.PAGE_BITS)[id & CopyOnWritePages.PAGE_MASK] = value;
+    }
+
+    @Override
+    public void add(D identifiableObject, double value) {
+        set(identifiableObject, value);
+    }
+
+    @Override
+    public void increase(D identifiableObject, double amount) {
+        writablePage(identifiableObject.id())[identifiableObject.id() & CopyOnWritePages.PAGE_MASK] += amount;
+    }
+
+    @Override
+    public void decrease(D identifiableObject, double amount) {
+        writablePage(identifiableObject.id())[identifiableObject.id() & CopyOnWritePages.PAGE_MASK] -= amount;
+    }
+
+    @Override
+    public void divide(D identifiableObject, double amount) {
+        writablePage(identifiableObject.id())[identifiableObject.id() & CopyOnWritePages.PAGE_MASK] /= amount;
+    }
+
+    /**
+     * Maps all objects to {@code value}. Runtime O(number of pages) for {@code 0}, as all pages are dropped, and
+     * O(size of the domain) otherwise.
+     *
+     * @param value the new value of all objects
+     */
+    @Override
+    public void initializeWith(int value) {
+        pages.clear();
+        if (value != 0) {
+            for (int p = 0; p < pages.getPageCount(); ++p) {
+                int to = Math.min(CopyOnWritePages.PAGE_SIZE, pages.size() - (p << CopyOnWritePages.PAGE_BITS));
+                Arrays.fill(pages.getWritable(p), 0, to, value);
+            }
+        }
+    }
+
+    @Override
+    public int getDomainSize() {
+        return pages.size();
+    }
+
+    @Override
+    public void setDomainSize(int value) {
+        pages.setSize(value);
+    }
+
+    @Override
+    public IdentifiableIntegerMapping<D> round() {
+        return new IdentifiableDoubleMapping<D>(denseValues()).round();
+    }
+
+    /**
+     * Returns the number of pages that are not shared with a clone or the original, i.e. that have been copied or
+     * created by writes since the last call of {@link #clone()}.
+     *
+     * @return the number of exclusively owned pages
+     */
+    public int getOwnedPageCount() {
+        return pages.getOwnedPageCount();
+    }
+
+    /**
+     * Creates a copy sharing all pages with this mapping. Runtime O(number of pages).
+     *
+     * @return a copy of this mapping.
+     */
+    @Override
+    public CopyOnWriteIdentifiableDoubleMapping<D> clone() {
+        return new CopyOnWriteIdentifiableDoubleMapping<>(pages.share());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return new IdentifiableDoubleMapping<D>(denseValues()).equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return new IdentifiableDoubleMapping<D>(denseValues()).hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return new IdentifiableDoubleMapping<D>(denseValues()).toString();
+    }
+
+    @Override
+    public Iterator<Double> iterator() {
+        return new Iterator<Double>() {
+            private int id;
+
+            @Override
+            public boolean hasNext() {
+                return id < pages.size();
+            }
+
+            @Override
+            public Double next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                double[] page = pages.get(id >>> CopyOnWritePages.PAGE_BITS);
+                double value = page == null ? 0.0 : page[id & CopyOnWritePages.PAGE_MASK];
+                id++;
+                return value;
+            }
+        };
+    }
+
+    @Override
+    double valueAt(int id) {
+        checkIndex(id);
+        double[] page = pages.get(id >>> CopyOnWritePages.PAGE_BITS);
+        return page == null ? 0.0 : page[id & CopyOnWritePages.PAGE_MASK];
+    }
+
+    @Override
+    void storeValueAt(int id, double value) {
+        checkIndex(id);
+        pages.getWritable(id >>> CopyOnWritePages.PAGE_BITS)[id & CopyOnWritePages.PAGE_MASK] = value;
+    }
+
+    @Override
+    double[] denseValues() {
+        double[] values = new double[pages.size()];
+        for (int p = 0; p < pages.getPageCount(); ++p) {
+            double[] page = pages.get(p);
+            if (page != null) {
+                int from = p << CopyOnWritePages.PAGE_BITS;
+                System.arraycopy(page, 0, values, from, Math.min(CopyOnWritePages.PAGE_SIZE, values.length - from));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns a copy of the values. The bulk operations write it back using {@link #storeDenseValues(double[])}.
+     *
+     * @return a copy of the values of the domain
+     */
+    @Override
+    double[] writableDenseValues() {
+        return denseValues();
+    }
+
+    /**
+     * Writes back the pages whose values have changed. Unchanged pages stay shared with clones. Runtime O(size of the
+     * domain).
+     *
+     * @param values the changed values
+     */
+    @Override
+    void storeDenseValues(double[] values) {
+        for (int p = 0; p < pages.getPageCount(); ++p) {
+            int from = p << CopyOnWritePages.PAGE_BITS;
+            int length = Math.min(CopyOnWritePages.PAGE_SIZE, values.length - from);
+            if (!matches(pages.get(p), values, from, length)) {
+                System.arraycopy(values, from, pages.getWritable(p), 0, length);
+            }
+        }
+    }
+
+    private static boolean matches(double[] page, double[] values, int from, int length) {
+        for (int i = 0; i < length; ++i) {
+            double stored = page == null ? 0.0 : page[i];
+            if (Double.doubleToLongBits(stored) != Double.doubleToLongBits(values[from + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkIndex(int id) {
+        if (id < 0 || id >= pages.size()) {
+            throw new ArrayIndexOutOfBoundsException(id);
+        }
+    }
+
+    private double[] writablePage(int id) {
+        checkIndex(id);
+        return pages.getWritable(id >>> CopyOnWritePages.PAGE_BITS);
+    }
+}
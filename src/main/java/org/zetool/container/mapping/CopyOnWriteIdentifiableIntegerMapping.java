@@ -0,0 +1,265 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+import org.zetool.container.util.CopyOnWritePages;
+
+/**
+ * An {@link IdentifiableIntegerMapping} whose {@link #clone()} shares the stored values with the original. The values
+ * are stored in pages of {@link CopyOnWritePages#PAGE_SIZE} values, and a page is copied only when it is written the
+ * first time after cloning. Cloning a mapping and modifying a few values, e.g. per branch of a branch and bound
+ * algorithm, thus costs time and memory proportional to the number of pages plus the modified pages instead of the
+ * size of the domain.
+ * <p>
+ * Read access costs an additional indirection compared to {@link IdentifiableIntegerMapping}. Bulk operations that
+ * write a dense array, such as {@link #addScaled(IdentifiableIntegerMapping, int)}, work on a copy of the values and
+ * take ownership only of the pages whose values change.</p>
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to integers.
+ * {@code D} must implement {@link Identifiable}.
+ */
+public class CopyOnWriteIdentifiableIntegerMapping<D extends Identifiable> extends IdentifiableIntegerMapping<D> {
+
+    /** Creates, copies and clears pages of integers. */
+    private static final CopyOnWritePages.PageType<int[]> PAGE_TYPE = new CopyOnWritePages.PageType<int[]>() {
+        @Override
+        public int[] create() {
+            return new int[CopyOnWritePages.PAGE_SIZE];
+        }
+
+        @Override
+        public int[] copy(int[] page) {
+            return page.clone();
+        }
+
+        @Override
+        public void clear(int[] page, int from, int to) {
+            Arrays.fill(page, from, to, 0);
+        }
+    };
+
+    /** The pages storing the values. */
+    private CopyOnWritePages<int[]> pages;
+
+    /**
+     * Creates a new mapping with a domain of the given size, mapping all objects to {@code 0}. Runtime O(number of
+     * pages).
+     *
+     * @param domainSize the initial size of the domain.
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public CopyOnWriteIdentifiableIntegerMapping(int domainSize) {
+        pages = new CopyOnWritePages<>(PAGE_TYPE, domainSize);
+    }
+
+    /**
+     * Creates a new mapping containing the values of an {@link IdentifiableIntegerMapping}.
+     *
+     * @param mapping the mapping whose values are copied
+     */
+    public CopyOnWriteIdentifiableIntegerMapping(IdentifiableIntegerMapping<D> mapping) {
+        int[] values = mapping.denseValues();
+        pages = new CopyOnWritePages<>(PAGE_TYPE, values.length);
+        for (int p = 0; p < pages.getPageCount(); ++p) {
+            int from = p << CopyOnWritePages.PAGE_BITS;
+            System.arraycopy(values, from, pages.getWritable(p), 0,
+                    Math.min(CopyOnWritePages.PAGE_SIZE, values.length - from));
+        }
+    }
+
+    private CopyOnWriteIdentifiableIntegerMapping(CopyOnWritePages<int[]> pages) {
+        this.pages = pages;
+    }
+
+    @Override
+    public int get(D identifiableObject) {
+        int id = identifiableObject.id();
+        checkIndex(id);
+        int[] page = pages.get(id >>> CopyOnWritePages.PAGE_BITS);
+        return page == null ? 0 : page[id & CopyOnWritePages.PAGE_MASK];
+    }
+
+    @Override
+    public void set(D identifiableObject, int value) {
+        int id = ensureDomain(identifiableObject.id());
+        pages.getWritable(id >>> CopyOnWritePages.PAGE_BITS)[id & CopyOnWritePages.PAGE_MASK] = value;
+    }
+
+    @Override
+    public void increase(D identifiableObject, int amount) {
+        int id = ensureDomain(identifiableObject.id());
+        int[] page = pages.getWritable(id >>> CopyOnWritePages.PAGE_BITS);
+        page[id & CopyOnWritePages.PAGE_MASK] = Math.addExact(page[id & CopyOnWritePages.PAGE_MASK], amount);
+    }
+
+    @Override
+    public void add(D identifiableObject, int value) {
+        set(identifiableObject, value);
+    }
+
+    @Override
+    public void decrease(D identifiableObject, int amount) {
+        int id = ensureDomain(identifiableObject.id());
+        pages.getWritable(id >>> CopyOnWritePages.PAGE_BITS)[id & CopyOnWritePages.PAGE_MASK] -= amount;
+    }
+
+    /**
+     * Maps all objects to {@code value}. Runtime O(number of pages) for {@code 0}, as all pages are dropped, and
+     * O(size of the domain) otherwise.
+     *
+     * @param value the new value of all objects
+     */
+    @Override
+    public void initializeWith(int value) {
+        pages.clear();
+        if (value != 0) {
+            for (int p = 0; p < pages.getPageCount(); ++p) {
+                int[] page = pages.getWritable(p);
+                int to = Math.min(CopyOnWritePages.PAGE_SIZE, pages.size() - (p << CopyOnWritePages.PAGE_BITS));
+                Arrays.fill(page, 0, to, value);
+            }
+        }
+    }
+
+    @Override
+    public int getDomainSize() {
+        return pages.size();
+    }
+
+    @Override
+    public void setDomainSize(int value) {
+        pages.setSize(value);
+    }
+
+    @Override
+    public int maximum() {
+        return new IdentifiableIntegerMapping<D>(denseValues()).maximum();
+    }
+
+    /**
+     * Returns the number of pages that are not shared with a clone or the original, i.e. that have been copied or
+     * created by writes since the last call of {@link #clone()}.
+     *
+     * @return the number of exclusively owned pages
+     */
+    public int getOwnedPageCount() {
+        return pages.getOwnedPageCount();
+    }
+
+    /**
+     * Creates a copy sharing all pages with this mapping. Runtime O(number of pages).
+     *
+     * @return a copy of this mapping.
+     */
+    @Override
+    public CopyOnWriteIdentifiableIntegerMapping<D> clone() {
+        return new CopyOnWriteIdentifiableIntegerMapping<>(pages.share());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return new IdentifiableIntegerMapping<D>(denseValues()).equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return new IdentifiableIntegerMapping<D>(denseValues()).hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return new IdentifiableIntegerMapping<D>(denseValues()).toString();
+    }
+
+    @Override
+    int valueAt(int id) {
+        checkIndex(id);
+        int[] page = pages.get(id >>> CopyOnWritePages.PAGE_BITS);
+        return page == null ? 0 : page[id & CopyOnWritePages.PAGE_MASK];
+    }
+
+    @Override
+    void storeValueAt(int id, int value) {
+        checkIndex(id);
+        pages.getWritable(id >>> CopyOnWritePages.PAGE_BITS)[id & CopyOnWritePages.PAGE_MASK] = value;
+    }
+
+    @Override
+    int[] denseValues() {
+        int[] values = new int[pages.size()];
+        for (int p = 0; p < pages.getPageCount(); ++p) {
+            int[] page = pages.get(p);
+            if (page != null) {
+                int from = p << CopyOnWritePages.PAGE_BITS;
+                System.arraycopy(page, 0, values, from, Math.min(CopyOnWritePages.PAGE_SIZE, values.length - from));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns a copy of the values. The bulk operations write it back using {@link #storeDenseValues(int[])}.
+     *
+     * @return a copy of the values of the domain
+     */
+    @Override
+    int[] writableDenseValues() {
+        return denseValues();
+    }
+
+    /**
+     * Writes back the pages whose values have changed. Unchanged pages stay shared with clones. Runtime O(size of the
+     * domain).
+     *
+     * @param values the changed values
+     */
+    @Override
+    void storeDenseValues(int[] values) {
+        for (int p = 0; p < pages.getPageCount(); ++p) {
+            int from = p << CopyOnWritePages.PAGE_BITS;
+            int length = Math.min(CopyOnWritePages.PAGE_SIZE, values.length - from);
+            if (!matches(pages.get(p), values, from, length)) {
+                System.arraycopy(values, from, pages.getWritable(p), 0, length);
+            }
+        }
+    }
+
+    private static boolean matches(int[] page, int[] values, int from, int length) {
+        for (int i = 0; i < length; ++i) {
+            if ((page == null ? 0 : page[i]) != values[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkIndex(int id) {
+        if (id < 0 || id >= pages.size()) {
+            throw new ArrayIndexOutOfBoundsException(id);
+        }
+    }
+
+    private int ensureDomain(int id) {
+        if (id < 0) {
+            throw new ArrayIndexOutOfBoundsException(id);
+        }
+        if (id >= pages.size()) {
+            pages.setSize(id + 1);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,193 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.zetool.container.util.CopyOnWritePages;
+
+/**
+ * An {@link IdentifiableObjectMapping} whose {@link #clone()} shares the stored values with the original. The values
+ * are stored in pages of {@link CopyOnWritePages#PAGE_SIZE} references, a page is copied only when it is written the
+ * first time after cloning. As for {@link IdentifiableObjectMapping#clone()} the values themselves are not copied. See
+ * {@link CopyOnWriteIdentifiableIntegerMapping} for details.
+ *
+ * @param <D> the type of this mapping's key domain, i.e. the type of the objects that are to be mapped to values.
+ * {@code D} must implement {@link Identifiable}.
+ * @param <R> the type of this mapping's range, i.e. the type of the values the objects can be mapped to.
+ */
+public class CopyOnWriteIdentifiableObjectMapping<D extends Identifiable, R> extends IdentifiableObjectMapping<D, R> {
+
+    /** Creates, copies and clears pages of references. */
+    private static final CopyOnWritePages.PageType<Object[]> PAGE_TYPE = new CopyOnWritePages.PageType<Object[]>() {
+        @Override
+        public Object[] create() {
+            return new Object[CopyOnWritePages.PAGE_SIZE];
+        }
+
+        @Override
+        public Object[] copy(Object[] page) {
+            return page.clone();
+        }
+
+        @Override
+        public void clear(Object[] page, int from, int to) {
+            Arrays.fill(page, from, to, null);
+        }
+    };
+
+    /** The pages storing the values. */
+    private CopyOnWritePages<Object[]> pages;
+
+    /**
+     * Creates a new mapping with a domain of the given size, mapping all objects to {@code null}. Runtime O(number of
+     * pages).
+     *
+     * @param domainSize the initial size of the domain.
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public CopyOnWriteIdentifiableObjectMapping(int domainSize) {
+        pages = new CopyOnWritePages<>(PAGE_TYPE, domainSize);
+    }
+
+    private CopyOnWriteIdentifiableObjectMapping(CopyOnWritePages<Object[]> pages) {
+        this.pages = pages;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public R get(D identifiableObject) {
+        int id = identifiableObject.id();
+        if (id < 0 || id >= pages.size()) {
+            throw new ArrayIndexOutOfBoundsException(id);
+        }
+        return (R) value(id);
+    }
+
+    @Override
+    public void set(D identifiableObject, R value) {
+        int id = identifiableObject.id();
+        if (id < 0) {
+            throw new ArrayIndexOutOfBoundsException(id);
+        }
+        if (id >= pages.size()) {
+            pages.setSize(id + 1);
+        }
+        pages.getWritable(id >>> CopyOnWritePages.PAGE_BITS)[id & CopyOnWritePages.PAGE_MASK] = value;
+    }
+
+    @Override
+    public int getDomainSize() {
+        return pages.size();
+    }
+
+    @Override
+    public void setDomainSize(int value) {
+        pages.setSize(value);
+    }
+
+    @Override
+    public boolean isDefinedFor(D identifiableObject) {
+        return 0 <= identifiableObject.id() && identifiableObject.id() < getDomainSize()
+                && get(identifiableObject) != null;
+    }
+
+    /**
+     * Returns the number of pages that are not shared with a clone or the original, i.e. that have been copied or
+     * created by writes since the last call of {@link #clone()}.
+     *
+     * @return the number of exclusively owned pages
+     */
+    public int getOwnedPageCount() {
+        return pages.getOwnedPageCount();
+    }
+
+    /**
+     * Creates a copy sharing all pages with this mapping. Runtime O(number of pages).
+     *
+     * @return a copy of this mapping.
+     */
+    @Override
+    public CopyOnWriteIdentifiableObjectMapping<D, R> clone() {
+        return new CopyOnWriteIdentifiableObjectMapping<>(pages.share());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean equals(Object o) {
+        return new IdentifiableObjectMapping<D, R>((R[]) denseValues()).equals(o);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int hashCode() {
+        return new IdentifiableObjectMapping<D, R>((R[]) denseValues()).hashCode();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public String toString() {
+        return new IdentifiableObjectMapping<D, R>((R[]) denseValues()).toString();
+    }
+
+    /**
+     * Returns an iterator over the values that are not {@code null}, as {@link IdentifiableObjectMapping#iterator()}.
+     *
+     * @return an iterator over the values that are not {@code null}
+     */
+    @Override
+    public Iterator<R> iterator() {
+        return new Iterator<R>() {
+            private int id;
+
+            @Override
+            public boolean hasNext() {
+                while (id < pages.size() && value(id) == null) {
+                    id++;
+                }
+                return id < pages.size();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public R next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (R) value(id++);
+            }
+        };
+    }
+
+    @Override
+    Object[] denseValues() {
+        Object[] values = new Object[pages.size()];
+        for (int p = 0; p < pages.getPageCount(); ++p) {
+            Object[] page = pages.get(p);
+            if (page != null) {
+                int from = p << CopyOnWritePages.PAGE_BITS;
+                System.arraycopy(page, 0, values, from, Math.min(CopyOnWritePages.PAGE_SIZE, values.length - from));
+            }
+        }
+        return values;
+    }
+
+    private Object value(int id) {
+        Object[] page = pages.get(id >>> CopyOnWritePages.PAGE_BITS);
+        return page == null ? null : page[id & CopyOnWritePages.PAGE_MASK];
+    }
+}
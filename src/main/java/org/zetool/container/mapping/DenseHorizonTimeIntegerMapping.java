@@ -0,0 +1,307 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+/**
+ * A step function from integers to integers, like {@link TimeIntegerMapping}, for functions that only change within a
+ * known horizon {@code [0, horizon]} and are changed frequently. All integers outside the horizon and the horizon
+ * itself are mapped to 0.
+ * <p>
+ * While many steps exist, the mapping is stored densely as the differences between the values of consecutive times,
+ * kept in a Fenwick tree. A range increase changes two differences and a point query sums a prefix of them, both in
+ * O(log horizon), independent of the number of steps. A second Fenwick tree counts the steps, which allows to find the
+ * end of the step containing a time for {@link #set(int, int)} in O(log horizon) as well.</p>
+ * <p>
+ * The dense representation needs memory linear in the horizon. If the function becomes sparse, the mapping switches
+ * automatically to a {@link TimeIntegerMapping} and switches back if it becomes dense again. The representation is
+ * reconsidered after a number of changes proportional to the horizon, so that the conversions in O(horizon) are
+ * amortized.</p>
+ */
+public class DenseHorizonTimeIntegerMapping implements Mapping<Integer, Integer> {
+
+    /** The dense representation is replaced if less than one in this many times is the start of a step. */
+    private static final int SPARSE_RATIO = 64;
+    /** The sparse representation is replaced if at least one in this many times is the start of a step. */
+    private static final int DENSE_RATIO = 16;
+    /** The minimal number of changes after which the representation is reconsidered. */
+    private static final int MINIMUM_CHANGES = 64;
+    /** The last time that can be changed. It is always mapped to 0. */
+    private final int horizon;
+    /** The differences of the values at each time and its predecessor, {@code null} if the mapping is sparse. */
+    private int[] differences;
+    /** The Fenwick tree of the differences, one-based. */
+    private int[] differenceTree;
+    /** The Fenwick tree counting the times with non-zero differences, one-based. */
+    private int[] stepTree;
+    /** The number of times with non-zero differences. */
+    private int steps;
+    /** The sparse representation, {@code null} if the mapping is dense. */
+    private TimeIntegerMapping sparse;
+    /** The number of changes since the representation was reconsidered. */
+    private int changes;
+
+    /**
+     * Creates a new mapping with the given horizon that maps all integers to 0. The dense representation is used
+     * initially.
+     *
+     * @param horizon the last time that can be changed
+     * @exception IllegalArgumentException if the horizon is negative or {@code Integer.MAX_VALUE}
+     */
+    public DenseHorizonTimeIntegerMapping(int horizon) {
+        if (horizon < 0 || horizon == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid horizon: " + horizon);
+        }
+        this.horizon = horizon;
+        allocate();
+    }
+
+    /**
+     * Returns the last time that can be changed. It is always mapped to 0.
+     *
+     * @return the horizon of this mapping
+     */
+    public int getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * Returns whether the dense representation is currently used.
+     *
+     * @return {@code true} if the differences are stored for each time of the horizon
+     */
+    public boolean isDense() {
+        return sparse == null;
+    }
+
+    /**
+     * Returns the integer associated with the specified time. Runtime O(log horizon) in the dense and O(log (number of
+     * steps)) in the sparse representation.
+     *
+     * @param time the time for which the associated integer is to be returned.
+     * @return the integer associated with the specified time.
+     */
+    public int get(int time) {
+        if (sparse != null) {
+            return sparse.get(time);
+        }
+        if (time < 0 || time > horizon) {
+            return 0;
+        }
+        int sum = 0;
+        for (int i = time + 1; i > 0; i -= i & -i) {
+            sum += differenceTree[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public Integer get(Integer time) {
+        return get(time.intValue());
+    }
+
+    /**
+     * Maps the time {@code time} and all following times up to the next change of the value to {@code value}, like
+     * {@link TimeIntegerMapping#set(int, int)} does for mappings without redundant steps. Runtime O(log horizon) in the
+     * dense representation.
+     *
+     * @param time the time for which an association is to be made.
+     * @param value the value to be associated with the time.
+     * @exception IllegalArgumentException if {@code time} is not in {@code [0, horizon)}
+     */
+    public void set(int time, int value) {
+        checkRange(time, time + 1);
+        int old = get(time);
+        if (old != value) {
+            if (sparse != null) {
+                sparse.increase(time, Math.min(sparse.nextChange(time), horizon), value - old);
+            } else {
+                int end = nextStep(time);
+                add(time, value - old);
+                add(end, old - value);
+            }
+        }
+        changed();
+    }
+
+    @Override
+    public void set(Integer time, Integer value) {
+        set(time.intValue(), value.intValue());
+    }
+
+    /**
+     * Increases the value associated with a single time. It is equivalent to {@code increase(time, time+1, amount)}.
+     *
+     * @param time the time for which the associated value is to be increased.
+     * @param amount the amount by which the value is to be increased.
+     */
+    public void increase(int time, int amount) {
+        increase(time, time + 1, amount);
+    }
+
+    /**
+     * Increases the values associated with the times from {@code fromTime} (inclusively) to {@code toTime}
+     * (exclusively). Runtime O(log horizon) in the dense representation.
+     *
+     * @param fromTime the first time for which the associated value is to be increased.
+     * @param toTime the first time after {@code fromTime} for which the associated value is <b>not</b> to be increased.
+     * @param amount the amount by which the values are to be increased.
+     * @exception IllegalArgumentException if {@code toTime} is less equal than {@code fromTime} or the range is not
+     * within {@code [0, horizon]}
+     */
+    public void increase(int fromTime, int toTime, int amount) {
+        checkRange(fromTime, toTime);
+        if (sparse != null) {
+            sparse.increase(fromTime, toTime, amount);
+        } else if (amount != 0) {
+            add(fromTime, amount);
+            add(toTime, -amount);
+        }
+        changed();
+    }
+
+    /**
+     * Decreases the value associated with a single time. It is equivalent to {@code increase(time, time+1, -amount)}.
+     *
+     * @param time the time for which the associated value is to be decreased.
+     * @param amount the amount by which the value is to be decreased.
+     */
+    public void decrease(int time, int amount) {
+        increase(time, time + 1, -amount);
+    }
+
+    /**
+     * Decreases the values associated with the times from {@code fromTime} (inclusively) to {@code toTime}
+     * (exclusively). It is equivalent to {@code increase(fromTime, toTime, -amount)}.
+     *
+     * @param fromTime the first time for which the associated value is to be decreased.
+     * @param toTime the first time after {@code fromTime} for which the associated value is <b>not</b> to be decreased.
+     * @param amount the amount by which the values are to be decreased.
+     * @exception IllegalArgumentException if {@code toTime} is less equal than {@code fromTime} or the range is not
+     * within {@code [0, horizon]}
+     */
+    public void decrease(int fromTime, int toTime, int amount) {
+        increase(fromTime, toTime, -amount);
+    }
+
+    /**
+     * Returns a {@link TimeIntegerMapping} with the same values as this mapping. Runtime O(horizon) in the dense
+     * representation.
+     *
+     * @return a step function equal to this mapping
+     */
+    public TimeIntegerMapping toTimeIntegerMapping() {
+        if (sparse != null) {
+            return sparse.clone();
+        }
+        TimeIntegerMapping result = new TimeIntegerMapping();
+        int value = 0;
+        for (int time = 0; time <= horizon; ++time) {
+            if (differences[time] != 0) {
+                value += differences[time];
+                result.set(time, value);
+            }
+        }
+        return result;
+    }
+
+    private void checkRange(int fromTime, int toTime) {
+        if (toTime <= fromTime || fromTime < 0 || toTime > horizon) {
+            throw new IllegalArgumentException("Range [" + fromTime + ", " + toTime + ") is not within [0, " + horizon
+                    + "].");
+        }
+    }
+
+    /**
+     * Adds an amount to the difference at a time and updates the step count.
+     */
+    private void add(int time, int amount) {
+        int old = differences[time];
+        differences[time] += amount;
+        for (int i = time + 1; i < differenceTree.length; i += i & -i) {
+            differenceTree[i] += amount;
+        }
+        int stepChange = (differences[time] != 0 ? 1 : 0) - (old != 0 ? 1 : 0);
+        if (stepChange != 0) {
+            steps += stepChange;
+            for (int i = time + 1; i < stepTree.length; i += i & -i) {
+                stepTree[i] += stepChange;
+            }
+        }
+    }
+
+    /**
+     * Returns the first time after {@code time} with a non-zero difference, or the horizon if there is none. Counts the
+     * steps up to {@code time} and descends the Fenwick tree to the next one.
+     */
+    private int nextStep(int time) {
+        int rank = 0;
+        for (int i = time + 1; i > 0; i -= i & -i) {
+            rank += stepTree[i];
+        }
+        if (rank == steps) {
+            return horizon;
+        }
+        int position = 0;
+        for (int step = Integer.highestOneBit(stepTree.length - 1); step > 0; step >>>= 1) {
+            if (position + step < stepTree.length && stepTree[position + step] <= rank) {
+                position += step;
+                rank -= stepTree[position];
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Counts a change and reconsiders the representation after enough changes.
+     */
+    private void changed() {
+        if (++changes <= Math.max(horizon / DENSE_RATIO, MINIMUM_CHANGES)) {
+            return;
+        }
+        changes = 0;
+        if (sparse == null && (long) steps * SPARSE_RATIO < horizon) {
+            sparse = toTimeIntegerMapping();
+            differences = null;
+            differenceTree = null;
+            stepTree = null;
+        } else if (sparse != null) {
+            if ((long) sparse.getStepCount() * DENSE_RATIO >= horizon) {
+                TimeIntegerMapping old = sparse;
+                allocate();
+                int value = 0;
+                for (TimeIntegerPair tip : old) {
+                    if (tip.time() >= 0 && tip.time() <= horizon && tip.value() != value) {
+                        add(tip.time(), tip.value() - value);
+                        value = tip.value();
+                    }
+                }
+            }
+        }
+    }
+
+    private void allocate() {
+        sparse = null;
+        steps = 0;
+        differences = new int[horizon + 1];
+        differenceTree = new int[horizon + 2];
+        stepTree = new int[horizon + 2];
+    }
+
+    @Override
+    public String toString() {
+        return toTimeIntegerMapping().toString();
+    }
+}
@@ -0,0 +1,82 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+
+/**
+ * Stores for each ID of a domain the epoch in which its value was written last. A value is valid only if it was
+ * written in the current epoch, all other values are stale and have to be read as the default value of the owning
+ * mapping. Advancing the epoch thus invalidates all values in O(1). Only if the epoch counter overflows, all stamps are
+ * reset in O(size of the domain).
+ */
+final class EpochStamps {
+
+    /** The epoch in which the value of each ID was written last. */
+    private int[] stamps;
+    /** The current epoch. Initially {@code 0}, so that the initial array contents are valid. */
+    private int epoch;
+
+    EpochStamps(int domainSize) {
+        stamps = new int[domainSize];
+    }
+
+    EpochStamps(EpochStamps other) {
+        stamps = other.stamps.clone();
+        epoch = other.epoch;
+    }
+
+    /**
+     * Returns whether the value stored for an ID was written in the current epoch.
+     *
+     * @param id the ID
+     * @return {@code true} if the stored value is valid
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    boolean isCurrent(int id) {
+        return stamps[id] == epoch;
+    }
+
+    /**
+     * Marks the value stored for an ID as written in the current epoch.
+     *
+     * @param id the ID
+     */
+    void stamp(int id) {
+        stamps[id] = epoch;
+    }
+
+    /**
+     * Starts a new epoch, after which all values are stale. The epoch {@code 0} is skipped after an overflow as new
+     * slots created by {@link #setDomainSize(int)} are stamped with it.
+     */
+    void advance() {
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        } else {
+            epoch++;
+        }
+    }
+
+    int getDomainSize() {
+        return stamps.length;
+    }
+
+    void setDomainSize(int value) {
+        stamps = Arrays.copyOf(stamps, value);
+    }
+}
@@ -10,7 +10,7 @@ import java.util.Objects;
  */
 public class IdentifiableBooleanMapping<D extends Identifiable> implements Cloneable {
 	/** The array storing all associations. Must not be {@code null}. */
-	private boolean[] mapping;
+	protected boolean[] mapping;
 
 	public IdentifiableBooleanMapping( Iterable<D> domain ) {
 		int maxId = -1;
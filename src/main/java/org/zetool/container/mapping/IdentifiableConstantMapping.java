@@ -87,6 +87,26 @@ public class IdentifiableConstantMapping<D extends Identifiable> extends Identif
 		return true;
 	}
 
+	@Override
+	int valueAt( int id ) {
+		return constant;
+	}
+
+	@Override
+	void storeValueAt( int id, int value ) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	int[] denseValues() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	int[] writableDenseValues() {
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public IdentifiableConstantMapping<D> clone() {
 		return new IdentifiableConstantMapping<D>( constant );
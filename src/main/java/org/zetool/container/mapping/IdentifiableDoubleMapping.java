@@ -51,9 +51,7 @@ public class IdentifiableDoubleMapping<D extends Identifiable> implements Clonea
 	}
 
 	public IdentifiableDoubleMapping( IdentifiableDoubleMapping<D> iim ) {
-		mapping = new double[iim.getDomainSize()];
-		for( int i = 0; i < mapping.length; i++ )
-			mapping[i] = iim.mapping[i];
+		mapping = iim.denseValues().clone();
 	}
 
 	/**
@@ -85,9 +83,9 @@ public class IdentifiableDoubleMapping<D extends Identifiable> implements Clonea
 	 * @param d the added value
 	 */
 	public IdentifiableDoubleMapping( IdentifiableDoubleMapping<D> oldMapping, double d ) {
-		mapping = new double[oldMapping.mapping.length + 1];
-		System.arraycopy( oldMapping.mapping, 0, mapping, 0, oldMapping.mapping.length );
-		mapping[oldMapping.mapping.length] = d;
+		double[] values = oldMapping.denseValues();
+		mapping = Arrays.copyOf( values, values.length + 1 );
+		mapping[values.length] = d;
 	}
 
 	public IdentifiableIntegerMapping<D> round() {
@@ -306,11 +304,11 @@ public class IdentifiableDoubleMapping<D extends Identifiable> implements Clonea
 	public boolean equals( Object o ) {
 		if( o == null || !(o instanceof IdentifiableDoubleMapping) )
 			return false;
-		IdentifiableDoubleMapping iom = (IdentifiableDoubleMapping)o;
-		if( iom.mapping.length != mapping.length )
+		double[] other = ((IdentifiableDoubleMapping)o).denseValues();
+		if( other.length != mapping.length )
 			return false;
 		for( int i = 0; i < mapping.length; i++ )
-			if( iom.mapping[i] != mapping[i] )
+			if( other[i] != mapping[i] )
 				return false;
 		return true;
 	}
@@ -361,6 +359,191 @@ public class IdentifiableDoubleMapping<D extends Identifiable> implements Clonea
 		return builder.toString();
 	}
 
+	/**
+	 * Adds {@code factor} times the value of each object in {@code other} to
+	 * the value of the object in this mapping, e.g. to scale and add a flow
+	 * to the capacities of all edges. Runtime O(size of the domain).
+	 * @param other the mapping whose scaled values are added
+	 * @param factor the factor for the values of {@code other}
+	 * @exception IllegalArgumentException if the domains differ in size
+	 */
+	public void addScaled( IdentifiableDoubleMapping<D> other, double factor ) {
+		double[] values = writableDenseValues();
+		double[] summands = checkedValues( other, values.length );
+		for( int i = 0; i < values.length; ++i )
+			values[i] += factor * summands[i];
+		storeDenseValues( values );
+	}
+
+	/**
+	 * Restricts all values to the interval from {@code lower} to
+	 * {@code upper}. {@code NaN} values are kept. Runtime O(size of the domain).
+	 * @param lower the smallest allowed value
+	 * @param upper the largest allowed value
+	 * @exception IllegalArgumentException if {@code lower} is greater than {@code upper}
+	 */
+	public void clamp( double lower, double upper ) {
+		if( !(lower <= upper) )
+			throw new IllegalArgumentException( "Empty interval: " + lower + " > " + upper );
+		double[] values = writableDenseValues();
+		for( int i = 0; i < values.length; ++i )
+			values[i] = values[i] < lower ? lower : (values[i] > upper ? upper : values[i]);
+		storeDenseValues( values );
+	}
+
+	/**
+	 * Replaces each value by the minimum of the value and the value of the
+	 * same object in {@code other}. Runtime O(size of the domain).
+	 * @param other the other mapping
+	 * @exception IllegalArgumentException if the domains differ in size
+	 */
+	public void minCombine( IdentifiableDoubleMapping<D> other ) {
+		double[] values = writableDenseValues();
+		double[] others = checkedValues( other, values.length );
+		for( int i = 0; i < values.length; ++i )
+			values[i] = Math.min( values[i], others[i] );
+		storeDenseValues( values );
+	}
+
+	/**
+	 * Replaces each value by the maximum of the value and the value of the
+	 * same object in {@code other}. Runtime O(size of the domain).
+	 * @param other the other mapping
+	 * @exception IllegalArgumentException if the domains differ in size
+	 */
+	public void maxCombine( IdentifiableDoubleMapping<D> other ) {
+		double[] values = writableDenseValues();
+		double[] others = checkedValues( other, values.length );
+		for( int i = 0; i < values.length; ++i )
+			values[i] = Math.max( values[i], others[i] );
+		storeDenseValues( values );
+	}
+
+	/**
+	 * Returns a mask containing {@code true} for all objects whose value is
+	 * less than {@code threshold}. Runtime O(size of the domain).
+	 * @param threshold the threshold
+	 * @return a boolean mapping on a domain of the same size
+	 */
+	public IdentifiableBooleanMapping<D> lessThan( double threshold ) {
+		double[] values = denseValues();
+		boolean[] mask = new boolean[values.length];
+		for( int i = 0; i < values.length; ++i )
+			mask[i] = values[i] < threshold;
+		return new IdentifiableBooleanMapping<>( mask );
+	}
+
+	/**
+	 * Returns a mask containing {@code true} for all objects whose value is
+	 * greater than {@code threshold}. Runtime O(size of the domain).
+	 * @param threshold the threshold
+	 * @return a boolean mapping on a domain of the same size
+	 */
+	public IdentifiableBooleanMapping<D> greaterThan( double threshold ) {
+		double[] values = denseValues();
+		boolean[] mask = new boolean[values.length];
+		for( int i = 0; i < values.length; ++i )
+			mask[i] = values[i] > threshold;
+		return new IdentifiableBooleanMapping<>( mask );
+	}
+
+	/**
+	 * Returns the values of the given IDs. Runtime O(number of IDs) times the
+	 * cost of reading a single value, i.e. O(number of IDs) for the dense
+	 * array.
+	 * @param ids the IDs
+	 * @return an array containing the value of {@code ids[i]} at position {@code i}
+	 * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+	 */
+	public double[] gather( int[] ids ) {
+		double[] result = new double[ids.length];
+		for( int i = 0; i < ids.length; ++i )
+			result[i] = valueAt( ids[i] );
+		return result;
+	}
+
+	/**
+	 * Sets the value of {@code ids[i]} to {@code source[i]} for all positions.
+	 * If an ID occurs multiple times, the last value is stored. The domain is
+	 * not expanded. Runtime O(number of IDs) times the cost of writing a single
+	 * value, i.e. O(number of IDs) for the dense array.
+	 * @param ids the IDs
+	 * @param source the new values
+	 * @exception IllegalArgumentException if the arrays differ in length
+	 * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+	 */
+	public void scatter( int[] ids, double[] source ) {
+		if( ids.length != source.length )
+			throw new IllegalArgumentException( "Lengths differ: " + ids.length + " and " + source.length );
+		for( int i = 0; i < ids.length; ++i )
+			storeValueAt( ids[i], source[i] );
+	}
+
+	private static double[] checkedValues( IdentifiableDoubleMapping<?> other, int domainSize ) {
+		double[] values = other.denseValues();
+		if( values.length != domainSize )
+			throw new IllegalArgumentException( "Domain sizes differ: " + domainSize + " and " + values.length );
+		return values;
+	}
+
+	/**
+	 * Returns an array containing the values of the whole domain, indexed by ID.
+	 * The array must not be modified, it may be the internal array or a
+	 * temporary copy. Subclasses with a different representation materialize
+	 * their values. Used for copies and by the bulk operations in
+	 * {@link ParallelMappings}.
+	 * @return the values of the domain
+	 */
+	double[] denseValues() {
+		return mapping;
+	}
+
+	/**
+	 * Returns an array containing the values of the whole domain, indexed by
+	 * ID, that may be modified. Changes take effect when the array is passed to
+	 * {@link #storeDenseValues(double[])}. Subclasses with a different
+	 * representation switch to the dense array or return a temporary copy.
+	 * @return the modifiable array of values
+	 */
+	double[] writableDenseValues() {
+		return mapping;
+	}
+
+	/**
+	 * Returns the value of an ID without expanding the domain. Used by
+	 * {@link #gather(int[])}, subclasses with a different representation read
+	 * the value from it.
+	 * @param id the ID
+	 * @return the value of the ID
+	 * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+	 */
+	double valueAt( int id ) {
+		return mapping[id];
+	}
+
+	/**
+	 * Sets the value of an ID without expanding the domain. Used by
+	 * {@link #scatter(int[], double[])}, subclasses with a different
+	 * representation store the value in it and update their additional data.
+	 * @param id the ID
+	 * @param value the new value
+	 * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+	 */
+	void storeValueAt( int id, double value ) {
+		mapping[id] = value;
+	}
+
+	/**
+	 * Stores the values of an array obtained from
+	 * {@link #writableDenseValues()} after it has been changed. The dense array
+	 * is the internal array, so nothing has to be done. Subclasses with a
+	 * different representation that return a temporary copy from
+	 * {@link #writableDenseValues()} write the values back.
+	 * @param values the changed values
+	 */
+	void storeDenseValues( double[] values ) {
+	}
+
   @Override
   public Iterator<Double> iterator() {
     throw new UnsupportedOperationException( "Not supported yet." ); //To change body of generated methods, choose Tools | Templates.
@@ -0,0 +1,492 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * The {@code IdentifiableFloatMapping} class represents a mapping from a set of identifiable objects to {@code float}
+ * values. It uses half the memory of an {@link IdentifiableDoubleMapping} and is suitable for weights such as travel
+ * times or lengths that do not require double precision. An array is used for storing the mapping internally. The ID
+ * of an identifiable object determines the position in the array where the object's value is stored.
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to floats.
+ * {@code D} must implement {@link Identifiable}.
+ */
+public class IdentifiableFloatMapping<D extends Identifiable> implements Cloneable, IdentifiableMapping<D, Float> {
+
+    /**
+     * The array storing all associations. Must not be {@code null}.
+     */
+    protected float[] mapping;
+
+    public IdentifiableFloatMapping(Iterable<D> domain) {
+        int maxId = -1;
+        for (D x : domain) {
+            if (maxId < x.id()) {
+                maxId = x.id();
+            }
+        }
+        mapping = new float[maxId + 1];
+    }
+
+    /**
+     * Creates a new instance as a copy of an existing {@link IdentifiableFloatMapping}.
+     *
+     * @param ifm the copied mapping
+     */
+    public IdentifiableFloatMapping(IdentifiableFloatMapping<D> ifm) {
+        mapping = ifm.mapping.clone();
+    }
+
+    /**
+     * Creates a new mapping containing the values of an {@link IdentifiableDoubleMapping} rounded to the nearest
+     * {@code float}.
+     *
+     * @param values the double values
+     */
+    public IdentifiableFloatMapping(IdentifiableDoubleMapping<D> values) {
+        double[] source = values.denseValues();
+        mapping = new float[source.length];
+        for (int i = 0; i < source.length; ++i) {
+            mapping[i] = (float) source[i];
+        }
+    }
+
+    /**
+     * Constructs a new {@code IdentifiableFloatMapping} object with a specified initial mapping. The default
+     * association for an object is as specified by {@code mapping}. Runtime O(1).
+     *
+     * @param mapping the array defining the initial mapping.
+     * @exception NullPointerException if {@code mapping} is null.
+     */
+    protected IdentifiableFloatMapping(float[] mapping) {
+        this.mapping = mapping;
+    }
+
+    /**
+     * Constructs a new {@code IdentifiableFloatMapping} object with a domain of the specified size. The default
+     * association for an object is {@code 0}. Runtime O(domainSize).
+     *
+     * @param domainSize the initial size of the domain.
+     * @exception NegativeArraySizeException if {@code value} is negative.
+     */
+    public IdentifiableFloatMapping(int domainSize) {
+        mapping = new float[domainSize];
+    }
+
+    /**
+     * Returns the value associated with {@code identifiableObject} in this mapping. Runtime O(1).
+     *
+     * @param identifiableObject the object for which the associated value is to be returned.
+     * @return the value associated with {@code identifiableObject} in this mapping.
+     * @exception ArrayIndexOutOfBoundsException if {@code identifiableObject}'s ID is less then 0 or greater equal than
+     * the size of the domain.
+     * @exception NullPointerException if {@code identifiableObject} is null.
+     */
+    public float getFloat(D identifiableObject) {
+        return mapping[identifiableObject.id()];
+    }
+
+    @Override
+    public Float get(D identifiableObject) {
+        return getFloat(identifiableObject);
+    }
+
+    /**
+     * Associates {@code identifiableObject} with {@code value} in this mapping. Calling {@code set} with an
+     * {@code identifiableObject} whose ID is greater equal than the current size of the domain will automatically
+     * increase the size of the domain to accommodate {@code identifiableObject}'s ID. Runtime O(1) (O(ID) if the domain
+     * is expanded).
+     *
+     * @param identifiableObject the object for which an association is to be made.
+     * @param value the value to be associated with {@code identifiableObject}.
+     * @exception ArrayIndexOutOfBoundsException if {@code identifiableObject}'s ID is less then 0.
+     * @exception NullPointerException if {@code identifiableObject} is null.
+     */
+    public void set(D identifiableObject, float value) {
+        if (identifiableObject.id() >= getDomainSize()) {
+            setDomainSize(identifiableObject.id() + 1);
+        }
+        mapping[identifiableObject.id()] = value;
+    }
+
+    @Override
+    public void set(D identifiableObject, Float value) {
+        set(identifiableObject, value.floatValue());
+    }
+
+    /**
+     * Increases the value of {@code identifiableObject} by {@code amount}. The domain is expanded if necessary.
+     * Runtime O(1) (O(ID) if the domain is expanded).
+     *
+     * @param identifiableObject the object for which the value is to be increased.
+     * @param amount the amount
+     */
+    public void increase(D identifiableObject, float amount) {
+        if (identifiableObject.id() >= getDomainSize()) {
+            setDomainSize(identifiableObject.id() + 1);
+        }
+        mapping[identifiableObject.id()] += amount;
+    }
+
+    public void add(D identifiableObject, float value) {
+        set(identifiableObject, value);
+    }
+
+    /**
+     * Decreases the value of {@code identifiableObject} by {@code amount}. The domain is expanded if necessary.
+     *
+     * @param identifiableObject the object for which the value is to be decreased.
+     * @param amount the amount
+     */
+    public void decrease(D identifiableObject, float amount) {
+        if (identifiableObject.id() >= getDomainSize()) {
+            setDomainSize(identifiableObject.id() + 1);
+        }
+        mapping[identifiableObject.id()] -= amount;
+    }
+
+    /**
+     * Returns the minimum over all values assigned to the specified set of objects.
+     *
+     * @param identifiableObjects the objects
+     * @return the minimum over all values assigned to the specified set of objects.
+     */
+    public float minimum(Iterable<D> identifiableObjects) {
+        float minimum = Float.POSITIVE_INFINITY;
+        for (D identifiableObject : identifiableObjects) {
+            float value = getFloat(identifiableObject);
+            if (value < minimum) {
+                minimum = value;
+            }
+        }
+        return minimum;
+    }
+
+    /**
+     * Returns the sum over all values assigned to the specified set of objects. The sum is computed in double
+     * precision.
+     *
+     * @param identifiableObjects the objects
+     * @return the sum of the values
+     */
+    public double sum(Iterable<D> identifiableObjects) {
+        double sum = 0;
+        for (D identifiableObject : identifiableObjects) {
+            sum += getFloat(identifiableObject);
+        }
+        return sum;
+    }
+
+    public float maximum() {
+        float result = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < mapping.length; ++i) {
+            if (mapping[i] > result) {
+                result = mapping[i];
+            }
+        }
+        return result;
+    }
+
+    public void initializeWith(float value) {
+        Arrays.fill(mapping, value);
+    }
+
+    /**
+     * Returns the size of this mapping's domain. Runtime O(1).
+     *
+     * @return the size of this mapping's domain.
+     */
+    @Override
+    public int getDomainSize() {
+        return mapping.length;
+    }
+
+    /**
+     * Sets the size of this mapping's domain to {@code value}. Runtime O(value).
+     *
+     * @param value the new size of this mapping's domain.
+     * @exception NegativeArraySizeException if {@code value} is negative.
+     */
+    @Override
+    public void setDomainSize(int value) {
+        mapping = Arrays.copyOf(mapping, value);
+    }
+
+    /**
+     * Checks whether {@code identifiableObject} has been defined in this mapping, i.e. whether its ID fits the size of
+     * the domain. Runtime O(1).
+     *
+     * @param identifiableObject the object to check for whether it is defined in this mapping.
+     * @return true if {@code get(identifiableObject)} would return a value and false otherwise.
+     */
+    @Override
+    public boolean isDefinedFor(D identifiableObject) {
+        return 0 <= identifiableObject.id() && identifiableObject.id() < getDomainSize();
+    }
+
+    /**
+     * Adds {@code factor} times the value of each object in {@code other} to the value of the object in this mapping.
+     * Runtime O(size of the domain).
+     *
+     * @param other the mapping whose scaled values are added
+     * @param factor the factor for the values of {@code other}
+     * @exception IllegalArgumentException if the domains differ in size
+     */
+    public void addScaled(IdentifiableFloatMapping<D> other, float factor) {
+        float[] summands = checkedValues(other);
+        for (int i = 0; i < mapping.length; ++i) {
+            mapping[i] += factor * summands[i];
+        }
+    }
+
+    /**
+     * Restricts all values to the interval from {@code lower} to {@code upper}. Runtime O(size of the domain).
+     *
+     * {@code NaN} values are kept.
+     *
+     * @param lower the smallest allowed value
+     * @param upper the largest allowed value
+     * @exception IllegalArgumentException if {@code lower} is greater than {@code upper}
+     */
+    public void clamp(float lower, float upper) {
+        if (!(lower <= upper)) {
+            throw new IllegalArgumentException("Empty interval: " + lower + " > " + upper);
+        }
+        for (int i = 0; i < mapping.length; ++i) {
+            mapping[i] = mapping[i] < lower ? lower : (mapping[i] > upper ? upper : mapping[i]);
+        }
+    }
+
+    /**
+     * Replaces each value by the minimum of the value and the value of the same object in {@code other}.
+     *
+     * @param other the other mapping
+     * @exception IllegalArgumentException if the domains differ in size
+     */
+    public void minCombine(IdentifiableFloatMapping<D> other) {
+        float[] others = checkedValues(other);
+        for (int i = 0; i < mapping.length; ++i) {
+            mapping[i] = Math.min(mapping[i], others[i]);
+        }
+    }
+
+    /**
+     * Replaces each value by the maximum of the value and the value of the same object in {@code other}.
+     *
+     * @param other the other mapping
+     * @exception IllegalArgumentException if the domains differ in size
+     */
+    public void maxCombine(IdentifiableFloatMapping<D> other) {
+        float[] others = checkedValues(other);
+        for (int i = 0; i < mapping.length; ++i) {
+            mapping[i] = Math.max(mapping[i], others[i]);
+        }
+    }
+
+    /**
+     * Returns a mask containing {@code true} for all objects whose value is less than {@code threshold}.
+     *
+     * @param threshold the threshold
+     * @return a boolean mapping on a domain of the same size
+     */
+    public IdentifiableBooleanMapping<D> lessThan(float threshold) {
+        boolean[] mask = new boolean[mapping.length];
+        for (int i = 0; i < mapping.length; ++i) {
+            mask[i] = mapping[i] < threshold;
+        }
+        return new IdentifiableBooleanMapping<>(mask);
+    }
+
+    /**
+     * Returns a mask containing {@code true} for all objects whose value is greater than {@code threshold}.
+     *
+     * @param threshold the threshold
+     * @return a boolean mapping on a domain of the same size
+     */
+    public IdentifiableBooleanMapping<D> greaterThan(float threshold) {
+        boolean[] mask = new boolean[mapping.length];
+        for (int i = 0; i < mapping.length; ++i) {
+            mask[i] = mapping[i] > threshold;
+        }
+        return new IdentifiableBooleanMapping<>(mask);
+    }
+
+    /**
+     * Returns the values of the given IDs.
+     *
+     * @param ids the IDs
+     * @return an array containing the value of {@code ids[i]} at position {@code i}
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public float[] gather(int[] ids) {
+        float[] result = new float[ids.length];
+        for (int i = 0; i < ids.length; ++i) {
+            result[i] = mapping[ids[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Sets the value of {@code ids[i]} to {@code source[i]} for all positions. The domain is not expanded.
+     *
+     * @param ids the IDs
+     * @param source the new values
+     * @exception IllegalArgumentException if the arrays differ in length
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public void scatter(int[] ids, float[] source) {
+        if (ids.length != source.length) {
+            throw new IllegalArgumentException("Lengths differ: " + ids.length + " and " + source.length);
+        }
+        for (int i = 0; i < ids.length; ++i) {
+            mapping[ids[i]] = source[i];
+        }
+    }
+
+    /**
+     * Rounds all values to the nearest integer, as {@link IdentifiableDoubleMapping#round()}.
+     *
+     * @return an integer mapping containing the rounded values
+     */
+    public IdentifiableIntegerMapping<D> round() {
+        int[] result = new int[mapping.length];
+        for (int i = 0; i < mapping.length; ++i) {
+            result[i] = Math.round(mapping[i]);
+        }
+        return new IdentifiableIntegerMapping<>(result);
+    }
+
+    /**
+     * Converts the values to doubles.
+     *
+     * @return a double mapping containing the same values
+     */
+    public IdentifiableDoubleMapping<D> toDoubleMapping() {
+        double[] result = new double[mapping.length];
+        for (int i = 0; i < mapping.length; ++i) {
+            result[i] = mapping[i];
+        }
+        return new IdentifiableDoubleMapping<>(result);
+    }
+
+    /**
+     * Returns an iterator over the boxed values in the order of the IDs.
+     *
+     * @return an iterator over the values
+     * @see #doubleIterator()
+     */
+    @Override
+    public Iterator<Float> iterator() {
+        PrimitiveIterator.OfDouble iterator = doubleIterator();
+        return new Iterator<Float>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Float next() {
+                return (float) iterator.nextDouble();
+            }
+        };
+    }
+
+    /**
+     * Returns an iterator over the values in the order of the IDs, widened to {@code double} to avoid boxing.
+     *
+     * @return an iterator over the values
+     */
+    public PrimitiveIterator.OfDouble doubleIterator() {
+        return new PrimitiveIterator.OfDouble() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < mapping.length;
+            }
+
+            @Override
+            public double nextDouble() {
+                if (index >= mapping.length) {
+                    throw new NoSuchElementException();
+                }
+                return mapping[index++];
+            }
+        };
+    }
+
+    /**
+     * Creates a copy of this mapping. Runtime O(number of values).
+     *
+     * @return a copy of this mapping.
+     */
+    @Override
+    public IdentifiableFloatMapping<D> clone() {
+        return new IdentifiableFloatMapping<>(mapping.clone());
+    }
+
+    /**
+     * Compares this mapping to the specified object. The result is true if and only if the argument is an
+     * {@code IdentifiableFloatMapping} which has an domain of equal size and makes exactly the same associations.
+     * Runtime O(size of the domain).
+     *
+     * @param o the object this mapping is to be compared with.
+     * @return {@code true} if the given object represents an equivalent mapping, {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof IdentifiableFloatMapping && Arrays.equals(mapping, ((IdentifiableFloatMapping<?>) o).mapping);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(mapping);
+    }
+
+    /**
+     * Return a {@code String} object representing this mapping. The returned {@code String} will consist of a list of
+     * all object - value associations made in this mapping. Runtime O(size of the domain).
+     *
+     * @return a string representation of this mapping.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append('[');
+        for (int i = 0; i < mapping.length; i++) {
+            if (i > 0) {
+                builder.append(i % 10 == 0 ? ",\n" : ", ");
+            }
+            builder.append(i).append(" = ");
+            builder.append(mapping[i]);
+        }
+        builder.append(']');
+        return builder.toString();
+    }
+
+    private float[] checkedValues(IdentifiableFloatMapping<?> other) {
+        if (other.mapping.length != mapping.length) {
+            throw new IllegalArgumentException("Domain sizes differ: " + mapping.length + " and "
+                    + other.mapping.length);
+        }
+        return other.mapping;
+    }
+}
@@ -54,13 +54,11 @@ public class IdentifiableIntegerMapping<D extends Identifiable> implements Clone
      * @param iim 
      */
     public IdentifiableIntegerMapping(IdentifiableIntegerMapping<D> iim) {
-        mapping = new int[iim.getDomainSize()];
-        System.arraycopy(iim.mapping, 0, mapping, 0, mapping.length);
+        mapping = iim.denseValues().clone();
     }
 
     public IdentifiableIntegerMapping(IdentifiableIntegerMapping<D> iim, int domainSize) {
-        mapping = new int[domainSize];
-        System.arraycopy(iim.mapping, 0, mapping, 0, Math.min(iim.mapping.length, domainSize));
+        mapping = Arrays.copyOf(iim.denseValues(), domainSize);
     }
 
     /**
@@ -91,9 +89,10 @@ public class IdentifiableIntegerMapping<D extends Identifiable> implements Clone
      * @param exactValues the double transit times
      */
     public IdentifiableIntegerMapping(IdentifiableDoubleMapping<D> exactValues) {
-        mapping = new int[exactValues.mapping.length];
-        for (int i = 0; i < exactValues.mapping.length; ++i) {
-            mapping[i] = (int) exactValues.mapping[i];
+        double[] values = exactValues.denseValues();
+        mapping = new int[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            mapping[i] = (int) values[i];
         }
     }
 
@@ -291,12 +290,12 @@ public class IdentifiableIntegerMapping<D extends Identifiable> implements Clone
         if (o == null || !(o instanceof IdentifiableIntegerMapping)) {
             return false;
         }
-        IdentifiableIntegerMapping iom = (IdentifiableIntegerMapping) o;
-        if (iom.mapping.length != mapping.length) {
+        int[] other = ((IdentifiableIntegerMapping) o).denseValues();
+        if (other.length != mapping.length) {
             return false;
         }
         for (int i = 0; i < mapping.length; i++) {
-            if (iom.mapping[i] != mapping[i]) {
+            if (other[i] != mapping[i]) {
                 return false;
             }
         }
@@ -352,6 +351,204 @@ public class IdentifiableIntegerMapping<D extends Identifiable> implements Clone
         return builder.toString();
     }
 
+    /**
+     * Adds {@code factor} times the value of each object in {@code other} to the value of the object in this mapping.
+     * In contrast to {@link #increase(Identifiable, int)} overflows are not detected. Runtime O(size of the domain).
+     *
+     * @param other the mapping whose scaled values are added
+     * @param factor the factor for the values of {@code other}
+     * @exception IllegalArgumentException if the domains differ in size
+     */
+    public void addScaled(IdentifiableIntegerMapping<D> other, int factor) {
+        int[] values = writableDenseValues();
+        int[] summands = checkedValues(other, values.length);
+        for (int i = 0; i < values.length; ++i) {
+            values[i] += factor * summands[i];
+        }
+        storeDenseValues(values);
+    }
+
+    /**
+     * Restricts all values to the interval from {@code lower} to {@code upper}. Runtime O(size of the domain).
+     *
+     * @param lower the smallest allowed value
+     * @param upper the largest allowed value
+     * @exception IllegalArgumentException if {@code lower} is greater than {@code upper}
+     */
+    public void clamp(int lower, int upper) {
+        if (lower > upper) {
+            throw new IllegalArgumentException("Empty interval: " + lower + " > " + upper);
+        }
+        int[] values = writableDenseValues();
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = Math.min(Math.max(values[i], lower), upper);
+        }
+        storeDenseValues(values);
+    }
+
+    /**
+     * Replaces each value by the minimum of the value and the value of the same object in {@code other}. Runtime
+     * O(size of the domain).
+     *
+     * @param other the other mapping
+     * @exception IllegalArgumentException if the domains differ in size
+     */
+    public void minCombine(IdentifiableIntegerMapping<D> other) {
+        int[] values = writableDenseValues();
+        int[] others = checkedValues(other, values.length);
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = Math.min(values[i], others[i]);
+        }
+        storeDenseValues(values);
+    }
+
+    /**
+     * Replaces each value by the maximum of the value and the value of the same object in {@code other}. Runtime
+     * O(size of the domain).
+     *
+     * @param other the other mapping
+     * @exception IllegalArgumentException if the domains differ in size
+     */
+    public void maxCombine(IdentifiableIntegerMapping<D> other) {
+        int[] values = writableDenseValues();
+        int[] others = checkedValues(other, values.length);
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = Math.max(values[i], others[i]);
+        }
+        storeDenseValues(values);
+    }
+
+    /**
+     * Returns a mask containing {@code true} for all objects whose value is less than {@code threshold}. Runtime
+     * O(size of the domain).
+     *
+     * @param threshold the threshold
+     * @return a boolean mapping on a domain of the same size
+     */
+    public IdentifiableBooleanMapping<D> lessThan(int threshold) {
+        int[] values = denseValues();
+        boolean[] mask = new boolean[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            mask[i] = values[i] < threshold;
+        }
+        return new IdentifiableBooleanMapping<>(mask);
+    }
+
+    /**
+     * Returns a mask containing {@code true} for all objects whose value is greater than {@code threshold}. Runtime
+     * O(size of the domain).
+     *
+     * @param threshold the threshold
+     * @return a boolean mapping on a domain of the same size
+     */
+    public IdentifiableBooleanMapping<D> greaterThan(int threshold) {
+        int[] values = denseValues();
+        boolean[] mask = new boolean[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            mask[i] = values[i] > threshold;
+        }
+        return new IdentifiableBooleanMapping<>(mask);
+    }
+
+    /**
+     * Returns the values of the given IDs. Runtime O(number of IDs) times the cost of reading a single value, i.e.
+     * O(number of IDs) for the dense array.
+     *
+     * @param ids the IDs
+     * @return an array containing the value of {@code ids[i]} at position {@code i}
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public int[] gather(int[] ids) {
+        int[] result = new int[ids.length];
+        for (int i = 0; i < ids.length; ++i) {
+            result[i] = valueAt(ids[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Sets the value of {@code ids[i]} to {@code source[i]} for all positions. If an ID occurs multiple times, the last
+     * value is stored. In contrast to {@link #set(Identifiable, int)} the domain is not expanded. Runtime O(number of
+     * IDs) times the cost of writing a single value, i.e. O(number of IDs) for the dense array.
+     *
+     * @param ids the IDs
+     * @param source the new values
+     * @exception IllegalArgumentException if the arrays differ in length
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public void scatter(int[] ids, int[] source) {
+        if (ids.length != source.length) {
+            throw new IllegalArgumentException("Lengths differ: " + ids.length + " and " + source.length);
+        }
+        for (int i = 0; i < ids.length; ++i) {
+            storeValueAt(ids[i], source[i]);
+        }
+    }
+
+    private static int[] checkedValues(IdentifiableIntegerMapping<?> other, int domainSize) {
+        int[] values = other.denseValues();
+        if (values.length != domainSize) {
+            throw new IllegalArgumentException("Domain sizes differ: " + domainSize + " and " + values.length);
+        }
+        return values;
+    }
+
+    /**
+     * Returns an array containing the values of the whole domain, indexed by ID. The array must not be modified, it
+     * may be the internal array or a temporary copy. Subclasses with a different representation materialize their
+     * values. Used for copies and by the bulk operations in {@link ParallelMappings}.
+     *
+     * @return the values of the domain
+     */
+    int[] denseValues() {
+        return mapping;
+    }
+
+    /**
+     * Returns an array containing the values of the whole domain, indexed by ID, that may be modified. Changes take
+     * effect when the array is passed to {@link #storeDenseValues(int[])}. Subclasses with a different representation
+     * switch to the dense array or return a temporary copy.
+     *
+     * @return the modifiable array of values
+     */
+    int[] writableDenseValues() {
+        return mapping;
+    }
+
+    /**
+     * Returns the value of an ID without expanding the domain. Used by {@link #gather(int[])}, subclasses with a
+     * different representation read the value from it.
+     *
+     * @param id the ID
+     * @return the value of the ID
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    int valueAt(int id) {
+        return mapping[id];
+    }
+
+    /**
+     * Sets the value of an ID without expanding the domain. Used by {@link #scatter(int[], int[])}, subclasses with a
+     * different representation store the value in it and update their additional data.
+     *
+     * @param id the ID
+     * @param value the new value
+     * @exception ArrayIndexOutOfBoundsException if the ID is outside the domain
+     */
+    void storeValueAt(int id, int value) {
+        mapping[id] = value;
+    }
+
+    /**
+     * Stores the values of an array obtained from {@link #writableDenseValues()} after it has been changed. The dense
+     * array is the internal array, so nothing has to be done. Subclasses with a different representation that return
+     * a temporary copy from {@link #writableDenseValues()} write the values back.
+     *
+     * @param values the changed values
+     */
+    void storeDenseValues(int[] values) {
+    }
+
     public int maximum() {
         int result = Integer.MIN_VALUE;
         for (int i = 0; i < mapping.length; ++i) {
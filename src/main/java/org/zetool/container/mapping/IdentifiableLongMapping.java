@@ -0,0 +1,457 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * The {@code IdentifiableLongMapping} class represents a mapping from a set of identifiable objects to {@code long}
+ * values, e.g. for accumulated sums that overflow the range of an {@link IdentifiableIntegerMapping}. An array is used
+ * for storing the mapping internally. The ID of an identifiable object determines the position in the array where the
+ * object's value is stored.
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to longs.
+ * {@code D} must implement {@link Identifiable}.
+ */
+public class IdentifiableLongMapping<D extends Identifiable> implements Cloneable, IdentifiableMapping<D, Long> {
+
+    /**
+     * The array storing all associations. Must not be {@code null}.
+     */
+    protected long[] mapping;
+
+    public IdentifiableLongMapping(Iterable<D> domain) {
+        int maxId = -1;
+        for (D x : domain) {
+            if (maxId < x.id()) {
+                maxId = x.id();
+            }
+        }
+        mapping = new long[maxId + 1];
+    }
+
+    /**
+     * Creates a new instance as a copy of an existing {@link IdentifiableLongMapping}.
+     *
+     * @param ilm the copied mapping
+     */
+    public IdentifiableLongMapping(IdentifiableLongMapping<D> ilm) {
+        mapping = ilm.mapping.clone();
+    }
+
+    /**
+     * Creates a new mapping containing the values of an {@link IdentifiableIntegerMapping}.
+     *
+     * @param values the integer values
+     */
+    public IdentifiableLongMapping(IdentifiableIntegerMapping<D> values) {
+        int[] source = values.denseValues();
+        mapping = new long[source.length];
+        for (int i = 0; i < source.length; ++i) {
+            mapping[i] = source[i];
+        }
+    }
+
+    /**
+     * Constructs a new {@code IdentifiableLongMapping} object with a specified initial mapping. The default
+     * association for an object is as specified by {@code mapping}. Runtime O(1).
+     *
+     * @param mapping the array defining the initial mapping.
+     * @exception NullPointerException if {@code mapping} is null.
+     */
+    protected IdentifiableLongMapping(long[] mapping) {
+        this.mapping = mapping;
+    }
+
+    /**
+     * Constructs a new {@code IdentifiableLongMapping} object with a domain of the specified size. The default
+     * association for an object is {@code 0}. Runtime O(domainSize).
+     *
+     * @param domainSize the initial size of the domain.
+     * @exception NegativeArraySizeException if {@code value} is negative.
+     */
+    public IdentifiableLongMapping(int domainSize) {
+        mapping = new long[domainSize];
+    }
+
+    /**
+     * Returns the value associated with {@code identifiableObject} in this mapping. Runtime O(1).
+     *
+     * @param identifiableObject the object for which the associated value is to be returned.
+     * @return the value associated with {@code identifiableObject} in this mapping.
+     * @exception ArrayIndexOutOfBoundsException if {@code identifiableObject}'s ID is less then 0 or greater equal than
+     * the size of the domain.
+     * @exception NullPointerException if {@code identifiableObject} is null.
+     */
+    public long getLong(D identifiableObject) {
+        return mapping[identifiableObject.id()];
+    }
+
+    @Override
+    public Long get(D identifiableObject) {
+        return getLong(identifiableObject);
+    }
+
+    /**
+     * Associates {@code identifiableObject} with {@code value} in this mapping. Calling {@code set} with an
+     * {@code identifiableObject} whose ID is greater equal than the current size of the domain will automatically
+     * increase the size of the domain to accommodate {@code identifiableObject}'s ID. Runtime O(1) (O(ID) if the domain
+     * is expanded).
+     *
+     * @param identifiableObject the object for which an association is to be made.
+     * @param value the value to be associated with {@code identifiableObject}.
+     * @exception ArrayIndexOutOfBoundsException if {@code identifiableObject}'s ID is less then 0.
+     * @exception NullPointerException if {@code identifiableObject} is null.
+     */
+    public void set(D identifiableObject, long value) {
+        if (identifiableObject.id() >= getDomainSize()) {
+            setDomainSize(identifiableObject.id() + 1);
+        }
+        mapping[identifiableObject.id()] = value;
+    }
+
+    @Override
+    public void set(D identifiableObject, Long value) {
+        set(identifiableObject, value.longValue());
+    }
+
+    /**
+     * Increases the value of {@code identifiableObject} by {@code amount}. The domain is expanded if necessary.
+     * Runtime O(1) (O(ID) if the domain is expanded).
+     *
+     * @param identifiableObject the object for which the value is to be increased.
+     * @param amount the amount
+     * @exception ArithmeticException if the value overflows
+     */
+    public void increase(D identifiableObject, long amount) {
+        if (identifiableObject.id() >= getDomainSize()) {
+            setDomainSize(identifiableObject.id() + 1);
+        }
+        mapping[identifiableObject.id()] = Math.addExact(mapping[identifiableObject.id()], amount);
+    }
+
+    public void add(D identifiableObject, long value) {
+        set(identifiableObject, value);
+    }
+
+    /**
+     * Decreases the value of {@code identifiableObject} by {@code amount}. The domain is expanded if necessary.
+     *
+     * @param identifiableObject the object for which the value is to be decreased.
+     * @param amount the amount
+     * @exception ArithmeticException if the value overflows
+     */
+    public void decrease(D identifiableObject, long amount) {
+        if (identifiableObject.id() >= getDomainSize()) {
+            setDomainSize(identifiableObject.id() + 1);
+        }
+        mapping[identifiableObject.id()] = Math.subtractExact(mapping[identifiableObject.id()], amount);
+    }
+
+    /**
+     * Returns the minimum over all values assigned to the specified set of objects.
+     *
+     * @param identifiableObjects the objects
+     * @return the minimum over all values assigned to the specified set of objects.
+     */
+    public long minimum(Iterable<D> identifiableObjects) {
+        long minimum = Long.MAX_VALUE;
+        for (D identifiableObject : identifiableObjects) {
+            minimum = Math.min(minimum, getLong(identifiableObject));
+        }
+        return minimum;
+    }
+
+    /**
+     * Returns the sum over all values assigned to the specified set of objects.
+     *
+     * @param identifiableObjects the objects
+     * @return the sum of the values
+     * @exception ArithmeticException if the sum overflows
+     */
+    public long sum(Iterable<D> identifiableObjects) {
+        long sum = 0;
+        for (D identifiableObject : identifiableObjects) {
+            sum = Math.addExact(sum, getLong(identifiableObject));
+        }
+        return sum;
+    }
+
+    public long maximum() {
+        long result = Long.MIN_VALUE;
+        for (int i = 0; i < mapping.length; ++i) {
+            result = Math.max(result, mapping[i]);
+        }
+        return result;
+    }
+
+    public void initializeWith(long value) {
+        Arrays.fill(mapping, value);
+    }
+
+    /**
+     * Returns the size of this mapping's domain. Runtime O(1).
+     *
+     * @return the size of this mapping's domain.
+     */
+    @Override
+    public int getDomainSize() {
+        return mapping.length;
+    }
+
+    /**
+     * Sets the size of this mapping's domain to {@code value}. Runtime O(value).
+     *
+     * @param value the new size of this mapping's domain.
+     * @exception NegativeArraySizeException if {@code value} is negative.
+     */
+    @Override
+    public void setDomainSize(int value) {
+        mapping = Arrays.copyOf(mapping, value);
+    }
+
+    /**
+     * Checks whether {@code identifiableObject} has been defined in this mapping, i.e. whether its ID fits the size of
+     * the domain. Runtime O(1).
+     *
+     * @param identifiableObject the object to check for whether it is defined in this mapping.
+     * @return true if {@code get(identifiableObject)} would return a value and false otherwise.
+     */
+    @Override
+    public boolean isDefinedFor(D identifiableObject) {
+        return 0 <= identifiableObject.id() && identifiableObject.id() < getDomainSize();
+    }
+
+    /**
+     * Adds {@code factor} times the value of each object in {@code other} to the value of the object in this mapping.
+     * Overflows are not detected. Runtime O(size of the domain).
+     *
+     * @param other the mapping whose scaled values are added
+     * @param factor the factor for the values of {@code other}
+     * @exception IllegalArgumentException if the domains differ in size
+     */
+    public void addScaled(IdentifiableLongMapping<D> other, long factor) {
+        long[] summands = checkedValues(other);
+        for (int i = 0; i < mapping.length; ++i) {
+            mapping[i] += factor * summands[i];
+        }
+    }
+
+    /**
+     * Restricts all values to the interval from {@code lower} to {@code upper}. Runtime O(size of the domain).
+     *
+     * @param lower the smallest allowed value
+     * @param upper the largest allowed value
+     * @exception IllegalArgumentException if {@code lower} is greater than {@code upper}
+     */
+    public void clamp(long lower, long upper) {
+        if (lower > upper) {
+            throw new IllegalArgumentException("Empty interval: " + lower + " > " + upper);
+        }
+        for (int i = 0; i < mapping.length; ++i) {
+            mapping[i] = Math.min(Math.max(mapping[i], lower), upper);
+        }
+    }
+
+    /**
+     * Replaces each value by the minimum of the value and the value of the same object in {@code other}.
+     *
+     * @param other the other mapping
+     * @exception IllegalArgumentException if the domains differ in size
+     */
+    public void minCombine(IdentifiableLongMapping<D> other) {
+        long[] others = checkedValues(other);
+        for (int i = 0; i < mapping.length; ++i) {
+            mapping[i] = Math.min(mapping[i], others[i]);
+        }
+    }
+
+    /**
+     * Replaces each value by the maximum of the value and the value of the same object in {@code other}.
+     *
+     * @param other the other mapping
+     * @exception IllegalArgumentException if the domains differ in size
+     */
+    public void maxCombine(IdentifiableLongMapping<D> other) {
+        long[] others = checkedValues(other);
+        for (int i = 0; i < mapping.length; ++i) {
+            mapping[i] = Math.max(mapping[i], others[i]);
+        }
+    }
+
+    /**
+     * Returns a mask containing {@code true} for all objects whose value is less than {@code threshold}.
+     *
+     * @param threshold the threshold
+     * @return a boolean mapping on a domain of the same size
+     */
+    public IdentifiableBooleanMapping<D> lessThan(long threshold) {
+        boolean[] mask = new boolean[mapping.length];
+        for (int i = 0; i < mapping.length; ++i) {
+            mask[i] = mapping[i] < threshold;
+        }
+        return new IdentifiableBooleanMapping<>(mask);
+    }
+
+    /**
+     * Returns a mask containing {@code true} for all objects whose value is greater than {@code threshold}.
+     *
+     * @param threshold the threshold
+     * @return a boolean mapping on a domain of the same size
+     */
+    public IdentifiableBooleanMapping<D> greaterThan(long threshold) {
+        boolean[] mask = new boolean[mapping.length];
+        for (int i = 0; i < mapping.length; ++i) {
+            mask[i] = mapping[i] > threshold;
+        }
+        return new IdentifiableBooleanMapping<>(mask);
+    }
+
+    /**
+     * Returns the values of the given IDs.
+     *
+     * @param ids the IDs
+     * @return an array containing the value of {@code ids[i]} at position {@code i}
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public long[] gather(int[] ids) {
+        long[] result = new long[ids.length];
+        for (int i = 0; i < ids.length; ++i) {
+            result[i] = mapping[ids[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Sets the value of {@code ids[i]} to {@code source[i]} for all positions. The domain is not expanded.
+     *
+     * @param ids the IDs
+     * @param source the new values
+     * @exception IllegalArgumentException if the arrays differ in length
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public void scatter(int[] ids, long[] source) {
+        if (ids.length != source.length) {
+            throw new IllegalArgumentException("Lengths differ: " + ids.length + " and " + source.length);
+        }
+        for (int i = 0; i < ids.length; ++i) {
+            mapping[ids[i]] = source[i];
+        }
+    }
+
+    /**
+     * Converts the values to integers.
+     *
+     * @return an integer mapping containing the same values
+     * @exception ArithmeticException if a value does not fit into an {@code int}
+     */
+    public IdentifiableIntegerMapping<D> toIntegerMapping() {
+        int[] result = new int[mapping.length];
+        for (int i = 0; i < mapping.length; ++i) {
+            result[i] = Math.toIntExact(mapping[i]);
+        }
+        return new IdentifiableIntegerMapping<>(result);
+    }
+
+    /**
+     * Returns an iterator over the values in the order of the IDs, which avoids boxing if the primitive methods of
+     * {@link PrimitiveIterator.OfLong} are used.
+     *
+     * @return an iterator over the values
+     */
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < mapping.length;
+            }
+
+            @Override
+            public long nextLong() {
+                if (index >= mapping.length) {
+                    throw new NoSuchElementException();
+                }
+                return mapping[index++];
+            }
+        };
+    }
+
+    /**
+     * Creates a copy of this mapping. Runtime O(number of values).
+     *
+     * @return a copy of this mapping.
+     */
+    @Override
+    public IdentifiableLongMapping<D> clone() {
+        return new IdentifiableLongMapping<>(mapping.clone());
+    }
+
+    /**
+     * Compares this mapping to the specified object. The result is true if and only if the argument is an
+     * {@code IdentifiableLongMapping} which has an domain of equal size and makes exactly the same associations.
+     * Runtime O(size of the domain).
+     *
+     * @param o the object this mapping is to be compared with.
+     * @return {@code true} if the given object represents an equivalent mapping, {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof IdentifiableLongMapping && Arrays.equals(mapping, ((IdentifiableLongMapping<?>) o).mapping);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(mapping);
+    }
+
+    /**
+     * Return a {@code String} object representing this mapping. The returned {@code String} will consist of a list of
+     * all object - value associations made in this mapping. Runtime O(size of the domain).
+     *
+     * @return a string representation of this mapping.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append('[');
+        for (int i = 0; i < mapping.length; i++) {
+            if (i > 0) {
+                builder.append(i % 10 == 0 ? ",\n" : ", ");
+            }
+            builder.append(i).append(" = ");
+            if (mapping[i] == Long.MAX_VALUE) {
+                builder.append("MAX");
+            } else {
+                builder.append(mapping[i]);
+            }
+        }
+        builder.append(']');
+        return builder.toString();
+    }
+
+    private long[] checkedValues(IdentifiableLongMapping<?> other) {
+        if (other.mapping.length != mapping.length) {
+            throw new IllegalArgumentException("Domain sizes differ: " + mapping.length + " and "
+                    + other.mapping.length);
+        }
+        return other.mapping;
+    }
+}
@@ -46,8 +46,11 @@ public class IdentifiableObjectMapping<D extends Identifiable, R> implements Clo
 	/** The array storing all associations. Must not be {@code null}. */
 	protected Object[] mapping;
 
+	protected IdentifiableObjectMapping() {
+	}
+
 	public IdentifiableObjectMapping( IdentifiableObjectMapping<D,R> mapping ) {
-		this.mapping = Objects.requireNonNull( mapping.mapping, "Mapping must not be null!" );
+		this.mapping = Objects.requireNonNull( mapping.denseValues(), "Mapping must not be null!" );
 	}
 
   /**
@@ -214,12 +217,12 @@ public class IdentifiableObjectMapping<D extends Identifiable, R> implements Clo
 		if( o == null || !(o instanceof IdentifiableObjectMapping) ) {
 			return false;
 		}
-		IdentifiableObjectMapping<?,?> iom = (IdentifiableObjectMapping<?,?>)o;
-		if( iom.mapping.length != mapping.length ) {
+		Object[] other = ((IdentifiableObjectMapping<?,?>)o).denseValues();
+		if( other.length != mapping.length ) {
 			return false;
 		}
 		for( int i = 0; i < mapping.length; i++ ) {
-			if( (iom.mapping[i] == null && mapping[i] != null) || ( !iom.mapping[i].equals( mapping[i] ) ) ) {
+			if( !Objects.equals( other[i], mapping[i] ) ) {
 				return false;
 			}
 		}
@@ -276,6 +279,18 @@ public class IdentifiableObjectMapping<D extends Identifiable, R> implements Clo
 		return builder.toString();
 	}
 
+	/**
+	 * Returns an array containing the values of the whole domain, indexed by ID.
+	 * The array must not be modified, it may be the internal array or a
+	 * temporary copy. Subclasses with a different representation materialize
+	 * their values.
+	 *
+	 * @return the values of the domain
+	 */
+	Object[] denseValues() {
+		return mapping;
+	}
+
   @Override
   @SuppressWarnings("unchecked")
   public Iterator<R> iterator() {
@@ -0,0 +1,213 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+
+/**
+ * A hash table from non-negative {@code int} keys to {@code double} values using open addressing with linear probing. Keys
+ * and values are stored in two primitive arrays, thus no boxing takes place. Removal uses backward shifting, so that
+ * no tombstones are needed. The load factor is at most one half.
+ */
+final class IntDoubleHashTable {
+
+    /** Marks an empty slot. Valid keys are IDs and thus non-negative. */
+    static final int EMPTY = -1;
+    /** The smallest capacity of a table. */
+    private static final int MINIMUM_CAPACITY = 8;
+
+    /** The keys, {@link #EMPTY} for unused slots. */
+    int[] keys;
+    /** The values stored at the position of their keys. */
+    double[] values;
+    /** The number of stored keys. */
+    private int size;
+
+    /**
+     * Creates an empty table with the minimum capacity.
+     */
+    IntDoubleHashTable() {
+        this(MINIMUM_CAPACITY);
+    }
+
+    /**
+     * Creates an empty table with the given capacity, which must be a power of two.
+     *
+     * @param capacity the number of slots
+     */
+    private IntDoubleHashTable(int capacity) {
+        keys = new int[capacity];
+        values = new double[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Returns the number of stored keys.
+     *
+     * @return the number of stored keys
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of slots.
+     *
+     * @return the number of slots
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Checks whether one more key can be stored without exceeding the maximal load factor.
+     *
+     * @return {@code true} if the table has to grow before another key is added
+     */
+    boolean isFull() {
+        return 2 * (size + 1) > keys.length;
+    }
+
+    /**
+     * Returns the value stored for a key.
+     *
+     * @param key the key
+     * @param defaultValue the value returned if the key is not stored
+     * @return the value of the key or {@code defaultValue}
+     */
+    double get(int key, double defaultValue) {
+        int slot = slot(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    /**
+     * Returns the slot of a key.
+     *
+     * @param key the key
+     * @return the slot containing {@code key}, or a negative value if the key is not stored
+     */
+    int slot(int key) {
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Stores a value for a key. The table grows if necessary.
+     *
+     * @param key the non-negative key
+     * @param value the value
+     */
+    void put(int key, double value) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        if (isFull()) {
+            rehash(keys.length * 2);
+            put(key, value);
+            return;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    /**
+     * Removes a key. The following entries of the probe sequence are shifted backwards, so that lookups never stop
+     * early at the freed slot.
+     *
+     * @param key the key
+     */
+    void remove(int key) {
+        int slot = slot(key);
+        if (slot < 0) {
+            return;
+        }
+        int mask = keys.length - 1;
+        int gap = slot;
+        for (int i = (gap + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            int home = hash(keys[i]) & mask;
+            // move the entry into the gap if its home slot is not cyclically within (gap, i]
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+    }
+
+    /**
+     * Removes all keys and shrinks the table to its minimum capacity.
+     */
+    void clear() {
+        if (keys.length > MINIMUM_CAPACITY) {
+            keys = new int[MINIMUM_CAPACITY];
+            values = new double[MINIMUM_CAPACITY];
+        }
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Creates a copy of the table.
+     *
+     * @return a copy of the table
+     */
+    IntDoubleHashTable copy() {
+        IntDoubleHashTable copy = new IntDoubleHashTable(keys.length);
+        System.arraycopy(keys, 0, copy.keys, 0, keys.length);
+        System.arraycopy(values, 0, copy.values, 0, values.length);
+        copy.size = size;
+        return copy;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        double[] oldValues = values;
+        keys = new int[capacity];
+        values = new double[capacity];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Spreads consecutive IDs over the table (Fibonacci hashing).
+     *
+     * @param key the key
+     * @return the hash of the key
+     */
+    static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -15,10 +15,13 @@
  */
 package org.zetool.container.mapping;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NavigableSet;
-import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.function.DoubleBinaryOperator;
 
 /**
  * The {@code IntegerDoubleMapping} class represents a mapping from integers to integers. It is a specialized version of
@@ -44,6 +47,31 @@ public class IntegerDoubleMapping implements Cloneable, Iterable<TimeValuePair>
      * piecewise linear.
      */
     protected boolean linear;
+    /**
+     * Stores whether steps that do not change the function are removed on each change.
+     */
+    private boolean coalescing;
+    /**
+     * The times of the steps in the integral index.
+     */
+    private int[] indexTimes = new int[0];
+    /**
+     * The values of the steps in the integral index.
+     */
+    private double[] indexValues = new double[0];
+    /**
+     * The integral from the first step to each step in the integral index.
+     */
+    private double[] indexIntegrals = new double[0];
+    /**
+     * The number of steps in the integral index.
+     */
+    private int indexSize;
+    /**
+     * The first time from which on the integral index is outdated, {@code Long.MAX_VALUE} if it is up to date. The
+     * initial value {@code Long.MIN_VALUE} lies before every step and marks the whole index for rebuilding.
+     */
+    private long indexValidBefore = Long.MIN_VALUE;
 
     /**
      * Creates a new {@code IntegerDoubleMapping} that is defined for all integer values. Initially, all integers are
@@ -86,6 +114,113 @@ public class IntegerDoubleMapping implements Cloneable, Iterable<TimeValuePair>
         return linear;
     }
 
+    /**
+     * Enables or disables coalescing. If enabled, a redundant step is removed at both ends of every changed range. A
+     * step is redundant if it has the same value as its predecessor or, for a piecewise linear mapping, if it lies on
+     * the line through its neighbors. Enabling compacts the mapping. Like {@link #compact()}, coalescing changes the
+     * range of later calls of {@link #set(int, double)}.
+     *
+     * @param enabled whether redundant steps are removed on each change
+     * @see #compact()
+     */
+    public void setCoalescing(boolean enabled) {
+        coalescing = enabled;
+        if (enabled) {
+            compact();
+        }
+    }
+
+    /**
+     * Checks whether redundant steps are removed on each change.
+     *
+     * @return {@code true} if the mapping is coalescing
+     * @see #setCoalescing(boolean)
+     */
+    public boolean isCoalescing() {
+        return coalescing;
+    }
+
+    /**
+     * Removes all redundant steps, i.e. steps that do not change the function. The steps at {@code Integer.MIN_VALUE}
+     * and {@code Integer.MAX_VALUE} are kept. The values returned by {@link #get(int)} do not change, but a later
+     * {@link #set(int, double)} extends up to the next step that is still stored. Thus two mappings that are equal as
+     * functions may differ after the same call of {@code set} if only one of them has been compacted. Runtime
+     * O(number of steps + number of removed steps * log (number of steps)).
+     *
+     * @return the number of removed steps
+     */
+    public int compact() {
+        List<TimeValuePair> redundant = new ArrayList<>();
+        TimeValuePair previous = null;
+        TimeValuePair current = null;
+        for (TimeValuePair next : mapping) {
+            if (current != null && isRedundant(previous, current, next)) {
+                redundant.add(current);
+            } else if (current != null) {
+                previous = current;
+            }
+            current = next;
+        }
+        for (TimeValuePair tip : redundant) {
+            mapping.remove(tip);
+        }
+        if (!redundant.isEmpty()) {
+            invalidateIndex(Integer.MIN_VALUE);
+        }
+        return redundant.size();
+    }
+
+    /**
+     * Returns the number of steps stored in this mapping, including the steps at {@code Integer.MIN_VALUE} and
+     * {@code Integer.MAX_VALUE}. Runtime O(1).
+     *
+     * @return the number of steps
+     */
+    public int getStepCount() {
+        return mapping.size();
+    }
+
+    /**
+     * Checks whether a step can be removed without changing the function, given its predecessor and successor.
+     */
+    private boolean isRedundant(TimeValuePair previous, TimeValuePair step, TimeValuePair next) {
+        if (previous == null || step.time() == Integer.MIN_VALUE || step.time() == Integer.MAX_VALUE) {
+            return false;
+        } else if (!linear) {
+            return previous.value() == step.value();
+        } else {
+            return next != null && (step.value() - previous.value()) * ((double) next.time() - previous.time())
+                    == (next.value() - previous.value()) * ((double) step.time() - previous.time());
+        }
+    }
+
+    /**
+     * Removes the step starting at the given time if it exists and is redundant.
+     */
+    private void coalesce(int time) {
+        TimeValuePair step = mapping.floor(new TimeValuePair(time, 0));
+        if (step != null && step.time() == time && isRedundant(mapping.lower(step), step, mapping.higher(step))) {
+            mapping.remove(step);
+            invalidateIndex(time);
+        }
+    }
+
+    /**
+     * Removes redundant steps at the given time and at its neighbors, whose redundancy may have changed.
+     */
+    private void coalesceAround(int time) {
+        TimeValuePair probe = new TimeValuePair(time, 0);
+        TimeValuePair before = mapping.lower(probe);
+        TimeValuePair after = mapping.higher(probe);
+        coalesce(time);
+        if (after != null) {
+            coalesce(after.time());
+        }
+        if (linear && before != null) {
+            coalesce(before.time());
+        }
+    }
+
     /**
      * Returns the integer associated with the specified value. Runtime O(log (number of steps)).
      *
@@ -126,7 +261,9 @@ public class IntegerDoubleMapping implements Cloneable, Iterable<TimeValuePair>
     }
 
     /**
-     * Maps the integer {@code time} to the integer {@code value}. Runtime O(log (number of steps)).
+     * Maps the integer {@code time} to {@code value}. For a piecewise constant mapping the value holds up to the next
+     * stored step. The stored steps depend on the history of the mapping, redundant steps are kept unless they are
+     * removed by {@link #compact()} or coalescing. Runtime O(log (number of steps)).
      *
      * @param time the integer for which an association is to be made.
      * @param value the value to be associated with the integer.
@@ -139,6 +276,10 @@ public class IntegerDoubleMapping implements Cloneable, Iterable<TimeValuePair>
         } else {
             mapping.add(tip);
         }
+        invalidateIndex(time);
+        if (coalescing) {
+            coalesceAround(time);
+        }
     }
 
     /**
@@ -170,6 +311,7 @@ public class IntegerDoubleMapping implements Cloneable, Iterable<TimeValuePair>
         TimeValuePair from = new TimeValuePair(fromTime, 0);
         TimeValuePair to = new TimeValuePair(toTime, 0);
         TimeValuePair first = mapping.floor(from);
+        invalidateIndex(first.time());
         double lastBefore = mapping.lower(to).value();
         TimeValuePair last = mapping.ceiling(to);
         if (first.time() < fromTime) {
@@ -187,6 +329,10 @@ public class IntegerDoubleMapping implements Cloneable, Iterable<TimeValuePair>
         if (mapping.lower(first) != null && mapping.lower(first).value() == first.value()) {
             mapping.remove(first);
         }
+        if (coalescing) {
+            coalesceAround(fromTime);
+            coalesceAround(toTime);
+        }
     }
 
     /**
@@ -212,42 +358,246 @@ public class IntegerDoubleMapping implements Cloneable, Iterable<TimeValuePair>
      * @param amount the amount by which the values are to be decreased.
      */
     public void decrease(int fromTime, int toTime, double amount) {
-        decrease(fromTime, toTime, -amount);
+        increase(fromTime, toTime, -amount);
     }
 
     /**
-     * Adds the specified mapping to this mapping. {@code IntegerDoubleMapping} objects are treated as mathematical
-     * functions Z -> Z for this purpose. Runtime(number of steps in {@code mapping}).
+     * Returns the pointwise sum of this mapping and the specified mapping. {@code IntegerDoubleMapping} objects are
+     * treated as mathematical functions Z -> R for this purpose. The result is piecewise linear if one of the mappings
+     * is. Both mappings are traversed once in parallel. Runtime O(number of steps in both mappings).
      *
      * @param map the mapping to be added to this mapping.
+     * @return the sum of both mappings
      * @exception NullPointerException if mapping is null.
      */
     public IntegerDoubleMapping add(IntegerDoubleMapping map) {
-        IntegerDoubleMapping result = new IntegerDoubleMapping(linear || map.isPiecewiseLinear());
-        SortedSet<TimeValuePair> set = new TreeSet<TimeValuePair>();
-        set.addAll(mapping);
-        set.addAll(map.mapping);
-        for (TimeValuePair tip : set) {
-            result.mapping.add(new TimeValuePair(tip.time(), get(tip.time()) + map.get(tip.time())));
-        }
-        return result;
+        return combine(map, Double::sum, false);
+    }
+
+    /**
+     * Returns the pointwise difference of this mapping and the specified mapping. Runtime O(number of steps in both
+     * mappings).
+     *
+     * @param map the mapping to be subtracted from this mapping.
+     * @return the difference of both mappings
+     * @exception NullPointerException if mapping is null.
+     * @see #add(IntegerDoubleMapping)
+     */
+    public IntegerDoubleMapping subtract(IntegerDoubleMapping map) {
+        return combine(map, (a, b) -> a - b, false);
+    }
+
+    /**
+     * Returns the pointwise minimum of this mapping and the specified mapping. If the result is piecewise linear, steps
+     * are added around the points where the mappings cross, so that the result is exact at all integers. Runtime
+     * O(number of steps in both mappings + number of crossings).
+     *
+     * @param map the other mapping.
+     * @return the minimum of both mappings
+     * @exception NullPointerException if mapping is null.
+     */
+    public IntegerDoubleMapping min(IntegerDoubleMapping map) {
+        return combine(map, Math::min, true);
+    }
+
+    /**
+     * Returns the pointwise maximum of this mapping and the specified mapping. Runtime O(number of steps in both
+     * mappings + number of crossings).
+     *
+     * @param map the other mapping.
+     * @return the maximum of both mappings
+     * @exception NullPointerException if mapping is null.
+     * @see #min(IntegerDoubleMapping)
+     */
+    public IntegerDoubleMapping max(IntegerDoubleMapping map) {
+        return combine(map, Math::max, true);
+    }
+
+    /**
+     * Adds the specified mapping to this mapping. Existing steps are updated in place, only steps of {@code mapping}
+     * at times without a step in this mapping are inserted. Runtime O(number of steps in both mappings + k log(number
+     * of steps)) for {@code k} inserted steps.
+     * <p>
+     * If this mapping is piecewise constant and {@code mapping} is piecewise linear, this mapping becomes piecewise
+     * linear, as the result cannot be represented by steps.</p>
+     *
+     * @param mapping the mapping to be added to this mapping.
+     * @exception NullPointerException if mapping is null.
+     * @see #add(IntegerDoubleMapping)
+     */
+    public void addMapping(IntegerDoubleMapping mapping) {
+        combineInPlace(mapping, Double::sum, false);
     }
 
     /**
      * Subtracts the specified mapping from this mapping. {@code IntegerDoubleMapping} objects are treated as
-     * mathematical functions Z -> Z for this purpose. Runtime(number of steps in {@code mapping}).
+     * mathematical functions Z -> R for this purpose. Runtime as for {@link #addMapping(IntegerDoubleMapping)}.
+     * <p>
+     * This mapping becomes piecewise linear if {@code mapping} is, see {@link #addMapping(IntegerDoubleMapping)}.</p>
      *
      * @param mapping the mapping to be subtracted to this mapping.
      * @exception NullPointerException if mapping is null.
      */
     public void subtractMapping(IntegerDoubleMapping mapping) {
-        TimeValuePair last = null;
+        combineInPlace(mapping, (a, b) -> a - b, false);
+    }
+
+    /**
+     * Sets this mapping to the pointwise minimum of itself and the specified mapping. Runtime as for
+     * {@link #addMapping(IntegerDoubleMapping)}.
+     * <p>
+     * This mapping becomes piecewise linear if {@code mapping} is, see {@link #addMapping(IntegerDoubleMapping)}.</p>
+     *
+     * @param mapping the other mapping.
+     * @exception NullPointerException if mapping is null.
+     * @see #min(IntegerDoubleMapping)
+     */
+    public void minMapping(IntegerDoubleMapping mapping) {
+        combineInPlace(mapping, Math::min, true);
+    }
+
+    /**
+     * Sets this mapping to the pointwise maximum of itself and the specified mapping. Runtime as for
+     * {@link #addMapping(IntegerDoubleMapping)}.
+     * <p>
+     * This mapping becomes piecewise linear if {@code mapping} is, see {@link #addMapping(IntegerDoubleMapping)}.</p>
+     *
+     * @param mapping the other mapping.
+     * @exception NullPointerException if mapping is null.
+     * @see #min(IntegerDoubleMapping)
+     */
+    public void maxMapping(IntegerDoubleMapping mapping) {
+        combineInPlace(mapping, Math::max, true);
+    }
+
+    private IntegerDoubleMapping combine(IntegerDoubleMapping map, DoubleBinaryOperator operator, boolean crossings) {
+        IntegerDoubleMapping result = new IntegerDoubleMapping(linear || map.linear);
+        List<TimeValuePair> steps = new ArrayList<>(mapping.size() + map.mapping.size());
+        merge(map, operator, crossings, (time, value, index) -> steps.add(new TimeValuePair(time, value)));
+        result.mapping = PiecewiseMerge.toTreeSet(steps);
+        return result;
+    }
+
+    private void combineInPlace(IntegerDoubleMapping map, DoubleBinaryOperator operator, boolean crossings) {
+        List<TimeValuePair> steps = new ArrayList<>(mapping);
+        List<TimeValuePair> added = new ArrayList<>();
+        merge(map, operator, crossings, (time, value, index) -> {
+            if (index >= 0) {
+                steps.get(index).set(value);
+            } else {
+                added.add(new TimeValuePair(time, value));
+            }
+        });
+        mapping.addAll(added);
+        linear |= map.linear;
+        invalidateIndex(Integer.MIN_VALUE);
+        if (coalescing) {
+            compact();
+        }
+    }
+
+    private void merge(IntegerDoubleMapping map, DoubleBinaryOperator operator, boolean crossings,
+            PiecewiseMerge.Target target) {
+        int[] times = new int[mapping.size()];
+        double[] values = new double[mapping.size()];
+        int i = 0;
         for (TimeValuePair tip : mapping) {
-            if (last == null) {
-                last = tip;
-                continue;
+            times[i] = tip.time();
+            values[i++] = tip.value();
+        }
+        int[] otherTimes = new int[map.mapping.size()];
+        double[] otherValues = new double[map.mapping.size()];
+        i = 0;
+        for (TimeValuePair tip : map.mapping) {
+            otherTimes[i] = tip.time();
+            otherValues[i++] = tip.value();
+        }
+        PiecewiseMerge.merge(times, values, linear, otherTimes, otherValues, map.linear, operator, crossings, target);
+    }
+
+    /**
+     * Builds an {@code IntegerDoubleMapping} from steps appended in the order of their times. Appending runs in
+     * amortized O(1), as no tree is searched, and {@link #build()} creates the tree in O(number of steps) from the
+     * sorted steps. A builder can be used only once.
+     */
+    public static final class Builder {
+
+        /**
+         * Whether the built mapping is piecewise linear.
+         */
+        private final boolean linear;
+        /**
+         * The steps, starting with the step at {@code Integer.MIN_VALUE}.
+         */
+        private List<TimeValuePair> steps;
+
+        /**
+         * Creates a new builder for a piecewise constant mapping that maps all integers to 0.
+         */
+        public Builder() {
+            this(false, 16);
+        }
+
+        /**
+         * Creates a new builder for a mapping that maps all integers to 0.
+         *
+         * @param linear if {@code true} the built mapping is piecewise linear instead of piecewise constant
+         * @param expectedSteps the expected number of steps
+         */
+        public Builder(boolean linear, int expectedSteps) {
+            this.linear = linear;
+            steps = new ArrayList<>(expectedSteps + 2);
+            steps.add(new TimeValuePair(Integer.MIN_VALUE, 0));
+        }
+
+        /**
+         * Adds a step at {@code time} with the given value. A step at the same time as the last step replaces its
+         * value. For a piecewise constant mapping, a step with the same value as the last step is merged with it.
+         *
+         * @param time the time of the step, not before the last appended time
+         * @param value the value of the step
+         * @return this builder
+         * @exception IllegalArgumentException if {@code time} is before the last appended time
+         * @exception IllegalStateException if the mapping has already been built
+         */
+        public Builder append(int time, double value) {
+            if (steps == null) {
+                throw new IllegalStateException("The mapping has already been built.");
+            }
+            TimeValuePair last = steps.get(steps.size() - 1);
+            if (time < last.time()) {
+                throw new IllegalArgumentException(time + " is before the last time " + last.time() + ".");
             }
-            decrease(last.time(), tip.time(), last.value());
+            boolean redundant = !linear && time != Integer.MAX_VALUE;
+            if (time == last.time()) {
+                if (redundant && steps.size() > 1 && steps.get(steps.size() - 2).value() == value) {
+                    steps.remove(steps.size() - 1);
+                } else {
+                    last.set(value);
+                }
+            } else if (!redundant || value != last.value()) {
+                steps.add(new TimeValuePair(time, value));
+            }
+            return this;
+        }
+
+        /**
+         * Returns the mapping of the appended steps. Runtime O(number of steps).
+         *
+         * @return the mapping
+         * @exception IllegalStateException if the mapping has already been built
+         */
+        public IntegerDoubleMapping build() {
+            if (steps == null) {
+                throw new IllegalStateException("The mapping has already been built.");
+            }
+            if (steps.get(steps.size() - 1).time() != Integer.MAX_VALUE) {
+                steps.add(new TimeValuePair(Integer.MAX_VALUE, 0));
+            }
+            IntegerDoubleMapping result = new IntegerDoubleMapping(linear);
+            result.mapping = PiecewiseMerge.toTreeSet(steps);
+            steps = null;
+            return result;
         }
     }
 
@@ -287,6 +637,12 @@ public class IntegerDoubleMapping implements Cloneable, Iterable<TimeValuePair>
         return result;
     }
 
+    /**
+     * Returns a mapping of the rounded values of this mapping to their times. For the exact inverse of a monotone mapping
+     * at a single value see {@link #inverseAt(double)}.
+     *
+     * @return the inverted mapping
+     */
     public IntegerDoubleMapping invert() {
         IntegerDoubleMapping result = new IntegerDoubleMapping();
         for (TimeValuePair tip : mapping) {
@@ -296,6 +652,112 @@ public class IntegerDoubleMapping implements Cloneable, Iterable<TimeValuePair>
         return result;
     }
 
+    /**
+     * Returns the first time at which this mapping reaches the given value, e.g. the time at which a cumulative flow
+     * reaches an amount. The mapping must be non-decreasing up to its last step before {@code Integer.MAX_VALUE},
+     * otherwise the result is unspecified. For a piecewise constant mapping the result is the time of the first step
+     * with at least the value, for a piecewise linear mapping the time is interpolated linearly within the segment
+     * reaching the value. The steps are searched binary in the array of the integral index, so that a query runs in
+     * O(log (number of steps)) if the mapping is not changed.
+     *
+     * @param value the value to reach
+     * @return the first time with at least the given value, {@code Integer.MIN_VALUE} if the first step reaches it
+     * and {@code Double.POSITIVE_INFINITY} if it is never reached
+     */
+    public double inverseAt(double value) {
+        updateIndex();
+        int low = 0;
+        int high = lastIndex() + 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (indexValues[middle] >= value) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        if (low > lastIndex()) {
+            return Double.POSITIVE_INFINITY;
+        } else if (!linear || low == 0) {
+            return indexTimes[low];
+        }
+        double fraction = (value - indexValues[low - 1]) / (indexValues[low] - indexValues[low - 1]);
+        return indexTimes[low - 1] + fraction * ((double) indexTimes[low] - indexTimes[low - 1]);
+    }
+
+    /**
+     * Returns the composition {@code this(inner(t))} of this mapping with a non-decreasing inner mapping. The value of
+     * the inner mapping is used as a time of this mapping, for a piecewise linear mapping this time is not rounded.
+     * Both step lists are merged in O(number of steps of both mappings). The composition has a step at each step of
+     * the inner mapping and, if the inner mapping is piecewise linear, at the first integer at which it reaches the
+     * time of a step of this mapping. It is piecewise linear if both mappings are. The composition is exact at all its
+     * steps and, if one of the mappings is piecewise constant, at all integers up to the last step of the inner mapping
+     * before {@code Integer.MAX_VALUE}.
+     *
+     * @param inner the mapping applied first
+     * @return the composition of this mapping and the inner mapping
+     * @exception IllegalArgumentException if the inner mapping decreases before its last step
+     */
+    public IntegerDoubleMapping compose(IntegerDoubleMapping inner) {
+        updateIndex();
+        inner.updateIndex();
+        int[] times = inner.indexTimes;
+        double[] values = inner.indexValues;
+        int last = inner.lastIndex();
+        Builder result = new Builder(linear && inner.linear, last + 1);
+        int floor = 0;
+        for (int i = 0; i <= last; ++i) {
+            if (i > 0 && values[i] < values[i - 1]) {
+                throw new IllegalArgumentException("The inner mapping decreases at " + times[i] + ".");
+            }
+            floor = floorIndex(values[i], floor);
+            result.append(times[i], valueAt(values[i], floor));
+            if (!inner.linear || i == last) {
+                continue;
+            }
+            double slope = (values[i + 1] - values[i]) / ((double) times[i + 1] - times[i]);
+            while (floor + 1 < indexSize && indexTimes[floor + 1] <= values[i + 1]) {
+                floor++;
+                long time = (long) Math.ceil(times[i] + (indexTimes[floor] - values[i]) / slope);
+                if (time > times[i] && time < times[i + 1]) {
+                    double innerValue = values[i] + slope * (time - times[i]);
+                    result.append((int) time, valueAt(innerValue, floorIndex(innerValue, floor - 1)));
+                }
+            }
+        }
+        return result.build();
+    }
+
+    /**
+     * Returns the index of the last step of the integral index before the step at {@code Integer.MAX_VALUE}.
+     */
+    private int lastIndex() {
+        return indexTimes[indexSize - 1] == Integer.MAX_VALUE ? indexSize - 2 : indexSize - 1;
+    }
+
+    /**
+     * Returns the index of the last step of the integral index not after {@code time}, searching forward from
+     * {@code from}. Times before the first step belong to the first step.
+     */
+    private int floorIndex(double time, int from) {
+        int index = Math.max(from, 0);
+        while (index + 1 < indexSize && indexTimes[index + 1] <= time) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Evaluates this mapping at a time that is not necessarily an integer, given the index of its step, like
+     * {@link #get(int)}.
+     */
+    private double valueAt(double time, int index) {
+        if (!linear || time == indexTimes[index] || indexSize < 2) {
+            return indexValues[index];
+        }
+        return indexValues[index] + slope(index) * (time - indexTimes[index]);
+    }
+
     /**
      * Computes the integral of this mapping. {@code IntegerDoubleMapping} is considered a step function with step
      * starts defined by its mapping for this purpose. The result (a piecewise linear function) is interpreted as an
@@ -306,14 +768,14 @@ public class IntegerDoubleMapping implements Cloneable, Iterable<TimeValuePair>
      */
     public IntegerDoubleMapping integral() {
         IntegerDoubleMapping summatedMapping = new IntegerDoubleMapping(true);
-        int sum = 0;
-        int lastTime = 0;
+        double sum = 0;
+        int lastTime = Integer.MIN_VALUE;
         double lastValue = 0;
-        boolean first = true;
         for (TimeValuePair tip : mapping) {
-            first = (tip.time() == Integer.MIN_VALUE);
-            if (!first) {
-                sum += (tip.time() - lastTime) * lastValue;
+            if (tip.time() != Integer.MIN_VALUE) {
+                if (lastTime != Integer.MIN_VALUE) {
+                    sum += ((long) tip.time() - lastTime) * lastValue;
+                }
                 summatedMapping.set(tip.time(), sum);
             }
             lastTime = tip.time();
@@ -322,6 +784,100 @@ public class IntegerDoubleMapping implements Cloneable, Iterable<TimeValuePair>
         return summatedMapping;
     }
 
+    /**
+     * Returns the area under this mapping from {@code fromTime} to {@code toTime}. For a step function this is the sum
+     * of the values of all integers from {@code fromTime} (inclusively) to {@code toTime} (exclusively); a piecewise
+     * linear mapping is integrated segment by segment with the trapezoidal rule, extrapolating like {@link #get(int)}.
+     * The integrals up to each step are cached in an index, so that a query runs in O(log (number of steps)). Changes
+     * only invalidate the index from the changed time on, this suffix is rebuilt by the next query in O(number of steps
+     * after the changed time). Changes of the values of {@link TimeValuePair}s returned by the iterator are not
+     * detected.
+     *
+     * @param fromTime the first time of the interval
+     * @param toTime the time after the interval
+     * @return the integral over the interval
+     * @exception IllegalArgumentException if {@code toTime} is smaller than {@code fromTime}
+     */
+    public double integrate(int fromTime, int toTime) {
+        if (toTime < fromTime) {
+            throw new IllegalArgumentException(fromTime + " cannot be smaller than " + toTime + ".");
+        }
+        updateIndex();
+        return integralUpTo(toTime) - integralUpTo(fromTime);
+    }
+
+    private double integralUpTo(int time) {
+        int i = Arrays.binarySearch(indexTimes, 0, indexSize, time);
+        if (i < 0) {
+            i = -i - 2;
+            if (i < 0) {
+                return 0;
+            }
+        }
+        if (i == indexSize - 1) {
+            double width = (double) time - indexTimes[i];
+            return indexIntegrals[i] + width * (indexValues[i] + 0.5 * slope(i) * width);
+        }
+        // measure from the end of the segment, which keeps the unbounded first segment precise
+        double width = (double) indexTimes[i + 1] - time;
+        double value = indexValues[i] + slope(i) * ((double) time - indexTimes[i]);
+        return indexIntegrals[i + 1] - width * (linear ? (value + indexValues[i + 1]) / 2 : value);
+    }
+
+    /**
+     * Returns the slope of the segment starting at the step with the given index in the integral index. Step
+     * functions have no slope, the last segment of a piecewise linear mapping continues the slope of its predecessor.
+     */
+    private double slope(int i) {
+        if (!linear || indexSize < 2) {
+            return 0;
+        }
+        int start = i < indexSize - 1 ? i : i - 1;
+        return (indexValues[start + 1] - indexValues[start]) / ((double) indexTimes[start + 1] - indexTimes[start]);
+    }
+
+    private void invalidateIndex(int time) {
+        indexValidBefore = Math.min(indexValidBefore, time);
+    }
+
+    /**
+     * Rebuilds the integral index from the first outdated time on. The entries before this time are kept, as their
+     * integrals only depend on earlier steps. The integrals are measured from the first step after
+     * {@code Integer.MIN_VALUE}.
+     */
+    private void updateIndex() {
+        if (indexValidBefore == Long.MAX_VALUE) {
+            return;
+        }
+        int kept = indexValidBefore == Long.MIN_VALUE ? 0
+                : Arrays.binarySearch(indexTimes, 0, indexSize, (int) indexValidBefore);
+        if (kept < 0) {
+            kept = -kept - 1;
+        }
+        indexSize = kept;
+        Iterable<TimeValuePair> suffix = kept == 0 ? mapping
+                : mapping.tailSet(new TimeValuePair(indexTimes[kept - 1], 0), false);
+        for (TimeValuePair tip : suffix) {
+            if (indexSize == indexTimes.length) {
+                int capacity = Math.max(16, Math.max(2 * indexSize, mapping.size()));
+                indexTimes = Arrays.copyOf(indexTimes, capacity);
+                indexValues = Arrays.copyOf(indexValues, capacity);
+                indexIntegrals = Arrays.copyOf(indexIntegrals, capacity);
+            }
+            indexTimes[indexSize] = tip.time();
+            indexValues[indexSize] = tip.value();
+            if (indexSize == 0 || indexTimes[indexSize - 1] == Integer.MIN_VALUE) {
+                indexIntegrals[indexSize] = 0;
+            } else {
+                double width = (double) tip.time() - indexTimes[indexSize - 1];
+                double average = linear ? (indexValues[indexSize - 1] + tip.value()) / 2 : indexValues[indexSize - 1];
+                indexIntegrals[indexSize] = indexIntegrals[indexSize - 1] + width * average;
+            }
+            indexSize++;
+        }
+        indexValidBefore = Long.MAX_VALUE;
+    }
+
     /**
      * Returns an iterator over the time - integer mappings in this {@code IntegerDoubleMapping}. Runtime O(1).
      *
@@ -339,7 +895,8 @@ public class IntegerDoubleMapping implements Cloneable, Iterable<TimeValuePair>
      */
     @Override
     public IntegerDoubleMapping clone() {
-        IntegerDoubleMapping clone = new IntegerDoubleMapping();
+        IntegerDoubleMapping clone = new IntegerDoubleMapping(linear);
+        clone.coalescing = coalescing;
         for (TimeValuePair tip : mapping) {
             clone.set(tip.time(), tip.value());
         }
@@ -0,0 +1,34 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+/**
+ * The {@code LongIdentifiable} interface is the counterpart of {@link Identifiable} for domains with more than
+ * {@code Integer.MAX_VALUE} objects, e.g. the nodes of a time-expanded network. The object must be able to return its
+ * ID, a {@code long} value, that is used to store the object efficiently in paged array based datastructures such as
+ * the {@link LongIdentifiableIntegerMapping}.
+ */
+public interface LongIdentifiable {
+
+    /**
+     * Returns a {@code long} value, called ID, that can be used to identify the corresponding object. The ID is usually
+     * used for equality checks and as a simple, efficient hash function in conjuction with mappings
+     * ({@link LongIdentifiableObjectMapping}).
+     *
+     * @return a {@code long} value identifing the corresponding object.
+     */
+    long id();
+}
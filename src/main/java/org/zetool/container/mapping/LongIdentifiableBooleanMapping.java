@@ -0,0 +1,313 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+
+/**
+ * The {@code LongIdentifiableBooleanMapping} class represents a mapping from a set of {@link LongIdentifiable} objects
+ * to booleans. It is the counterpart of {@link IdentifiableBooleanMapping} for domains that exceed
+ * {@code Integer.MAX_VALUE} elements. The values are stored as bits in pages of fixed size, which are allocated on the
+ * first write. Pages that have never been written contain {@code false} for all IDs and do not use any memory.
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to booleans.
+ * {@code D} must implement {@link LongIdentifiable}.
+ */
+public class LongIdentifiableBooleanMapping<D extends LongIdentifiable> implements Cloneable {
+
+    /** The number of {@code long} words used to store the bits of a page. */
+    private static final int WORDS_PER_PAGE = Pages.PAGE_SIZE / Long.SIZE;
+
+    /** The pages storing all associations as bit sets. A {@code null} page is mapped to {@code false} completely. */
+    protected long[][] pages;
+    /** The size of the domain. */
+    protected long domainSize;
+
+    /**
+     * Constructs a new {@code LongIdentifiableBooleanMapping} object with a domain of the specified size. The default
+     * association for an object is {@code false}. Runtime O(domainSize / page size).
+     *
+     * @param domainSize the initial size of the domain.
+     * @throws NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public LongIdentifiableBooleanMapping(long domainSize) {
+        this.pages = new long[Pages.pageCount(domainSize)][];
+        this.domainSize = domainSize;
+    }
+
+    public LongIdentifiableBooleanMapping(Iterable<D> domain) {
+        this(LongIdentifiableIntegerMapping.domainSize(domain));
+    }
+
+    /**
+     * A copy constructor to initialize the boolean mapping.
+     *
+     * @param lbm the existing boolean mapping
+     */
+    public LongIdentifiableBooleanMapping(LongIdentifiableBooleanMapping<D> lbm) {
+        this.pages = new long[lbm.pages.length][];
+        for (int i = 0; i < pages.length; ++i) {
+            pages[i] = lbm.pages[i] == null ? null : lbm.pages[i].clone();
+        }
+        this.domainSize = lbm.domainSize;
+    }
+
+    /**
+     * Returns the boolean associated with {@code identifiableObject} in this mapping. Runtime O(1).
+     *
+     * @param identifiableObject the object for which the associated value is to be returned.
+     * @return the boolean associated with {@code identifiableObject} in this mapping.
+     * @throws ArrayIndexOutOfBoundsException if {@code identifiableObject}'s ID is less then 0 or greater equal than the
+     * size of the domain.
+     * @throws NullPointerException if {@code identifiableObject} is null.
+     */
+    public boolean get(D identifiableObject) {
+        long id = identifiableObject.id();
+        if (id < 0 || id >= domainSize) {
+            throw new ArrayIndexOutOfBoundsException(Long.toString(id));
+        }
+        long[] page = pages[Pages.page(id)];
+        return page != null && (page[Pages.offset(id) >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Associates {@code identifiableObject} with {@code value} in this mapping. Calling {@code set} with an
+     * {@code identifiableObject} whose ID is greater equal than the current size of the domain will automatically
+     * increase the size of the domain to accommodate {@code identifiableObject}'s ID. Runtime O(1) (O(page size) if a
+     * new page is used).
+     *
+     * @param identifiableObject the object for which an association is to be made.
+     * @param value the boolean to be associated with {@code identifiableObject}.
+     * @throws ArrayIndexOutOfBoundsException if {@code identifiableObject}'s ID is less then 0.
+     * @throws NullPointerException if {@code identifiableObject} is null.
+     */
+    public void set(D identifiableObject, boolean value) {
+        long id = identifiableObject.id();
+        ensureDomain(id);
+        int p = Pages.page(id);
+        if (pages[p] == null) {
+            if (!value) {
+                return;
+            }
+            pages[p] = new long[WORDS_PER_PAGE];
+        }
+        if (value) {
+            pages[p][Pages.offset(id) >>> 6] |= 1L << id;
+        } else {
+            pages[p][Pages.offset(id) >>> 6] &= ~(1L << id);
+        }
+    }
+
+    /**
+     * Negates the value associated with {@code identifiableObject}. The domain is automatically expanded to accommodate
+     * to large ID. Runtime O(1).
+     *
+     * @param identifiableObject the object for which the value is to be toggled.
+     * @throws ArrayIndexOutOfBoundsException if {@code identifiableObject}'s ID is less then 0.
+     * @throws NullPointerException if {@code identifiableObject} is null.
+     */
+    public void toggle(D identifiableObject) {
+        set(identifiableObject, !(identifiableObject.id() < domainSize && get(identifiableObject)));
+    }
+
+    /**
+     * Associates all objects of the domain with {@code value}. Initializing with {@code false} only releases the pages
+     * and runs in O(number of pages), initializing with {@code true} needs O(domain size / 64).
+     *
+     * @param value the new value of all objects
+     */
+    public void initializeWith(boolean value) {
+        for (int p = 0; p < pages.length; ++p) {
+            if (!value) {
+                pages[p] = null;
+            } else {
+                if (pages[p] == null) {
+                    pages[p] = new long[WORDS_PER_PAGE];
+                }
+                Arrays.fill(pages[p], -1L);
+            }
+        }
+        if (value) {
+            clearTail();
+        }
+    }
+
+    /**
+     * Returns the number of objects that are mapped to {@code true}. Runtime O(number of allocated values / 64).
+     *
+     * @return the number of objects that are mapped to {@code true}
+     */
+    public long cardinality() {
+        long result = 0;
+        for (long[] page : pages) {
+            if (page != null) {
+                for (long word : page) {
+                    result += Long.bitCount(word);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the size of this mapping's domain. Runtime O(1).
+     *
+     * @return the size of this mapping's domain.
+     */
+    public long getDomainSize() {
+        return domainSize;
+    }
+
+    /**
+     * Sets the size of this mapping's domain to {@code value}. Values of objects that are cut off are lost. Runtime
+     * O(number of pages).
+     *
+     * @param value the new size of this mapping's domain.
+     * @throws NegativeArraySizeException if {@code value} is negative.
+     */
+    public void setDomainSize(long value) {
+        pages = Arrays.copyOf(pages, Pages.pageCount(value));
+        boolean shrinks = value < domainSize;
+        domainSize = value;
+        if (shrinks) {
+            clearTail();
+        }
+    }
+
+    /**
+     * Checks whether {@code identifiableObject} has been defined in this mapping, i.e. whether its ID fits the size of
+     * the domain. Runtime O(1).
+     *
+     * @param identifiableObject the object to check for whether it is defined in this mapping.
+     * @return true if the ID of {@code identifiableObject} is within the domain and false otherwise.
+     * @throws NullPointerException if {@code identifiableObject} is {@code null}.
+     */
+    public boolean isDefinedFor(D identifiableObject) {
+        return 0 <= identifiableObject.id() && identifiableObject.id() < domainSize;
+    }
+
+    /**
+     * Creates a copy of this mapping. Runtime O(number of allocated values / 64).
+     *
+     * @return a copy of this mapping.
+     */
+    @Override
+    public LongIdentifiableBooleanMapping<D> clone() {
+        return new LongIdentifiableBooleanMapping<>(this);
+    }
+
+    /**
+     * Compares this mapping to the specified object. The result is true if and only if the argument is not null and is
+     * a {@code LongIdentifiableBooleanMapping} object which has an domain of equal size and makes exactly the same
+     * object - boolean associations. Runtime O(size of the domain / 64).
+     *
+     * @param o the object this mapping is to be compared with.
+     * @return {@code true} if the given object represents an equivalent mapping, {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || !(o instanceof LongIdentifiableBooleanMapping)) {
+            return false;
+        }
+        LongIdentifiableBooleanMapping<?> lbm = (LongIdentifiableBooleanMapping<?>) o;
+        if (lbm.domainSize != domainSize) {
+            return false;
+        }
+        for (int p = 0; p < pages.length; ++p) {
+            long[] page = pages[p];
+            long[] other = lbm.pages[p];
+            for (int i = 0; i < WORDS_PER_PAGE && (page != null || other != null); ++i) {
+                if ((page == null ? 0 : page[i]) != (other == null ? 0 : other[i])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a hash code for this {@code LongIdentifiableBooleanMapping}. Runtime O(number of allocated values / 64).
+     *
+     * @return a hash code computed from the set bits of this mapping.
+     */
+    @Override
+    public int hashCode() {
+        long hash = 0;
+        for (long[] page : pages) {
+            if (page != null) {
+                for (long word : page) {
+                    hash = 31 * hash + word;
+                }
+            }
+        }
+        return Long.hashCode(hash);
+    }
+
+    /**
+     * Return a {@code String} object representing this mapping. As the domain may be huge, only the IDs of objects
+     * mapped to {@code true} are listed. Runtime O(number of allocated values).
+     *
+     * @return a string representation of this mapping.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append('[');
+        for (int p = 0; p < pages.length; ++p) {
+            if (pages[p] == null) {
+                continue;
+            }
+            for (int w = 0; w < WORDS_PER_PAGE; ++w) {
+                long word = pages[p][w];
+                while (word != 0) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    builder.append(((long) p << Pages.PAGE_BITS) + w * Long.SIZE + bit).append(", ");
+                    word &= word - 1;
+                }
+            }
+        }
+        if (builder.length() > 2) {
+            builder.delete(builder.length() - 2, builder.length());
+        }
+        builder.append(']');
+        return builder.toString();
+    }
+
+    /**
+     * Resets all bits of the last page that are not part of the domain.
+     */
+    private void clearTail() {
+        if (domainSize == 0 || pages[pages.length - 1] == null) {
+            return;
+        }
+        long[] page = pages[pages.length - 1];
+        int length = Pages.offset(domainSize - 1) + 1;
+        int word = length >>> 6;
+        if (word < WORDS_PER_PAGE) {
+            page[word] &= (1L << length) - 1;
+            Arrays.fill(page, word + 1, WORDS_PER_PAGE, 0);
+        }
+    }
+
+    private void ensureDomain(long id) {
+        if (id < 0) {
+            throw new ArrayIndexOutOfBoundsException(Long.toString(id));
+        }
+        if (id >= domainSize) {
+            setDomainSize(id + 1);
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+
+/**
+ * The {@code LongIdentifiableIntegerMapping} class represents a mapping from a set of {@link LongIdentifiable} objects
+ * to integers. It is the counterpart of {@link IdentifiableIntegerMapping} for domains that exceed
+ * {@code Integer.MAX_VALUE} elements. The values are not stored in a single array but in pages of fixed size, which
+ * are allocated on the first write. Pages that have never been written contain {@code 0} for all IDs and do not use
+ * any memory, thus very large but sparsely used domains are cheap.
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to integers.
+ * {@code D} must implement {@link LongIdentifiable}.
+ */
+public class LongIdentifiableIntegerMapping<D extends LongIdentifiable> implements Cloneable {
+
+    /** The pages storing all associations. A {@code null} page is mapped to {@code 0} completely. */
+    protected int[][] pages;
+    /** The size of the domain. */
+    protected long domainSize;
+
+    /**
+     * Constructs a new {@code LongIdentifiableIntegerMapping} object with a domain of the specified size. The default
+     * association for an object is {@code 0}. Runtime O(domainSize / page size).
+     *
+     * @param domainSize the initial size of the domain.
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public LongIdentifiableIntegerMapping(long domainSize) {
+        this.pages = new int[Pages.pageCount(domainSize)][];
+        this.domainSize = domainSize;
+    }
+
+    public LongIdentifiableIntegerMapping(Iterable<D> domain) {
+        this(LongIdentifiableIntegerMapping.domainSize(domain));
+    }
+
+    /**
+     * Creates a new instance as a copy of an existing {@link LongIdentifiableIntegerMapping}.
+     *
+     * @param lim the mapping that is copied
+     */
+    public LongIdentifiableIntegerMapping(LongIdentifiableIntegerMapping<D> lim) {
+        this.pages = new int[lim.pages.length][];
+        for (int i = 0; i < pages.length; ++i) {
+            pages[i] = lim.pages[i] == null ? null : lim.pages[i].clone();
+        }
+        this.domainSize = lim.domainSize;
+    }
+
+    /**
+     * Computes the size of a domain, i.e. the highest ID of the domain plus one.
+     *
+     * @param <D> the domain type
+     * @param domain the domain
+     * @return the highest ID of the elements in the domain plus one
+     */
+    static <D extends LongIdentifiable> long domainSize(Iterable<D> domain) {
+        long maxId = -1;
+        for (D x : domain) {
+            if (maxId < x.id()) {
+                maxId = x.id();
+            }
+        }
+        return maxId + 1;
+    }
+
+    /**
+     * Returns the integer associated with {@code identifiableObject} in this mapping. Runtime O(1).
+     *
+     * @param identifiableObject the object for which the associated value is to be returned.
+     * @return the integer associated with {@code identifiableObject} in this mapping.
+     * @exception ArrayIndexOutOfBoundsException if {@code identifiableObject}'s ID is less then 0 or greater equal than
+     * the size of the domain.
+     * @exception NullPointerException if {@code identifiableObject} is null.
+     */
+    public int get(D identifiableObject) {
+        long id = identifiableObject.id();
+        checkIndex(id);
+        int[] page = pages[Pages.page(id)];
+        return page == null ? 0 : page[Pages.offset(id)];
+    }
+
+    /**
+     * Associates {@code identifiableObject} with {@code value} in this mapping. Any previously made association for
+     * {@code identifiableObject} is lost in the process. Calling {@code set} with an {@code identifiableObject} whose
+     * ID is greater equal than the current size of the domain will automatically increase the size of the domain to
+     * accommodate {@code identifiableObject}'s ID. Runtime O(1) (O(page size) if a new page is used).
+     *
+     * @param identifiableObject the object for which an association is to be made.
+     * @param value the integer to be associated with {@code identifiableObject}.
+     * @exception ArrayIndexOutOfBoundsException if {@code identifiableObject}'s ID is less then 0.
+     * @exception NullPointerException if {@code identifiableObject} is null.
+     */
+    public void set(D identifiableObject, int value) {
+        long id = identifiableObject.id();
+        ensureDomain(id);
+        writablePage(id)[Pages.offset(id)] = value;
+    }
+
+    /**
+     * A convenience method equaling to {@code set(identifiableObject, get(identifiableObject) + amount)}, with the
+     * exception that the domain is to automatically expanded to accommodate to large ID. Runtime O(1).
+     *
+     * @param identifiableObject the object for which the value is to be increased.
+     * @param amount the amount by which the integer currently associated with {@code identifiableObject} is to be
+     * increased.
+     * @exception ArrayIndexOutOfBoundsException if {@code identifiableObject}'s ID is less then 0.
+     * @exception NullPointerException if {@code identifiableObject} is null
+     * @exception ArithmeticException if the new value produces an overflow
+     */
+    public void increase(D identifiableObject, int amount) {
+        long id = identifiableObject.id();
+        ensureDomain(id);
+        int[] page = writablePage(id);
+        page[Pages.offset(id)] = Math.addExact(page[Pages.offset(id)], amount);
+    }
+
+    /**
+     * Associates {@code identifiableObject} with {@code value} in this mapping. Equivalent to
+     * {@link #set(org.zetool.container.mapping.LongIdentifiable, int)}.
+     *
+     * @param identifiableObject the object for which an association is to be made.
+     * @param value the integer to be associated with {@code identifiableObject}.
+     */
+    public void add(D identifiableObject, int value) {
+        set(identifiableObject, value);
+    }
+
+    /**
+     * A convenience method equaling to {@code set(identifiableObject, get(identifiableObject) - amount)}, with the
+     * exception that the domain is to automatically expanded to accommodate to large ID. Runtime O(1).
+     *
+     * @param identifiableObject the object for which the value is to be decreased.
+     * @param amount the amount by which the integer currently associated with {@code identifiableObject} is to be
+     * decreased.
+     * @exception ArrayIndexOutOfBoundsException if {@code identifiableObject}'s ID is less then 0.
+     * @exception NullPointerException if {@code identifiableObject} is null.
+     */
+    public void decrease(D identifiableObject, int amount) {
+        long id = identifiableObject.id();
+        ensureDomain(id);
+        writablePage(id)[Pages.offset(id)] -= amount;
+    }
+
+    /**
+     * Returns the minimum over all values assigned to the specified set of objects.
+     *
+     * @param identifiableObjects the objects
+     * @return the minimum over all values assigned to the specified set of objects.
+     */
+    public int minimum(Iterable<D> identifiableObjects) {
+        int minimum = Integer.MAX_VALUE;
+        for (D identifiableObject : identifiableObjects) {
+            int value = get(identifiableObject);
+            if (value < minimum) {
+                minimum = value;
+            }
+        }
+        return minimum;
+    }
+
+    /**
+     * Returns the sum over all values assigned to the specified set of objects. The sum is computed using {@code long}
+     * values as the number of summands may be huge.
+     *
+     * @param identifiableObjects the objects
+     * @return the sum over all values assigned to the specified set of objects.
+     */
+    public long sum(Iterable<D> identifiableObjects) {
+        long sum = 0;
+        for (D identifiableObject : identifiableObjects) {
+            sum += get(identifiableObject);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the maximum over all values of the domain. Pages that have not been written contribute {@code 0}.
+     * Runtime O(number of allocated values + number of pages).
+     *
+     * @return the maximum over all values of the domain.
+     */
+    public int maximum() {
+        int result = Integer.MIN_VALUE;
+        for (int p = 0; p < pages.length; ++p) {
+            int[] page = pages[p];
+            int length = pageLength(p);
+            if (page == null) {
+                if (length > 0 && result < 0) {
+                    result = 0;
+                }
+                continue;
+            }
+            for (int i = 0; i < length; ++i) {
+                if (page[i] > result) {
+                    result = page[i];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Associates all objects of the domain with {@code value}. Initializing with {@code 0} only releases the pages and
+     * runs in O(number of pages), all other values need O(domain size).
+     *
+     * @param value the new value of all objects
+     */
+    public void initializeWith(int value) {
+        for (int p = 0; p < pages.length; ++p) {
+            if (value == 0) {
+                pages[p] = null;
+            } else {
+                if (pages[p] == null) {
+                    pages[p] = new int[Pages.PAGE_SIZE];
+                }
+                Arrays.fill(pages[p], 0, pageLength(p), value);
+            }
+        }
+    }
+
+    /**
+     * Returns the size of this mapping's domain. Associations of objects and integers can only be made for objects with
+     * an ID between {@code 0} and {@code getDomainSize()-1}. Runtime O(1).
+     *
+     * @return the size of this mapping's domain.
+     */
+    public long getDomainSize() {
+        return domainSize;
+    }
+
+    /**
+     * Sets the size of this mapping's domain to {@code value}. Values of objects that are cut off are lost. Runtime
+     * O(number of pages).
+     *
+     * @param value the new size of this mapping's domain.
+     * @exception NegativeArraySizeException if {@code value} is negative.
+     */
+    public void setDomainSize(long value) {
+        int pageCount = Pages.pageCount(value);
+        if (value < domainSize && pageCount > 0 && pages[pageCount - 1] != null) {
+            Arrays.fill(pages[pageCount - 1], Pages.offset(value - 1) + 1, Pages.PAGE_SIZE, 0);
+        }
+        pages = Arrays.copyOf(pages, pageCount);
+        domainSize = value;
+    }
+
+    /**
+     * Checks whether {@code identifiableObject} has been defined in this mapping, i.e. whether its ID fits the size of
+     * the domain. Runtime O(1).
+     *
+     * @param identifiableObject the object to check for whether it is defined in this mapping.
+     * @return true if the ID of {@code identifiableObject} is within the domain and false otherwise.
+     * @exception NullPointerException if {@code identifiableObject} is {@code null}.
+     */
+    public boolean isDefinedFor(D identifiableObject) {
+        return 0 <= identifiableObject.id() && identifiableObject.id() < domainSize;
+    }
+
+    /**
+     * Returns the number of pages that are currently allocated. Runtime O(number of pages).
+     *
+     * @return the number of pages that are currently allocated
+     */
+    public int getAllocatedPages() {
+        int result = 0;
+        for (int[] page : pages) {
+            if (page != null) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a copy of this mapping. Runtime O(number of allocated values).
+     *
+     * @return a copy of this mapping.
+     */
+    @Override
+    public LongIdentifiableIntegerMapping<D> clone() {
+        return new LongIdentifiableIntegerMapping<>(this);
+    }
+
+    /**
+     * Compares this mapping to the specified object. The result is true if and only if the argument is not null and is
+     * a {@code LongIdentifiableIntegerMapping} object which has an domain of equal size and makes exactly the same
+     * object - integer associations. A page that is not allocated equals a page containing only {@code 0}. Runtime
+     * O(size of the domain).
+     *
+     * @param o the object this mapping is to be compared with.
+     * @return {@code true} if the given object represents an equivalent mapping, {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || !(o instanceof LongIdentifiableIntegerMapping)) {
+            return false;
+        }
+        LongIdentifiableIntegerMapping<?> lim = (LongIdentifiableIntegerMapping<?>) o;
+        if (lim.domainSize != domainSize) {
+            return false;
+        }
+        for (int p = 0; p < pages.length; ++p) {
+            int[] page = pages[p];
+            int[] other = lim.pages[p];
+            for (int i = 0; i < pageLength(p) && (page != null || other != null); ++i) {
+                if ((page == null ? 0 : page[i]) != (other == null ? 0 : other[i])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a hash code for this {@code LongIdentifiableIntegerMapping}. Runtime O(number of allocated values).
+     *
+     * @return the sum of the integers associated with objects in this mapping.
+     */
+    @Override
+    public int hashCode() {
+        int sum = 0;
+        for (int[] page : pages) {
+            if (page != null) {
+                for (int value : page) {
+                    sum += value;
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Return a {@code String} object representing this mapping. As the domain may be huge, only the associations of
+     * objects with non-zero values are listed. Runtime O(number of allocated values).
+     *
+     * @return a string representation of this mapping.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append('[');
+        for (int p = 0; p < pages.length; ++p) {
+            if (pages[p] == null) {
+                continue;
+            }
+            for (int i = 0; i < pageLength(p); ++i) {
+                if (pages[p][i] != 0) {
+                    builder.append(((long) p << Pages.PAGE_BITS) + i).append(" = ").append(pages[p][i]).append(", ");
+                }
+            }
+        }
+        if (builder.length() > 2) {
+            builder.delete(builder.length() - 2, builder.length());
+        }
+        builder.append(']');
+        return builder.toString();
+    }
+
+    /**
+     * Returns the number of entries of a page that belong to the domain.
+     *
+     * @param page the index of the page
+     * @return the number of entries of a page that belong to the domain
+     */
+    private int pageLength(int page) {
+        return (int) Math.min(Pages.PAGE_SIZE, domainSize - ((long) page << Pages.PAGE_BITS));
+    }
+
+    private void checkIndex(long id) {
+        if (id < 0 || id >= domainSize) {
+            throw new ArrayIndexOutOfBoundsException(Long.toString(id));
+        }
+    }
+
+    private void ensureDomain(long id) {
+        if (id < 0) {
+            throw new ArrayIndexOutOfBoundsException(Long.toString(id));
+        }
+        if (id >= domainSize) {
+            setDomainSize(id + 1);
+        }
+    }
+
+    private int[] writablePage(long id) {
+        int p = Pages.page(id);
+        if (pages[p] == null) {
+            pages[p] = new int[Pages.PAGE_SIZE];
+        }
+        return pages[p];
+    }
+}
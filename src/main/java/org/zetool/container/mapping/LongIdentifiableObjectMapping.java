@@ -0,0 +1,296 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import org.zetool.container.localization.CollectionLocalization;
+
+/**
+ * The {@code LongIdentifiableObjectMapping} class represents a mapping from a set of {@link LongIdentifiable} objects
+ * to arbitrary values. It is the counterpart of {@link IdentifiableObjectMapping} for domains that exceed
+ * {@code Integer.MAX_VALUE} elements. The values are stored in pages of fixed size, which are allocated on the first
+ * write. Pages that have never been written map all IDs to {@code null} and do not use any memory.
+ *
+ * @param <D> the type of this mapping's key domain, i.e. the type of the objects that are to be mapped to values.
+ * {@code D} must implement {@link LongIdentifiable}.
+ * @param <R> the type of this mapping's range, i.e. the type of the values the objects can be mapped to.
+ */
+public class LongIdentifiableObjectMapping<D extends LongIdentifiable, R> implements Cloneable, Mapping<D, R>,
+        Iterable<R> {
+
+    /** The pages storing all associations. A {@code null} page is mapped to {@code null} completely. */
+    protected Object[][] pages;
+    /** The size of the domain. */
+    protected long domainSize;
+
+    /**
+     * Constructs a new {@code LongIdentifiableObjectMapping} object with a domain of the specified size. The default
+     * association for an object is {@code null}. Runtime O(domainSize / page size).
+     *
+     * @param domainSize the initial size of the domain.
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public LongIdentifiableObjectMapping(long domainSize) {
+        this.pages = new Object[Pages.pageCount(domainSize)][];
+        this.domainSize = domainSize;
+    }
+
+    /**
+     * Initializes the mapping for a collection of elements in the domain. All elements are checked for their
+     * respective ids and thus it is not necessary that the ids are a consecutive list.
+     *
+     * @param domain the elements of the domain that are to be stored
+     */
+    public LongIdentifiableObjectMapping(Iterable<D> domain) {
+        this(LongIdentifiableIntegerMapping.domainSize(domain));
+    }
+
+    /**
+     * Creates a new instance as a copy of an existing mapping. The values themselves are not copied.
+     *
+     * @param mapping the mapping that is copied
+     */
+    public LongIdentifiableObjectMapping(LongIdentifiableObjectMapping<D, R> mapping) {
+        Objects.requireNonNull(mapping, CollectionLocalization.LOC.getString("zet.collection.MappingNullException"));
+        this.pages = new Object[mapping.pages.length][];
+        for (int i = 0; i < pages.length; ++i) {
+            pages[i] = mapping.pages[i] == null ? null : mapping.pages[i].clone();
+        }
+        this.domainSize = mapping.domainSize;
+    }
+
+    /**
+     * Returns the value associated with {@code identifiableObject} in this mapping. Runtime O(1).
+     *
+     * @param identifiableObject the object for which the associated value is to be returned.
+     * @return the value associated with {@code identifiableObject} in this mapping.
+     * @exception ArrayIndexOutOfBoundsException if {@code identifiableObject}'s ID is less then 0 or greater equal than
+     * the size of the domain.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public R get(D identifiableObject) {
+        long id = identifiableObject.id();
+        if (id < 0 || id >= domainSize) {
+            throw new ArrayIndexOutOfBoundsException(Long.toString(id));
+        }
+        Object[] page = pages[Pages.page(id)];
+        return page == null ? null : (R) page[Pages.offset(id)];
+    }
+
+    /**
+     * Associates {@code identifiableObject} with {@code value} in this mapping. Calling {@code set} with an
+     * {@code identifiableObject} whose ID is greater equal than the current size of the domain will automatically
+     * increase the size of the domain to accommodate {@code identifiableObject}'s ID. Runtime O(1) (O(page size) if a
+     * new page is used).
+     *
+     * @param identifiableObject the object for which an association is to be made.
+     * @param value the value to be associated with {@code identifiableObject}.
+     */
+    @Override
+    public void set(D identifiableObject, R value) {
+        long id = identifiableObject.id();
+        if (id < 0) {
+            throw new ArrayIndexOutOfBoundsException(Long.toString(id));
+        }
+        if (id >= domainSize) {
+            setDomainSize(id + 1);
+        }
+        int p = Pages.page(id);
+        if (pages[p] == null) {
+            if (value == null) {
+                return;
+            }
+            pages[p] = new Object[Pages.PAGE_SIZE];
+        }
+        pages[p][Pages.offset(id)] = value;
+    }
+
+    /**
+     * Returns the size of this mapping's domain. Runtime O(1).
+     *
+     * @return the size of this mapping's domain.
+     */
+    public long getDomainSize() {
+        return domainSize;
+    }
+
+    /**
+     * Sets the size of this mapping's domain to {@code value}. Values of objects that are cut off are lost. Runtime
+     * O(number of pages).
+     *
+     * @param value the new size of this mapping's domain.
+     * @exception NegativeArraySizeException if {@code value} is negative.
+     */
+    public void setDomainSize(long value) {
+        int pageCount = Pages.pageCount(value);
+        if (value < domainSize && pageCount > 0 && pages[pageCount - 1] != null) {
+            Arrays.fill(pages[pageCount - 1], Pages.offset(value - 1) + 1, Pages.PAGE_SIZE, null);
+        }
+        pages = Arrays.copyOf(pages, pageCount);
+        domainSize = value;
+    }
+
+    /**
+     * Checks whether {@code identifiableObject} has been defined in this mapping, i.e. whether its ID fits the size of
+     * the domain and whether the it is associated with an object other than {@code null}. Runtime O(1).
+     *
+     * @param identifiableObject the object to check for whether it is defined in this mapping.
+     * @return true if {@code get(identifiableObject)} would return a non-{@code null} value and false otherwise.
+     * @exception NullPointerException if {@code identifiableObject} is null.
+     */
+    public boolean isDefinedFor(D identifiableObject) {
+        return 0 <= identifiableObject.id() && identifiableObject.id() < domainSize && get(identifiableObject) != null;
+    }
+
+    /**
+     * Creates a copy of this mapping. Runtime O(number of allocated values).
+     *
+     * @return a copy of this mapping.
+     */
+    @Override
+    public LongIdentifiableObjectMapping<D, R> clone() {
+        return new LongIdentifiableObjectMapping<>(this);
+    }
+
+    /**
+     * Compares this mapping to the specified object. The result is true if and only if the argument is not null and is
+     * a {@code LongIdentifiableObjectMapping} object which has an domain of equal size and makes exactly the same
+     * object - value associations. Runtime O(size of the domain).
+     *
+     * @param o the object this mapping is to be compared with.
+     * @return {@code true} if the given object represents an equivalent mapping, {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o == null || !(o instanceof LongIdentifiableObjectMapping)) {
+            return false;
+        }
+        LongIdentifiableObjectMapping<?, ?> lom = (LongIdentifiableObjectMapping<?, ?>) o;
+        if (lom.domainSize != domainSize) {
+            return false;
+        }
+        for (int p = 0; p < pages.length; ++p) {
+            Object[] page = pages[p];
+            Object[] other = lom.pages[p];
+            for (int i = 0; i < Pages.PAGE_SIZE && (page != null || other != null); ++i) {
+                if (!Objects.equals(page == null ? null : page[i], other == null ? null : other[i])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a hash code for this {@code LongIdentifiableObjectMapping}. Runtime O(number of allocated values).
+     *
+     * @return the sum of the hash codes of the values associated with objects in this mapping.
+     */
+    @Override
+    public int hashCode() {
+        int sum = 0;
+        for (R value : this) {
+            sum += value.hashCode();
+        }
+        return sum;
+    }
+
+    /**
+     * Return a {@code String} object representing this mapping. Object - null associations are omitted. Runtime
+     * O(number of allocated values).
+     *
+     * @return a string representation of this mapping.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append('[');
+        for (int p = 0; p < pages.length; ++p) {
+            if (pages[p] == null) {
+                continue;
+            }
+            for (int i = 0; i < Pages.PAGE_SIZE; ++i) {
+                if (pages[p][i] != null) {
+                    builder.append(((long) p << Pages.PAGE_BITS) + i).append(" = ").append(pages[p][i]).append(", ");
+                }
+            }
+        }
+        if (builder.length() > 2) {
+            builder.delete(builder.length() - 2, builder.length());
+        }
+        builder.append(']');
+        return builder.toString();
+    }
+
+    /**
+     * Returns an iterator over the values that are not {@code null}, ordered by the IDs they are associated with. Pages
+     * that have not been allocated are skipped.
+     *
+     * @return an iterator over the values that are not {@code null}
+     */
+    @Override
+    public Iterator<R> iterator() {
+        return new PageIterator();
+    }
+
+    /**
+     * Iterates over all pages and skips {@code null} values.
+     */
+    private class PageIterator implements Iterator<R> {
+
+        private int page;
+        private int offset;
+
+        @Override
+        public boolean hasNext() {
+            while (page < pages.length) {
+                if (pages[page] != null) {
+                    while (offset < Pages.PAGE_SIZE && pages[page][offset] == null) {
+                        offset++;
+                    }
+                    if (offset < Pages.PAGE_SIZE) {
+                        return true;
+                    }
+                }
+                page++;
+                offset = 0;
+            }
+            return false;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public R next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return (R) pages[page][offset++];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(CollectionLocalization.LOC.getString(
+                    "zet.collection.RemovalNotSupportedException"));
+        }
+    }
+}
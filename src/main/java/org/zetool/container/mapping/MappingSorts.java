@@ -0,0 +1,310 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * {@code MappingSorts} returns the IDs of a domain ordered by the values of an {@link IdentifiableIntegerMapping} or
+ * {@link IdentifiableDoubleMapping}, e.g. nodes by their distance label. The values are transformed into {@code long}
+ * keys whose signed order equals the order of the values. If the keys span a range smaller than the number of IDs, they
+ * are sorted by a single counting sort, otherwise by a least significant digit radix sort on bytes, skipping bytes that
+ * are equal for all keys. Sorting runs in O(n) for {@code int} values and O(8n) for {@code double} values, without
+ * boxing or comparators.
+ * <p>
+ * All sorts are stable, IDs with equal values keep their relative order, which is ascending for the whole domain.
+ * Doubles are ordered as by {@link Double#compare(double, double)}: {@code -0.0} is less than {@code 0.0} and
+ * {@code NaN} is greater than all other values. The parallel variants distribute each pass over chunks of the IDs on
+ * the common {@link ForkJoinPool} if the domain is larger than {@link ParallelMappings#THRESHOLD}.</p>
+ */
+public final class MappingSorts {
+
+    /** The number of bits sorted per radix pass. */
+    private static final int DIGIT_BITS = 8;
+    /** Masks a digit. */
+    private static final int DIGIT_MASK = (1 << DIGIT_BITS) - 1;
+    /** The maximal number of buckets of a counting sort. */
+    private static final int MAX_BUCKETS = 1 << 24;
+
+    /** Private constructor for utility class. */
+    private MappingSorts() {
+    }
+
+    /**
+     * Returns all IDs of the domain in ascending order of their values.
+     *
+     * @param mapping the mapping
+     * @return the IDs ordered by value
+     */
+    public static int[] sortedIds(IdentifiableIntegerMapping<?> mapping) {
+        int[] values = mapping.denseValues();
+        return sort(identity(values.length), keys(values, null, false), false);
+    }
+
+    /**
+     * Returns the given IDs in ascending order of their values.
+     *
+     * @param mapping the mapping
+     * @param ids the IDs that are sorted, which are not modified
+     * @return the IDs ordered by value
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public static int[] sortedIds(IdentifiableIntegerMapping<?> mapping, int[] ids) {
+        return sort(ids.clone(), keys(mapping.denseValues(), ids, false), false);
+    }
+
+    /**
+     * Returns all IDs of the domain in ascending order of their values, sorting in parallel.
+     *
+     * @param mapping the mapping
+     * @return the IDs ordered by value
+     */
+    public static int[] parallelSortedIds(IdentifiableIntegerMapping<?> mapping) {
+        int[] values = mapping.denseValues();
+        return sort(identity(values.length), keys(values, null, false), true);
+    }
+
+    /**
+     * Returns the {@code k} IDs with the smallest values in ascending order of their values. Of IDs with equal values
+     * the smaller IDs are selected.
+     *
+     * @param mapping the mapping
+     * @param k the number of selected IDs
+     * @return the {@code min(k, size of the domain)} IDs with the smallest values
+     * @exception IllegalArgumentException if {@code k} is negative
+     */
+    public static int[] smallestIds(IdentifiableIntegerMapping<?> mapping, int k) {
+        checkCount(k);
+        int[] values = mapping.denseValues();
+        return firstIds(sort(identity(values.length), keys(values, null, false), false), k);
+    }
+
+    /**
+     * Returns the {@code k} IDs with the largest values in descending order of their values. Of IDs with equal values
+     * the smaller IDs are selected.
+     *
+     * @param mapping the mapping
+     * @param k the number of selected IDs
+     * @return the {@code min(k, size of the domain)} IDs with the largest values
+     * @exception IllegalArgumentException if {@code k} is negative
+     */
+    public static int[] largestIds(IdentifiableIntegerMapping<?> mapping, int k) {
+        checkCount(k);
+        int[] values = mapping.denseValues();
+        return firstIds(sort(identity(values.length), keys(values, null, true), false), k);
+    }
+
+    /**
+     * Returns all IDs of the domain in ascending order of their values.
+     *
+     * @param mapping the mapping
+     * @return the IDs ordered by value
+     */
+    public static int[] sortedIds(IdentifiableDoubleMapping<?> mapping) {
+        double[] values = mapping.denseValues();
+        return sort(identity(values.length), keys(values, null, false), false);
+    }
+
+    /**
+     * Returns the given IDs in ascending order of their values.
+     *
+     * @param mapping the mapping
+     * @param ids the IDs that are sorted, which are not modified
+     * @return the IDs ordered by value
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public static int[] sortedIds(IdentifiableDoubleMapping<?> mapping, int[] ids) {
+        return sort(ids.clone(), keys(mapping.denseValues(), ids, false), false);
+    }
+
+    /**
+     * Returns all IDs of the domain in ascending order of their values, sorting in parallel.
+     *
+     * @param mapping the mapping
+     * @return the IDs ordered by value
+     */
+    public static int[] parallelSortedIds(IdentifiableDoubleMapping<?> mapping) {
+        double[] values = mapping.denseValues();
+        return sort(identity(values.length), keys(values, null, false), true);
+    }
+
+    /**
+     * Returns the {@code k} IDs with the smallest values in ascending order of their values. Of IDs with equal values
+     * the smaller IDs are selected.
+     *
+     * @param mapping the mapping
+     * @param k the number of selected IDs
+     * @return the {@code min(k, size of the domain)} IDs with the smallest values
+     * @exception IllegalArgumentException if {@code k} is negative
+     */
+    public static int[] smallestIds(IdentifiableDoubleMapping<?> mapping, int k) {
+        checkCount(k);
+        double[] values = mapping.denseValues();
+        return firstIds(sort(identity(values.length), keys(values, null, false), false), k);
+    }
+
+    /**
+     * Returns the {@code k} IDs with the largest values in descending order of their values. Of IDs with equal values
+     * the smaller IDs are selected.
+     *
+     * @param mapping the mapping
+     * @param k the number of selected IDs
+     * @return the {@code min(k, size of the domain)} IDs with the largest values
+     * @exception IllegalArgumentException if {@code k} is negative
+     */
+    public static int[] largestIds(IdentifiableDoubleMapping<?> mapping, int k) {
+        checkCount(k);
+        double[] values = mapping.denseValues();
+        return firstIds(sort(identity(values.length), keys(values, null, true), false), k);
+    }
+
+    private static int[] identity(int length) {
+        int[] ids = new int[length];
+        for (int i = 0; i < length; ++i) {
+            ids[i] = i;
+        }
+        return ids;
+    }
+
+    private static long[] keys(int[] values, int[] ids, boolean descending) {
+        int length = ids == null ? values.length : ids.length;
+        long[] keys = new long[length];
+        for (int i = 0; i < length; ++i) {
+            long key = values[ids == null ? i : ids[i]];
+            keys[i] = descending ? ~key : key;
+        }
+        return keys;
+    }
+
+    /**
+     * Transforms doubles into keys with the same order. The bits of negative doubles are inverted except for the
+     * sign, so that larger magnitudes result in smaller keys.
+     */
+    private static long[] keys(double[] values, int[] ids, boolean descending) {
+        int length = ids == null ? values.length : ids.length;
+        long[] keys = new long[length];
+        for (int i = 0; i < length; ++i) {
+            long bits = Double.doubleToLongBits(values[ids == null ? i : ids[i]]);
+            long key = bits < 0 ? bits ^ Long.MAX_VALUE : bits;
+            keys[i] = descending ? ~key : key;
+        }
+        return keys;
+    }
+
+    private static int[] sort(int[] ids, long[] keys, boolean parallel) {
+        if (ids.length < 2) {
+            return ids;
+        }
+        long min = keys[0];
+        long max = keys[0];
+        for (long key : keys) {
+            min = Math.min(min, key);
+            max = Math.max(max, key);
+        }
+        long range = max - min;
+        int chunks = parallel && ids.length > ParallelMappings.THRESHOLD
+                ? Math.min(ForkJoinPool.getCommonPoolParallelism(), ids.length / ParallelMappings.THRESHOLD) : 1;
+        int[] targetIds = new int[ids.length];
+        long[] targetKeys = new long[keys.length];
+        if (Long.compareUnsigned(range, Math.max(DIGIT_MASK, Math.min(ids.length, MAX_BUCKETS))) < 0) {
+            int mask = range == 0 ? 0 : (int) (Long.highestOneBit(range) << 1) - 1;
+            distribute(ids, keys, targetIds, min, 0, mask, chunks);
+            return targetIds;
+        }
+        for (int shift = 0; shift < Long.SIZE && (range >>> shift) != 0; shift += DIGIT_BITS) {
+            if (distribute(ids, keys, targetIds, targetKeys, min, shift, DIGIT_MASK, chunks)) {
+                int[] swapIds = ids;
+                ids = targetIds;
+                targetIds = swapIds;
+                long[] swapKeys = keys;
+                keys = targetKeys;
+                targetKeys = swapKeys;
+            }
+        }
+        return ids;
+    }
+
+    private static void distribute(int[] ids, long[] keys, int[] targetIds, long min, int shift, int mask, int chunks) {
+        distribute(ids, keys, targetIds, null, min, shift, mask, chunks);
+    }
+
+    /**
+     * Distributes the IDs and keys stably into buckets by a digit of the keys. Each chunk of positions counts its
+     * digits and then copies its entries into its own part of each bucket, so that chunks can be processed in
+     * parallel.
+     *
+     * @return {@code false} if all keys have the same digit, in which case nothing is copied
+     */
+    private static boolean distribute(int[] ids, long[] keys, int[] targetIds, long[] targetKeys, long min, int shift,
+            int mask, int chunks) {
+        int length = ids.length;
+        int buckets = mask + 1;
+        int[][] offsets = new int[chunks][buckets];
+        forEachChunk(chunks, chunk -> {
+            int[] count = offsets[chunk];
+            for (int i = from(chunk, chunks, length); i < from(chunk + 1, chunks, length); ++i) {
+                count[(int) ((keys[i] - min) >>> shift) & mask]++;
+            }
+        });
+        int position = 0;
+        for (int bucket = 0; bucket < buckets; ++bucket) {
+            for (int chunk = 0; chunk < chunks; ++chunk) {
+                int count = offsets[chunk][bucket];
+                if (count == length && targetKeys != null) {
+                    return false;
+                }
+                offsets[chunk][bucket] = position;
+                position += count;
+            }
+        }
+        forEachChunk(chunks, chunk -> {
+            int[] next = offsets[chunk];
+            for (int i = from(chunk, chunks, length); i < from(chunk + 1, chunks, length); ++i) {
+                int target = next[(int) ((keys[i] - min) >>> shift) & mask]++;
+                targetIds[target] = ids[i];
+                if (targetKeys != null) {
+                    targetKeys[target] = keys[i];
+                }
+            }
+        });
+        return true;
+    }
+
+    private static void forEachChunk(int chunks, IntConsumer action) {
+        if (chunks == 1) {
+            action.accept(0);
+        } else {
+            IntStream.range(0, chunks).parallel().forEach(action);
+        }
+    }
+
+    private static int from(int chunk, int chunks, int length) {
+        return (int) ((long) chunk * length / chunks);
+    }
+
+    private static int[] firstIds(int[] ids, int k) {
+        return k < ids.length ? Arrays.copyOf(ids, k) : ids;
+    }
+
+    private static void checkCount(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Negative number of IDs: " + k);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+/**
+ * Index arithmetic for the paged mappings with {@code long} IDs. The domain is split into pages of {@link #PAGE_SIZE}
+ * entries, so that no single array has to hold the whole domain. Pages are allocated on the first write only, a missing
+ * page represents a page containing default values.
+ */
+final class Pages {
+
+    /** The number of bits of an ID that address an entry within a page. */
+    static final int PAGE_BITS = 16;
+    /** The number of entries per page. */
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    /** Masks the offset of an ID within its page. */
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /** Private constructor for utility class. */
+    private Pages() {
+    }
+
+    /**
+     * Returns the index of the page containing an ID.
+     *
+     * @param id the ID
+     * @return the index of the page containing {@code id}
+     */
+    static int page(long id) {
+        return (int) (id >>> PAGE_BITS);
+    }
+
+    /**
+     * Returns the position of an ID within its page.
+     *
+     * @param id the ID
+     * @return the position of {@code id} within its page
+     */
+    static int offset(long id) {
+        return (int) (id & PAGE_MASK);
+    }
+
+    /**
+     * Returns the number of pages needed to store a domain of the given size.
+     *
+     * @param domainSize the size of the domain
+     * @return the number of pages needed to store {@code domainSize} entries
+     * @throws NegativeArraySizeException if {@code domainSize} is negative
+     * @throws ArithmeticException if the domain needs more than {@code Integer.MAX_VALUE} pages
+     */
+    static int pageCount(long domainSize) {
+        if (domainSize < 0) {
+            throw new NegativeArraySizeException(Long.toString(domainSize));
+        }
+        return Math.toIntExact((domainSize + PAGE_MASK) >>> PAGE_BITS);
+    }
+}
@@ -0,0 +1,704 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * {@code ParallelMappings} provides bulk operations on {@link IdentifiableIntegerMapping} and
+ * {@link IdentifiableDoubleMapping} that run in parallel on the common {@link ForkJoinPool}. The domain, or the given
+ * subset of IDs, is split recursively until the ranges are smaller than {@link #THRESHOLD}; smaller domains are
+ * processed sequentially in the calling thread. The degree of parallelism is that of the common pool, which can be
+ * configured with the system property {@code java.util.concurrent.ForkJoinPool.common.parallelism}.
+ * <p>
+ * Sums of doubles are added up in a different order than by a sequential loop and may therefore differ in the last
+ * bits. Reductions ignore {@code NaN} values in the same way as the sequential methods of the mappings. The mappings
+ * must not be modified concurrently while an operation is running.</p>
+ */
+public final class ParallelMappings {
+
+    /** The size of a range below which it is not split any further. */
+    public static final int THRESHOLD = 1 << 16;
+
+    /** Private constructor for utility class. */
+    private ParallelMappings() {
+    }
+
+    /**
+     * Returns the sum of all values of the mapping. In contrast to {@link IdentifiableIntegerMapping#sum(Iterable)}
+     * the result is a {@code long} and does not overflow.
+     *
+     * @param mapping the mapping
+     * @return the sum of all values
+     */
+    public static long sum(IdentifiableIntegerMapping<?> mapping) {
+        int[] values = mapping.denseValues();
+        return reduce(values.length, (from, to) -> {
+            long sum = 0;
+            for (int i = from; i < to; ++i) {
+                sum += values[i];
+            }
+            return sum;
+        }, Long::sum);
+    }
+
+    /**
+     * Returns the sum of the values of the given IDs.
+     *
+     * @param mapping the mapping
+     * @param ids the IDs whose values are added up
+     * @return the sum of the values of the given IDs
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public static long sum(IdentifiableIntegerMapping<?> mapping, int[] ids) {
+        int[] values = mapping.denseValues();
+        return reduce(ids.length, (from, to) -> {
+            long sum = 0;
+            for (int i = from; i < to; ++i) {
+                sum += values[ids[i]];
+            }
+            return sum;
+        }, Long::sum);
+    }
+
+    /**
+     * Returns the minimum of all values of the mapping, {@code Integer.MAX_VALUE} if the domain is empty.
+     *
+     * @param mapping the mapping
+     * @return the minimum value
+     */
+    public static int minimum(IdentifiableIntegerMapping<?> mapping) {
+        int[] values = mapping.denseValues();
+        return reduce(values.length, (from, to) -> {
+            int minimum = Integer.MAX_VALUE;
+            for (int i = from; i < to; ++i) {
+                minimum = Math.min(minimum, values[i]);
+            }
+            return minimum;
+        }, Math::min);
+    }
+
+    /**
+     * Returns the minimum of the values of the given IDs, {@code Integer.MAX_VALUE} if no IDs are given.
+     *
+     * @param mapping the mapping
+     * @param ids the IDs
+     * @return the minimum value of the given IDs
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public static int minimum(IdentifiableIntegerMapping<?> mapping, int[] ids) {
+        int[] values = mapping.denseValues();
+        return reduce(ids.length, (from, to) -> {
+            int minimum = Integer.MAX_VALUE;
+            for (int i = from; i < to; ++i) {
+                minimum = Math.min(minimum, values[ids[i]]);
+            }
+            return minimum;
+        }, Math::min);
+    }
+
+    /**
+     * Returns the maximum of all values of the mapping, {@code Integer.MIN_VALUE} if the domain is empty.
+     *
+     * @param mapping the mapping
+     * @return the maximum value
+     */
+    public static int maximum(IdentifiableIntegerMapping<?> mapping) {
+        int[] values = mapping.denseValues();
+        return reduce(values.length, (from, to) -> {
+            int maximum = Integer.MIN_VALUE;
+            for (int i = from; i < to; ++i) {
+                maximum = Math.max(maximum, values[i]);
+            }
+            return maximum;
+        }, Math::max);
+    }
+
+    /**
+     * Returns the maximum of the values of the given IDs, {@code Integer.MIN_VALUE} if no IDs are given.
+     *
+     * @param mapping the mapping
+     * @param ids the IDs
+     * @return the maximum value of the given IDs
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public static int maximum(IdentifiableIntegerMapping<?> mapping, int[] ids) {
+        int[] values = mapping.denseValues();
+        return reduce(ids.length, (from, to) -> {
+            int maximum = Integer.MIN_VALUE;
+            for (int i = from; i < to; ++i) {
+                maximum = Math.max(maximum, values[ids[i]]);
+            }
+            return maximum;
+        }, Math::max);
+    }
+
+    /**
+     * Returns the smallest ID having the minimal value, or {@code -1} if the domain is empty.
+     *
+     * @param mapping the mapping
+     * @return the smallest ID with minimal value
+     */
+    public static int argmin(IdentifiableIntegerMapping<?> mapping) {
+        int[] values = mapping.denseValues();
+        return reduce(values.length, (from, to) -> {
+            int best = -1;
+            for (int i = from; i < to; ++i) {
+                if (best == -1 || values[i] < values[best]) {
+                    best = i;
+                }
+            }
+            return best;
+        }, (a, b) -> a == -1 || (b != -1 && values[b] < values[a]) ? b : a);
+    }
+
+    /**
+     * Returns the first of the given IDs having the minimal value among them, or {@code -1} if no IDs are given.
+     *
+     * @param mapping the mapping
+     * @param ids the IDs
+     * @return the first ID with minimal value
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public static int argmin(IdentifiableIntegerMapping<?> mapping, int[] ids) {
+        int[] values = mapping.denseValues();
+        int position = reduce(ids.length, (from, to) -> {
+            int best = -1;
+            for (int i = from; i < to; ++i) {
+                if (best == -1 || values[ids[i]] < values[ids[best]]) {
+                    best = i;
+                }
+            }
+            return best;
+        }, (a, b) -> a == -1 || (b != -1 && values[ids[b]] < values[ids[a]]) ? b : a);
+        return position == -1 ? -1 : ids[position];
+    }
+
+    /**
+     * Counts the IDs whose values satisfy the predicate.
+     *
+     * @param mapping the mapping
+     * @param predicate the predicate
+     * @return the number of values satisfying the predicate
+     */
+    public static int count(IdentifiableIntegerMapping<?> mapping, IntPredicate predicate) {
+        int[] values = mapping.denseValues();
+        return reduce(values.length, (from, to) -> {
+            int count = 0;
+            for (int i = from; i < to; ++i) {
+                if (predicate.test(values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }, Integer::sum);
+    }
+
+    /**
+     * Counts the given IDs whose values satisfy the predicate.
+     *
+     * @param mapping the mapping
+     * @param ids the IDs
+     * @param predicate the predicate
+     * @return the number of given IDs with values satisfying the predicate
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public static int count(IdentifiableIntegerMapping<?> mapping, int[] ids, IntPredicate predicate) {
+        int[] values = mapping.denseValues();
+        return reduce(ids.length, (from, to) -> {
+            int count = 0;
+            for (int i = from; i < to; ++i) {
+                if (predicate.test(values[ids[i]])) {
+                    count++;
+                }
+            }
+            return count;
+        }, Integer::sum);
+    }
+
+    /**
+     * Creates a new mapping containing the results of applying the operator to each value of the given mapping.
+     *
+     * @param <D> the domain type
+     * @param mapping the mapping
+     * @param operator the operator applied to each value
+     * @return a new mapping on a domain of the same size
+     */
+    public static <D extends Identifiable> IdentifiableIntegerMapping<D> map(IdentifiableIntegerMapping<D> mapping,
+            IntUnaryOperator operator) {
+        int[] values = mapping.denseValues();
+        int[] result = new int[values.length];
+        forEachRange(values.length, (from, to) -> {
+            for (int i = from; i < to; ++i) {
+                result[i] = operator.applyAsInt(values[i]);
+            }
+        });
+        return new IdentifiableIntegerMapping<>(result);
+    }
+
+    /**
+     * Creates a new mapping containing the results of applying the operator to the values of both mappings
+     * element-wise.
+     *
+     * @param <D> the domain type
+     * @param first the mapping providing the first operands
+     * @param second the mapping providing the second operands
+     * @param operator the operator
+     * @return a new mapping on a domain of the same size
+     * @exception IllegalArgumentException if the domains differ in size
+     */
+    public static <D extends Identifiable> IdentifiableIntegerMapping<D> combine(IdentifiableIntegerMapping<D> first,
+            IdentifiableIntegerMapping<D> second, IntBinaryOperator operator) {
+        int[] a = first.denseValues();
+        int[] b = second.denseValues();
+        checkSizes(a.length, b.length);
+        int[] result = new int[a.length];
+        forEachRange(a.length, (from, to) -> {
+            for (int i = from; i < to; ++i) {
+                result[i] = operator.applyAsInt(a[i], b[i]);
+            }
+        });
+        return new IdentifiableIntegerMapping<>(result);
+    }
+
+    /**
+     * Associates all objects of the domain with {@code value}, the parallel counterpart of
+     * {@link IdentifiableIntegerMapping#initializeWith(int)} for dense mappings.
+     *
+     * @param mapping the mapping
+     * @param value the new value of all objects
+     */
+    public static void fill(IdentifiableIntegerMapping<?> mapping, int value) {
+        int[] values = mapping.writableDenseValues();
+        forEachRange(values.length, (from, to) -> Arrays.fill(values, from, to, value));
+        mapping.storeDenseValues(values);
+    }
+
+    /**
+     * Compares two mappings, the parallel counterpart of {@link IdentifiableIntegerMapping#equals(Object)}.
+     *
+     * @param first the first mapping
+     * @param second the second mapping
+     * @return {@code true} if both domains have the same size and all values are equal
+     */
+    public static boolean equals(IdentifiableIntegerMapping<?> first, IdentifiableIntegerMapping<?> second) {
+        int[] a = first.denseValues();
+        int[] b = second.denseValues();
+        if (a.length != b.length) {
+            return false;
+        }
+        return reduce(a.length, (from, to) -> {
+            for (int i = from; i < to; ++i) {
+                if (a[i] != b[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }, Boolean::logicalAnd);
+    }
+
+    /**
+     * Returns the same hash code as {@link IdentifiableIntegerMapping#hashCode()}, computed in parallel.
+     *
+     * @param mapping the mapping
+     * @return the hash code of the mapping
+     */
+    public static int hashCode(IdentifiableIntegerMapping<?> mapping) {
+        return (int) sum(mapping);
+    }
+
+    /**
+     * Returns the sum of all values of the mapping.
+     *
+     * @param mapping the mapping
+     * @return the sum of all values
+     */
+    public static double sum(IdentifiableDoubleMapping<?> mapping) {
+        double[] values = mapping.denseValues();
+        return reduce(values.length, (from, to) -> {
+            double sum = 0;
+            for (int i = from; i < to; ++i) {
+                sum += values[i];
+            }
+            return sum;
+        }, Double::sum);
+    }
+
+    /**
+     * Returns the sum of the values of the given IDs.
+     *
+     * @param mapping the mapping
+     * @param ids the IDs whose values are added up
+     * @return the sum of the values of the given IDs
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public static double sum(IdentifiableDoubleMapping<?> mapping, int[] ids) {
+        double[] values = mapping.denseValues();
+        return reduce(ids.length, (from, to) -> {
+            double sum = 0;
+            for (int i = from; i < to; ++i) {
+                sum += values[ids[i]];
+            }
+            return sum;
+        }, Double::sum);
+    }
+
+    /**
+     * Returns the minimum of all values of the mapping, {@code Double.POSITIVE_INFINITY} if the domain is empty.
+     *
+     * @param mapping the mapping
+     * @return the minimum value
+     */
+    public static double minimum(IdentifiableDoubleMapping<?> mapping) {
+        double[] values = mapping.denseValues();
+        return reduce(values.length, (from, to) -> {
+            double minimum = Double.POSITIVE_INFINITY;
+            for (int i = from; i < to; ++i) {
+                if (values[i] < minimum) {
+                    minimum = values[i];
+                }
+            }
+            return minimum;
+        }, (a, b) -> b < a ? b : a);
+    }
+
+    /**
+     * Returns the minimum of the values of the given IDs, {@code Double.POSITIVE_INFINITY} if no IDs are given.
+     *
+     * @param mapping the mapping
+     * @param ids the IDs
+     * @return the minimum value of the given IDs
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public static double minimum(IdentifiableDoubleMapping<?> mapping, int[] ids) {
+        double[] values = mapping.denseValues();
+        return reduce(ids.length, (from, to) -> {
+            double minimum = Double.POSITIVE_INFINITY;
+            for (int i = from; i < to; ++i) {
+                if (values[ids[i]] < minimum) {
+                    minimum = values[ids[i]];
+                }
+            }
+            return minimum;
+        }, (a, b) -> b < a ? b : a);
+    }
+
+    /**
+     * Returns the maximum of all values of the mapping, {@code Double.NEGATIVE_INFINITY} if the domain is empty.
+     *
+     * @param mapping the mapping
+     * @return the maximum value
+     */
+    public static double maximum(IdentifiableDoubleMapping<?> mapping) {
+        double[] values = mapping.denseValues();
+        return reduce(values.length, (from, to) -> {
+            double maximum = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; ++i) {
+                if (values[i] > maximum) {
+                    maximum = values[i];
+                }
+            }
+            return maximum;
+        }, (a, b) -> b > a ? b : a);
+    }
+
+    /**
+     * Returns the maximum of the values of the given IDs, {@code Double.NEGATIVE_INFINITY} if no IDs are given.
+     *
+     * @param mapping the mapping
+     * @param ids the IDs
+     * @return the maximum value of the given IDs
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public static double maximum(IdentifiableDoubleMapping<?> mapping, int[] ids) {
+        double[] values = mapping.denseValues();
+        return reduce(ids.length, (from, to) -> {
+            double maximum = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; ++i) {
+                if (values[ids[i]] > maximum) {
+                    maximum = values[ids[i]];
+                }
+            }
+            return maximum;
+        }, (a, b) -> b > a ? b : a);
+    }
+
+    /**
+     * Returns the smallest ID having the minimal value, or {@code -1} if the domain is empty or contains only
+     * {@code NaN} values.
+     *
+     * @param mapping the mapping
+     * @return the smallest ID with minimal value
+     */
+    public static int argmin(IdentifiableDoubleMapping<?> mapping) {
+        double[] values = mapping.denseValues();
+        return reduce(values.length, (from, to) -> {
+            int best = -1;
+            for (int i = from; i < to; ++i) {
+                if (best == -1 ? !Double.isNaN(values[i]) : values[i] < values[best]) {
+                    best = i;
+                }
+            }
+            return best;
+        }, (a, b) -> a == -1 || (b != -1 && values[b] < values[a]) ? b : a);
+    }
+
+    /**
+     * Returns the first of the given IDs having the minimal value among them, or {@code -1} if no IDs are given or
+     * all their values are {@code NaN}.
+     *
+     * @param mapping the mapping
+     * @param ids the IDs
+     * @return the first ID with minimal value
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public static int argmin(IdentifiableDoubleMapping<?> mapping, int[] ids) {
+        double[] values = mapping.denseValues();
+        int position = reduce(ids.length, (from, to) -> {
+            int best = -1;
+            for (int i = from; i < to; ++i) {
+                if (best == -1 ? !Double.isNaN(values[ids[i]]) : values[ids[i]] < values[ids[best]]) {
+                    best = i;
+                }
+            }
+            return best;
+        }, (a, b) -> a == -1 || (b != -1 && values[ids[b]] < values[ids[a]]) ? b : a);
+        return position == -1 ? -1 : ids[position];
+    }
+
+    /**
+     * Counts the IDs whose values satisfy the predicate.
+     *
+     * @param mapping the mapping
+     * @param predicate the predicate
+     * @return the number of values satisfying the predicate
+     */
+    public static int count(IdentifiableDoubleMapping<?> mapping, DoublePredicate predicate) {
+        double[] values = mapping.denseValues();
+        return reduce(values.length, (from, to) -> {
+            int count = 0;
+            for (int i = from; i < to; ++i) {
+                if (predicate.test(values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }, Integer::sum);
+    }
+
+    /**
+     * Counts the given IDs whose values satisfy the predicate.
+     *
+     * @param mapping the mapping
+     * @param ids the IDs
+     * @param predicate the predicate
+     * @return the number of given IDs with values satisfying the predicate
+     * @exception ArrayIndexOutOfBoundsException if an ID is outside the domain
+     */
+    public static int count(IdentifiableDoubleMapping<?> mapping, int[] ids, DoublePredicate predicate) {
+        double[] values = mapping.denseValues();
+        return reduce(ids.length, (from, to) -> {
+            int count = 0;
+            for (int i = from; i < to; ++i) {
+                if (predicate.test(values[ids[i]])) {
+                    count++;
+                }
+            }
+            return count;
+        }, Integer::sum);
+    }
+
+    /**
+     * Creates a new mapping containing the results of applying the operator to each value of the given mapping.
+     *
+     * @param <D> the domain type
+     * @param mapping the mapping
+     * @param operator the operator applied to each value
+     * @return a new mapping on a domain of the same size
+     */
+    public static <D extends Identifiable> IdentifiableDoubleMapping<D> map(IdentifiableDoubleMapping<D> mapping,
+            DoubleUnaryOperator operator) {
+        double[] values = mapping.denseValues();
+        double[] result = new double[values.length];
+        forEachRange(values.length, (from, to) -> {
+            for (int i = from; i < to; ++i) {
+                result[i] = operator.applyAsDouble(values[i]);
+            }
+        });
+        return new IdentifiableDoubleMapping<>(result);
+    }
+
+    /**
+     * Creates a new mapping containing the results of applying the operator to the values of both mappings
+     * element-wise.
+     *
+     * @param <D> the domain type
+     * @param first the mapping providing the first operands
+     * @param second the mapping providing the second operands
+     * @param operator the operator
+     * @return a new mapping on a domain of the same size
+     * @exception IllegalArgumentException if the domains differ in size
+     */
+    public static <D extends Identifiable> IdentifiableDoubleMapping<D> combine(IdentifiableDoubleMapping<D> first,
+            IdentifiableDoubleMapping<D> second, DoubleBinaryOperator operator) {
+        double[] a = first.denseValues();
+        double[] b = second.denseValues();
+        checkSizes(a.length, b.length);
+        double[] result = new double[a.length];
+        forEachRange(a.length, (from, to) -> {
+            for (int i = from; i < to; ++i) {
+                result[i] = operator.applyAsDouble(a[i], b[i]);
+            }
+        });
+        return new IdentifiableDoubleMapping<>(result);
+    }
+
+    /**
+     * Rounds all values, the parallel counterpart of {@link IdentifiableDoubleMapping#round()}.
+     *
+     * @param <D> the domain type
+     * @param mapping the mapping
+     * @return a new integer mapping containing the rounded values
+     */
+    public static <D extends Identifiable> IdentifiableIntegerMapping<D> round(IdentifiableDoubleMapping<D> mapping) {
+        double[] values = mapping.denseValues();
+        int[] result = new int[values.length];
+        forEachRange(values.length, (from, to) -> {
+            for (int i = from; i < to; ++i) {
+                result[i] = (int) Math.round(values[i]);
+            }
+        });
+        return new IdentifiableIntegerMapping<>(result);
+    }
+
+    /**
+     * Associates all objects of the domain with {@code value}.
+     *
+     * @param mapping the mapping
+     * @param value the new value of all objects
+     */
+    public static void fill(IdentifiableDoubleMapping<?> mapping, double value) {
+        double[] values = mapping.writableDenseValues();
+        forEachRange(values.length, (from, to) -> Arrays.fill(values, from, to, value));
+        mapping.storeDenseValues(values);
+    }
+
+    /**
+     * Compares two mappings, the parallel counterpart of {@link IdentifiableDoubleMapping#equals(Object)}.
+     *
+     * @param first the first mapping
+     * @param second the second mapping
+     * @return {@code true} if both domains have the same size and all values are equal
+     */
+    public static boolean equals(IdentifiableDoubleMapping<?> first, IdentifiableDoubleMapping<?> second) {
+        double[] a = first.denseValues();
+        double[] b = second.denseValues();
+        if (a.length != b.length) {
+            return false;
+        }
+        return reduce(a.length, (from, to) -> {
+            for (int i = from; i < to; ++i) {
+                if (a[i] != b[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }, Boolean::logicalAnd);
+    }
+
+    /**
+     * A computation on a range of positions.
+     *
+     * @param <R> the type of the result
+     */
+    @FunctionalInterface
+    private interface RangeFunction<R> {
+
+        R apply(int from, int to);
+    }
+
+    /**
+     * An action on a range of positions.
+     */
+    @FunctionalInterface
+    private interface RangeAction {
+
+        void accept(int from, int to);
+    }
+
+    /**
+     * Splits a range of positions into halves until it is smaller than the threshold and combines the results of the
+     * halves.
+     *
+     * @param <R> the type of the result
+     */
+    private static final class RangeTask<R> extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+        private final transient RangeFunction<R> leaf;
+        private final transient BinaryOperator<R> combiner;
+
+        RangeTask(int from, int to, RangeFunction<R> leaf, BinaryOperator<R> combiner) {
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from <= THRESHOLD) {
+                return leaf.apply(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask<R> left = new RangeTask<>(from, middle, leaf, combiner);
+            left.fork();
+            R right = new RangeTask<>(middle, to, leaf, combiner).compute();
+            return combiner.apply(left.join(), right);
+        }
+    }
+
+    private static <R> R reduce(int length, RangeFunction<R> leaf, BinaryOperator<R> combiner) {
+        if (length <= THRESHOLD) {
+            return leaf.apply(0, length);
+        }
+        return ForkJoinPool.commonPool().invoke(new RangeTask<>(0, length, leaf, combiner));
+    }
+
+    private static void forEachRange(int length, RangeAction action) {
+        reduce(length, (from, to) -> {
+            action.accept(from, to);
+            return null;
+        }, (a, b) -> null);
+    }
+
+    private static void checkSizes(int first, int second) {
+        if (first != second) {
+            throw new IllegalArgumentException("Domain sizes differ: " + first + " and " + second);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Combines two piecewise constant or piecewise linear functions given by their breakpoints pointwise in one merge
+ * pass. The breakpoints of the result are the union of the breakpoints of both operands. If the result is piecewise
+ * linear, the time before each breakpoint of a piecewise constant operand is added, so that the jump is represented,
+ * and for minima and maxima the integral times around each crossing of the operands are added. Thus the result is
+ * exact at all integral times. Runtime O(n + m + number of crossings).
+ * <p>
+ * A piecewise linear operand is evaluated as {@link IntegerDoubleMapping#get(int)} does, by interpolating between the
+ * surrounding breakpoints or extrapolating the last segment. Before its first breakpoint an operand is {@code 0}.</p>
+ */
+final class PiecewiseMerge {
+
+    /**
+     * Receives the breakpoints of the result in ascending order of time.
+     */
+    @FunctionalInterface
+    interface Target {
+
+        /**
+         * Accepts a breakpoint of the result.
+         *
+         * @param time the time of the breakpoint
+         * @param value the value of the result at the breakpoint
+         * @param firstIndex the index of the breakpoint of the first operand at the same time, {@code -1} if there
+         * is none
+         */
+        void accept(int time, double value, int firstIndex);
+    }
+
+    /** Private constructor for utility class. */
+    private PiecewiseMerge() {
+    }
+
+    /**
+     * Merges two functions.
+     *
+     * @param firstTimes the breakpoint times of the first operand, ascending
+     * @param firstValues the values of the first operand at its breakpoints
+     * @param firstLinear whether the first operand is piecewise linear
+     * @param secondTimes the breakpoint times of the second operand, ascending
+     * @param secondValues the values of the second operand at its breakpoints
+     * @param secondLinear whether the second operand is piecewise linear
+     * @param operator the pointwise operation
+     * @param crossings whether crossings of the operands are breakpoints of a linear result, as for minima and maxima
+     * @param target receives the breakpoints of the result
+     */
+    static void merge(int[] firstTimes, double[] firstValues, boolean firstLinear, int[] secondTimes,
+            double[] secondValues, boolean secondLinear, DoubleBinaryOperator operator, boolean crossings,
+            Target target) {
+        if (firstTimes.length == 0 && secondTimes.length == 0) {
+            return;
+        }
+        boolean linear = firstLinear || secondLinear;
+        long time = Math.min(firstTimes.length == 0 ? Long.MAX_VALUE : firstTimes[0],
+                secondTimes.length == 0 ? Long.MAX_VALUE : secondTimes[0]);
+        int first = -1;
+        int second = -1;
+        while (true) {
+            int t = (int) time;
+            while (first + 1 < firstTimes.length && firstTimes[first + 1] <= t) {
+                first++;
+            }
+            while (second + 1 < secondTimes.length && secondTimes[second + 1] <= t) {
+                second++;
+            }
+            double a = evaluate(firstTimes, firstValues, firstLinear, first, t);
+            double b = evaluate(secondTimes, secondValues, secondLinear, second, t);
+            target.accept(t, operator.applyAsDouble(a, b), first >= 0 && firstTimes[first] == t ? first : -1);
+
+            long next = Math.min(next(firstTimes, first), next(secondTimes, second));
+            if (next == Long.MAX_VALUE) {
+                return;
+            }
+            if (linear) {
+                next = Math.min(next, beforeJump(firstTimes, first, firstLinear, t));
+                next = Math.min(next, beforeJump(secondTimes, second, secondLinear, t));
+                if (crossings && next - t >= 2) {
+                    double before = a - b;
+                    double after = evaluate(firstTimes, firstValues, firstLinear, first, (int) next)
+                            - evaluate(secondTimes, secondValues, secondLinear, second, (int) next);
+                    if (before < 0 && after > 0 || before > 0 && after < 0) {
+                        long crossing = (long) Math.floor(t + before / (before - after) * (next - t));
+                        if (crossing > t && crossing < next) {
+                            next = crossing;
+                        } else if (crossing + 1 > t && crossing + 1 < next) {
+                            next = crossing + 1;
+                        }
+                    }
+                }
+            }
+            time = next;
+        }
+    }
+
+    /**
+     * Creates a {@link TreeSet} from a list sorted by the natural order in linear time. The set is built from a sorted
+     * set view of the list, for which {@link TreeSet#addAll(java.util.Collection)} skips the comparisons.
+     *
+     * @param <E> the type of the elements
+     * @param sorted the elements in ascending order without duplicates
+     * @return a tree set containing the elements
+     */
+    static <E> TreeSet<E> toTreeSet(List<E> sorted) {
+        return new TreeSet<>(sortedView(sorted));
+    }
+
+    /**
+     * Returns a sorted set view of a list sorted by the natural order. Adding the view to an empty {@link TreeSet}
+     * builds the tree in linear time.
+     *
+     * @param <E> the type of the elements
+     * @param sorted the elements in ascending order without duplicates
+     * @return a sorted set view of the list supporting iteration only
+     */
+    static <E> SortedSet<E> sortedView(List<E> sorted) {
+        return new SortedListView<>(sorted);
+    }
+
+    private static long next(int[] times, int index) {
+        return index + 1 < times.length ? times[index + 1] : Long.MAX_VALUE;
+    }
+
+    private static long beforeJump(int[] times, int index, boolean linear, int time) {
+        if (linear || index + 1 >= times.length || times[index + 1] - 1L <= time) {
+            return Long.MAX_VALUE;
+        }
+        return times[index + 1] - 1L;
+    }
+
+    private static double evaluate(int[] times, double[] values, boolean linear, int index, int time) {
+        if (index < 0) {
+            return 0;
+        }
+        if (!linear || times[index] == time) {
+            return values[index];
+        }
+        if (index + 1 < times.length) {
+            return interpolate(times[index], values[index], times[index + 1], values[index + 1], time);
+        }
+        if (index > 0) {
+            return interpolate(times[index - 1], values[index - 1], times[index], values[index], time);
+        }
+        return values[index];
+    }
+
+    private static double interpolate(int fromTime, double fromValue, int toTime, double toValue, int time) {
+        return fromValue + (toValue - fromValue) / ((long) toTime - fromTime) * ((long) time - fromTime);
+    }
+
+    /**
+     * A read-only sorted set view of a sorted list supporting iteration only.
+     *
+     * @param <E> the type of the elements
+     */
+    private static final class SortedListView<E> extends AbstractSet<E> implements SortedSet<E> {
+
+        private final List<E> list;
+
+        SortedListView(List<E> list) {
+            this.list = list;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return list.iterator();
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+
+        @Override
+        public Comparator<? super E> comparator() {
+            return null;
+        }
+
+        @Override
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<E> headSet(E toElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<E> tailSet(E fromElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public E first() {
+            return list.get(0);
+        }
+
+        @Override
+        public E last() {
+            return list.get(list.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+/**
+ * An {@link IdentifiableIntegerMapping} that maintains a Fenwick tree (binary indexed tree) of its values. Sums over
+ * contiguous ranges of IDs, e.g. all cells of a room or all edges leaving a node in a compressed adjacency array, are
+ * returned in O(log n) while the values change, and a single write costs O(log n) instead of O(1).
+ * {@link #select(long)} finds the ID at which the prefix sum exceeds a given value, which allows sampling IDs with
+ * probabilities proportional to non-negative values.
+ * <p>
+ * Operations writing the whole domain, such as {@link #initializeWith(int)}, {@link #setDomainSize(int)} and the bulk
+ * operations, invalidate the tree. It is rebuilt in O(size of the domain) by the next query.</p>
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to integers.
+ * {@code D} must implement {@link Identifiable}.
+ */
+public class PrefixSumIdentifiableIntegerMapping<D extends Identifiable> extends AbstractIndexedIntegerMapping<D> {
+
+    /**
+     * The Fenwick tree, position {@code i} stores the sum of the values of the IDs {@code i - (i & -i)} to
+     * {@code i - 1}.
+     */
+    private long[] tree;
+
+    /**
+     * Creates a new mapping with a domain of the given size, mapping all objects to {@code 0}.
+     *
+     * @param domainSize the initial size of the domain.
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public PrefixSumIdentifiableIntegerMapping(int domainSize) {
+        super(domainSize);
+    }
+
+    /**
+     * Creates a new mapping containing the values of another mapping.
+     *
+     * @param mapping the mapping whose values are copied
+     */
+    public PrefixSumIdentifiableIntegerMapping(IdentifiableIntegerMapping<D> mapping) {
+        super(mapping);
+    }
+
+    /**
+     * Returns the sum of the values of the IDs from {@code 0} to {@code toId - 1}. Runtime O(log n).
+     *
+     * @param toId the first ID that is not summed up
+     * @return the sum of the values of all IDs less than {@code toId}
+     * @exception IndexOutOfBoundsException if {@code toId} is negative or greater than the size of the domain
+     */
+    public long prefixSum(int toId) {
+        if (toId < 0 || toId > mapping.length) {
+            throw new IndexOutOfBoundsException("ID " + toId + " outside of domain of size " + mapping.length);
+        }
+        refresh();
+        long sum = 0;
+        for (int i = toId; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the sum of the values of the IDs from {@code fromId} to {@code toId - 1}. Runtime O(log n).
+     *
+     * @param fromId the first ID that is summed up
+     * @param toId the first ID after {@code fromId} that is not summed up
+     * @return the sum of the values in the range
+     * @exception IndexOutOfBoundsException if the range is not within the domain
+     * @exception IllegalArgumentException if {@code toId} is less than {@code fromId}
+     */
+    public long sum(int fromId, int toId) {
+        if (toId < fromId) {
+            throw new IllegalArgumentException("Invalid range: " + fromId + " to " + toId);
+        }
+        return prefixSum(toId) - prefixSum(fromId);
+    }
+
+    /**
+     * Returns the sum of all values. Runtime O(log n).
+     *
+     * @return the sum of all values
+     */
+    public long getSum() {
+        return prefixSum(mapping.length);
+    }
+
+    /**
+     * Returns the smallest ID whose prefix sum including its own value exceeds {@code k}, i.e. the smallest
+     * {@code id} with {@code prefixSum(id + 1) > k}. Drawing {@code k} uniformly from {@code 0} to
+     * {@code getSum() - 1} thus selects each ID with a probability proportional to its value. The result is only
+     * defined if all values are non-negative. Runtime O(log n).
+     *
+     * @param k the value that is to be exceeded
+     * @return the ID at which the prefix sum exceeds {@code k}
+     * @exception IllegalArgumentException if {@code k} is negative or not less than the sum of all values
+     */
+    public int select(long k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Negative value: " + k);
+        }
+        refresh();
+        int position = 0;
+        for (int step = Integer.highestOneBit(Math.max(1, mapping.length)); step > 0; step >>>= 1) {
+            int next = position + step;
+            if (next <= mapping.length && tree[next] <= k) {
+                position = next;
+                k -= tree[next];
+            }
+        }
+        if (position == mapping.length) {
+            throw new IllegalArgumentException("Value exceeds the sum of all values.");
+        }
+        return position;
+    }
+
+    /**
+     * Creates a copy of this mapping. Runtime O(number of values).
+     *
+     * @return a copy of this mapping.
+     */
+    @Override
+    public PrefixSumIdentifiableIntegerMapping<D> clone() {
+        return new PrefixSumIdentifiableIntegerMapping<>(this);
+    }
+
+    @Override
+    void update(int id, int oldValue, int newValue) {
+        long delta = (long) newValue - oldValue;
+        for (int i = id + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    @Override
+    void rebuild() {
+        tree = new long[mapping.length + 1];
+        for (int i = 1; i < tree.length; ++i) {
+            tree[i] += mapping[i - 1];
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,437 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+
+/**
+ * A read-mostly {@link IdentifiableIntegerMapping} for values that are constant over long runs of consecutive IDs,
+ * e.g. room, floor or zone numbers of the cells of a building model. Each maximal run of equal values is stored by
+ * its first ID and its value, so the memory is linear in the number of runs instead of the size of the domain.
+ * <p>
+ * {@link #get(Identifiable)} runs in O(log runs) using binary search, {@link #forEachRun(RunConsumer)} iterates the
+ * runs sequentially. Changing a value costs O(runs) as the arrays of runs are shifted. Bulk operations that write a
+ * dense array, such as {@link #clamp(int, int)}, expand the runs and encode the result again in O(size of the
+ * domain).</p>
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to integers.
+ * {@code D} must implement {@link Identifiable}.
+ */
+public class RunLengthIdentifiableIntegerMapping<D extends Identifiable> extends IdentifiableIntegerMapping<D> {
+
+    /**
+     * Receives the runs of a {@link RunLengthIdentifiableIntegerMapping}.
+     */
+    @FunctionalInterface
+    public interface RunConsumer {
+
+        /**
+         * Receives a run of IDs that are mapped to the same value.
+         *
+         * @param from the first ID of the run
+         * @param to the ID after the last ID of the run
+         * @param value the value of all IDs in the run
+         */
+        void accept(int from, int to, int value);
+    }
+
+    /** The first ID of each run, in increasing order starting with {@code 0}. */
+    private int[] runStarts;
+    /** The value of each run, neighbouring runs have different values. */
+    private int[] runValues;
+    /** The number of runs. */
+    private int runs;
+    /** The size of the domain. */
+    private int domainSize;
+
+    /**
+     * Creates a new mapping with a domain of the given size, mapping all objects to {@code 0}.
+     *
+     * @param domainSize the initial size of the domain.
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public RunLengthIdentifiableIntegerMapping(int domainSize) {
+        if (domainSize < 0) {
+            throw new NegativeArraySizeException(Integer.toString(domainSize));
+        }
+        runStarts = new int[1];
+        runValues = new int[1];
+        runs = domainSize == 0 ? 0 : 1;
+        this.domainSize = domainSize;
+    }
+
+    /**
+     * Creates a run-length encoded copy of an {@link IdentifiableIntegerMapping}. Runtime O(size of the domain).
+     *
+     * @param mapping the mapping whose values are copied
+     */
+    public RunLengthIdentifiableIntegerMapping(IdentifiableIntegerMapping<D> mapping) {
+        encode(mapping.denseValues());
+    }
+
+    /**
+     * Creates a copy of a run-length encoded mapping.
+     *
+     * @param mapping the copied mapping
+     */
+    public RunLengthIdentifiableIntegerMapping(RunLengthIdentifiableIntegerMapping<D> mapping) {
+        runStarts = Arrays.copyOf(mapping.runStarts, Math.max(mapping.runs, 1));
+        runValues = Arrays.copyOf(mapping.runValues, Math.max(mapping.runs, 1));
+        runs = mapping.runs;
+        domainSize = mapping.domainSize;
+    }
+
+    @Override
+    public int get(D identifiableObject) {
+        int id = identifiableObject.id();
+        checkIndex(id);
+        return runValues[runOf(id)];
+    }
+
+    /**
+     * Associates {@code identifiableObject} with {@code value}, splitting and merging runs as necessary. The domain is
+     * expanded if necessary. Runtime O(runs).
+     *
+     * @param identifiableObject the object for which an association is to be made.
+     * @param value the integer to be associated with {@code identifiableObject}.
+     */
+    @Override
+    public void set(D identifiableObject, int value) {
+        int id = identifiableObject.id();
+        if (id < 0) {
+            throw new ArrayIndexOutOfBoundsException(id);
+        }
+        if (id >= domainSize) {
+            setDomainSize(id + 1);
+        }
+        store(id, value);
+    }
+
+    @Override
+    public void increase(D identifiableObject, int amount) {
+        int id = identifiableObject.id();
+        if (id >= domainSize) {
+            setDomainSize(id + 1);
+        }
+        checkIndex(id);
+        store(id, Math.addExact(runValues[runOf(id)], amount));
+    }
+
+    @Override
+    public void add(D identifiableObject, int value) {
+        set(identifiableObject, value);
+    }
+
+    @Override
+    public void decrease(D identifiableObject, int amount) {
+        int id = identifiableObject.id();
+        if (id >= domainSize) {
+            setDomainSize(id + 1);
+        }
+        checkIndex(id);
+        store(id, runValues[runOf(id)] - amount);
+    }
+
+    /**
+     * Maps all objects to {@code value}, using a single run. Runtime O(1).
+     *
+     * @param value the new value of all objects
+     */
+    @Override
+    public void initializeWith(int value) {
+        runStarts = new int[1];
+        runValues = new int[]{value};
+        runs = domainSize == 0 ? 0 : 1;
+    }
+
+    @Override
+    public int getDomainSize() {
+        return domainSize;
+    }
+
+    /**
+     * Sets the size of the domain. Removed IDs are cut off the runs, new IDs are mapped to {@code 0}. Runtime
+     * O(log runs).
+     *
+     * @param value the new size of this mapping's domain.
+     * @exception NegativeArraySizeException if {@code value} is negative.
+     */
+    @Override
+    public void setDomainSize(int value) {
+        if (value < 0) {
+            throw new NegativeArraySizeException(Integer.toString(value));
+        }
+        if (value < domainSize) {
+            runs = value == 0 ? 0 : runOf(value - 1) + 1;
+        } else if (value > domainSize && (runs == 0 || runValues[runs - 1] != 0)) {
+            insertRun(runs, domainSize, 0);
+        }
+        domainSize = value;
+    }
+
+    @Override
+    public int maximum() {
+        int result = Integer.MIN_VALUE;
+        for (int r = 0; r < runs; ++r) {
+            result = Math.max(result, runValues[r]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of runs of equal values.
+     *
+     * @return the number of runs
+     */
+    public int getRunCount() {
+        return runs;
+    }
+
+    /**
+     * Returns the ratio of the memory of a dense {@link IdentifiableIntegerMapping} for the domain to the memory used
+     * for the runs, each consisting of two integers. Values greater than {@code 1} indicate that the run-length encoding
+     * saves memory.
+     *
+     * @return the compression ratio
+     */
+    public double compressionRatio() {
+        return runs == 0 ? 1 : domainSize / (2.0 * runs);
+    }
+
+    /**
+     * Passes all runs in the order of their IDs to the consumer. Runtime O(runs).
+     *
+     * @param consumer the consumer receiving the runs
+     */
+    public void forEachRun(RunConsumer consumer) {
+        for (int r = 0; r < runs; ++r) {
+            consumer.accept(runStarts[r], end(r), runValues[r]);
+        }
+    }
+
+    /**
+     * Creates a dense {@link IdentifiableIntegerMapping} containing the same values. Runtime O(size of the domain).
+     *
+     * @return a dense mapping
+     */
+    public IdentifiableIntegerMapping<D> toDense() {
+        return new IdentifiableIntegerMapping<>(denseValues());
+    }
+
+    @Override
+    public RunLengthIdentifiableIntegerMapping<D> clone() {
+        return new RunLengthIdentifiableIntegerMapping<>(this);
+    }
+
+    /**
+     * Compares this mapping to another {@link IdentifiableIntegerMapping}. The result is {@code true} if both mappings
+     * have domains of equal size and make the same associations, independent of their representation. Runtime
+     * O(runs) if both mappings are run-length encoded, O(size of the domain) otherwise.
+     *
+     * @param o the object this mapping is to be compared with.
+     * @return {@code true} if the given object represents an equivalent mapping, {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof RunLengthIdentifiableIntegerMapping) {
+            RunLengthIdentifiableIntegerMapping<?> other = (RunLengthIdentifiableIntegerMapping<?>) o;
+            return domainSize == other.domainSize && runs == other.runs
+                    && Arrays.equals(Arrays.copyOf(runStarts, runs), Arrays.copyOf(other.runStarts, runs))
+                    && Arrays.equals(Arrays.copyOf(runValues, runs), Arrays.copyOf(other.runValues, runs));
+        }
+        if (!(o instanceof IdentifiableIntegerMapping)) {
+            return false;
+        }
+        return Arrays.equals(denseValues(), ((IdentifiableIntegerMapping<?>) o).denseValues());
+    }
+
+    /**
+     * Returns the same hash code as an equivalent dense {@link IdentifiableIntegerMapping}. Runtime O(runs).
+     *
+     * @return the sum of the integers associated with objects in this mapping.
+     */
+    @Override
+    public int hashCode() {
+        int sum = 0;
+        for (int r = 0; r < runs; ++r) {
+            sum += runValues[r] * (end(r) - runStarts[r]);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns a string representation listing the runs as {@code from-to = value} with inclusive bounds.
+     *
+     * @return a string representation of this mapping
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append('[');
+        for (int r = 0; r < runs; ++r) {
+            if (r > 0) {
+                builder.append(", ");
+            }
+            builder.append(runStarts[r]).append('-').append(end(r) - 1).append(" = ").append(runValues[r]);
+        }
+        builder.append(']');
+        return builder.toString();
+    }
+
+    @Override
+    int valueAt(int id) {
+        checkIndex(id);
+        return runValues[runOf(id)];
+    }
+
+    @Override
+    void storeValueAt(int id, int value) {
+        checkIndex(id);
+        store(id, value);
+    }
+
+    @Override
+    int[] denseValues() {
+        int[] values = new int[domainSize];
+        for (int r = 0; r < runs; ++r) {
+            Arrays.fill(values, runStarts[r], end(r), runValues[r]);
+        }
+        return values;
+    }
+
+    /**
+     * Returns the expanded values. The bulk operations encode them again using {@link #storeDenseValues(int[])}.
+     * Runtime O(size of the domain).
+     *
+     * @return the values of the domain
+     */
+    @Override
+    int[] writableDenseValues() {
+        return denseValues();
+    }
+
+    @Override
+    void storeDenseValues(int[] values) {
+        encode(values);
+    }
+
+    /**
+     * Replaces the runs by the runs of a dense array of values. Runtime O(size of the domain).
+     *
+     * @param values the values of the domain
+     */
+    private void encode(int[] values) {
+        int count = 0;
+        for (int id = 0; id < values.length; ++id) {
+            if (id == 0 || values[id] != values[id - 1]) {
+                count++;
+            }
+        }
+        runStarts = new int[Math.max(count, 1)];
+        runValues = new int[Math.max(count, 1)];
+        runs = 0;
+        for (int id = 0; id < values.length; ++id) {
+            if (id == 0 || values[id] != values[id - 1]) {
+                runStarts[runs] = id;
+                runValues[runs++] = values[id];
+            }
+        }
+        domainSize = values.length;
+    }
+
+    /**
+     * Returns the index of the run containing an ID within the domain.
+     *
+     * @param id the ID
+     * @return the index of the run
+     */
+    private int runOf(int id) {
+        int position = Arrays.binarySearch(runStarts, 0, runs, id);
+        return position >= 0 ? position : -position - 2;
+    }
+
+    private int end(int run) {
+        return run + 1 < runs ? runStarts[run + 1] : domainSize;
+    }
+
+    /**
+     * Sets the value of an ID within the domain. The run containing the ID is split into up to three runs, and the run
+     * of the ID is merged with its neighbours if their values are equal.
+     *
+     * @param id the ID
+     * @param value the new value
+     */
+    private void store(int id, int value) {
+        int r = runOf(id);
+        int old = runValues[r];
+        if (old == value) {
+            return;
+        }
+        int start = runStarts[r];
+        int end = end(r);
+        if (id + 1 < end) {
+            insertRun(r + 1, id + 1, old);
+        }
+        if (id > start) {
+            insertRun(r + 1, id, value);
+            r++;
+        } else {
+            runValues[r] = value;
+        }
+        if (r + 1 < runs && runValues[r + 1] == value) {
+            removeRun(r + 1);
+        }
+        if (r > 0 && runValues[r - 1] == value) {
+            removeRun(r);
+        }
+    }
+
+    /**
+     * Inserts a run before the run at a position.
+     *
+     * @param position the index of the new run
+     * @param start the first ID of the new run
+     * @param value the value of the new run
+     */
+    private void insertRun(int position, int start, int value) {
+        if (runs == runStarts.length) {
+            runStarts = Arrays.copyOf(runStarts, 2 * runs);
+            runValues = Arrays.copyOf(runValues, 2 * runs);
+        }
+        System.arraycopy(runStarts, position, runStarts, position + 1, runs - position);
+        System.arraycopy(runValues, position, runValues, position + 1, runs - position);
+        runStarts[position] = start;
+        runValues[position] = value;
+        runs++;
+    }
+
+    /**
+     * Removes the run at a position, which extends the previous run.
+     *
+     * @param position the index of the removed run
+     */
+    private void removeRun(int position) {
+        System.arraycopy(runStarts, position + 1, runStarts, position, runs - position - 1);
+        System.arraycopy(runValues, position + 1, runValues, position, runs - position - 1);
+        runs--;
+    }
+
+    private void checkIndex(int id) {
+        if (id < 0 || id >= domainSize) {
+            throw new ArrayIndexOutOfBoundsException(id);
+        }
+    }
+}
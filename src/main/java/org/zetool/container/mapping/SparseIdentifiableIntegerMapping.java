@@ -0,0 +1,403 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+
+/**
+ * An {@link IdentifiableIntegerMapping} for domains where most objects are mapped to the same default value. Only the
+ * non-default associations are stored in an open addressing hash table with primitive keys and values, so that the
+ * memory consumption is linear in the number of non-default values instead of the size of the domain. All operations
+ * run in expected O(1).
+ * <p>
+ * If the hash table would need more memory than an array for the whole domain, the mapping switches automatically to
+ * the dense array based representation of {@link IdentifiableIntegerMapping}. A call of {@link #initializeWith(int)}
+ * resets the mapping to the sparse representation with a new default value.</p>
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to integers.
+ * {@code D} must implement {@link Identifiable}.
+ */
+public class SparseIdentifiableIntegerMapping<D extends Identifiable> extends IdentifiableIntegerMapping<D> {
+
+    /** The value of all objects that are not stored in the table. */
+    private int defaultValue;
+    /** The non-default associations, {@code null} if the dense representation is used. */
+    private IntIntHashTable table;
+    /** The size of the domain if the sparse representation is used. */
+    private int domainSize;
+
+    /**
+     * Creates a new sparse mapping with a domain of the given size, mapping all objects to {@code 0}.
+     *
+     * @param domainSize the initial size of the domain.
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public SparseIdentifiableIntegerMapping(int domainSize) {
+        this(domainSize, 0);
+    }
+
+    /**
+     * Creates a new sparse mapping with a domain of the given size, mapping all objects to {@code defaultValue}.
+     *
+     * @param domainSize the initial size of the domain.
+     * @param defaultValue the initial value of all objects
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public SparseIdentifiableIntegerMapping(int domainSize, int defaultValue) {
+        if (domainSize < 0) {
+            throw new NegativeArraySizeException(Integer.toString(domainSize));
+        }
+        this.domainSize = domainSize;
+        this.defaultValue = defaultValue;
+        this.table = new IntIntHashTable();
+    }
+
+    /**
+     * Creates a new sparse mapping for the given domain, mapping all objects to {@code defaultValue}.
+     *
+     * @param domain the objects of the domain
+     * @param defaultValue the initial value of all objects
+     */
+    public SparseIdentifiableIntegerMapping(Iterable<D> domain, int defaultValue) {
+        this(domainSize(domain), defaultValue);
+    }
+
+    /**
+     * Creates a copy of a sparse mapping.
+     *
+     * @param mapping the copied mapping
+     */
+    public SparseIdentifiableIntegerMapping(SparseIdentifiableIntegerMapping<D> mapping) {
+        this.defaultValue = mapping.defaultValue;
+        this.domainSize = mapping.domainSize;
+        if (mapping.isSparse()) {
+            this.table = mapping.table.copy();
+        } else {
+            this.mapping = mapping.mapping.clone();
+        }
+    }
+
+    /**
+     * Returns the value of all objects for which no other value is stored.
+     *
+     * @return the default value
+     */
+    public int getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * Returns whether the sparse representation is currently used, i.e. whether the mapping did not yet switch to a
+     * dense array.
+     *
+     * @return {@code true} if only non-default values are stored
+     */
+    public boolean isSparse() {
+        return table != null;
+    }
+
+    @Override
+    public int get(D identifiableObject) {
+        if (table == null) {
+            return super.get(identifiableObject);
+        }
+        int id = identifiableObject.id();
+        checkIndex(id);
+        return table.get(id, defaultValue);
+    }
+
+    @Override
+    public void set(D identifiableObject, int value) {
+        if (table == null) {
+            super.set(identifiableObject, value);
+        } else {
+            store(ensureDomain(identifiableObject.id()), value);
+        }
+    }
+
+    @Override
+    public void increase(D identifiableObject, int amount) {
+        if (table == null) {
+            super.increase(identifiableObject, amount);
+        } else {
+            int id = ensureDomain(identifiableObject.id());
+            store(id, Math.addExact(table.get(id, defaultValue), amount));
+        }
+    }
+
+    @Override
+    public void add(D identifiableObject, int value) {
+        set(identifiableObject, value);
+    }
+
+    @Override
+    public void decrease(D identifiableObject, int amount) {
+        if (table == null) {
+            super.decrease(identifiableObject, amount);
+        } else {
+            int id = ensureDomain(identifiableObject.id());
+            store(id, table.get(id, defaultValue) - amount);
+        }
+    }
+
+    /**
+     * Maps all objects to {@code value}, which becomes the new default value. The mapping returns to the sparse
+     * representation. Runtime O(1) amortized over the insertions since the last initialization.
+     *
+     * @param value the new value of all objects
+     */
+    @Override
+    public void initializeWith(int value) {
+        if (table == null) {
+            domainSize = mapping.length;
+            mapping = null;
+            table = new IntIntHashTable();
+        } else {
+            table.clear();
+        }
+        defaultValue = value;
+    }
+
+    @Override
+    public int getDomainSize() {
+        return table == null ? super.getDomainSize() : domainSize;
+    }
+
+    @Override
+    public void setDomainSize(int value) {
+        if (table == null) {
+            int oldSize = mapping.length;
+            super.setDomainSize(value);
+            if (value > oldSize) {
+                Arrays.fill(mapping, oldSize, value, defaultValue);
+            }
+        } else {
+            if (value < 0) {
+                throw new NegativeArraySizeException(Integer.toString(value));
+            }
+            if (value < domainSize) {
+                for (int slot = 0; slot < table.capacity(); ++slot) {
+                    while (table.keys[slot] >= value) {
+                        table.remove(table.keys[slot]);
+                    }
+                }
+            }
+            domainSize = value;
+        }
+    }
+
+    /**
+     * Returns the maximum over all values of the domain. Runtime O(number of non-default values) for the sparse
+     * representation.
+     *
+     * @return the maximum over all values of the domain
+     */
+    @Override
+    public int maximum() {
+        if (table == null) {
+            return super.maximum();
+        }
+        int result = table.size() < domainSize ? defaultValue : Integer.MIN_VALUE;
+        for (int slot = 0; slot < table.capacity(); ++slot) {
+            if (table.keys[slot] != IntIntHashTable.EMPTY && table.values[slot] > result) {
+                result = table.values[slot];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public SparseIdentifiableIntegerMapping<D> clone() {
+        return new SparseIdentifiableIntegerMapping<>(this);
+    }
+
+    /**
+     * Compares this mapping to another {@link IdentifiableIntegerMapping}. The result is {@code true} if both mappings
+     * have domains of equal size and make the same associations, independent of their representation.
+     *
+     * @param o the object this mapping is to be compared with.
+     * @return {@code true} if the given object represents an equivalent mapping, {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || !(o instanceof IdentifiableIntegerMapping)) {
+            return false;
+        }
+        IdentifiableIntegerMapping<?> other = (IdentifiableIntegerMapping<?>) o;
+        if (other.getDomainSize() != getDomainSize()) {
+            return false;
+        }
+        for (int id = 0; id < getDomainSize(); ++id) {
+            if (other.valueAt(id) != valueAt(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a hash code that equals the hash code of an equivalent dense {@link IdentifiableIntegerMapping}. Runtime
+     * O(number of non-default values) for the sparse representation.
+     *
+     * @return the sum of the integers associated with objects in this mapping.
+     */
+    @Override
+    public int hashCode() {
+        if (table == null) {
+            return super.hashCode();
+        }
+        int sum = defaultValue * (domainSize - table.size());
+        for (int slot = 0; slot < table.capacity(); ++slot) {
+            if (table.keys[slot] != IntIntHashTable.EMPTY) {
+                sum += table.values[slot];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Returns a string representation listing the default value and the non-default associations.
+     *
+     * @return a string representation of this mapping
+     */
+    @Override
+    public String toString() {
+        if (table == null) {
+            return super.toString();
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append("[default = ").append(defaultValue);
+        for (int slot = 0; slot < table.capacity(); ++slot) {
+            if (table.keys[slot] != IntIntHashTable.EMPTY) {
+                builder.append(", ").append(table.keys[slot]).append(" = ").append(table.values[slot]);
+            }
+        }
+        builder.append(']');
+        return builder.toString();
+    }
+
+    private static <D extends Identifiable> int domainSize(Iterable<D> domain) {
+        int maxId = -1;
+        for (D x : domain) {
+            if (maxId < x.id()) {
+                maxId = x.id();
+            }
+        }
+        return maxId + 1;
+    }
+
+    /**
+     * Stores the value of an ID in the sparse representation. Default values are removed from the table. If the table
+     * would grow to use more memory than an array for the whole domain, the dense representation is used.
+     *
+     * @param id the ID within the domain
+     * @param value the new value
+     */
+    private void store(int id, int value) {
+        if (value == defaultValue) {
+            table.remove(id);
+        } else if (table.isFull() && table.slot(id) < 0 && 4L * table.capacity() >= domainSize) {
+            densify();
+            mapping[id] = value;
+        } else {
+            table.put(id, value);
+        }
+    }
+
+    /**
+     * Sets the value of an ID within the domain, regardless of the representation.
+     *
+     * @param id the ID within the domain
+     * @param value the new value
+     */
+    void put(int id, int value) {
+        if (table == null) {
+            mapping[id] = value;
+        } else {
+            store(id, value);
+        }
+    }
+
+    @Override
+    int valueAt(int id) {
+        if (table == null) {
+            return mapping[id];
+        }
+        checkIndex(id);
+        return table.get(id, defaultValue);
+    }
+
+    @Override
+    void storeValueAt(int id, int value) {
+        checkIndex(id);
+        put(id, value);
+    }
+
+    @Override
+    int[] denseValues() {
+        return table == null ? mapping : materialize();
+    }
+
+    @Override
+    int[] writableDenseValues() {
+        if (table != null) {
+            densify();
+        }
+        return mapping;
+    }
+
+    /**
+     * Switches to the dense representation.
+     */
+    private void densify() {
+        mapping = materialize();
+        table = null;
+    }
+
+    /**
+     * Creates an array containing the values of the whole domain from the sparse representation.
+     *
+     * @return the values indexed by ID
+     */
+    private int[] materialize() {
+        int[] values = new int[domainSize];
+        if (defaultValue != 0) {
+            Arrays.fill(values, defaultValue);
+        }
+        for (int slot = 0; slot < table.capacity(); ++slot) {
+            if (table.keys[slot] != IntIntHashTable.EMPTY) {
+                values[table.keys[slot]] = table.values[slot];
+            }
+        }
+        return values;
+    }
+
+    private void checkIndex(int id) {
+        if (id < 0 || id >= domainSize) {
+            throw new ArrayIndexOutOfBoundsException(id);
+        }
+    }
+
+    private int ensureDomain(int id) {
+        if (id < 0) {
+            throw new ArrayIndexOutOfBoundsException(id);
+        }
+        if (id >= domainSize) {
+            domainSize = id + 1;
+        }
+        return id;
+    }
+}
@@ -0,0 +1,144 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The cells storing the increases of a contended object of {@link AtomicIdentifiableIntegerMapping} and
+ * {@link AtomicIdentifiableDoubleMapping}. Threads add to different cells depending on their ID, the cells store
+ * either {@code long} increases or the raw bits of {@code double} increases. The version is odd while the increases
+ * are moved into the value of the object, which excludes concurrent moves and lets readers detect them.
+ */
+final class StripedCells {
+
+    /** The distance of used cells in the array, so that they lie in different cache lines. */
+    private static final int SPACING = 8;
+
+    /** The increases, only every {@link #SPACING}-th entry is used. */
+    private final AtomicLongArray bits;
+    /** The number of used cells minus one, the number of cells is a power of two. */
+    private final int mask;
+    /** Counts the moves of the increases into the value, odd while a move is in progress. */
+    private final AtomicInteger version = new AtomicInteger();
+
+    StripedCells() {
+        int count = 1;
+        while (count < Runtime.getRuntime().availableProcessors()) {
+            count <<= 1;
+        }
+        bits = new AtomicLongArray(count * SPACING);
+        mask = count - 1;
+    }
+
+    private int index() {
+        return ((int) Thread.currentThread().getId() & mask) * SPACING;
+    }
+
+    void add(long amount) {
+        bits.getAndAdd(index(), amount);
+    }
+
+    void addDouble(double amount) {
+        int index = index();
+        while (true) {
+            long current = bits.get(index);
+            long next = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + amount);
+            if (bits.compareAndSet(index, current, next)) {
+                return;
+            }
+        }
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int index = 0; index < bits.length(); index += SPACING) {
+            sum += bits.get(index);
+        }
+        return sum;
+    }
+
+    double sumDouble() {
+        double sum = 0;
+        for (int index = 0; index < bits.length(); index += SPACING) {
+            sum += Double.longBitsToDouble(bits.get(index));
+        }
+        return sum;
+    }
+
+    /**
+     * Removes all {@code long} increases by atomically swapping each cell with {@code 0}. Increases that are added
+     * concurrently either are removed or remain completely in their cell.
+     *
+     * @return the sum of the removed increases
+     */
+    long drain() {
+        long sum = 0;
+        for (int index = 0; index < bits.length(); index += SPACING) {
+            sum += bits.getAndSet(index, 0L);
+        }
+        return sum;
+    }
+
+    /**
+     * Removes all {@code double} increases by atomically swapping each cell with {@code 0}, so that no rounding residue
+     * remains. Increases that are added concurrently either are removed or remain completely in their cell.
+     *
+     * @return the sum of the removed increases
+     */
+    double drainDouble() {
+        double sum = 0;
+        for (int index = 0; index < bits.length(); index += SPACING) {
+            sum += Double.longBitsToDouble(bits.getAndSet(index, 0L));
+        }
+        return sum;
+    }
+
+    /**
+     * Waits until no increases are moved and returns the version, to be checked by {@link #isUnchanged(int)} after
+     * reading the value and the cells.
+     *
+     * @return the current, even version
+     */
+    int awaitVersion() {
+        while (true) {
+            int current = version.get();
+            if ((current & 1) == 0) {
+                return current;
+            }
+            Thread.yield();
+        }
+    }
+
+    boolean isUnchanged(int expected) {
+        return version.get() == expected;
+    }
+
+    void lock() {
+        while (true) {
+            int current = version.get();
+            if ((current & 1) == 0 && version.compareAndSet(current, current + 1)) {
+                return;
+            }
+            Thread.yield();
+        }
+    }
+
+    void unlock() {
+        version.incrementAndGet();
+    }
+}
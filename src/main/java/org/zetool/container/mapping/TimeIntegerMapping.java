@@ -17,9 +17,17 @@
 package org.zetool.container.mapping;
 
 import org.zetool.container.localization.CollectionLocalization;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NavigableSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.DoubleBinaryOperator;
 
 
 /**
@@ -48,6 +56,41 @@ public class TimeIntegerMapping implements Cloneable, Iterable<TimeIntegerPair>,
 	 * piecewise linear.
 	 */
 	private boolean linear;
+	/**
+	 * Counts the steps per value if aggregate tracking is enabled,
+	 * {@code null} otherwise.
+	 */
+	private TreeMap<Integer, Integer> valueCounts;
+	/**
+	 * Stores whether steps that do not change the value are removed on each
+	 * change.
+	 */
+	private boolean coalescing;
+	/**
+	 * The number of mappings below which the parallel reductions merge
+	 * sequentially.
+	 */
+	private static final int MERGE_THRESHOLD = 256;
+	/** The times of the steps in the integral index. */
+	private int[] indexTimes = new int[0];
+	/** The values of the steps in the integral index. */
+	private int[] indexValues = new int[0];
+	/** The integral from the first step to each step in the integral index. */
+	private long[] indexIntegrals = new long[0];
+	/** The number of steps in the integral index. */
+	private int indexSize;
+	/**
+	 * The first time from which on the integral index is outdated,
+	 * {@code Long.MAX_VALUE} if it is up to date. The initial value
+	 * {@code Long.MIN_VALUE} lies before every step and marks the whole index
+	 * for rebuilding.
+	 */
+	private long indexValidBefore = Long.MIN_VALUE;
+
+	/** The pointwise aggregates of multiple mappings. */
+	private enum Aggregate {
+		SUM, MINIMUM, MAXIMUM
+	}
 
 	/**
 	 * Creates a new {@code IntegerIntegerMapping} that is defined for all integer
@@ -91,7 +134,107 @@ public class TimeIntegerMapping implements Cloneable, Iterable<TimeIntegerPair>,
 		return true;
 	}
 
+	/**
+	 * Enables or disables the tracking of aggregates. If enabled, the number of
+	 * steps per value is maintained on each change, so that
+	 * {@link #getMaximumValue()}, {@link #getMinimumValue()} and
+	 * {@link #isZero()} run in O(log (number of distinct values)) instead of
+	 * O(number of steps). Changes of the values of {@link TimeIntegerPair}s
+	 * returned by the iterator are not tracked. Enabling runs in
+	 * O(number of steps * log (number of steps)).
+	 *
+	 * @param enabled whether aggregates are tracked
+	 */
+	public void setAggregateTracking( boolean enabled ) {
+		if( !enabled ) {
+			valueCounts = null;
+		} else if( valueCounts == null ) {
+			valueCounts = new TreeMap<>();
+			for( TimeIntegerPair tip : mapping ) {
+				count( tip.value(), 1 );
+			}
+		}
+	}
+
+	/**
+	 * Checks whether aggregates are tracked.
+	 *
+	 * @return {@code true} if aggregates are tracked
+	 * @see #setAggregateTracking(boolean)
+	 */
+	public boolean isAggregateTracking() {
+		return valueCounts != null;
+	}
+
+	/**
+	 * Enables or disables coalescing. If enabled, a step that has the same value
+	 * as its predecessor is removed at both ends of every changed range, so that
+	 * no two consecutive steps have equal values and lookups and merges do not
+	 * visit redundant steps. Enabling compacts the mapping. Like
+	 * {@link #compact()}, coalescing changes the range of later calls of
+	 * {@link #set(int, int)}.
+	 *
+	 * @param enabled whether equal consecutive steps are merged on each change
+	 * @see #compact()
+	 */
+	public void setCoalescing( boolean enabled ) {
+		coalescing = enabled;
+		if( enabled ) {
+			compact();
+		}
+	}
+
+	/**
+	 * Checks whether equal consecutive steps are merged on each change.
+	 *
+	 * @return {@code true} if the mapping is coalescing
+	 * @see #setCoalescing(boolean)
+	 */
+	public boolean isCoalescing() {
+		return coalescing;
+	}
+
+	/**
+	 * Removes all steps that have the same value as their predecessor. The steps
+	 * at {@code Integer.MIN_VALUE} and {@code Integer.MAX_VALUE} are kept.
+	 * The values returned by {@link #get(int)} do not change, but a later
+	 * {@link #set(int, int)} extends up to the next step that is still stored.
+	 * Thus two mappings that are equal as functions may differ after the same
+	 * call of {@code set} if only one of them has been compacted. Runtime
+	 * O(number of steps + number of removed steps * log (number of steps)).
+	 *
+	 * @return the number of removed steps
+	 */
+	public int compact() {
+		List<TimeIntegerPair> redundant = new ArrayList<>();
+		TimeIntegerPair previous = null;
+		for( TimeIntegerPair tip : mapping ) {
+			if( previous != null && previous.value() == tip.value() && tip.time() != Integer.MAX_VALUE ) {
+				redundant.add( tip );
+			} else {
+				previous = tip;
+			}
+		}
+		for( TimeIntegerPair tip : redundant ) {
+			removeStep( tip );
+		}
+		return redundant.size();
+	}
+
+	/**
+	 * Returns the number of steps stored in this mapping, including the steps at
+	 * {@code Integer.MIN_VALUE} and {@code Integer.MAX_VALUE}. Runtime O(1).
+	 *
+	 * @return the number of steps
+	 */
+	public int getStepCount() {
+		return mapping.size();
+	}
+
 	public int getMaximumValue() {
+		if( valueCounts != null ) {
+			return valueCounts.lastKey();
+		}
 		int maximum = Integer.MIN_VALUE;
 		for( TimeIntegerPair tip : mapping ) {
 			if( tip.value() > maximum ) {
@@ -101,7 +244,29 @@ public class TimeIntegerMapping implements Cloneable, Iterable<TimeIntegerPair>,
 		return maximum;
 	}
 
+	/**
+	 * Returns the minimal value of all steps. Runtime O(number of steps), or
+	 * O(log (number of distinct values)) if aggregates are tracked.
+	 *
+	 * @return the minimal value
+	 */
+	public int getMinimumValue() {
+		if( valueCounts != null ) {
+			return valueCounts.firstKey();
+		}
+		int minimum = Integer.MAX_VALUE;
+		for( TimeIntegerPair tip : mapping ) {
+			if( tip.value() < minimum ) {
+				minimum = tip.value();
+			}
+		}
+		return minimum;
+	}
+
 	public boolean isZero() {
+		if( valueCounts != null ) {
+			return valueCounts.size() == 1 && valueCounts.firstKey() == 0;
+		}
 		boolean result = true;
 		for( TimeIntegerPair tip : mapping ) {
 			if( tip.value() != 0 ) {
@@ -151,8 +316,11 @@ public class TimeIntegerMapping implements Cloneable, Iterable<TimeIntegerPair>,
 
 
 	/**
-	 * Maps the integer {@code time} to the integer {@code value}. Runtime O(log
-	 * (number of steps)).
+	 * Maps the integer {@code time} and all following integers up to the next
+	 * stored step to the integer {@code value}. The stored steps depend on the
+	 * history of the mapping, steps with the value of their predecessor are
+	 * kept unless they are removed by {@link #compact()} or coalescing. Runtime
+	 * O(log (number of steps)).
 	 *
 	 * @param time the integer for which an association is to be made.
 	 * @param value the value to be associated with the integer.
@@ -161,9 +329,16 @@ public class TimeIntegerMapping implements Cloneable, Iterable<TimeIntegerPair>,
 		TimeIntegerPair tip = new TimeIntegerPair( time, value );
 		TimeIntegerPair floor = mapping.floor( tip );
 		if( floor != null && floor.equals( tip ) ) {
-			floor.set( value );
+			change( floor, value );
 		} else {
-			mapping.add( tip );
+			addStep( tip );
+		}
+		if( coalescing ) {
+			TimeIntegerPair next = mapping.higher( tip );
+			coalesce( tip );
+			if( next != null ) {
+				coalesce( next );
+			}
 		}
 	}
 
@@ -209,19 +384,71 @@ public class TimeIntegerMapping implements Cloneable, Iterable<TimeIntegerPair>,
 		int lastBefore = mapping.lower( to ).value();
 		TimeIntegerPair last = mapping.ceiling( to );
 		if( first.time() < fromTime ) {
-			mapping.add( new TimeIntegerPair( fromTime, first.value() + amount ) );
+			addStep( new TimeIntegerPair( fromTime, first.value() + amount ) );
 		} else {
-			first.set( first.value() + amount );
+			change( first, first.value() + amount );
 		}
 		if( toTime < last.time() ) {
-			mapping.add( new TimeIntegerPair( toTime, lastBefore ) );
+			addStep( new TimeIntegerPair( toTime, lastBefore ) );
 		}
 		NavigableSet<TimeIntegerPair> subSet = mapping.subSet( mapping.floor( from ), false, mapping.ceiling( to ), false );
 		for( TimeIntegerPair tip : subSet ) {
-			tip.set( tip.value() + amount );
+			change( tip, tip.value() + amount );
 		}
 		if( mapping.lower( first ) != null && mapping.lower( first ).value() == first.value() ) {
-			mapping.remove( first );
+			removeStep( first );
+		}
+		if( coalescing ) {
+			coalesce( from );
+			coalesce( to );
+		}
+	}
+
+	/**
+	 * Removes the step starting at the time of the given pair if it exists and
+	 * has the same value as its predecessor. The steps at
+	 * {@code Integer.MIN_VALUE} and {@code Integer.MAX_VALUE} are kept.
+	 */
+	private void coalesce( TimeIntegerPair probe ) {
+		if( probe.time() == Integer.MAX_VALUE ) {
+			return;
+		}
+		TimeIntegerPair step = mapping.floor( probe );
+		if( step != null && step.time() == probe.time() ) {
+			TimeIntegerPair previous = mapping.lower( step );
+			if( previous != null && previous.value() == step.value() ) {
+				removeStep( step );
+			}
+		}
+	}
+
+	private void addStep( TimeIntegerPair tip ) {
+		mapping.add( tip );
+		count( tip.value(), 1 );
+		invalidateIndex( tip.time() );
+	}
+
+	private void removeStep( TimeIntegerPair tip ) {
+		if( mapping.remove( tip ) ) {
+			count( tip.value(), -1 );
+			invalidateIndex( tip.time() );
+		}
+	}
+
+	private void change( TimeIntegerPair tip, int value ) {
+		count( tip.value(), -1 );
+		tip.set( value );
+		count( value, 1 );
+		invalidateIndex( tip.time() );
+	}
+
+	private void invalidateIndex( int time ) {
+		indexValidBefore = Math.min( indexValidBefore, time );
+	}
+
+	private void count( int value, int delta ) {
+		if( valueCounts != null ) {
+			valueCounts.merge( value, delta, (a, b) -> a + b == 0 ? null : a + b );
 		}
 	}
 
@@ -259,39 +486,459 @@ public class TimeIntegerMapping implements Cloneable, Iterable<TimeIntegerPair>,
 	/**
 	 * Adds the specified mapping to this mapping. {@code TimeIntegerMapping}
 	 * objects are treated as mathematical functions Z -> Z for this purpose.
-	 * Runtime(number of steps in {@code mapping}).
+	 * Both mappings are traversed once in parallel, existing steps are updated
+	 * in place and only steps at new times are inserted. Runtime O(number of
+	 * steps in both mappings + k log(number of steps)) for {@code k} inserted
+	 * steps.
 	 *
 	 * @param mapping the mapping to be added to this mapping.
 	 * @exception NullPointerException if mapping is null.
+	 * @exception ArithmeticException if a sum overflows an {@code int}. This
+	 * mapping is not changed in this case.
 	 */
 	public void addMapping( TimeIntegerMapping mapping ) {
-		TimeIntegerPair last = null;
-		for( TimeIntegerPair tip : mapping ) {
-			if( last == null ) {
-				last = tip;
-				continue;
-			}
-			increase( last.time(), tip.time(), last.value() );
-		}
+		combineInPlace( mapping, Double::sum );
 	}
 
 	/**
 	 * Subtracts the specified mapping from this mapping.
 	 * {@code TimeIntegerMapping} objects are treated as mathematical functions
-	 * Z -> Z for this purpose. Runtime(number of steps in {@code mapping}).
+	 * Z -> Z for this purpose. Runtime as for
+	 * {@link #addMapping(TimeIntegerMapping)}.
 	 *
 	 * @param mapping the mapping to be subtracted to this mapping.
 	 * @exception NullPointerException if mapping is null.
+	 * @exception ArithmeticException if a difference overflows an
+	 * {@code int}. This mapping is not changed in this case.
 	 */
 	public void subtractMapping( TimeIntegerMapping mapping ) {
-		TimeIntegerPair last = null;
-		for( TimeIntegerPair tip : mapping ) {
-			if( last == null ) {
-				last = tip;
-				continue;
+		combineInPlace( mapping, (a, b) -> a - b );
+	}
+
+	private void combineInPlace( TimeIntegerMapping other, DoubleBinaryOperator operator ) {
+		List<TimeIntegerPair> steps = new ArrayList<>( mapping );
+		int[] changed = new int[steps.size()];
+		List<TimeIntegerPair> added = new ArrayList<>();
+		PiecewiseMerge.merge( times( this ), values( this ), false, times( other ), values( other ), false, operator,
+						false, (time, value, index) -> {
+			int intValue = Math.toIntExact( (long)value );
+			if( index >= 0 ) {
+				changed[index] = intValue;
+			} else {
+				added.add( new TimeIntegerPair( time, intValue ) );
+			}
+		} );
+		for( int i = 0; i < changed.length; ++i ) {
+			change( steps.get( i ), changed[i] );
+		}
+		for( TimeIntegerPair tip : added ) {
+			addStep( tip );
+		}
+		if( coalescing ) {
+			compact();
+		}
+	}
+
+	private static int[] times( TimeIntegerMapping mapping ) {
+		int[] times = new int[mapping.mapping.size()];
+		int i = 0;
+		for( TimeIntegerPair tip : mapping.mapping ) {
+			times[i++] = tip.time();
+		}
+		return times;
+	}
+
+	private static double[] values( TimeIntegerMapping mapping ) {
+		double[] values = new double[mapping.mapping.size()];
+		int i = 0;
+		for( TimeIntegerPair tip : mapping.mapping ) {
+			values[i++] = tip.value();
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the pointwise sum of the given mappings. The steps of all mappings
+	 * are merged with a heap of the next step of each mapping, so that the
+	 * result is computed in O(N log k) for {@code k} mappings with {@code N}
+	 * steps in total. Consecutive steps with equal values are merged.
+	 *
+	 * @param mappings the mappings
+	 * @return the sum of the mappings
+	 * @exception ArithmeticException if a sum overflows
+	 */
+	public static TimeIntegerMapping sumAll( Collection<TimeIntegerMapping> mappings ) {
+		return mergeAll( new ArrayList<>( mappings ), 0, mappings.size(), Aggregate.SUM );
+	}
+
+	/**
+	 * Returns the pointwise minimum of the given mappings, the lower envelope.
+	 * Runtime O(N log k) for {@code k} mappings with {@code N} steps in total.
+	 *
+	 * @param mappings the mappings
+	 * @return the minimum of the mappings, {@code 0} everywhere if there are none
+	 * @see #sumAll(Collection)
+	 */
+	public static TimeIntegerMapping minAll( Collection<TimeIntegerMapping> mappings ) {
+		return mergeAll( new ArrayList<>( mappings ), 0, mappings.size(), Aggregate.MINIMUM );
+	}
+
+	/**
+	 * Returns the pointwise maximum of the given mappings, the upper envelope.
+	 * Runtime O(N log k) for {@code k} mappings with {@code N} steps in total.
+	 *
+	 * @param mappings the mappings
+	 * @return the maximum of the mappings, {@code 0} everywhere if there are none
+	 * @see #sumAll(Collection)
+	 */
+	public static TimeIntegerMapping maxAll( Collection<TimeIntegerMapping> mappings ) {
+		return mergeAll( new ArrayList<>( mappings ), 0, mappings.size(), Aggregate.MAXIMUM );
+	}
+
+	/**
+	 * Returns the pointwise sum of the given mappings, computed in parallel on
+	 * the common {@link ForkJoinPool}. The mappings are split recursively into
+	 * groups, each group is merged as by {@link #sumAll(Collection)} and the
+	 * results are combined pairwise.
+	 *
+	 * @param mappings the mappings
+	 * @return the sum of the mappings
+	 * @exception ArithmeticException if a sum overflows
+	 */
+	public static TimeIntegerMapping parallelSumAll( Collection<TimeIntegerMapping> mappings ) {
+		return parallelMergeAll( mappings, Aggregate.SUM );
+	}
+
+	/**
+	 * Returns the pointwise minimum of the given mappings, computed in parallel.
+	 *
+	 * @param mappings the mappings
+	 * @return the minimum of the mappings
+	 * @see #parallelSumAll(Collection)
+	 */
+	public static TimeIntegerMapping parallelMinAll( Collection<TimeIntegerMapping> mappings ) {
+		return parallelMergeAll( mappings, Aggregate.MINIMUM );
+	}
+
+	/**
+	 * Returns the pointwise maximum of the given mappings, computed in parallel.
+	 *
+	 * @param mappings the mappings
+	 * @return the maximum of the mappings
+	 * @see #parallelSumAll(Collection)
+	 */
+	public static TimeIntegerMapping parallelMaxAll( Collection<TimeIntegerMapping> mappings ) {
+		return parallelMergeAll( mappings, Aggregate.MAXIMUM );
+	}
+
+	private static TimeIntegerMapping parallelMergeAll( Collection<TimeIntegerMapping> mappings, Aggregate aggregate ) {
+		List<TimeIntegerMapping> list = new ArrayList<>( mappings );
+		if( list.size() <= MERGE_THRESHOLD ) {
+			return mergeAll( list, 0, list.size(), aggregate );
+		}
+		return ForkJoinPool.commonPool().invoke( new MergeTask( list, 0, list.size(), aggregate ) );
+	}
+
+	/**
+	 * Merges the steps of the mappings {@code from} to {@code to - 1} of the
+	 * list. A binary heap holds the mappings ordered by the time of their next
+	 * step, the current values are aggregated by a running sum or a tournament
+	 * tree.
+	 */
+	private static TimeIntegerMapping mergeAll( List<TimeIntegerMapping> mappings, int from, int to, Aggregate aggregate ) {
+		int k = to - from;
+		List<Iterator<TimeIntegerPair>> iterators = new ArrayList<>( k );
+		int[] current = new int[k];
+		int[] nextTime = new int[k];
+		int[] nextValue = new int[k];
+		int[] heap = new int[k];
+		int heapSize = 0;
+		for( int i = 0; i < k; ++i ) {
+			Iterator<TimeIntegerPair> it = mappings.get( from + i ).mapping.iterator();
+			iterators.add( it );
+			if( it.hasNext() ) {
+				TimeIntegerPair tip = it.next();
+				nextTime[i] = tip.time();
+				nextValue[i] = tip.value();
+				heap[heapSize] = i;
+				siftUp( heap, heapSize++, nextTime );
+			}
+		}
+		TournamentTree tree = new TournamentTree( aggregate == Aggregate.MAXIMUM );
+		if( aggregate != Aggregate.SUM ) {
+			tree.build( current );
+		}
+		long sum = 0;
+		List<TimeIntegerPair> steps = new ArrayList<>();
+		int lastValue = 0;
+		while( heapSize > 0 ) {
+			int time = nextTime[heap[0]];
+			while( heapSize > 0 && nextTime[heap[0]] == time ) {
+				int i = heap[0];
+				sum += (long)nextValue[i] - current[i];
+				current[i] = nextValue[i];
+				if( aggregate != Aggregate.SUM ) {
+					tree.update( current, i );
+				}
+				if( iterators.get( i ).hasNext() ) {
+					TimeIntegerPair tip = iterators.get( i ).next();
+					nextTime[i] = tip.time();
+					nextValue[i] = tip.value();
+				} else {
+					heap[0] = heap[--heapSize];
+				}
+				siftDown( heap, 0, heapSize, nextTime );
+			}
+			int value = aggregate == Aggregate.SUM ? Math.toIntExact( sum ) : current[tree.winner()];
+			if( steps.isEmpty() && time != Integer.MIN_VALUE ) {
+				steps.add( new TimeIntegerPair( Integer.MIN_VALUE, 0 ) );
+			}
+			if( steps.isEmpty() || value != lastValue || time == Integer.MAX_VALUE ) {
+				steps.add( new TimeIntegerPair( time, value ) );
+				lastValue = value;
+			}
+		}
+		return fromSteps( steps );
+	}
+
+	private static void siftUp( int[] heap, int position, int[] keys ) {
+		int element = heap[position];
+		while( position > 0 && keys[heap[(position - 1) >>> 1]] > keys[element] ) {
+			heap[position] = heap[(position - 1) >>> 1];
+			position = (position - 1) >>> 1;
+		}
+		heap[position] = element;
+	}
+
+	private static void siftDown( int[] heap, int position, int size, int[] keys ) {
+		if( position >= size ) {
+			return;
+		}
+		int element = heap[position];
+		while( 2 * position + 1 < size ) {
+			int child = 2 * position + 1;
+			if( child + 1 < size && keys[heap[child + 1]] < keys[heap[child]] ) {
+				child++;
+			}
+			if( keys[heap[child]] >= keys[element] ) {
+				break;
+			}
+			heap[position] = heap[child];
+			position = child;
+		}
+		heap[position] = element;
+	}
+
+	/**
+	 * Combines two partial results of a parallel reduction in one merge pass.
+	 */
+	private static TimeIntegerMapping combine( TimeIntegerMapping first, TimeIntegerMapping second, Aggregate aggregate ) {
+		DoubleBinaryOperator operator = aggregate == Aggregate.SUM ? Double::sum
+						: aggregate == Aggregate.MINIMUM ? Math::min : Math::max;
+		List<TimeIntegerPair> steps = new ArrayList<>();
+		PiecewiseMerge.merge( times( first ), values( first ), false, times( second ), values( second ), false, operator,
+						false, (time, value, index) -> {
+			int intValue = Math.toIntExact( (long)value );
+			if( steps.isEmpty() || intValue != steps.get( steps.size() - 1 ).value() || time == Integer.MAX_VALUE ) {
+				steps.add( new TimeIntegerPair( time, intValue ) );
+			}
+		} );
+		return fromSteps( steps );
+	}
+
+	private static TimeIntegerMapping fromSteps( List<TimeIntegerPair> steps ) {
+		TimeIntegerMapping result = new TimeIntegerMapping();
+		if( !steps.isEmpty() ) {
+			result.mapping.clear();
+			result.mapping.addAll( PiecewiseMerge.sortedView( steps ) );
+		}
+		return result;
+	}
+
+	/**
+	 * Builds a {@code TimeIntegerMapping} from steps appended in the order of
+	 * their times. Appending runs in amortized O(1), as no tree is searched, and
+	 * {@link #build()} creates the tree in O(number of steps) from the sorted
+	 * steps. A builder can be used only once.
+	 */
+	public static final class Builder {
+		/** The steps, starting with the step at {@code Integer.MIN_VALUE}. */
+		private List<TimeIntegerPair> steps;
+
+		/**
+		 * Creates a new builder for a mapping that maps all integers to 0.
+		 */
+		public Builder() {
+			this( 16 );
+		}
+
+		/**
+		 * Creates a new builder with space for the given number of steps.
+		 *
+		 * @param expectedSteps the expected number of steps
+		 */
+		public Builder( int expectedSteps ) {
+			steps = new ArrayList<>( expectedSteps + 2 );
+			steps.add( new TimeIntegerPair( Integer.MIN_VALUE, 0 ) );
+		}
+
+		/**
+		 * Maps {@code time} and all later times up to the time of the next
+		 * appended step to {@code value}. A step at the same time as the last
+		 * step replaces its value, a step with the same value as the last step
+		 * is merged with it.
+		 *
+		 * @param time the time of the step, not before the last appended time
+		 * @param value the value of the step
+		 * @return this builder
+		 * @exception IllegalArgumentException if {@code time} is before the
+		 * last appended time
+		 * @exception IllegalStateException if the mapping has already been built
+		 */
+		public Builder append( int time, int value ) {
+			if( steps == null ) {
+				throw new IllegalStateException( "The mapping has already been built." );
+			}
+			TimeIntegerPair last = steps.get( steps.size() - 1 );
+			if( time < last.time() ) {
+				throw new IllegalArgumentException( time + " is before the last time " + last.time() + "." );
+			}
+			if( time == last.time() ) {
+				if( steps.size() > 1 && steps.get( steps.size() - 2 ).value() == value && time != Integer.MAX_VALUE ) {
+					steps.remove( steps.size() - 1 );
+				} else {
+					last.set( value );
+				}
+			} else if( value != last.value() || time == Integer.MAX_VALUE ) {
+				steps.add( new TimeIntegerPair( time, value ) );
+			}
+			return this;
+		}
+
+		/**
+		 * Returns the mapping of the appended steps. Runtime O(number of steps).
+		 *
+		 * @return the mapping
+		 * @exception IllegalStateException if the mapping has already been built
+		 */
+		public TimeIntegerMapping build() {
+			if( steps == null ) {
+				throw new IllegalStateException( "The mapping has already been built." );
+			}
+			if( steps.get( steps.size() - 1 ).time() != Integer.MAX_VALUE ) {
+				steps.add( new TimeIntegerPair( Integer.MAX_VALUE, 0 ) );
+			}
+			TimeIntegerMapping result = fromSteps( steps );
+			steps = null;
+			return result;
+		}
+	}
+
+	/**
+	 * Reduces a range of a list of mappings by splitting it into halves.
+	 */
+	private static final class MergeTask extends RecursiveTask<TimeIntegerMapping> {
+		private static final long serialVersionUID = 1L;
+		private final transient List<TimeIntegerMapping> mappings;
+		private final int from;
+		private final int to;
+		private final Aggregate aggregate;
+
+		MergeTask( List<TimeIntegerMapping> mappings, int from, int to, Aggregate aggregate ) {
+			this.mappings = mappings;
+			this.from = from;
+			this.to = to;
+			this.aggregate = aggregate;
+		}
+
+		@Override
+		protected TimeIntegerMapping compute() {
+			if( to - from <= MERGE_THRESHOLD ) {
+				return mergeAll( mappings, from, to, aggregate );
+			}
+			int middle = (from + to) >>> 1;
+			MergeTask left = new MergeTask( mappings, from, middle, aggregate );
+			left.fork();
+			TimeIntegerMapping right = new MergeTask( mappings, middle, to, aggregate ).compute();
+			return combine( left.join(), right, aggregate );
+		}
+	}
+
+	/**
+	 * Returns the integral of this step function from {@code fromTime} to
+	 * {@code toTime}, i.e. the sum of the values of all integers from
+	 * {@code fromTime} (inclusively) to {@code toTime} (exclusively). The
+	 * integrals up to each step are cached in an index, so that a query runs in
+	 * O(log (number of steps)). Changes only invalidate the index from the
+	 * changed time on, this suffix is rebuilt by the next query in O(number of
+	 * steps after the changed time). Changes of the values of
+	 * {@link TimeIntegerPair}s returned by the iterator are not detected.
+	 *
+	 * @param fromTime the first time of the interval
+	 * @param toTime the time after the interval
+	 * @return the integral over the interval
+	 * @exception IllegalArgumentException if {@code toTime} is smaller than
+	 * {@code fromTime}
+	 */
+	public long integrate( int fromTime, int toTime ) {
+		if( toTime < fromTime ) {
+			throw new IllegalArgumentException( fromTime + " cannot be smaller than " + toTime + "." );
+		}
+		updateIndex();
+		return integralUpTo( toTime ) - integralUpTo( fromTime );
+	}
+
+	private long integralUpTo( int time ) {
+		int i = Arrays.binarySearch( indexTimes, 0, indexSize, time );
+		if( i < 0 ) {
+			i = -i - 2;
+			if( i < 0 ) {
+				return 0;
 			}
-			decrease( last.time(), tip.time(), last.value() );
 		}
+		if( i == indexSize - 1 ) {
+			return indexIntegrals[i] + (long)indexValues[i] * ((long)time - indexTimes[i]);
+		}
+		// measure from the end of the step, which avoids overflows in the unbounded first step
+		return indexIntegrals[i + 1] - (long)indexValues[i] * ((long)indexTimes[i + 1] - time);
+	}
+
+	/**
+	 * Rebuilds the integral index from the first outdated time on. The entries
+	 * before this time are kept, as their integrals only depend on earlier
+	 * steps. The integrals are measured from the first step after
+	 * {@code Integer.MIN_VALUE}.
+	 */
+	private void updateIndex() {
+		if( indexValidBefore == Long.MAX_VALUE ) {
+			return;
+		}
+		int kept = indexValidBefore == Long.MIN_VALUE ? 0
+						: Arrays.binarySearch( indexTimes, 0, indexSize, (int)indexValidBefore );
+		if( kept < 0 ) {
+			kept = -kept - 1;
+		}
+		indexSize = kept;
+		Iterable<TimeIntegerPair> suffix = kept == 0 ? mapping
+						: mapping.tailSet( new TimeIntegerPair( indexTimes[kept - 1], 0 ), false );
+		for( TimeIntegerPair tip : suffix ) {
+			if( indexSize == indexTimes.length ) {
+				int capacity = Math.max( 16, Math.max( 2 * indexSize, mapping.size() ) );
+				indexTimes = Arrays.copyOf( indexTimes, capacity );
+				indexValues = Arrays.copyOf( indexValues, capacity );
+				indexIntegrals = Arrays.copyOf( indexIntegrals, capacity );
+			}
+			indexTimes[indexSize] = tip.time();
+			indexValues[indexSize] = tip.value();
+			if( indexSize == 0 || indexTimes[indexSize - 1] == Integer.MIN_VALUE ) {
+				indexIntegrals[indexSize] = 0;
+			} else {
+				indexIntegrals[indexSize] = indexIntegrals[indexSize - 1]
+								+ (long)indexValues[indexSize - 1] * ((long)tip.time() - indexTimes[indexSize - 1]);
+			}
+			indexSize++;
+		}
+		indexValidBefore = Long.MAX_VALUE;
 	}
 
 	/**
@@ -341,6 +988,8 @@ public class TimeIntegerMapping implements Cloneable, Iterable<TimeIntegerPair>,
 	@Override
 	public TimeIntegerMapping clone() {
 		TimeIntegerMapping clone = new TimeIntegerMapping();
+		clone.setAggregateTracking( isAggregateTracking() );
+		clone.coalescing = coalescing;
 		for( TimeIntegerPair tip : mapping ) {
 			clone.set( tip.time(), tip.value() );
 		}
@@ -400,6 +1049,24 @@ public class TimeIntegerMapping implements Cloneable, Iterable<TimeIntegerPair>,
 		return (tip != null) ? tip.time() : Integer.MAX_VALUE;
 	}
 
+	/**
+	 * Returns the first time after {@code time} with a value different from the
+	 * value at {@code time}, skipping steps that do not change the value.
+	 *
+	 * @param time the time
+	 * @return the next time with a different value, {@code Integer.MAX_VALUE}
+	 * if the value does not change any more
+	 */
+	int nextChange( int time ) {
+		int value = get( time );
+		for( TimeIntegerPair tip : mapping.tailSet( new TimeIntegerPair( time, 0 ), false ) ) {
+			if( tip.value() != value ) {
+				return tip.time();
+			}
+		}
+		return Integer.MAX_VALUE;
+	}
+
 	/**
 	 * Returns the minimum value between the specified times.
 	 * @param fromTime the first time point (inclusive).
@@ -0,0 +1,363 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.util.Arrays;
+
+/**
+ * A table of step functions from times to integers, one for each object of a domain of {@link Identifiable} objects.
+ * Each row behaves like a {@link TimeIntegerMapping}, i.e. all times are mapped to 0 initially, but the rows do not use
+ * tree sets. The steps of all rows are stored in two shared arrays for the times and the values, where the steps of a
+ * row are found between offsets that are stored per row. This avoids objects per step and per row and stores many
+ * small step functions, e.g. flows over time on all edges of a network, in a small amount of memory.
+ * <p>
+ * Changes after the last step of a row in the shared arrays are stored in a buffer of the row, so that appending steps
+ * runs in amortized O(1). A change before the last step in the shared arrays moves the steps of the row into its
+ * buffer, where steps are inserted in O(number of steps of the row). {@link #compact()} moves all buffers back into
+ * the shared arrays. Lookups run in O(log (number of steps of the row)).</p>
+ *
+ * @param <D> the type of the objects whose step functions are stored. {@code D} must implement {@link Identifiable}.
+ */
+public class TimeIntegerMappingTable<D extends Identifiable> {
+
+    /** The initial capacity of a buffer. */
+    private static final int INITIAL_BUFFER_CAPACITY = 4;
+    /** The times of the steps in the shared arrays, sorted for each row. */
+    private int[] times;
+    /** The values of the steps in the shared arrays. */
+    private int[] values;
+    /** The index in the shared arrays of the first step of each row. */
+    private int[] offsets;
+    /** The number of steps of each row in the shared arrays. */
+    private int[] sharedSizes;
+    /** The times of the buffered steps of each row, all after the steps in the shared arrays. */
+    private int[][] bufferTimes;
+    /** The values of the buffered steps of each row. */
+    private int[][] bufferValues;
+    /** The number of buffered steps of each row. */
+    private int[] bufferSizes;
+
+    /**
+     * Creates a new table with a row for each object of the given domain. All times are mapped to 0.
+     *
+     * @param domain the objects of the domain
+     */
+    public TimeIntegerMappingTable(Iterable<D> domain) {
+        this(domainSize(domain));
+    }
+
+    /**
+     * Creates a new table with a row for each ID from 0 to {@code domainSize - 1}. All times are mapped to 0.
+     *
+     * @param domainSize the number of rows
+     * @exception NegativeArraySizeException if {@code domainSize} is negative
+     */
+    public TimeIntegerMappingTable(int domainSize) {
+        times = new int[0];
+        values = new int[0];
+        offsets = new int[domainSize];
+        sharedSizes = new int[domainSize];
+        bufferTimes = new int[domainSize][];
+        bufferValues = new int[domainSize][];
+        bufferSizes = new int[domainSize];
+    }
+
+    /**
+     * Returns the number of rows of this table.
+     *
+     * @return the size of the domain
+     */
+    public int getDomainSize() {
+        return offsets.length;
+    }
+
+    /**
+     * Returns the value of the step function of the given object at the given time. Runtime O(log (number of steps of
+     * the row)).
+     *
+     * @param identifiableObject the object whose step function is evaluated
+     * @param time the time
+     * @return the value at the time
+     * @exception ArrayIndexOutOfBoundsException if the ID of the object is outside the domain
+     */
+    public int get(D identifiableObject, int time) {
+        int row = identifiableObject.id();
+        int size = bufferSizes[row];
+        if (size > 0 && time >= bufferTimes[row][0]) {
+            return bufferValues[row][floorIndex(bufferTimes[row], 0, size, time)];
+        }
+        int index = floorIndex(times, offsets[row], offsets[row] + sharedSizes[row], time);
+        return index >= offsets[row] ? values[index] : 0;
+    }
+
+    /**
+     * Maps the time and the following times up to the next step of the object's step function to the value, like
+     * {@link TimeIntegerMapping#set(int, int)}. Steps with the value of their predecessor count as steps until they
+     * are removed by {@link #compact()}.
+     *
+     * @param identifiableObject the object whose step function is changed
+     * @param time the time at which the new step starts
+     * @param value the value of the step
+     * @exception ArrayIndexOutOfBoundsException if the ID of the object is outside the domain
+     */
+    public void set(D identifiableObject, int time, int value) {
+        int row = identifiableObject.id();
+        if (sharedSizes[row] > 0 && time <= times[offsets[row] + sharedSizes[row] - 1]) {
+            int index = Arrays.binarySearch(times, offsets[row], offsets[row] + sharedSizes[row], time);
+            if (index >= 0) {
+                values[index] = value;
+                return;
+            }
+            moveToBuffer(row);
+        }
+        int index = insertStep(row, time);
+        bufferValues[row][index] = value;
+    }
+
+    /**
+     * Increases the values of the object's step function from {@code fromTime} (inclusively) to {@code toTime}
+     * (exclusively), like {@link TimeIntegerMapping#increase(int, int, int)}. Steps that no longer change the value
+     * at the ends of the range are removed.
+     *
+     * @param identifiableObject the object whose step function is changed
+     * @param fromTime the first time whose value is increased
+     * @param toTime the first time after {@code fromTime} whose value is <b>not</b> increased
+     * @param amount the amount by which the values are increased
+     * @exception IllegalArgumentException if {@code toTime} is less equal than {@code fromTime}
+     * @exception ArrayIndexOutOfBoundsException if the ID of the object is outside the domain
+     */
+    public void increase(D identifiableObject, int fromTime, int toTime, int amount) {
+        if (toTime <= fromTime) {
+            throw new IllegalArgumentException("toTime must be greater than fromTime.");
+        }
+        int row = identifiableObject.id();
+        if (sharedSizes[row] > 0 && fromTime <= times[offsets[row] + sharedSizes[row] - 1]) {
+            moveToBuffer(row);
+        }
+        int first = insertStep(row, fromTime);
+        int end = insertStep(row, toTime);
+        int[] rowValues = bufferValues[row];
+        for (int i = first; i < end; ++i) {
+            rowValues[i] += amount;
+        }
+        if (rowValues[end] == rowValues[end - 1]) {
+            removeStep(row, end);
+        }
+        if (rowValues[first] == valueBefore(row, first)) {
+            removeStep(row, first);
+        }
+    }
+
+    /**
+     * Decreases the values of the object's step function from {@code fromTime} (inclusively) to {@code toTime}
+     * (exclusively). It is equivalent to {@code increase(identifiableObject, fromTime, toTime, -amount)}.
+     *
+     * @param identifiableObject the object whose step function is changed
+     * @param fromTime the first time whose value is decreased
+     * @param toTime the first time after {@code fromTime} whose value is <b>not</b> decreased
+     * @param amount the amount by which the values are decreased
+     * @exception IllegalArgumentException if {@code toTime} is less equal than {@code fromTime}
+     * @exception ArrayIndexOutOfBoundsException if the ID of the object is outside the domain
+     */
+    public void decrease(D identifiableObject, int fromTime, int toTime, int amount) {
+        increase(identifiableObject, fromTime, toTime, -amount);
+    }
+
+    /**
+     * Returns the minimum value of the object's step function between the specified times, like
+     * {@link TimeIntegerMapping#minimum(int, int)}.
+     *
+     * @param identifiableObject the object whose step function is evaluated
+     * @param fromTime the first time point (inclusive)
+     * @param toTime the last time point (exclusive)
+     * @return the minimum value between the specified times, 0 if they are equal
+     * @exception IllegalArgumentException if {@code toTime} is smaller than {@code fromTime}
+     * @exception ArrayIndexOutOfBoundsException if the ID of the object is outside the domain
+     */
+    public int minimum(D identifiableObject, int fromTime, int toTime) {
+        if (fromTime > toTime) {
+            throw new IllegalArgumentException(fromTime + " cannot be smaller than " + toTime + ".");
+        } else if (fromTime == toTime) {
+            return 0;
+        }
+        int row = identifiableObject.id();
+        int minimum = get(identifiableObject, fromTime);
+        int end = offsets[row] + sharedSizes[row];
+        for (int i = floorIndex(times, offsets[row], end, fromTime) + 1; i < end && times[i] < toTime; ++i) {
+            minimum = Math.min(minimum, values[i]);
+        }
+        if (bufferSizes[row] > 0) {
+            int[] rowTimes = bufferTimes[row];
+            end = bufferSizes[row];
+            for (int i = floorIndex(rowTimes, 0, end, fromTime) + 1; i < end && rowTimes[i] < toTime; ++i) {
+                minimum = Math.min(minimum, bufferValues[row][i]);
+            }
+        }
+        return minimum;
+    }
+
+    /**
+     * Returns the number of steps of the object's step function.
+     *
+     * @param identifiableObject the object
+     * @return the number of times at which a step starts
+     * @exception ArrayIndexOutOfBoundsException if the ID of the object is outside the domain
+     */
+    public int getStepCount(D identifiableObject) {
+        return sharedSizes[identifiableObject.id()] + bufferSizes[identifiableObject.id()];
+    }
+
+    /**
+     * Returns a copy of the object's step function as a {@link TimeIntegerMapping}.
+     *
+     * @param identifiableObject the object
+     * @return the step function of the object
+     * @exception ArrayIndexOutOfBoundsException if the ID of the object is outside the domain
+     */
+    public TimeIntegerMapping toTimeIntegerMapping(D identifiableObject) {
+        int row = identifiableObject.id();
+        TimeIntegerMapping result = new TimeIntegerMapping();
+        for (int i = offsets[row]; i < offsets[row] + sharedSizes[row]; ++i) {
+            result.set(times[i], values[i]);
+        }
+        for (int i = 0; i < bufferSizes[row]; ++i) {
+            result.set(bufferTimes[row][i], bufferValues[row][i]);
+        }
+        return result;
+    }
+
+    /**
+     * Moves the buffered steps of all rows into new shared arrays and removes steps that do not change the value.
+     * The values returned by {@link #get(Identifiable, int)} do not change, but a later
+     * {@link #set(Identifiable, int, int)} extends up to the next step that is still stored, as for
+     * {@link TimeIntegerMapping#compact()}. Runtime O(number of steps).
+     */
+    public void compact() {
+        int total = 0;
+        for (int row = 0; row < offsets.length; ++row) {
+            total += sharedSizes[row] + bufferSizes[row];
+        }
+        int[] newTimes = new int[total];
+        int[] newValues = new int[total];
+        int size = 0;
+        for (int row = 0; row < offsets.length; ++row) {
+            int start = size;
+            int last = 0;
+            for (int i = offsets[row]; i < offsets[row] + sharedSizes[row]; ++i) {
+                if (values[i] != last) {
+                    newTimes[size] = times[i];
+                    newValues[size++] = last = values[i];
+                }
+            }
+            for (int i = 0; i < bufferSizes[row]; ++i) {
+                if (bufferValues[row][i] != last) {
+                    newTimes[size] = bufferTimes[row][i];
+                    newValues[size++] = last = bufferValues[row][i];
+                }
+            }
+            offsets[row] = start;
+            sharedSizes[row] = size - start;
+            bufferTimes[row] = null;
+            bufferValues[row] = null;
+            bufferSizes[row] = 0;
+        }
+        times = size == total ? newTimes : Arrays.copyOf(newTimes, size);
+        values = size == total ? newValues : Arrays.copyOf(newValues, size);
+    }
+
+    private static <D extends Identifiable> int domainSize(Iterable<D> domain) {
+        int maxId = -1;
+        for (D x : domain) {
+            if (maxId < x.id()) {
+                maxId = x.id();
+            }
+        }
+        return maxId + 1;
+    }
+
+    /**
+     * Returns the index of the last time not after {@code time} in a sorted range, {@code from - 1} if there is none.
+     */
+    private static int floorIndex(int[] array, int from, int to, int time) {
+        int index = Arrays.binarySearch(array, from, to, time);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Returns the value of the step before the buffered step with the given index.
+     */
+    private int valueBefore(int row, int index) {
+        if (index > 0) {
+            return bufferValues[row][index - 1];
+        }
+        return sharedSizes[row] > 0 ? values[offsets[row] + sharedSizes[row] - 1] : 0;
+    }
+
+    /**
+     * Moves the steps of a row from the shared arrays to the front of its buffer. The space in the shared arrays is
+     * reclaimed by the next compaction.
+     */
+    private void moveToBuffer(int row) {
+        int shared = sharedSizes[row];
+        ensureBufferCapacity(row, shared + bufferSizes[row]);
+        System.arraycopy(bufferTimes[row], 0, bufferTimes[row], shared, bufferSizes[row]);
+        System.arraycopy(bufferValues[row], 0, bufferValues[row], shared, bufferSizes[row]);
+        System.arraycopy(times, offsets[row], bufferTimes[row], 0, shared);
+        System.arraycopy(values, offsets[row], bufferValues[row], 0, shared);
+        bufferSizes[row] += shared;
+        sharedSizes[row] = 0;
+    }
+
+    /**
+     * Makes sure that a buffered step starts at the given time, which must be after the steps of the row in the shared
+     * arrays, and returns its index in the buffer. A new step gets the value of the step containing the time.
+     */
+    private int insertStep(int row, int time) {
+        int size = bufferSizes[row];
+        int index = size == 0 ? -1 : Arrays.binarySearch(bufferTimes[row], 0, size, time);
+        if (index >= 0) {
+            return index;
+        }
+        index = size == 0 ? 0 : -index - 1;
+        ensureBufferCapacity(row, size + 1);
+        int[] rowTimes = bufferTimes[row];
+        int[] rowValues = bufferValues[row];
+        int value = valueBefore(row, index);
+        System.arraycopy(rowTimes, index, rowTimes, index + 1, size - index);
+        System.arraycopy(rowValues, index, rowValues, index + 1, size - index);
+        rowTimes[index] = time;
+        rowValues[index] = value;
+        bufferSizes[row]++;
+        return index;
+    }
+
+    private void removeStep(int row, int index) {
+        int moved = --bufferSizes[row] - index;
+        System.arraycopy(bufferTimes[row], index + 1, bufferTimes[row], index, moved);
+        System.arraycopy(bufferValues[row], index + 1, bufferValues[row], index, moved);
+    }
+
+    private void ensureBufferCapacity(int row, int capacity) {
+        if (bufferTimes[row] == null) {
+            bufferTimes[row] = new int[Math.max(capacity, INITIAL_BUFFER_CAPACITY)];
+            bufferValues[row] = new int[bufferTimes[row].length];
+        } else if (capacity > bufferTimes[row].length) {
+            int newCapacity = Math.max(capacity, bufferTimes[row].length + (bufferTimes[row].length >> 1));
+            bufferTimes[row] = Arrays.copyOf(bufferTimes[row], newCapacity);
+            bufferValues[row] = Arrays.copyOf(bufferValues[row], newCapacity);
+        }
+    }
+}
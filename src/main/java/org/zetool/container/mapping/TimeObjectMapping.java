@@ -26,7 +26,7 @@ import java.util.TreeSet;
  * encode an {@code TimeObjectMapping} is therefore linear in the number of steps required. In order to access steps
  * efficiently, a TreeSet is used which in turn is based on a red-black tree. This allows the addition, removal and
  * search for steps in O(log (number of steps)) time. For mappings of integers to integers see
- * {@link IntegerIntegerMapping}.
+ * {@link IntegerIntegerMapping}. For values that are mostly set at increasing times see {@link ArrayTimeObjectMapping}.
  *
  * @param <R>
  */
@@ -47,18 +47,15 @@ public class TimeObjectMapping<R> implements Cloneable, Iterable<TimeObjectPair<
     }
 
     /**
-     * Returns the value associated with the specified integer. Runtime O(log (number of steps)).
+     * Returns the value associated with the specified integer, {@code null} if no value is set for exactly this
+     * integer. Runtime O(log (number of steps)).
      *
      * @param time the integer for which the associated value is to be returned.
      * @return the value associated with the specified integer.
      */
     public R get(int time) {
-        TimeObjectPair<R> test = new TimeObjectPair<>(time, null);
-        if (mapping.contains(test)) {
-            return mapping.floor(test).value();
-        } else {
-            return null;
-        }
+        TimeObjectPair<R> floor = mapping.floor(new TimeObjectPair<>(time, null));
+        return floor != null && floor.time() == time ? floor.value() : null;
     }
 
     @Override
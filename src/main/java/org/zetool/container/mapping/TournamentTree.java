@@ -0,0 +1,86 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+/**
+ * A tournament tree over the IDs of an array of values, maintaining the ID of the minimal or maximal value. The leaves
+ * are the IDs, each inner node stores the winner of its two children, so that the root is the overall winner. The
+ * winner is returned in O(1) and updated in O(log n) after a single value has changed. On ties the smaller ID wins.
+ * The values are not stored by the tree, they are passed to each operation.
+ */
+final class TournamentTree {
+
+    /** Whether the maximum or the minimum wins. */
+    private final boolean maximum;
+    /** The winning ID of each node, {@code -1} for leaves outside the domain. The root is at index {@code 1}. */
+    private int[] tree = {-1, -1};
+    /** The number of leaves, a power of two. */
+    private int leaves = 1;
+
+    TournamentTree(boolean maximum) {
+        this.maximum = maximum;
+    }
+
+    /**
+     * Rebuilds the tree for the given values. Runtime O(number of values).
+     *
+     * @param values the values
+     */
+    void build(int[] values) {
+        leaves = values.length <= 1 ? 1 : Integer.highestOneBit(values.length - 1) << 1;
+        tree = new int[2 * leaves];
+        for (int id = 0; id < leaves; ++id) {
+            tree[leaves + id] = id < values.length ? id : -1;
+        }
+        for (int node = leaves - 1; node > 0; --node) {
+            tree[node] = winner(values, tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Updates the tree after the value of an ID has changed. Runtime O(log number of values).
+     *
+     * @param values the values, containing the new value
+     * @param id the ID whose value has changed
+     */
+    void update(int[] values, int id) {
+        for (int node = (leaves + id) >>> 1; node > 0; node >>>= 1) {
+            tree[node] = winner(values, tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Returns the ID of the minimal or maximal value.
+     *
+     * @return the winning ID, {@code -1} if there are no values
+     */
+    int winner() {
+        return tree[1];
+    }
+
+    private int winner(int[] values, int left, int right) {
+        if (left < 0) {
+            return right;
+        }
+        if (right < 0) {
+            return left;
+        }
+        if (maximum) {
+            return values[right] > values[left] ? right : left;
+        }
+        return values[right] < values[left] ? right : left;
+    }
+}
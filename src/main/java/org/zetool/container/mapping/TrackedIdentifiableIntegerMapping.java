@@ -0,0 +1,218 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import java.io.ByteArrayOutputStream;
+import java.util.PrimitiveIterator;
+
+/**
+ * An {@link IdentifiableIntegerMapping} that records which objects have been changed. A {@link #checkpoint()} marks
+ * the current state, {@link #changedSince(int)} iterates the IDs changed after a checkpoint and
+ * {@link #exportDelta(int)} encodes their values, so that incremental snapshots or updates of a view cost O(number of
+ * changes) instead of O(size of the domain). A delta is applied to another mapping by {@link #applyDelta(byte[])}.
+ * <p>
+ * Every write is recorded, even if it does not change the value. Operations writing the whole domain, such as
+ * {@link #initializeWith(int)} and the bulk operations, record all IDs. The record grows with the number of changes
+ * per checkpoint until {@link #resetDirty()} is called.</p>
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to integers.
+ * {@code D} must implement {@link Identifiable}.
+ */
+public class TrackedIdentifiableIntegerMapping<D extends Identifiable> extends IdentifiableIntegerMapping<D> {
+
+    /** The record of changed IDs. */
+    private final ChangeLog changes;
+
+    /**
+     * Creates a new tracked mapping with a domain of the given size, mapping all objects to {@code 0}.
+     *
+     * @param domainSize the initial size of the domain.
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public TrackedIdentifiableIntegerMapping(int domainSize) {
+        super(domainSize);
+        changes = new ChangeLog(domainSize);
+    }
+
+    /**
+     * Creates a new tracked mapping containing the values of another mapping. No changes are recorded initially.
+     *
+     * @param mapping the mapping whose values are copied
+     */
+    public TrackedIdentifiableIntegerMapping(IdentifiableIntegerMapping<D> mapping) {
+        super(mapping);
+        changes = new ChangeLog(this.mapping.length);
+    }
+
+    private TrackedIdentifiableIntegerMapping(TrackedIdentifiableIntegerMapping<D> mapping) {
+        super(mapping);
+        changes = new ChangeLog(mapping.changes);
+    }
+
+    @Override
+    public void set(D identifiableObject, int value) {
+        super.set(identifiableObject, value);
+        changes.mark(identifiableObject.id());
+    }
+
+    @Override
+    public void increase(D identifiableObject, int amount) {
+        super.increase(identifiableObject, amount);
+        changes.mark(identifiableObject.id());
+    }
+
+    @Override
+    public void add(D identifiableObject, int value) {
+        super.add(identifiableObject, value);
+        changes.mark(identifiableObject.id());
+    }
+
+    @Override
+    public void decrease(D identifiableObject, int amount) {
+        super.decrease(identifiableObject, amount);
+        changes.mark(identifiableObject.id());
+    }
+
+    @Override
+    public void initializeWith(int value) {
+        super.initializeWith(value);
+        changes.markAll();
+    }
+
+    @Override
+    public void setDomainSize(int value) {
+        super.setDomainSize(value);
+        changes.setDomainSize(value);
+    }
+
+    /**
+     * Returns a checkpoint for the current state of the mapping. Runtime O(1).
+     *
+     * @return the checkpoint, valid until the next call of {@link #resetDirty()}
+     */
+    public int checkpoint() {
+        return changes.checkpoint();
+    }
+
+    /**
+     * Returns an iterator over the IDs of the objects that have been changed since a checkpoint. Each ID is returned
+     * once. The mapping must not be changed during the iteration. Runtime O(number of changes).
+     *
+     * @param checkpoint a checkpoint returned by {@link #checkpoint()}, or {@code 0} for all changes since the last
+     * call of {@link #resetDirty()}
+     * @return an iterator over the changed IDs
+     * @exception IllegalArgumentException if the checkpoint is invalid
+     */
+    public PrimitiveIterator.OfInt changedSince(int checkpoint) {
+        return changes.changedSince(checkpoint);
+    }
+
+    /**
+     * Forgets all recorded changes. All checkpoints become invalid. Runtime O(number of recorded changes).
+     */
+    public void resetDirty() {
+        changes.reset();
+    }
+
+    /**
+     * Encodes the size of the domain and the values of the objects changed since a checkpoint. IDs are stored as
+     * differences and values in zig-zag encoding, both with a variable number of bytes, so that a delta of small
+     * changes needs a few bytes per change. Runtime O(k log k) for {@code k} changes.
+     *
+     * @param checkpoint a checkpoint returned by {@link #checkpoint()}, or {@code 0} for all changes since the last
+     * call of {@link #resetDirty()}
+     * @return the encoded delta
+     * @exception IllegalArgumentException if the checkpoint is invalid
+     */
+    public byte[] exportDelta(int checkpoint) {
+        int[] ids = changes.sortedChangedSince(checkpoint);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 + 3 * ids.length);
+        ChangeLog.writeVarInt(out, mapping.length);
+        ChangeLog.writeVarInt(out, ids.length);
+        int previous = 0;
+        for (int id : ids) {
+            ChangeLog.writeVarInt(out, id - previous);
+            ChangeLog.writeVarInt(out, (mapping[id] << 1) ^ (mapping[id] >> 31));
+            previous = id;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Applies a delta created by {@link #exportDelta(int)} of another tracked mapping. The domain size is set to the
+     * domain size of the other mapping and the values contained in the delta are set. The applied values are recorded
+     * as changes of this mapping. Runtime O(number of values in the delta), plus O(size of the domain) if it changes.
+     *
+     * @param delta the encoded delta
+     * @exception IllegalArgumentException if the delta is malformed. The whole delta is decoded before this mapping is
+     * changed, so the mapping is not changed in this case.
+     */
+    public void applyDelta(byte[] delta) {
+        ChangeLog.Reader in = new ChangeLog.Reader(delta);
+        int domainSize = in.readVarInt();
+        int count = in.readVarInt();
+        if (domainSize < 0 || count < 0) {
+            throw new IllegalArgumentException("Malformed delta: negative size");
+        }
+        if (count > in.remaining() / 2) {
+            throw new IllegalArgumentException("Malformed delta: unexpected end of data");
+        }
+        int[] ids = new int[count];
+        int[] values = new int[count];
+        int id = 0;
+        for (int i = 0; i < count; ++i) {
+            id += in.readVarInt();
+            int encoded = in.readVarInt();
+            if (id < 0 || id >= domainSize) {
+                throw new IllegalArgumentException("Malformed delta: ID " + id + " outside the domain");
+            }
+            values[i] = (encoded >>> 1) ^ -(encoded & 1);
+            ids[i] = id;
+        }
+        if (in.hasRemaining()) {
+            throw new IllegalArgumentException("Malformed delta: trailing data");
+        }
+        if (domainSize != mapping.length) {
+            setDomainSize(domainSize);
+        }
+        for (int i = 0; i < count; ++i) {
+            mapping[ids[i]] = values[i];
+            changes.mark(ids[i]);
+        }
+    }
+
+    /**
+     * Creates a copy of this mapping including the recorded changes. Runtime O(number of values).
+     *
+     * @return a copy of this mapping.
+     */
+    @Override
+    public TrackedIdentifiableIntegerMapping<D> clone() {
+        return new TrackedIdentifiableIntegerMapping<>(this);
+    }
+
+    @Override
+    void storeValueAt(int id, int value) {
+        mapping[id] = value;
+        changes.mark(id);
+    }
+
+    @Override
+    int[] writableDenseValues() {
+        changes.markAll();
+        return mapping;
+    }
+}
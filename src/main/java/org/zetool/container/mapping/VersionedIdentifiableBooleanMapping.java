@@ -0,0 +1,144 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+/**
+ * An {@link IdentifiableBooleanMapping} that can be reset in O(1), e.g. visited flags of repeated searches in a large
+ * graph. Each value carries the epoch in which it was written. {@link #initializeWith(boolean)} just starts a new
+ * epoch and stores the new default value, values of previous epochs are read as the default value.
+ * <p>
+ * Operations that inspect the whole domain, such as {@link #equals(Object)} and {@link #toString()}, first write the
+ * default value into all stale slots. They remain O(size of the domain).</p>
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to booleans.
+ * {@code D} must implement {@link Identifiable}.
+ * @see VersionedIdentifiableIntegerMapping
+ */
+public class VersionedIdentifiableBooleanMapping<D extends Identifiable> extends IdentifiableBooleanMapping<D> {
+
+    /** The epochs in which the values were written. */
+    private final EpochStamps stamps;
+    /** The value of all objects that have not been written in the current epoch. */
+    private boolean defaultValue;
+
+    /**
+     * Creates a new versioned mapping with a domain of the given size, mapping all objects to {@code false}.
+     *
+     * @param domainSize the initial size of the domain.
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public VersionedIdentifiableBooleanMapping(int domainSize) {
+        super(domainSize);
+        stamps = new EpochStamps(domainSize);
+    }
+
+    /**
+     * Creates a new versioned mapping large enough for the given domain, mapping all objects to {@code false}.
+     *
+     * @param domain the objects of the domain
+     */
+    public VersionedIdentifiableBooleanMapping(Iterable<D> domain) {
+        super(domain);
+        stamps = new EpochStamps(mapping.length);
+    }
+
+    /**
+     * Creates a copy of a versioned mapping.
+     *
+     * @param mapping the copied mapping
+     */
+    public VersionedIdentifiableBooleanMapping(VersionedIdentifiableBooleanMapping<D> mapping) {
+        super(mapping.mapping.clone());
+        stamps = new EpochStamps(mapping.stamps);
+        defaultValue = mapping.defaultValue;
+    }
+
+    @Override
+    public boolean get(D identifiableObject) {
+        int id = identifiableObject.id();
+        return stamps.isCurrent(id) ? mapping[id] : defaultValue;
+    }
+
+    @Override
+    public void set(D identifiableObject, boolean value) {
+        super.set(identifiableObject, value);
+        stamps.stamp(identifiableObject.id());
+    }
+
+    @Override
+    public void toggle(D identifiableObject) {
+        set(identifiableObject, identifiableObject.id() >= mapping.length ? !defaultValue : !get(identifiableObject));
+    }
+
+    @Override
+    public void add(D identifiableObject, boolean value) {
+        super.add(identifiableObject, value);
+        stamps.stamp(identifiableObject.id());
+    }
+
+    /**
+     * Maps all objects to {@code value} by starting a new epoch. Runtime O(1), except for every
+     * {@code Integer.MAX_VALUE}-th call which resets all epochs in O(size of the domain).
+     *
+     * @param value the new value of all objects
+     */
+    @Override
+    public void initializeWith(boolean value) {
+        stamps.advance();
+        defaultValue = value;
+    }
+
+    @Override
+    public void setDomainSize(int value) {
+        super.setDomainSize(value);
+        stamps.setDomainSize(value);
+    }
+
+    @Override
+    public VersionedIdentifiableBooleanMapping<D> clone() {
+        return new VersionedIdentifiableBooleanMapping<>(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof VersionedIdentifiableBooleanMapping) {
+            ((VersionedIdentifiableBooleanMapping<?>) o).refreshAll();
+        }
+        refreshAll();
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        refreshAll();
+        return super.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        refreshAll();
+        return super.toString();
+    }
+
+    private void refreshAll() {
+        for (int id = 0; id < mapping.length; ++id) {
+            if (!stamps.isCurrent(id)) {
+                mapping[id] = defaultValue;
+                stamps.stamp(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+/**
+ * An {@link IdentifiableDoubleMapping} that can be reset to a default value in O(1). Each value carries the epoch in
+ * which it was written. {@link #initializeWith(double)} just starts a new epoch and stores the new default value,
+ * values of previous epochs are read as the default value.
+ * <p>
+ * Operations that inspect the whole domain, such as {@link #equals(Object)}, {@link #hashCode()} and
+ * {@link #round()}, first write the default value into all stale slots. They remain O(size of the domain).</p>
+ *
+ * @param <D> the type of this mapping's domain, i.e. the type of the objects that are to be mapped to doubles.
+ * {@code D} must implement {@link Identifiable}.
+ * @see VersionedIdentifiableIntegerMapping
+ */
+public class VersionedIdentifiableDoubleMapping<D extends Identifiable> extends IdentifiableDoubleMapping<D> {
+
+    /** The epochs in which the values were written. */
+    private final EpochStamps stamps;
+    /** The value of all objects that have not been written in the current epoch. */
+    private double defaultValue;
+
+    /**
+     * Creates a new versioned mapping with a domain of the given size, mapping all objects to {@code 0}.
+     *
+     * @param domainSize the initial size of the domain.
+     * @exception NegativeArraySizeException if {@code domainSize} is negative.
+     */
+    public VersionedIdentifiableDoubleMapping(int domainSize) {
+        super(domainSize);
+        stamps = new EpochStamps(domainSize);
+    }
+
+    /**
+     * Creates a new versioned mapping large enough for the given domain, mapping all objects to {@code 0}.
+     *
+     * @param domain the objects of the domain
+     */
+    public VersionedIdentifiableDoubleMapping(Iterable<D> domain) {
+        super(domain);
+        stamps = new EpochStamps(mapping.length);
+    }
+
+    /**
+     * Creates a copy of a versioned mapping.
+     *
+     * @param mapping the copied mapping
+     */
+    public VersionedIdentifiableDoubleMapping(VersionedIdentifiableDoubleMapping<D> mapping) {
+        super(mapping.mapping.clone());
+        stamps = new EpochStamps(mapping.stamps);
+        defaultValue = mapping.defaultValue;
+    }
+
+    @Override
+    public double getDouble(D identifiableObject) {
+        int id = identifiableObject.id();
+        return stamps.isCurrent(id) ? mapping[id] : defaultValue;
+    }
+
+    @Override
+    public void set(D identifiableObject, double value) {
+        super.set(identifiableObject, value);
+        stamps.stamp(identifiableObject.id());
+    }
+
+    @Override
+    public void increase(D identifiableObject, double amount) {
+        refresh(identifiableObject.id());
+        super.increase(identifiableObject, amount);
+    }
+
+    @Override
+    public void divide(D identifiableObject, double amount) {
+        refresh(identifiableObject.id());
+        super.divide(identifiableObject, amount);
+    }
+
+    @Override
+    public void add(D identifiableObject, double value) {
+        super.add(identifiableObject, value);
+        stamps.stamp(identifiableObject.id());
+    }
+
+    @Override
+    public void decrease(D identifiableObject, double amount) {
+        refresh(identifiableObject.id());
+        super.decrease(identifiableObject, amount);
+    }
+
+    @Override
+    public void initializeWith(int value) {
+        initializeWith((double) value);
+    }
+
+    /**
+     * Maps all objects to {@code value} by starting a new epoch. Runtime O(1), except for every
+     * {@code Integer.MAX_VALUE}-th call which resets all epochs in O(size of the domain).
+     *
+     * @param value the new value of all objects
+     */
+    public void initializeWith(double value) {
+        stamps.advance();
+        defaultValue = value;
+    }
+
+    @Override
+    public void setDomainSize(int value) {
+        super.setDomainSize(value);
+        stamps.setDomainSize(value);
+    }
+
+    @Override
+    public IdentifiableIntegerMapping<D> round() {
+        refreshAll();
+        return super.round();
+    }
+
+    @Override
+    public VersionedIdentifiableDoubleMapping<D> clone() {
+        return new VersionedIdentifiableDoubleMapping<>(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        refreshAll();
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        refreshAll();
+        return super.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        refreshAll();
+        return super.toString();
+    }
+
+    @Override
+    double valueAt(int id) {
+        double value = mapping[id];
+        return stamps.isCurrent(id) ? value : defaultValue;
+    }
+
+    @Override
+    void storeValueAt(int id, double value) {
+        mapping[id] = value;
+        stamps.stamp(id);
+    }
+
+    @Override
+    double[] denseValues() {
+        refreshAll();
+        return mapping;
+    }
+
+    @Override
+    double[] writableDenseValues() {
+        refreshAll();
+        return mapping;
+    }
+
+    /**
+     * Writes the default value into the slot of an ID if its value is stale. IDs outside of the domain are ignored.
+     *
+     * @param id the ID
+     */
+    private void refresh(int id) {
+        if (0 <= id && id < mapping.length && !stamps.isCurrent(id)) {
+            mapping[id] = defaultValue;
+            stamps.stamp(id);
+        }
+    }
+
+    private void refreshAll() {
+        for (int id = 0; id < mapping.length; ++id) {
+            refresh(id);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.util;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size pages of an array based datastructure that can be shared between copies. A copy created by
+ * {@link #share()} references the same pages as the original. A page is copied when it is written the first time by
+ * either of them, so that copying a structure and modifying a few positions costs O(number of pages + modified pages)
+ * instead of O(size). Pages that have never been written are {@code null} and represent default values.
+ * <p>
+ * The class only manages the pages, the datastructure using it is responsible for reading and writing positions
+ * within the pages. A page must not be modified unless it has been obtained by {@link #getWritable(int)}.</p>
+ *
+ * @param <A> the array type of the pages, e.g. {@code int[]}
+ */
+public final class CopyOnWritePages<A> {
+
+    /** The number of bits of an index that address a position within a page. */
+    public static final int PAGE_BITS = 10;
+    /** The number of positions per page. */
+    public static final int PAGE_SIZE = 1 << PAGE_BITS;
+    /** Masks the position of an index within its page. */
+    public static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /**
+     * Creates, copies and clears pages of a specific array type.
+     *
+     * @param <A> the array type of the pages
+     */
+    public interface PageType<A> {
+
+        /**
+         * Creates a new page of size {@link #PAGE_SIZE} containing default values.
+         *
+         * @return a new page
+         */
+        A create();
+
+        /**
+         * Creates a copy of a page.
+         *
+         * @param page the page
+         * @return a copy of the page
+         */
+        A copy(A page);
+
+        /**
+         * Resets positions of a page to the default value.
+         *
+         * @param page the page
+         * @param from the first position that is reset
+         * @param to the position after the last position that is reset
+         */
+        void clear(A page, int from, int to);
+    }
+
+    /** The type of the pages. */
+    private final PageType<A> type;
+    /** The pages, {@code null} for pages that have not been written. */
+    private Object[] pages;
+    /** Whether a page is exclusively owned, i.e. not shared with a copy. */
+    private boolean[] owned;
+    /** The number of positions. */
+    private int size;
+
+    /**
+     * Creates pages for the given number of positions, all containing default values.
+     *
+     * @param type the type of the pages
+     * @param size the number of positions
+     * @exception NegativeArraySizeException if {@code size} is negative
+     */
+    public CopyOnWritePages(PageType<A> type, int size) {
+        if (size < 0) {
+            throw new NegativeArraySizeException(Integer.toString(size));
+        }
+        this.type = type;
+        this.pages = new Object[pageCount(size)];
+        this.owned = new boolean[pages.length];
+        this.size = size;
+    }
+
+    private CopyOnWritePages(CopyOnWritePages<A> other) {
+        this.type = other.type;
+        this.pages = other.pages.clone();
+        this.owned = new boolean[pages.length];
+        this.size = other.size;
+    }
+
+    /**
+     * Returns the number of positions.
+     *
+     * @return the number of positions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of pages.
+     *
+     * @return the number of pages
+     */
+    public int getPageCount() {
+        return pages.length;
+    }
+
+    /**
+     * Returns the number of pages that are allocated and not shared with a copy.
+     *
+     * @return the number of exclusively owned pages
+     */
+    public int getOwnedPageCount() {
+        int count = 0;
+        for (int p = 0; p < pages.length; ++p) {
+            if (owned[p] && pages[p] != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns a page for reading. The page must not be modified.
+     *
+     * @param page the index of the page
+     * @return the page or {@code null} if it has never been written
+     */
+    @SuppressWarnings("unchecked")
+    public A get(int page) {
+        return (A) pages[page];
+    }
+
+    /**
+     * Returns a page for writing. The page is created if it has never been written and copied if it is shared.
+     *
+     * @param page the index of the page
+     * @return the page, exclusively owned by this instance
+     */
+    @SuppressWarnings("unchecked")
+    public A getWritable(int page) {
+        if (pages[page] == null) {
+            pages[page] = type.create();
+            owned[page] = true;
+        } else if (!owned[page]) {
+            pages[page] = type.copy((A) pages[page]);
+            owned[page] = true;
+        }
+        return (A) pages[page];
+    }
+
+    /**
+     * Creates a copy sharing all pages with this instance. Both instances copy a page before writing it the next time.
+     * Runtime O(number of pages).
+     *
+     * @return a copy sharing the pages
+     */
+    public CopyOnWritePages<A> share() {
+        Arrays.fill(owned, false);
+        return new CopyOnWritePages<>(this);
+    }
+
+    /**
+     * Resets all positions to the default value by dropping all pages. Runtime O(number of pages).
+     */
+    public void clear() {
+        Arrays.fill(pages, null);
+        Arrays.fill(owned, false);
+    }
+
+    /**
+     * Changes the number of positions. Positions that are cut off are reset to the default value, so that they
+     * contain default values if the size is increased again. Runtime O(number of pages + page size).
+     *
+     * @param newSize the new number of positions
+     * @exception NegativeArraySizeException if {@code newSize} is negative
+     */
+    public void setSize(int newSize) {
+        if (newSize < 0) {
+            throw new NegativeArraySizeException(Integer.toString(newSize));
+        }
+        int count = pageCount(newSize);
+        pages = Arrays.copyOf(pages, count);
+        owned = Arrays.copyOf(owned, count);
+        int used = newSize & PAGE_MASK;
+        if (newSize < size && used != 0 && pages[count - 1] != null) {
+            type.clear(getWritable(count - 1), used, PAGE_SIZE);
+        }
+        size = newSize;
+    }
+
+    private static int pageCount(int size) {
+        return (int) ((size + (long) PAGE_MASK) >>> PAGE_BITS);
+    }
+}
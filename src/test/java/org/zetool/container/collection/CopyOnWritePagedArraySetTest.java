@@ -0,0 +1,80 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.collection;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+import org.zetool.container.mapping.Identifiable;
+
+/**
+ * Tests the copy-on-write paged array set.
+ */
+public class CopyOnWritePagedArraySetTest {
+
+    private static Identifiable[] elements(int count) {
+        Identifiable[] elements = new Identifiable[count];
+        for (int i = 0; i < count; ++i) {
+            int id = i;
+            elements[i] = () -> id;
+        }
+        return elements;
+    }
+
+    @Test
+    public void clone_shouldIsolateChanges() {
+        Identifiable[] e = elements(3000);
+        CopyOnWritePagedArraySet<Identifiable> fixture = new CopyOnWritePagedArraySet<>(3000);
+        for (int i = 0; i < 3000; i += 3) {
+            fixture.add(e[i]);
+        }
+        CopyOnWritePagedArraySet<Identifiable> clone = fixture.clone();
+        assertThat(clone.getOwnedPageCount(), is(0));
+        assertThat(clone, is(fixture));
+
+        clone.remove(e[2400]);
+        clone.add(e[2401]);
+        assertThat(clone.getOwnedPageCount(), is(1));
+        assertThat(fixture.getOwnedPageCount(), is(0));
+        assertThat(clone.contains(e[2400]), is(false));
+        assertThat(fixture.get(2400), is(sameInstance(e[2400])));
+        assertThat(fixture.get(2401), is(nullValue()));
+        assertThat(clone.size(), is(fixture.size()));
+
+        fixture.add(e[1]);
+        assertThat(clone.contains(e[1]), is(false));
+        assertThat(fixture.successor(e[0]), is(sameInstance(e[1])));
+        assertThat(clone.successor(e[0]), is(sameInstance(e[3])));
+    }
+
+    @Test
+    public void removeLast_shouldNotChangeClone() {
+        Identifiable[] e = elements(10);
+        CopyOnWritePagedArraySet<Identifiable> fixture = new CopyOnWritePagedArraySet<>(10);
+        fixture.add(e[4]);
+        fixture.add(e[7]);
+        CopyOnWritePagedArraySet<Identifiable> clone = fixture.clone();
+        assertThat(clone.removeLast(), is(sameInstance(e[7])));
+        assertThat(clone.last(), is(sameInstance(e[4])));
+        assertThat(fixture.last(), is(sameInstance(e[7])));
+        assertThat(fixture.add(e[9]), is(true));
+        assertThat(clone.size(), is(1));
+        assertThat(fixture.size(), is(3));
+    }
+}
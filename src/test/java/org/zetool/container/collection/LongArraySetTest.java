@@ -0,0 +1,104 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.collection;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+import org.zetool.container.mapping.LongIdentifiable;
+
+/**
+ * Tests the paged array set for {@code long} IDs.
+ */
+public class LongArraySetTest {
+
+    private static final long LARGE_ID = 3_000_000_000L;
+
+    private final LongIdentifiable lastOfPage = () -> 65_535;
+    private final LongIdentifiable firstOfPage = () -> 65_536;
+    private final LongIdentifiable large = () -> LARGE_ID;
+
+    @Test
+    public void neighbours_shouldCrossPageBoundaries() {
+        LongArraySet<LongIdentifiable> fixture = new LongArraySet<>(LARGE_ID + 1);
+        assertThat(fixture.add(large), is(true));
+        assertThat(fixture.add(firstOfPage), is(true));
+        assertThat(fixture.add(lastOfPage), is(true));
+        assertThat(fixture.add(() -> LARGE_ID + 1), is(false));
+        assertThat(fixture.add(() -> -1), is(false));
+
+        assertThat(fixture.size(), is(3L));
+        assertThat(fixture.first(), is(sameInstance(lastOfPage)));
+        assertThat(fixture.last(), is(sameInstance(large)));
+        assertThat(fixture.successor(lastOfPage), is(sameInstance(firstOfPage)));
+        assertThat(fixture.successor(firstOfPage), is(sameInstance(large)));
+        assertThat(fixture.predecessor(large), is(sameInstance(firstOfPage)));
+        assertThat(fixture.predecessor(lastOfPage), is(nullValue()));
+        assertThat(fixture.get(65_536), is(sameInstance(firstOfPage)));
+        assertThat(fixture.get(65_537), is(nullValue()));
+        assertThat(fixture.toString(), is("[65535 65536 " + LARGE_ID + "]"));
+    }
+
+    @Test
+    public void remove_shouldReleaseElements() {
+        LongArraySet<LongIdentifiable> fixture = new LongArraySet<>(LARGE_ID + 1);
+        fixture.add(lastOfPage);
+        fixture.add(firstOfPage);
+        fixture.add(large);
+        assertThat(fixture.removeLast(), is(sameInstance(large)));
+        assertThat(fixture.remove(firstOfPage), is(true));
+        assertThat(fixture.contains(firstOfPage), is(false));
+        assertThat(fixture.successor(lastOfPage), is(nullValue()));
+        assertThat(fixture.remove(() -> LARGE_ID + 1), is(false));
+        assertThat(fixture.size(), is(1L));
+
+        fixture.clear();
+        assertThat(fixture.isEmpty(), is(true));
+        assertThat(fixture.removeLast(), is(nullValue()));
+    }
+
+    @Test
+    public void setCapacity_shouldCutOffElements() {
+        LongArraySet<LongIdentifiable> fixture = new LongArraySet<>(200_000);
+        fixture.add(lastOfPage);
+        fixture.add(firstOfPage);
+        fixture.add(() -> 150_000);
+        fixture.setCapacity(65_536);
+        assertThat(fixture.size(), is(1L));
+        assertThat(fixture.last(), is(sameInstance(lastOfPage)));
+        assertThat(fixture.add(firstOfPage), is(false));
+        fixture.setCapacity(200_000);
+        assertThat(fixture.add(firstOfPage), is(true));
+        assertThat(fixture.size(), is(2L));
+    }
+
+    @Test
+    public void clone_shouldIsolateChanges() {
+        LongArraySet<LongIdentifiable> fixture = new LongArraySet<>(LARGE_ID + 1);
+        fixture.add(lastOfPage);
+        LongArraySet<LongIdentifiable> clone = fixture.clone();
+        assertThat(clone.equals(fixture), is(true));
+        clone.add(large);
+        fixture.remove(lastOfPage);
+        assertThat(fixture.isEmpty(), is(true));
+        assertThat(clone.contains(lastOfPage), is(true));
+        assertThat(clone.contains(large), is(true));
+        assertThat(clone.equals(fixture), is(false));
+    }
+}
@@ -0,0 +1,96 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.collection;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.zetool.container.mapping.Identifiable;
+
+/**
+ * Tests the combination of many collections with consecutive IDs.
+ */
+public class MultiCombinedCollectionTest {
+
+    private final Identifiable[] elements = new Identifiable[30];
+    private final List<SlidingArraySet<Identifiable>> segments = new ArrayList<>();
+
+    public MultiCombinedCollectionTest() {
+        for (int i = 0; i < elements.length; ++i) {
+            int id = i;
+            elements[i] = () -> id;
+        }
+        int[] sizes = {5, 0, 10, 1, 14};
+        int start = 0;
+        for (int size : sizes) {
+            SlidingArraySet<Identifiable> segment = new SlidingArraySet<>(size, start);
+            for (int id = start; id < start + size; ++id) {
+                segment.add(elements[id]);
+            }
+            segments.add(segment);
+            start += size;
+        }
+    }
+
+    @Test
+    public void get_shouldRouteToSegment() {
+        MultiCombinedCollection<Identifiable> fixture = new MultiCombinedCollection<>(segments);
+        assertThat(fixture.size(), is(30));
+        for (int id = 0; id < elements.length; ++id) {
+            assertThat(fixture.get(id), is(sameInstance(elements[id])));
+            assertThat(fixture.contains(elements[id]), is(true));
+        }
+        int expected = 0;
+        for (Identifiable element : fixture) {
+            assertThat(element, is(sameInstance(elements[expected++])));
+        }
+        assertThat(expected, is(30));
+    }
+
+    @Test
+    public void neighbours_shouldSkipEmptySegments() {
+        MultiCombinedCollection<Identifiable> fixture = new MultiCombinedCollection<>(segments);
+        fixture.remove(elements[15]);
+        fixture.remove(elements[14]);
+        assertThat(fixture.size(), is(28));
+        assertThat(fixture.successor(elements[13]), is(sameInstance(elements[16])));
+        assertThat(fixture.predecessor(elements[16]), is(sameInstance(elements[13])));
+        assertThat(fixture.successor(elements[4]), is(sameInstance(elements[5])));
+        assertThat(fixture.predecessor(elements[0]), is(nullValue()));
+        assertThat(fixture.removeLast(), is(sameInstance(elements[29])));
+        assertThat(fixture.last(), is(sameInstance(elements[28])));
+        assertThat(fixture.size(), is(27));
+    }
+
+    @Test
+    public void isEmpty_shouldReflectContent() {
+        SlidingArraySet<Identifiable> one = new SlidingArraySet<>(1, 0);
+        SlidingArraySet<Identifiable> two = new SlidingArraySet<>(1, 1);
+        MultiCombinedCollection<Identifiable> fixture
+                = new MultiCombinedCollection<>(Arrays.asList(one, two), new int[]{0, 1});
+        assertThat(fixture.isEmpty(), is(true));
+        assertThat(new CombinedCollection<>(one, two).isEmpty(), is(true));
+        fixture.add(elements[0]);
+        assertThat(fixture.isEmpty(), is(false));
+        assertThat(fixture.first(), is(sameInstance(elements[0])));
+    }
+}
@@ -0,0 +1,82 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.collection;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+import org.zetool.container.mapping.Identifiable;
+
+/**
+ * Tests the sliding window array set.
+ */
+public class SlidingArraySetTest {
+
+    private static Identifiable[] elements(int count) {
+        Identifiable[] elements = new Identifiable[count];
+        for (int i = 0; i < count; ++i) {
+            int id = i;
+            elements[i] = () -> id;
+        }
+        return elements;
+    }
+
+    @Test
+    public void advance_shouldDropOldestIds() {
+        Identifiable[] e = elements(20);
+        SlidingArraySet<Identifiable> fixture = new SlidingArraySet<>(5, 2);
+        assertThat(fixture.add(e[1]), is(false));
+        for (int i = 2; i < 7; ++i) {
+            assertThat(fixture.add(e[i]), is(true));
+        }
+        assertThat(fixture.add(e[7]), is(false));
+
+        fixture.advance(3);
+        assertThat(fixture.size(), is(2));
+        assertThat(fixture.getOffset(), is(5));
+        assertThat(fixture.contains(e[4]), is(false));
+        assertThat(fixture.get(5), is(sameInstance(e[5])));
+        assertThat(fixture.add(e[7]), is(true));
+        assertThat(fixture.add(e[9]), is(true));
+        assertThat(fixture.add(e[10]), is(false));
+        assertThat(fixture.toString(), is("[5 6 7 9]"));
+
+        fixture.advance(12);
+        assertThat(fixture.isEmpty(), is(true));
+        assertThat(fixture.add(e[17]), is(true));
+        assertThat(fixture.first(), is(sameInstance(e[17])));
+    }
+
+    @Test
+    public void neighbours_shouldFollowIdOrderAcrossWrap() {
+        Identifiable[] e = elements(20);
+        SlidingArraySet<Identifiable> fixture = new SlidingArraySet<>(6, 0);
+        fixture.advance(4);
+        fixture.add(e[5]);
+        fixture.add(e[7]);
+        fixture.add(e[9]);
+        assertThat(fixture.first(), is(sameInstance(e[5])));
+        assertThat(fixture.last(), is(sameInstance(e[9])));
+        assertThat(fixture.successor(e[7]), is(sameInstance(e[9])));
+        assertThat(fixture.predecessor(e[7]), is(sameInstance(e[5])));
+        assertThat(fixture.predecessor(e[5]), is(nullValue()));
+        assertThat(fixture.removeLast(), is(sameInstance(e[9])));
+        assertThat(fixture.size(), is(2));
+    }
+}
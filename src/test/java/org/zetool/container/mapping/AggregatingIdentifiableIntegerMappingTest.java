@@ -0,0 +1,85 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests the incrementally maintained aggregates of integer mappings.
+ */
+public class AggregatingIdentifiableIntegerMappingTest {
+
+    @Test
+    public void testAggregates() {
+        AggregatingIdentifiableIntegerMapping<Identifiable> mapping = new AggregatingIdentifiableIntegerMapping<>(5);
+        assertEquals(0, mapping.getNonZeroCount());
+        assertEquals(0, mapping.maximum());
+        mapping.set(() -> 3, 7);
+        mapping.decrease(() -> 1, 2);
+        assertEquals(5, mapping.getSum());
+        assertEquals(2, mapping.getNonZeroCount());
+        assertEquals(-2, mapping.minimum());
+        assertEquals(1, mapping.getMinimumId());
+        assertEquals(7, mapping.maximum());
+        assertEquals(3, mapping.getMaximumId());
+
+        mapping.set(() -> 3, 0);
+        assertEquals(0, mapping.maximum());
+        assertEquals(0, mapping.getMaximumId());
+        mapping.set(() -> 9, Integer.MAX_VALUE);
+        mapping.set(() -> 8, Integer.MAX_VALUE);
+        assertEquals(2L * Integer.MAX_VALUE - 2, mapping.getSum());
+        assertEquals(8, mapping.getMaximumId());
+
+        mapping.clamp(0, 1);
+        assertEquals(2, mapping.getSum());
+        assertEquals(0, mapping.minimum());
+    }
+
+    @Test
+    public void testRandomUpdates() {
+        Random random = new Random(37);
+        AggregatingIdentifiableIntegerMapping<Identifiable> mapping = new AggregatingIdentifiableIntegerMapping<>(77);
+        for (int i = 0; i < 2000; ++i) {
+            mapping.increase(() -> random.nextInt(77), random.nextInt(21) - 10);
+            IdentifiableIntegerMapping<Identifiable> reference = new IdentifiableIntegerMapping<>(mapping);
+            long sum = 0;
+            int nonZero = 0;
+            int minimum = Integer.MAX_VALUE;
+            for (int value : reference.denseValues()) {
+                sum += value;
+                nonZero += value != 0 ? 1 : 0;
+                minimum = Math.min(minimum, value);
+            }
+            assertEquals(sum, mapping.getSum());
+            assertEquals(nonZero, mapping.getNonZeroCount());
+            assertEquals(minimum, mapping.minimum());
+            assertEquals(reference.maximum(), mapping.maximum());
+        }
+    }
+
+    @Test
+    public void testScatterUpdatesAggregates() {
+        AggregatingIdentifiableIntegerMapping<Identifiable> mapping = new AggregatingIdentifiableIntegerMapping<>(5);
+        mapping.scatter(new int[]{1, 4}, new int[]{3, -2});
+        assertEquals(1, mapping.getSum());
+        assertEquals(2, mapping.getNonZeroCount());
+        assertEquals(-2, mapping.minimum());
+        assertEquals(4, mapping.getMinimumId());
+    }
+}
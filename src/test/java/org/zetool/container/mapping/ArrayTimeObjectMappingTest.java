@@ -0,0 +1,71 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests the array based mapping from times to objects.
+ */
+public class ArrayTimeObjectMappingTest {
+
+    @Test
+    public void testLookup() {
+        ArrayTimeObjectMapping<String> mapping = new ArrayTimeObjectMapping<>(1);
+        assertEquals(Integer.MIN_VALUE, mapping.getLastTime());
+        mapping.set(0, "a");
+        mapping.set(10, "b");
+        mapping.set(20, "c");
+        mapping.set(5, "d");
+        mapping.set(10, "e");
+        assertEquals(4, mapping.size());
+        assertEquals(20, mapping.getLastTime());
+        assertEquals("e", mapping.get(10));
+        assertNull(mapping.get(7));
+        assertEquals("d", mapping.getFloor(7));
+        assertEquals(5, mapping.getFloorTime(9));
+        assertNull(mapping.getFloor(-1));
+        assertEquals("c", mapping.getFloor(Integer.MAX_VALUE));
+        assertEquals("[0 = a, 5 = d, 10 = e, 20 = c]", mapping.toString());
+    }
+
+    @Test
+    public void testBetween() {
+        ArrayTimeObjectMapping<String> mapping = new ArrayTimeObjectMapping<>();
+        for (int time = 0; time < 100; time += 3) {
+            mapping.set(time, Integer.toString(time * time));
+        }
+        List<Integer> visited = new ArrayList<>();
+        mapping.between(10, 19, (value, time) -> {
+            assertEquals(Integer.toString(time * time), value);
+            visited.add(time);
+        });
+        assertEquals(Arrays.asList(12, 15, 18), visited);
+        visited.clear();
+        mapping.between(Integer.MIN_VALUE, 4, (value, time) -> visited.add(time));
+        assertEquals(Arrays.asList(0, 3), visited);
+        int count = 0;
+        for (TimeObjectPair<String> pair : mapping) {
+            assertEquals(3 * count++, pair.time());
+        }
+        assertEquals(mapping.size(), count);
+    }
+}
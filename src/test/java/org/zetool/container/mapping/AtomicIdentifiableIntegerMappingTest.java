@@ -0,0 +1,141 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+/**
+ * Tests the concurrent mappings.
+ */
+public class AtomicIdentifiableIntegerMappingTest {
+
+    private static final int UPDATES = 100_000;
+
+    @Test
+    public void testConcurrentIncrease() {
+        AtomicIdentifiableIntegerMapping<Identifiable> mapping = new AtomicIdentifiableIntegerMapping<>(2);
+        mapping.setContended(() -> 1);
+        IntStream.range(0, UPDATES).parallel().forEach(i -> {
+            mapping.increase(() -> 0, 1);
+            mapping.increase(() -> 1, 2);
+        });
+        assertEquals(UPDATES, mapping.get(() -> 0));
+        assertEquals(2 * UPDATES, mapping.get(() -> 1));
+        mapping.consolidate(() -> 1);
+        assertEquals(2 * UPDATES, mapping.toMapping().get(() -> 1));
+    }
+
+    @Test
+    public void testMinUpdate() {
+        AtomicIdentifiableIntegerMapping<Identifiable> mapping = new AtomicIdentifiableIntegerMapping<>(1);
+        mapping.set(() -> 0, Integer.MAX_VALUE);
+        IntStream.range(0, UPDATES).parallel().forEach(i -> mapping.minUpdate(() -> 0, UPDATES - i));
+        assertEquals(1, mapping.get(() -> 0));
+        assertFalse(mapping.minUpdate(() -> 0, 1));
+        assertTrue(mapping.compareAndSet(() -> 0, 1, 5));
+        assertEquals(5, mapping.getAndIncrease(() -> 0, 2));
+        assertEquals(21, mapping.accumulate(() -> 0, 3, (a, b) -> a * b));
+    }
+
+    @Test
+    public void testDoubleMapping() {
+        AtomicIdentifiableDoubleMapping<Identifiable> mapping = new AtomicIdentifiableDoubleMapping<>(1);
+        IntStream.range(0, UPDATES).parallel().forEach(i -> mapping.increase(() -> 0, 0.5));
+        assertEquals(UPDATES * 0.5, mapping.getDouble(() -> 0), 0);
+        assertTrue(mapping.minUpdate(() -> 0, -1));
+        assertEquals(-1, mapping.getAndIncrease(() -> 0, 0.25), 0);
+        assertEquals(-0.75, mapping.toMapping().getDouble(() -> 0), 0);
+    }
+
+    @Test
+    public void testContendedDoubleReadsDuringConsolidation() throws InterruptedException {
+        AtomicIdentifiableDoubleMapping<Identifiable> mapping = new AtomicIdentifiableDoubleMapping<>(1);
+        mapping.setContended(() -> 0);
+        AtomicBoolean decreased = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            double last = 0;
+            while (last < UPDATES) {
+                double current = mapping.getDouble(() -> 0);
+                if (current < last) {
+                    decreased.set(true);
+                }
+                last = current;
+            }
+        });
+        reader.start();
+        IntStream.range(0, UPDATES).parallel().forEach(i -> {
+            mapping.increase(() -> 0, 1);
+            if (i % 64 == 0) {
+                mapping.consolidate(() -> 0);
+            }
+        });
+        reader.join();
+        assertFalse(decreased.get());
+        mapping.consolidate(() -> 0);
+        assertEquals(UPDATES, mapping.getDouble(() -> 0), 0);
+    }
+
+    @Test
+    public void testContendedReadsDuringConsolidation() throws InterruptedException {
+        AtomicIdentifiableIntegerMapping<Identifiable> mapping = new AtomicIdentifiableIntegerMapping<>(1);
+        mapping.setContended(() -> 0);
+        AtomicBoolean decreased = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            int last = 0;
+            while (last < UPDATES) {
+                int current = mapping.get(() -> 0);
+                if (current < last) {
+                    decreased.set(true);
+                }
+                last = current;
+            }
+        });
+        reader.start();
+        IntStream.range(0, UPDATES).parallel().forEach(i -> {
+            mapping.increase(() -> 0, 1);
+            if (i % 64 == 0) {
+                mapping.consolidate(() -> 0);
+            }
+        });
+        reader.join();
+        assertFalse(decreased.get());
+        mapping.consolidate(() -> 0);
+        assertEquals(UPDATES, mapping.get(() -> 0));
+    }
+
+    @Test
+    public void testContendedOverflowKeepsIncreases() {
+        AtomicIdentifiableIntegerMapping<Identifiable> mapping = new AtomicIdentifiableIntegerMapping<>(1);
+        mapping.set(() -> 0, Integer.MAX_VALUE - 5);
+        mapping.setContended(() -> 0);
+        mapping.increase(() -> 0, 10);
+        try {
+            mapping.set(() -> 0, 0);
+            fail("Overflow not detected");
+        } catch (ArithmeticException expected) {
+        }
+        mapping.decrease(() -> 0, 10);
+        assertEquals(Integer.MAX_VALUE - 5, mapping.get(() -> 0));
+        mapping.consolidate(() -> 0);
+        assertEquals(Integer.MAX_VALUE - 5, mapping.toMapping().get(() -> 0));
+    }
+}
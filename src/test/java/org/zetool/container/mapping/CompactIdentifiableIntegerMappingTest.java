@@ -0,0 +1,88 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests the bit-packed integer mapping.
+ */
+public class CompactIdentifiableIntegerMappingTest {
+
+    @Test
+    public void testWidening() {
+        CompactIdentifiableIntegerMapping<Identifiable> mapping = new CompactIdentifiableIntegerMapping<>(100);
+        mapping.set(() -> 0, 1);
+        mapping.set(() -> 63, 1);
+        assertEquals(1, mapping.getBitsPerValue());
+        mapping.increase(() -> 64, 3);
+        assertEquals(2, mapping.getBitsPerValue());
+        mapping.set(() -> 99, 200);
+        assertEquals(8, mapping.getBitsPerValue());
+        mapping.set(() -> 50, 65535);
+        assertEquals(16, mapping.getBitsPerValue());
+
+        assertEquals(1, mapping.get(() -> 0));
+        assertEquals(1, mapping.get(() -> 63));
+        assertEquals(3, mapping.get(() -> 64));
+        assertEquals(200, mapping.get(() -> 99));
+        assertEquals(65535, mapping.maximum());
+        assertEquals(0, mapping.get(() -> 98));
+    }
+
+    @Test
+    public void testDenseFallback() {
+        CompactIdentifiableIntegerMapping<Identifiable> mapping = new CompactIdentifiableIntegerMapping<>(10, 3);
+        assertEquals(4, mapping.getBitsPerValue());
+        mapping.set(() -> 4, 9);
+        mapping.decrease(() -> 5, 1);
+        assertEquals(32, mapping.getBitsPerValue());
+        assertEquals(9, mapping.get(() -> 4));
+        assertEquals(-1, mapping.get(() -> 5));
+
+        mapping.initializeWith(5);
+        assertEquals(4, mapping.getBitsPerValue());
+        assertEquals(5, mapping.get(() -> 9));
+    }
+
+    @Test
+    public void testDomainAndEquals() {
+        CompactIdentifiableIntegerMapping<Identifiable> mapping = new CompactIdentifiableIntegerMapping<>(4);
+        mapping.set(() -> 70, 2);
+        assertEquals(71, mapping.getDomainSize());
+        mapping.setDomainSize(70);
+        mapping.setDomainSize(71);
+        assertEquals(0, mapping.get(() -> 70));
+
+        IdentifiableIntegerMapping<Identifiable> dense = new IdentifiableIntegerMapping<>(71);
+        dense.set(() -> 3, 3);
+        mapping.set(() -> 3, 3);
+        assertTrue(mapping.equals(dense));
+        assertTrue(dense.equals(mapping));
+        assertEquals(dense.hashCode(), mapping.hashCode());
+        assertEquals(mapping, new CompactIdentifiableIntegerMapping<>(dense));
+    }
+
+    @Test
+    public void testScatterKeepsPacking() {
+        CompactIdentifiableIntegerMapping<Identifiable> mapping = new CompactIdentifiableIntegerMapping<>(100);
+        mapping.scatter(new int[]{3, 70}, new int[]{1, 2});
+        assertEquals(2, mapping.getBitsPerValue());
+        assertEquals(2, mapping.gather(new int[]{70})[0]);
+    }
+}
@@ -0,0 +1,129 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import org.junit.Test;
+
+/**
+ * Tests the copy-on-write integer mapping.
+ */
+public class CopyOnWriteIdentifiableIntegerMappingTest {
+
+    @Test
+    public void testCloneSharesPages() {
+        CopyOnWriteIdentifiableIntegerMapping<Identifiable> mapping = new CopyOnWriteIdentifiableIntegerMapping<>(5000);
+        for (int i = 0; i < 5000; ++i) {
+            int id = i;
+            mapping.set(() -> id, i);
+        }
+        assertEquals(5, mapping.getOwnedPageCount());
+
+        CopyOnWriteIdentifiableIntegerMapping<Identifiable> clone = mapping.clone();
+        assertEquals(0, clone.getOwnedPageCount());
+        assertEquals(0, mapping.getOwnedPageCount());
+        assertEquals(mapping, clone);
+
+        clone.increase(() -> 3000, 1);
+        assertEquals(1, clone.getOwnedPageCount());
+        assertEquals(0, mapping.getOwnedPageCount());
+        assertEquals(3001, clone.get(() -> 3000));
+        assertEquals(3000, mapping.get(() -> 3000));
+        assertNotEquals(mapping, clone);
+
+        mapping.set(() -> 0, -1);
+        assertEquals(0, clone.get(() -> 0));
+        assertEquals(-1, mapping.get(() -> 0));
+    }
+
+    @Test
+    public void testDomainSize() {
+        CopyOnWriteIdentifiableIntegerMapping<Identifiable> mapping = new CopyOnWriteIdentifiableIntegerMapping<>(10);
+        mapping.set(() -> 9, 4);
+        mapping.setDomainSize(5);
+        mapping.set(() -> 2000, 7);
+        assertEquals(2001, mapping.getDomainSize());
+        assertEquals(0, mapping.get(() -> 9));
+        assertEquals(7, mapping.maximum());
+        assertEquals(new IdentifiableIntegerMapping<>(mapping), mapping);
+
+        mapping.initializeWith(0);
+        assertEquals(0, mapping.getOwnedPageCount());
+        assertEquals(0, mapping.get(() -> 2000));
+    }
+
+    @Test
+    public void testBulkOperationsCopyOnlyChangedPages() {
+        CopyOnWriteIdentifiableIntegerMapping<Identifiable> mapping = new CopyOnWriteIdentifiableIntegerMapping<>(3000);
+        for (int i = 0; i < 3000; ++i) {
+            int id = i;
+            mapping.set(() -> id, i % 10);
+        }
+        CopyOnWriteIdentifiableIntegerMapping<Identifiable> clone = mapping.clone();
+        clone.clamp(0, 5);
+        assertEquals(3, clone.getOwnedPageCount());
+        assertEquals(5, clone.get(() -> 2999));
+        assertEquals(9, mapping.get(() -> 2999));
+
+        clone = mapping.clone();
+        clone.scatter(new int[]{2500, 2600}, new int[]{-1, -2});
+        assertEquals(1, clone.getOwnedPageCount());
+        assertEquals(-2, clone.get(() -> 2600));
+        assertEquals(0, mapping.get(() -> 2600));
+
+        ParallelMappings.fill(clone, 4);
+        assertEquals(4, clone.get(() -> 0));
+        assertEquals(0, mapping.get(() -> 0));
+    }
+
+    @Test
+    public void testObjectMappingCloneIsolation() {
+        CopyOnWriteIdentifiableObjectMapping<Identifiable, String> mapping
+                = new CopyOnWriteIdentifiableObjectMapping<>(2048);
+        mapping.set(() -> 5, "a");
+        mapping.set(() -> 1500, "b");
+        CopyOnWriteIdentifiableObjectMapping<Identifiable, String> clone = mapping.clone();
+        assertEquals(0, clone.getOwnedPageCount());
+        assertEquals(mapping, clone);
+
+        clone.set(() -> 1500, "c");
+        assertEquals(1, clone.getOwnedPageCount());
+        assertEquals("c", clone.get(() -> 1500));
+        assertEquals("b", mapping.get(() -> 1500));
+        assertEquals("a", clone.get(() -> 5));
+        assertNotEquals(mapping, clone);
+
+        mapping.set(() -> 3000, "d");
+        assertEquals(3001, mapping.getDomainSize());
+        assertEquals(2048, clone.getDomainSize());
+    }
+
+    @Test
+    public void testDoubleMappingCloneIsolation() {
+        CopyOnWriteIdentifiableDoubleMapping<Identifiable> mapping = new CopyOnWriteIdentifiableDoubleMapping<>(2048);
+        mapping.set(() -> 1, 0.5);
+        mapping.set(() -> 2000, -1.5);
+        CopyOnWriteIdentifiableDoubleMapping<Identifiable> clone = mapping.clone();
+        clone.increase(() -> 1, 1);
+        clone.clamp(-1, 1);
+        assertEquals(1, clone.getDouble(() -> 1), 0);
+        assertEquals(-1, clone.getDouble(() -> 2000), 0);
+        assertEquals(0.5, mapping.getDouble(() -> 1), 0);
+        assertEquals(-1.5, mapping.getDouble(() -> 2000), 0);
+        assertEquals(0, mapping.getOwnedPageCount());
+    }
+}
@@ -0,0 +1,100 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests the step function over a bounded horizon in both representations.
+ */
+public class DenseHorizonTimeIntegerMappingTest {
+
+    private static void assertValues(int[] expected, DenseHorizonTimeIntegerMapping mapping) {
+        assertEquals(0, mapping.get(-1));
+        for (int t = 0; t < expected.length; ++t) {
+            assertEquals("time " + t, expected[t], mapping.get(t));
+        }
+        assertEquals(0, mapping.get(expected.length));
+    }
+
+    private static void set(int[] values, int time, int value) {
+        int end = time + 1;
+        while (end < values.length && values[end] == values[end - 1]) {
+            end++;
+        }
+        for (int t = time; t < end; ++t) {
+            values[t] = value;
+        }
+    }
+
+    @Test
+    public void testIncreaseAndSet() {
+        Random random = new Random(4);
+        DenseHorizonTimeIntegerMapping mapping = new DenseHorizonTimeIntegerMapping(100);
+        int[] expected = new int[100];
+        for (int i = 0; i < 500; ++i) {
+            int from = random.nextInt(100);
+            int value = random.nextInt(9) - 4;
+            if (i % 3 == 0) {
+                set(expected, from, value);
+                mapping.set(from, value);
+            } else {
+                int to = from + 1 + random.nextInt(100 - from);
+                for (int t = from; t < to; ++t) {
+                    expected[t] += value;
+                }
+                mapping.increase(from, to, value);
+            }
+        }
+        assertTrue(mapping.isDense());
+        assertValues(expected, mapping);
+        TimeIntegerMapping tree = mapping.toTimeIntegerMapping();
+        for (int t = -1; t <= 100; ++t) {
+            assertEquals(mapping.get(t), tree.get(t));
+        }
+    }
+
+    @Test
+    public void testSwitchRepresentation() {
+        Random random = new Random(6);
+        DenseHorizonTimeIntegerMapping mapping = new DenseHorizonTimeIntegerMapping(10000);
+        int[] expected = new int[10000];
+        for (int i = 0; i < 1000; ++i) {
+            int from = random.nextInt(20);
+            set(expected, from, i % 5);
+            mapping.set(from, i % 5);
+        }
+        assertFalse(mapping.isDense());
+        assertValues(expected, mapping);
+
+        for (int i = 0; i < 2000; ++i) {
+            int from = random.nextInt(10000);
+            expected[from]++;
+            mapping.increase(from, 1);
+        }
+        assertTrue(mapping.isDense());
+        assertValues(expected, mapping);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutsideHorizon() {
+        new DenseHorizonTimeIntegerMapping(10).increase(5, 11, 1);
+    }
+}
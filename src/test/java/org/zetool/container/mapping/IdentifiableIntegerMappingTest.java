@@ -0,0 +1,79 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests the bulk operations of integer and double mappings.
+ */
+public class IdentifiableIntegerMappingTest {
+
+    private static IdentifiableIntegerMapping<Identifiable> of(int... values) {
+        return new IdentifiableIntegerMapping<>(values);
+    }
+
+    @Test
+    public void testAddScaledAndClamp() {
+        IdentifiableIntegerMapping<Identifiable> mapping = of(1, 2, 3, 4);
+        mapping.addScaled(of(1, 0, -1, 2), 3);
+        assertEquals(of(4, 2, 0, 10), mapping);
+        mapping.clamp(1, 5);
+        assertEquals(of(4, 2, 1, 5), mapping);
+    }
+
+    @Test
+    public void testCombine() {
+        IdentifiableIntegerMapping<Identifiable> mapping = of(1, 5, 3);
+        mapping.minCombine(of(2, 2, 2));
+        assertEquals(of(1, 2, 2), mapping);
+        mapping.maxCombine(of(0, 4, 0));
+        assertEquals(of(1, 4, 2), mapping);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCombineDifferentDomains() {
+        of(1, 2).minCombine(of(1));
+    }
+
+    @Test
+    public void testMaskGatherScatter() {
+        IdentifiableIntegerMapping<Identifiable> mapping = of(7, -1, 3);
+        IdentifiableBooleanMapping<Identifiable> mask = mapping.lessThan(3);
+        assertFalse(mask.get(() -> 0));
+        assertTrue(mask.get(() -> 1));
+        assertFalse(mask.get(() -> 2));
+
+        assertArrayEquals(new int[]{3, 7, 3}, mapping.gather(new int[]{2, 0, 2}));
+        mapping.scatter(new int[]{1, 2}, new int[]{8, 9});
+        assertEquals(of(7, 8, 9), mapping);
+    }
+
+    @Test
+    public void testDoubleKernels() {
+        IdentifiableDoubleMapping<Identifiable> capacities = new IdentifiableDoubleMapping<>(new double[]{1, 2, 3});
+        IdentifiableDoubleMapping<Identifiable> flow = new IdentifiableDoubleMapping<>(new double[]{1, 0.5, 0});
+        capacities.addScaled(flow, -2);
+        assertArrayEquals(new double[]{-1, 1, 3}, capacities.gather(new int[]{0, 1, 2}), 0);
+        capacities.clamp(0, 2);
+        assertArrayEquals(new double[]{0, 1, 2}, capacities.gather(new int[]{0, 1, 2}), 0);
+        assertTrue(capacities.greaterThan(1.5).get(() -> 2));
+    }
+}
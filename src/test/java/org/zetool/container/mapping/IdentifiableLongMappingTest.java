@@ -0,0 +1,84 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import org.junit.Test;
+
+/**
+ * Tests the long and float valued mappings.
+ */
+public class IdentifiableLongMappingTest {
+
+    @Test
+    public void testLongValues() {
+        IdentifiableLongMapping<Identifiable> mapping = new IdentifiableLongMapping<>(2);
+        mapping.increase(() -> 1, Integer.MAX_VALUE);
+        mapping.increase(() -> 1, Integer.MAX_VALUE);
+        mapping.decrease(() -> 4, 3);
+        assertEquals(5, mapping.getDomainSize());
+        assertEquals(2L * Integer.MAX_VALUE, mapping.getLong(() -> 1));
+        assertEquals(-3, mapping.minimum(Arrays.asList(() -> 0, () -> 1, () -> 4)));
+        assertEquals(2L * Integer.MAX_VALUE, mapping.maximum());
+
+        PrimitiveIterator.OfLong iterator = mapping.iterator();
+        long sum = 0;
+        while (iterator.hasNext()) {
+            sum += iterator.nextLong();
+        }
+        assertEquals(2L * Integer.MAX_VALUE - 3, sum);
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testLongOverflow() {
+        IdentifiableLongMapping<Identifiable> mapping = new IdentifiableLongMapping<>(1);
+        mapping.set(() -> 0, Long.MAX_VALUE);
+        mapping.increase(() -> 0, 1);
+    }
+
+    @Test
+    public void testLongConversion() {
+        IdentifiableIntegerMapping<Identifiable> values = new IdentifiableIntegerMapping<>(new int[]{3, -2});
+        IdentifiableLongMapping<Identifiable> mapping = new IdentifiableLongMapping<>(values);
+        mapping.clamp(0, 2);
+        assertArrayEquals(new long[]{2, 0}, mapping.gather(new int[]{0, 1}));
+        assertEquals(new IdentifiableIntegerMapping<>(new int[]{2, 0}), mapping.toIntegerMapping());
+        assertEquals(mapping, mapping.clone());
+    }
+
+    @Test
+    public void testFloatValues() {
+        IdentifiableFloatMapping<Identifiable> mapping = new IdentifiableFloatMapping<>(3);
+        mapping.set(() -> 0, 1.25f);
+        mapping.increase(() -> 2, 2.5f);
+        mapping.addScaled(mapping.clone(), 2);
+        assertEquals(3.75f, mapping.getFloat(() -> 0), 0);
+        assertEquals(7.5f, mapping.maximum(), 0);
+        assertEquals(new IdentifiableIntegerMapping<>(new int[]{4, 0, 8}), mapping.round());
+        assertEquals(3.75, mapping.toDoubleMapping().getDouble(() -> 0), 0);
+        assertTrue(mapping.greaterThan(5).get(() -> 2));
+        assertFalse(mapping.lessThan(0).get(() -> 1));
+
+        PrimitiveIterator.OfDouble iterator = mapping.doubleIterator();
+        assertEquals(3.75, iterator.nextDouble(), 0);
+        assertEquals(Float.valueOf(3.75f), mapping.iterator().next());
+    }
+}
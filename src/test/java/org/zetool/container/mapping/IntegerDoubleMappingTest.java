@@ -0,0 +1,230 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Random;
+import java.util.function.DoubleBinaryOperator;
+import org.junit.Test;
+
+/**
+ * Tests the arithmetic of step and piecewise linear functions.
+ */
+public class IntegerDoubleMappingTest {
+
+    private static IntegerDoubleMapping random(Random random, boolean linear) {
+        IntegerDoubleMapping mapping = new IntegerDoubleMapping(linear);
+        mapping.set(0, random.nextInt(20) - 10);
+        for (int i = 0; i < 8; ++i) {
+            mapping.set(random.nextInt(50), random.nextInt(20) - 10);
+        }
+        mapping.set(50, 0);
+        return mapping;
+    }
+
+    private static void assertPointwise(IntegerDoubleMapping first, IntegerDoubleMapping second,
+            IntegerDoubleMapping result, DoubleBinaryOperator operator) {
+        for (int t = 0; t <= 50; ++t) {
+            assertEquals("time " + t, operator.applyAsDouble(first.get(t), second.get(t)), result.get(t), 1e-9);
+        }
+    }
+
+    @Test
+    public void testStepArithmetic() {
+        Random random = new Random(1);
+        for (int i = 0; i < 20; ++i) {
+            IntegerDoubleMapping first = random(random, false);
+            IntegerDoubleMapping second = random(random, false);
+            assertPointwise(first, second, first.add(second), Double::sum);
+            assertPointwise(first, second, first.subtract(second), (a, b) -> a - b);
+            assertPointwise(first, second, first.min(second), Math::min);
+            assertPointwise(first, second, first.max(second), Math::max);
+
+            IntegerDoubleMapping inPlace = first.clone();
+            inPlace.subtractMapping(second);
+            assertPointwise(first, second, inPlace, (a, b) -> a - b);
+        }
+    }
+
+    @Test
+    public void testLinearArithmetic() {
+        Random random = new Random(2);
+        for (int i = 0; i < 20; ++i) {
+            IntegerDoubleMapping first = random(random, true);
+            IntegerDoubleMapping second = random(random, i % 2 == 0);
+            assertPointwise(first, second, first.add(second), Double::sum);
+            assertPointwise(first, second, first.min(second), Math::min);
+            assertPointwise(first, second, first.max(second), Math::max);
+
+            IntegerDoubleMapping inPlace = new IntegerDoubleMapping(true);
+            inPlace.addMapping(first);
+            inPlace.maxMapping(second);
+            assertPointwise(first, second, inPlace, Math::max);
+        }
+    }
+
+    @Test
+    public void testInPlaceBecomesLinear() {
+        IntegerDoubleMapping steps = new IntegerDoubleMapping();
+        steps.set(0, 1);
+        IntegerDoubleMapping ramp = new IntegerDoubleMapping(true);
+        ramp.set(0, 0);
+        ramp.set(10, 10);
+        steps.addMapping(ramp);
+        assertTrue(steps.isPiecewiseLinear());
+        assertEquals(6, steps.get(5), 0);
+    }
+
+    @Test
+    public void testDecreaseRange() {
+        IntegerDoubleMapping mapping = new IntegerDoubleMapping();
+        mapping.decrease(2, 5, 1.5);
+        assertEquals(0, mapping.get(1), 0);
+        assertEquals(-1.5, mapping.get(4), 0);
+        assertEquals(0, mapping.get(5), 0);
+    }
+
+    @Test
+    public void testIntegrate() {
+        Random random = new Random(3);
+        for (int i = 0; i < 20; ++i) {
+            IntegerDoubleMapping mapping = random(random, i % 2 == 0);
+            for (int j = 0; j < 10; ++j) {
+                int start = random.nextInt(50);
+                int end = start + random.nextInt(51 - start);
+                double expected = 0;
+                for (int t = start; t < end; ++t) {
+                    expected += mapping.isPiecewiseLinear() ? (mapping.get(t) + mapping.get(t + 1)) / 2 : mapping.get(t);
+                }
+                assertEquals(expected, mapping.integrate(start, end), 1e-9);
+                mapping.increase(random.nextInt(50), 50, random.nextInt(5) - 2);
+            }
+        }
+    }
+
+    @Test
+    public void testIntegral() {
+        IntegerDoubleMapping mapping = new IntegerDoubleMapping();
+        mapping.set(0, 0.5);
+        mapping.set(3, 2.25);
+        mapping.set(5, 0);
+        IntegerDoubleMapping integral = mapping.integral();
+        assertEquals(1.5, integral.get(3), 0);
+        assertEquals(6, integral.get(5), 0);
+        assertEquals(mapping.integrate(0, 5), integral.get(5), 0);
+    }
+
+    @Test
+    public void testCoalescing() {
+        for (boolean linear : new boolean[]{false, true}) {
+            IntegerDoubleMapping mapping = new IntegerDoubleMapping(linear);
+            mapping.setCoalescing(true);
+            mapping.set(0, 1);
+            mapping.set(10, 2);
+            mapping.set(20, 3);
+            mapping.set(30, 3);
+            mapping.set(40, 0);
+            assertEquals(6, mapping.getStepCount());
+            assertEquals(linear ? 2.5 : 2, mapping.get(15), 0);
+            assertEquals(3, mapping.get(25), 0);
+            if (!linear) {
+                mapping.increase(10, 20, 1);
+                assertEquals(5, mapping.getStepCount());
+                assertEquals(3, mapping.get(10), 0);
+            }
+
+            IntegerDoubleMapping copy = mapping.clone();
+            assertEquals(linear, copy.isPiecewiseLinear());
+            assertEquals(0, copy.compact());
+        }
+    }
+
+    @Test
+    public void testBuilder() {
+        IntegerDoubleMapping mapping = new IntegerDoubleMapping.Builder(true, 4).append(0, 1).append(10, 2).append(10, 3)
+                .append(20, 3).build();
+        assertTrue(mapping.isPiecewiseLinear());
+        assertEquals(5, mapping.getStepCount());
+        assertEquals(2, mapping.get(5), 0);
+        assertEquals(3, mapping.get(15), 0);
+
+        IntegerDoubleMapping steps = new IntegerDoubleMapping.Builder().append(0, 1).append(10, 1).append(20, 0.5)
+                .build();
+        assertEquals(4, steps.getStepCount());
+        assertEquals(1, steps.get(15), 0);
+        assertEquals(0.5, steps.get(25), 0);
+    }
+
+    private static IntegerDoubleMapping increasing(Random random, boolean linear) {
+        IntegerDoubleMapping mapping = new IntegerDoubleMapping(linear);
+        double value = 0;
+        for (int time = 0; time <= 50; time += 1 + random.nextInt(5)) {
+            mapping.set(time, value);
+            value += random.nextInt(6);
+        }
+        return mapping;
+    }
+
+    @Test
+    public void testInverseAt() {
+        Random random = new Random(11);
+        for (int i = 0; i < 20; ++i) {
+            IntegerDoubleMapping mapping = increasing(random, i % 2 == 0);
+            double target = random.nextInt(40) + 0.5;
+            double time = mapping.inverseAt(target);
+            if (time == Double.POSITIVE_INFINITY) {
+                assertTrue(mapping.get(50) < target);
+            } else if (mapping.isPiecewiseLinear()) {
+                assertTrue(mapping.get((int) Math.ceil(time)) >= target);
+                assertTrue(mapping.get((int) Math.floor(time)) <= target);
+            } else {
+                assertTrue(mapping.get((int) time) >= target);
+                assertTrue(mapping.get((int) time - 1) < target);
+            }
+        }
+        IntegerDoubleMapping linear = new IntegerDoubleMapping.Builder(true, 2).append(0, 0).append(10, 5).build();
+        assertEquals(4, linear.inverseAt(2), 1e-12);
+    }
+
+    private static boolean isStep(IntegerDoubleMapping mapping, int time) {
+        for (TimeValuePair step : mapping) {
+            if (step.time() == time) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testCompose() {
+        Random random = new Random(12);
+        for (int i = 0; i < 40; ++i) {
+            IntegerDoubleMapping outer = increasing(random, i % 4 >= 2);
+            IntegerDoubleMapping inner = increasing(random, i % 2 == 0);
+            IntegerDoubleMapping composition = outer.compose(inner);
+            for (int t = -2; t <= 50; ++t) {
+                double x = inner.get(t);
+                double expected = outer.isPiecewiseLinear() ? outer.get((int) Math.floor(x))
+                        + (outer.get((int) Math.floor(x) + 1) - outer.get((int) Math.floor(x))) * (x - Math.floor(x))
+                        : outer.get((int) Math.floor(x));
+                if (!outer.isPiecewiseLinear() || !inner.isPiecewiseLinear() || isStep(composition, t)) {
+                    assertEquals("time " + t, expected, composition.get(t), 1e-9);
+                }
+            }
+        }
+    }
+}
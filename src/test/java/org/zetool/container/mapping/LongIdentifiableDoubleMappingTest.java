@@ -0,0 +1,87 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * Tests the paged mapping of {@code long} IDs to doubles.
+ */
+public class LongIdentifiableDoubleMappingTest {
+
+    private static final long LARGE_ID = 3_000_000_000L;
+
+    @Test
+    public void testIdsBeyondIntegerRange() {
+        LongIdentifiableDoubleMapping<LongIdentifiable> mapping = new LongIdentifiableDoubleMapping<>(10);
+        LongIdentifiable small = () -> 3;
+        LongIdentifiable large = () -> LARGE_ID;
+        mapping.set(large, 7.5);
+        mapping.increase(large, 0.5);
+        mapping.decrease(small, 2);
+
+        assertEquals(LARGE_ID + 1, mapping.getDomainSize());
+        assertEquals(8, mapping.getDouble(large), 0);
+        assertEquals(-2, mapping.get(small), 0);
+        assertEquals(0, mapping.getDouble(() -> LARGE_ID - 1), 0);
+        assertEquals(-2, mapping.minimum(Arrays.asList(small, large)), 0);
+        assertEquals(6, mapping.sum(Arrays.asList(small, large)), 0);
+        assertEquals("[3 = -2.0, " + LARGE_ID + " = 8.0]", mapping.toString());
+    }
+
+    @Test
+    public void testPageBoundary() {
+        LongIdentifiableDoubleMapping<LongIdentifiable> mapping = new LongIdentifiableDoubleMapping<>(65_536);
+        mapping.set(() -> 65_535, 1.5);
+        mapping.set(() -> 65_536, 2.5);
+        assertEquals(65_537, mapping.getDomainSize());
+        assertEquals(1.5, mapping.getDouble(() -> 65_535), 0);
+        assertEquals(2.5, mapping.getDouble(() -> 65_536), 0);
+        mapping.setDomainSize(65_536);
+        assertFalse(mapping.isDefinedFor(() -> 65_536));
+        mapping.setDomainSize(65_537);
+        assertEquals(0, mapping.getDouble(() -> 65_536), 0);
+        assertEquals(1.5, mapping.getDouble(() -> 65_535), 0);
+    }
+
+    @Test
+    public void testShrinkClearsValues() {
+        LongIdentifiableDoubleMapping<LongIdentifiable> mapping = new LongIdentifiableDoubleMapping<>(100);
+        mapping.set(() -> 50, 1);
+        mapping.setDomainSize(50);
+        assertFalse(mapping.isDefinedFor(() -> 50));
+        mapping.setDomainSize(100);
+        assertEquals(0, mapping.getDouble(() -> 50), 0);
+    }
+
+    @Test
+    public void testInitializeAndEquals() {
+        LongIdentifiableDoubleMapping<LongIdentifiable> mapping = new LongIdentifiableDoubleMapping<>(70_000);
+        LongIdentifiableDoubleMapping<LongIdentifiable> other = mapping.clone();
+        assertTrue(mapping.equals(other));
+        mapping.initializeWith(0.25);
+        assertEquals(0.25, mapping.getDouble(() -> 69_999), 0);
+        assertNotEquals(mapping, other);
+        mapping.initializeWith(0);
+        assertTrue(mapping.equals(other));
+        assertEquals("[]", mapping.toString());
+    }
+}
@@ -0,0 +1,83 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests the paged mapping for {@code long} IDs.
+ */
+public class LongIdentifiableIntegerMappingTest {
+
+    private static final long LARGE_ID = 3_000_000_000L;
+
+    @Test
+    public void testIdsBeyondIntegerRange() {
+        LongIdentifiableIntegerMapping<LongIdentifiable> mapping = new LongIdentifiableIntegerMapping<>(10);
+        LongIdentifiable small = () -> 3;
+        LongIdentifiable large = () -> LARGE_ID;
+        mapping.set(large, 7);
+        mapping.increase(large, 5);
+        mapping.set(small, 2);
+
+        assertEquals(LARGE_ID + 1, mapping.getDomainSize());
+        assertEquals(12, mapping.get(large));
+        assertEquals(2, mapping.get(small));
+        assertEquals(0, mapping.get(() -> LARGE_ID - 1));
+        assertEquals(2, mapping.getAllocatedPages());
+        assertEquals(12, mapping.maximum());
+    }
+
+    @Test
+    public void testShrinkClearsValues() {
+        LongIdentifiableIntegerMapping<LongIdentifiable> mapping = new LongIdentifiableIntegerMapping<>(100);
+        mapping.set(() -> 50, 1);
+        mapping.setDomainSize(50);
+        assertFalse(mapping.isDefinedFor(() -> 50));
+        mapping.setDomainSize(100);
+        assertEquals(0, mapping.get(() -> 50));
+    }
+
+    @Test
+    public void testInitializeAndEquals() {
+        LongIdentifiableIntegerMapping<LongIdentifiable> mapping = new LongIdentifiableIntegerMapping<>(70_000);
+        LongIdentifiableIntegerMapping<LongIdentifiable> other = mapping.clone();
+        assertTrue(mapping.equals(other));
+        mapping.initializeWith(4);
+        assertEquals(4, mapping.get(() -> 69_999));
+        assertFalse(mapping.equals(other));
+        mapping.initializeWith(0);
+        assertEquals(0, mapping.getAllocatedPages());
+        assertTrue(mapping.equals(other));
+    }
+
+    @Test
+    public void testBooleanMapping() {
+        LongIdentifiableBooleanMapping<LongIdentifiable> mapping = new LongIdentifiableBooleanMapping<>(0);
+        mapping.set(() -> LARGE_ID, true);
+        mapping.toggle(() -> 5);
+        assertTrue(mapping.get(() -> LARGE_ID));
+        assertTrue(mapping.get(() -> 5));
+        assertFalse(mapping.get(() -> 6));
+        assertEquals(2, mapping.cardinality());
+        mapping.initializeWith(true);
+        mapping.setDomainSize(65);
+        assertEquals(65, mapping.cardinality());
+    }
+}
@@ -0,0 +1,87 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests the paged mapping of {@code long} IDs to objects.
+ */
+public class LongIdentifiableObjectMappingTest {
+
+    private static final long LARGE_ID = 3_000_000_000L;
+
+    @Test
+    public void testIdsBeyondIntegerRange() {
+        LongIdentifiableObjectMapping<LongIdentifiable, String> mapping = new LongIdentifiableObjectMapping<>(10);
+        LongIdentifiable small = () -> 3;
+        LongIdentifiable large = () -> LARGE_ID;
+        mapping.set(large, "large");
+        mapping.set(small, "small");
+
+        assertEquals(LARGE_ID + 1, mapping.getDomainSize());
+        assertEquals("large", mapping.get(large));
+        assertEquals("small", mapping.get(small));
+        assertNull(mapping.get(() -> LARGE_ID - 1));
+        assertFalse(mapping.isDefinedFor(() -> LARGE_ID - 1));
+        assertTrue(mapping.isDefinedFor(large));
+        assertEquals("[3 = small, " + LARGE_ID + " = large]", mapping.toString());
+    }
+
+    @Test
+    public void testIteratorCrossesPageBoundary() {
+        LongIdentifiableObjectMapping<LongIdentifiable, String> mapping = new LongIdentifiableObjectMapping<>(0);
+        mapping.set(() -> 65_536, "second");
+        mapping.set(() -> 65_535, "first");
+        mapping.set(() -> 200_000, null);
+        List<String> values = new ArrayList<>();
+        for (String value : mapping) {
+            values.add(value);
+        }
+        assertEquals(Arrays.asList("first", "second"), values);
+        assertEquals(200_001, mapping.getDomainSize());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIteratorRemove() {
+        LongIdentifiableObjectMapping<LongIdentifiable, String> mapping = new LongIdentifiableObjectMapping<>(1);
+        mapping.set(() -> 0, "value");
+        Iterator<String> iterator = mapping.iterator();
+        iterator.next();
+        iterator.remove();
+    }
+
+    @Test
+    public void testCloneAndShrink() {
+        LongIdentifiableObjectMapping<LongIdentifiable, String> mapping = new LongIdentifiableObjectMapping<>(100);
+        mapping.set(() -> 50, "value");
+        LongIdentifiableObjectMapping<LongIdentifiable, String> other = mapping.clone();
+        assertTrue(mapping.equals(other));
+        mapping.setDomainSize(50);
+        mapping.setDomainSize(100);
+        assertNull(mapping.get(() -> 50));
+        assertFalse(mapping.equals(other));
+        assertEquals("value", other.get(() -> 50));
+    }
+}
@@ -0,0 +1,90 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertArrayEquals;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+/**
+ * Tests sorting IDs by the values of a mapping.
+ */
+public class MappingSortsTest {
+
+    private static int[] expected(int length, Comparator<Integer> order) {
+        return IntStream.range(0, length).boxed().sorted(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    public void testIntegerSorts() {
+        Random random = new Random(5);
+        for (int bound : new int[]{10, 1 << 20}) {
+            int[] values = new int[500];
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = random.nextInt(bound) - bound / 2;
+            }
+            values[7] = Integer.MIN_VALUE;
+            values[8] = Integer.MAX_VALUE;
+            IdentifiableIntegerMapping<Identifiable> mapping = new IdentifiableIntegerMapping<>(values);
+            int[] ascending = expected(values.length, Comparator.comparingInt(id -> values[id]));
+            assertArrayEquals(ascending, MappingSorts.sortedIds(mapping));
+            assertArrayEquals(ascending, MappingSorts.parallelSortedIds(mapping));
+            assertArrayEquals(Arrays.copyOf(ascending, 20), MappingSorts.smallestIds(mapping, 20));
+            int[] descending = expected(values.length, (a, b) -> Integer.compare(values[b], values[a]));
+            assertArrayEquals(Arrays.copyOf(descending, 20), MappingSorts.largestIds(mapping, 20));
+        }
+    }
+
+    @Test
+    public void testDoubleSorts() {
+        Random random = new Random(9);
+        double[] values = new double[300];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = random.nextInt(5) == 0 ? random.nextInt(3) : random.nextGaussian() * 1e6;
+        }
+        values[1] = -0.0;
+        values[2] = Double.NaN;
+        values[3] = Double.NEGATIVE_INFINITY;
+        IdentifiableDoubleMapping<Identifiable> mapping = new IdentifiableDoubleMapping<>(values);
+        int[] ascending = expected(values.length, (a, b) -> Double.compare(values[a], values[b]));
+        assertArrayEquals(ascending, MappingSorts.sortedIds(mapping));
+        assertArrayEquals(ascending, MappingSorts.parallelSortedIds(mapping));
+        assertArrayEquals(Arrays.copyOf(ascending, 5), MappingSorts.smallestIds(mapping, 5));
+        int[] descending = expected(values.length, (a, b) -> Double.compare(values[b], values[a]));
+        assertArrayEquals(Arrays.copyOf(descending, 50), MappingSorts.largestIds(mapping, 50));
+
+        int[] ids = {9, 3, 2, 1, 0};
+        int[] subset = Arrays.stream(ids).boxed().sorted((a, b) -> Double.compare(values[a], values[b]))
+                .mapToInt(Integer::intValue).toArray();
+        assertArrayEquals(subset, MappingSorts.sortedIds(mapping, ids));
+    }
+
+    @Test
+    public void testParallelSort() {
+        Random random = new Random(3);
+        int[] values = new int[4 * ParallelMappings.THRESHOLD + 17];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = random.nextInt(1000) * (random.nextBoolean() ? 1 : 100000);
+        }
+        IdentifiableIntegerMapping<Identifiable> mapping = new IdentifiableIntegerMapping<>(values);
+        assertArrayEquals(MappingSorts.sortedIds(mapping), MappingSorts.parallelSortedIds(mapping));
+        assertArrayEquals(expected(values.length, Comparator.comparingInt(id -> values[id])),
+                MappingSorts.parallelSortedIds(mapping));
+    }
+}
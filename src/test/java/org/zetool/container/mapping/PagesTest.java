@@ -0,0 +1,54 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Tests the page arithmetic of the mappings for {@code long} IDs.
+ */
+public class PagesTest {
+
+    @Test
+    public void testPageAndOffset() {
+        assertEquals(0, Pages.page(65_535));
+        assertEquals(65_535, Pages.offset(65_535));
+        assertEquals(1, Pages.page(65_536));
+        assertEquals(0, Pages.offset(65_536));
+        assertEquals(45_776, Pages.page(3_000_000_000L));
+        assertEquals(3_000_000_000L, ((long) Pages.page(3_000_000_000L) << Pages.PAGE_BITS)
+                + Pages.offset(3_000_000_000L));
+    }
+
+    @Test
+    public void testPageCount() {
+        assertEquals(0, Pages.pageCount(0));
+        assertEquals(1, Pages.pageCount(1));
+        assertEquals(1, Pages.pageCount(65_536));
+        assertEquals(2, Pages.pageCount(65_537));
+    }
+
+    @Test(expected = NegativeArraySizeException.class)
+    public void testNegativePageCount() {
+        Pages.pageCount(-1);
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testTooManyPages() {
+        Pages.pageCount(Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,105 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests the parallel bulk operations on domains large enough to be split.
+ */
+public class ParallelMappingsTest {
+
+    private static final int SIZE = 5 * ParallelMappings.THRESHOLD + 17;
+
+    private static IdentifiableIntegerMapping<Identifiable> createMapping() {
+        IdentifiableIntegerMapping<Identifiable> mapping = new IdentifiableIntegerMapping<>(SIZE);
+        for (int i = 0; i < SIZE; ++i) {
+            int id = i;
+            mapping.set(() -> id, (int) ((id * 7919L) % 1000) - 500);
+        }
+        return mapping;
+    }
+
+    @Test
+    public void testReductions() {
+        IdentifiableIntegerMapping<Identifiable> mapping = createMapping();
+        long sum = 0;
+        int argmin = 0;
+        int positive = 0;
+        for (int i = 0; i < SIZE; ++i) {
+            sum += mapping.mapping[i];
+            if (mapping.mapping[i] < mapping.mapping[argmin]) {
+                argmin = i;
+            }
+            if (mapping.mapping[i] > 0) {
+                positive++;
+            }
+        }
+        assertEquals(sum, ParallelMappings.sum(mapping));
+        assertEquals(mapping.maximum(), ParallelMappings.maximum(mapping));
+        assertEquals(-500, ParallelMappings.minimum(mapping));
+        assertEquals(argmin, ParallelMappings.argmin(mapping));
+        assertEquals(positive, ParallelMappings.count(mapping, v -> v > 0));
+        assertEquals(mapping.hashCode(), ParallelMappings.hashCode(mapping));
+    }
+
+    @Test
+    public void testFilteredReductions() {
+        IdentifiableIntegerMapping<Identifiable> mapping = createMapping();
+        int[] ids = {5, 17, SIZE - 1};
+        assertEquals(mapping.mapping[5] + mapping.mapping[17] + mapping.mapping[SIZE - 1],
+                ParallelMappings.sum(mapping, ids));
+        int argmin = ParallelMappings.argmin(mapping, ids);
+        for (int id : ids) {
+            assertTrue(mapping.mapping[argmin] <= mapping.mapping[id]);
+        }
+        assertEquals(-1, ParallelMappings.argmin(mapping, new int[0]));
+    }
+
+    @Test
+    public void testMapAndCombine() {
+        IdentifiableIntegerMapping<Identifiable> mapping = createMapping();
+        IdentifiableIntegerMapping<Identifiable> doubled = ParallelMappings.map(mapping, v -> 2 * v);
+        IdentifiableIntegerMapping<Identifiable> sum = ParallelMappings.combine(mapping, mapping, Integer::sum);
+        assertTrue(ParallelMappings.equals(doubled, sum));
+        assertFalse(ParallelMappings.equals(mapping, sum));
+
+        ParallelMappings.fill(sum, 3);
+        assertEquals(3L * SIZE, ParallelMappings.sum(sum));
+    }
+
+    @Test
+    public void testDoubleMapping() {
+        IdentifiableDoubleMapping<Identifiable> mapping = new IdentifiableDoubleMapping<>(SIZE);
+        ParallelMappings.fill(mapping, 0.25);
+        mapping.set(() -> SIZE - 2, -1.5);
+        assertEquals(SIZE * 0.25 - 1.75, ParallelMappings.sum(mapping), 1e-6);
+        assertEquals(SIZE - 2, ParallelMappings.argmin(mapping));
+        assertEquals(-1, ParallelMappings.round(mapping).get(() -> SIZE - 2));
+        assertEquals(mapping.round(), ParallelMappings.round(mapping));
+    }
+
+    @Test
+    public void testSparseMapping() {
+        SparseIdentifiableIntegerMapping<Identifiable> mapping = new SparseIdentifiableIntegerMapping<>(SIZE, 1);
+        mapping.set(() -> 3, 10);
+        assertEquals(SIZE + 9L, ParallelMappings.sum(mapping));
+        assertTrue(mapping.isSparse());
+    }
+}
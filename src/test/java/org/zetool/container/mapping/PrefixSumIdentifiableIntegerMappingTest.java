@@ -0,0 +1,71 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests the Fenwick tree backed integer mapping.
+ */
+public class PrefixSumIdentifiableIntegerMappingTest {
+
+    @Test
+    public void testRangeSums() {
+        Random random = new Random(11);
+        PrefixSumIdentifiableIntegerMapping<Identifiable> mapping = new PrefixSumIdentifiableIntegerMapping<>(100);
+        int[] reference = new int[100];
+        for (int i = 0; i < 1000; ++i) {
+            int id = random.nextInt(100);
+            int amount = random.nextInt(200) - 100;
+            mapping.increase(() -> id, amount);
+            reference[id] += amount;
+            int from = random.nextInt(101);
+            int to = from + random.nextInt(101 - from);
+            long expected = 0;
+            for (int j = from; j < to; ++j) {
+                expected += reference[j];
+            }
+            assertEquals(expected, mapping.sum(from, to));
+        }
+    }
+
+    @Test
+    public void testSelect() {
+        PrefixSumIdentifiableIntegerMapping<Identifiable> mapping = new PrefixSumIdentifiableIntegerMapping<>(6);
+        mapping.set(() -> 1, 3);
+        mapping.set(() -> 2, 1);
+        mapping.set(() -> 5, 2);
+        assertEquals(6, mapping.getSum());
+        assertEquals(1, mapping.select(0));
+        assertEquals(1, mapping.select(2));
+        assertEquals(2, mapping.select(3));
+        assertEquals(5, mapping.select(4));
+        assertEquals(5, mapping.select(5));
+
+        mapping.initializeWith(1);
+        assertEquals(3, mapping.select(3));
+        assertEquals(4, mapping.prefixSum(4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSelectBeyondSum() {
+        PrefixSumIdentifiableIntegerMapping<Identifiable> mapping = new PrefixSumIdentifiableIntegerMapping<>(3);
+        mapping.set(() -> 0, 2);
+        mapping.select(2);
+    }
+}
@@ -0,0 +1,105 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests the run-length encoded integer mapping.
+ */
+public class RunLengthIdentifiableIntegerMappingTest {
+
+    @Test
+    public void testConversion() {
+        IdentifiableIntegerMapping<Identifiable> dense = new IdentifiableIntegerMapping<>(1000);
+        for (int i = 0; i < 1000; ++i) {
+            int id = i;
+            dense.set(() -> id, id / 250);
+        }
+        RunLengthIdentifiableIntegerMapping<Identifiable> mapping = new RunLengthIdentifiableIntegerMapping<>(dense);
+        assertEquals(4, mapping.getRunCount());
+        assertEquals(125.0, mapping.compressionRatio(), 0);
+        assertEquals(2, mapping.get(() -> 500));
+        assertEquals(3, mapping.maximum());
+        assertEquals(dense, mapping.toDense());
+        assertEquals(dense.hashCode(), mapping.hashCode());
+        assertEquals("[0-249 = 0, 250-499 = 1, 500-749 = 2, 750-999 = 3]", mapping.toString());
+    }
+
+    @Test
+    public void testSplitAndMerge() {
+        RunLengthIdentifiableIntegerMapping<Identifiable> mapping = new RunLengthIdentifiableIntegerMapping<>(10);
+        mapping.set(() -> 5, 1);
+        assertEquals(3, mapping.getRunCount());
+        mapping.set(() -> 4, 1);
+        mapping.set(() -> 6, 1);
+        assertEquals(3, mapping.getRunCount());
+        mapping.decrease(() -> 4, 1);
+        mapping.decrease(() -> 5, 1);
+        mapping.decrease(() -> 6, 1);
+        assertEquals(1, mapping.getRunCount());
+
+        mapping.set(() -> 14, 2);
+        assertEquals(15, mapping.getDomainSize());
+        assertEquals(2, mapping.getRunCount());
+        mapping.setDomainSize(12);
+        assertEquals(1, mapping.getRunCount());
+    }
+
+    @Test
+    public void testRandomUpdates() {
+        Random random = new Random(7);
+        IdentifiableIntegerMapping<Identifiable> dense = new IdentifiableIntegerMapping<>(200);
+        RunLengthIdentifiableIntegerMapping<Identifiable> mapping = new RunLengthIdentifiableIntegerMapping<>(200);
+        for (int i = 0; i < 5000; ++i) {
+            int id = random.nextInt(200);
+            int value = random.nextInt(3);
+            dense.set(() -> id, value);
+            mapping.set(() -> id, value);
+        }
+        assertTrue(mapping.equals(dense));
+        assertEquals(new RunLengthIdentifiableIntegerMapping<>(dense), mapping);
+        int[] covered = new int[1];
+        mapping.forEachRun((from, to, value) -> {
+            assertEquals(covered[0], from);
+            covered[0] = to;
+        });
+        assertEquals(200, covered[0]);
+    }
+
+    @Test
+    public void testBulkOperations() {
+        IdentifiableIntegerMapping<Identifiable> dense = new IdentifiableIntegerMapping<>(1000);
+        for (int i = 0; i < 1000; ++i) {
+            int id = i;
+            dense.set(() -> id, id / 250);
+        }
+        RunLengthIdentifiableIntegerMapping<Identifiable> mapping = new RunLengthIdentifiableIntegerMapping<>(dense);
+        mapping.clamp(1, 2);
+        assertEquals("[0-499 = 1, 500-999 = 2]", mapping.toString());
+
+        mapping.scatter(new int[]{999}, new int[]{7});
+        mapping.addScaled(dense, 2);
+        assertEquals("[0-249 = 1, 250-499 = 3, 500-749 = 6, 750-998 = 8, 999-999 = 13]", mapping.toString());
+
+        ParallelMappings.fill(mapping, 3);
+        assertEquals(1, mapping.getRunCount());
+        assertEquals(3, mapping.get(() -> 0));
+    }
+}
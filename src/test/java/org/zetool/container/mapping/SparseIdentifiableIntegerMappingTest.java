@@ -0,0 +1,120 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests the sparse mappings backed by primitive hash tables.
+ */
+public class SparseIdentifiableIntegerMappingTest {
+
+    @Test
+    public void testDefaultValues() {
+        SparseIdentifiableIntegerMapping<Identifiable> mapping = new SparseIdentifiableIntegerMapping<>(1000, 7);
+        mapping.set(() -> 3, 1);
+        mapping.increase(() -> 500, 2);
+        mapping.set(() -> 3, 7);
+
+        assertEquals(7, mapping.get(() -> 3));
+        assertEquals(9, mapping.get(() -> 500));
+        assertEquals(7, mapping.get(() -> 999));
+        assertEquals(9, mapping.maximum());
+        assertTrue(mapping.isSparse());
+    }
+
+    @Test
+    public void testSwitchToDense() {
+        SparseIdentifiableIntegerMapping<Identifiable> mapping = new SparseIdentifiableIntegerMapping<>(64, -1);
+        for (int i = 0; i < 64; i += 2) {
+            int id = i;
+            mapping.set(() -> id, id);
+        }
+        assertFalse(mapping.isSparse());
+        for (int i = 0; i < 64; ++i) {
+            int id = i;
+            assertEquals(id % 2 == 0 ? id : -1, mapping.get(() -> id));
+        }
+        mapping.initializeWith(5);
+        assertTrue(mapping.isSparse());
+        assertEquals(5, mapping.get(() -> 63));
+    }
+
+    @Test
+    public void testEqualsDenseMapping() {
+        SparseIdentifiableIntegerMapping<Identifiable> sparse = new SparseIdentifiableIntegerMapping<>(10);
+        IdentifiableIntegerMapping<Identifiable> dense = new IdentifiableIntegerMapping<>(10);
+        sparse.set(() -> 4, 3);
+        dense.set(() -> 4, 3);
+        assertTrue(sparse.equals(dense));
+        assertEquals(dense.hashCode(), sparse.hashCode());
+
+        sparse.setDomainSize(4);
+        assertEquals(4, sparse.getDomainSize());
+        sparse.setDomainSize(10);
+        assertEquals(0, sparse.get(() -> 4));
+    }
+
+    @Test
+    public void testEqualsIsSymmetric() {
+        SparseIdentifiableIntegerMapping<Identifiable> sparse = new SparseIdentifiableIntegerMapping<>(10, 2);
+        CompactIdentifiableIntegerMapping<Identifiable> compact = new CompactIdentifiableIntegerMapping<>(10);
+        compact.initializeWith(2);
+        sparse.set(() -> 4, 3);
+        compact.set(() -> 4, 3);
+        assertTrue(sparse.equals(compact));
+        assertTrue(compact.equals(sparse));
+        compact.set(() -> 5, 1);
+        assertFalse(sparse.equals(compact));
+        assertFalse(compact.equals(sparse));
+
+        SparseIdentifiableDoubleMapping<Identifiable> sparseDouble = new SparseIdentifiableDoubleMapping<>(10, 0.5);
+        VersionedIdentifiableDoubleMapping<Identifiable> versioned = new VersionedIdentifiableDoubleMapping<>(10);
+        versioned.initializeWith(0.5);
+        sparseDouble.set(() -> 7, 1.5);
+        versioned.set(() -> 7, 1.5);
+        assertTrue(sparseDouble.equals(versioned));
+        assertTrue(versioned.equals(sparseDouble));
+        versioned.set(() -> 8, 1.5);
+        assertFalse(sparseDouble.equals(versioned));
+        assertFalse(versioned.equals(sparseDouble));
+    }
+
+    @Test
+    public void testDoubleMapping() {
+        SparseIdentifiableDoubleMapping<Identifiable> mapping
+                = new SparseIdentifiableDoubleMapping<>(100, Double.POSITIVE_INFINITY);
+        mapping.set(() -> 10, 2.5);
+        mapping.decrease(() -> 10, 1.0);
+        assertEquals(1.5, mapping.getDouble(() -> 10), 0);
+        assertEquals(Double.POSITIVE_INFINITY, mapping.getDouble(() -> 11), 0);
+        IdentifiableIntegerMapping<Identifiable> rounded = mapping.round();
+        assertEquals(2, rounded.get(() -> 10));
+    }
+
+    @Test
+    public void testGatherAndScatterStaySparse() {
+        SparseIdentifiableIntegerMapping<Identifiable> mapping = new SparseIdentifiableIntegerMapping<>(100000, 7);
+        mapping.scatter(new int[]{5, 90000}, new int[]{1, 2});
+        assertTrue(mapping.isSparse());
+        assertArrayEquals(new int[]{2, 7, 1}, mapping.gather(new int[]{90000, 6, 5}));
+        assertTrue(mapping.isSparse());
+    }
+}
@@ -0,0 +1,85 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests the table of step functions against {@link TimeIntegerMapping}.
+ */
+public class TimeIntegerMappingTableTest {
+
+    private static void assertRows(TimeIntegerMapping[] expected, TimeIntegerMappingTable<Identifiable> table) {
+        for (int row = 0; row < expected.length; ++row) {
+            int id = row;
+            for (int t = -1; t <= 110; ++t) {
+                assertEquals("row " + row + " time " + t, expected[row].get(t), table.get(() -> id, t));
+            }
+            assertEquals(expected[row].minimum(10, 60), table.minimum(() -> id, 10, 60));
+            assertEquals(expected[row].minimum(-5, 3), table.minimum(() -> id, -5, 3));
+        }
+    }
+
+    @Test
+    public void testAgainstTreeMappings() {
+        Random random = new Random(8);
+        TimeIntegerMapping[] expected = new TimeIntegerMapping[30];
+        TimeIntegerMappingTable<Identifiable> table = new TimeIntegerMappingTable<>(expected.length);
+        int[] lastTimes = new int[expected.length];
+        for (int row = 0; row < expected.length; ++row) {
+            expected[row] = new TimeIntegerMapping();
+        }
+        for (int round = 0; round < 3; ++round) {
+            for (int i = 0; i < 600; ++i) {
+                int row = random.nextInt(expected.length);
+                int from = random.nextInt(100);
+                int to = from + 1 + random.nextInt(10);
+                int amount = random.nextInt(7) - 3;
+                if (i % 4 == 0) {
+                    lastTimes[row] = Math.max(lastTimes[row], to) + 1;
+                    expected[row].set(lastTimes[row], amount);
+                    table.set(() -> row, lastTimes[row], amount);
+                } else {
+                    expected[row].increase(from, to, amount);
+                    table.increase(() -> row, from, to, amount);
+                    lastTimes[row] = Math.max(lastTimes[row], to);
+                }
+            }
+            assertRows(expected, table);
+            table.compact();
+            assertRows(expected, table);
+        }
+        TimeIntegerMapping copy = table.toTimeIntegerMapping(() -> 3);
+        for (int t = 0; t < 110; ++t) {
+            assertEquals(expected[3].get(t), copy.get(t));
+        }
+    }
+
+    @Test
+    public void testCompactRemovesRedundantSteps() {
+        TimeIntegerMappingTable<Identifiable> table = new TimeIntegerMappingTable<>(2);
+        table.set(() -> 1, 0, 5);
+        table.set(() -> 1, 3, 5);
+        table.set(() -> 1, 6, 0);
+        assertEquals(3, table.getStepCount(() -> 1));
+        table.compact();
+        assertEquals(2, table.getStepCount(() -> 1));
+        assertEquals(5, table.get(() -> 1, 4));
+        assertEquals(0, table.getStepCount(() -> 0));
+    }
+}
@@ -0,0 +1,222 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests the step function mapping of integers to integers.
+ */
+public class TimeIntegerMappingTest {
+
+    @Test
+    public void testAggregateTracking() {
+        TimeIntegerMapping mapping = new TimeIntegerMapping();
+        mapping.setAggregateTracking(true);
+        assertTrue(mapping.isZero());
+        mapping.increase(0, 10, 3);
+        mapping.decrease(5, 15, 5);
+        assertEquals(3, mapping.getMaximumValue());
+        assertEquals(-5, mapping.getMinimumValue());
+        assertFalse(mapping.isZero());
+
+        mapping.increase(10, 15, 5);
+        mapping.increase(5, 10, 2);
+        assertEquals(3, mapping.getMaximumValue());
+        assertEquals(0, mapping.getMinimumValue());
+
+        TimeIntegerMapping untracked = mapping.clone();
+        untracked.setAggregateTracking(false);
+        assertEquals(untracked.getMaximumValue(), mapping.getMaximumValue());
+        assertEquals(untracked.getMinimumValue(), mapping.getMinimumValue());
+
+        mapping.set(0, 0);
+        mapping.set(5, 0);
+        assertTrue(mapping.isZero());
+    }
+
+    @Test
+    public void testAddMapping() {
+        TimeIntegerMapping first = new TimeIntegerMapping();
+        first.increase(0, 10, 2);
+        TimeIntegerMapping second = new TimeIntegerMapping();
+        second.increase(5, 15, 3);
+        second.increase(20, 25, -1);
+        first.setAggregateTracking(true);
+        first.addMapping(second);
+        int[] expected = {0, 2, 5, 3, 0, -1, 0};
+        int[] times = {-1, 0, 5, 10, 15, 20, 25};
+        for (int i = 0; i < times.length; ++i) {
+            assertEquals(expected[i], first.get(times[i]));
+        }
+        assertEquals(5, first.getMaximumValue());
+        assertEquals(-1, first.getMinimumValue());
+
+        first.subtractMapping(second);
+        assertEquals(2, first.get(5));
+        assertEquals(0, first.get(20));
+        assertEquals(2, first.getMaximumValue());
+    }
+
+    @Test
+    public void testAddMappingOverflow() {
+        TimeIntegerMapping first = new TimeIntegerMapping();
+        first.increase(0, 10, Integer.MAX_VALUE - 1);
+        TimeIntegerMapping second = new TimeIntegerMapping();
+        second.increase(-5, 5, 5);
+        String before = first.toString();
+        try {
+            first.addMapping(second);
+            fail("Overflow not detected");
+        } catch (ArithmeticException expected) {
+        }
+        assertEquals(before, first.toString());
+        assertEquals(Integer.MAX_VALUE - 1, first.get(0));
+    }
+
+    @Test
+    public void testMergeAll() {
+        Random random = new Random(17);
+        List<TimeIntegerMapping> mappings = new ArrayList<>();
+        for (int i = 0; i < 600; ++i) {
+            TimeIntegerMapping mapping = new TimeIntegerMapping();
+            for (int j = 0; j < 3; ++j) {
+                int from = random.nextInt(100);
+                mapping.increase(from, from + 1 + random.nextInt(20), random.nextInt(11) - 5);
+            }
+            mappings.add(mapping);
+        }
+        TimeIntegerMapping sum = TimeIntegerMapping.sumAll(mappings);
+        TimeIntegerMapping minimum = TimeIntegerMapping.minAll(mappings.subList(0, 50));
+        TimeIntegerMapping maximum = TimeIntegerMapping.maxAll(mappings.subList(0, 50));
+        TimeIntegerMapping parallelSum = TimeIntegerMapping.parallelSumAll(mappings);
+        TimeIntegerMapping parallelMaximum = TimeIntegerMapping.parallelMaxAll(mappings);
+        for (int t = -1; t <= 121; ++t) {
+            int expectedSum = 0;
+            int expectedMinimum = Integer.MAX_VALUE;
+            int expectedMaximum = Integer.MIN_VALUE;
+            int expectedParallelMaximum = Integer.MIN_VALUE;
+            for (int i = 0; i < mappings.size(); ++i) {
+                int value = mappings.get(i).get(t);
+                expectedSum += value;
+                expectedParallelMaximum = Math.max(expectedParallelMaximum, value);
+                if (i < 50) {
+                    expectedMinimum = Math.min(expectedMinimum, value);
+                    expectedMaximum = Math.max(expectedMaximum, value);
+                }
+            }
+            assertEquals(expectedSum, sum.get(t));
+            assertEquals(expectedSum, parallelSum.get(t));
+            assertEquals(expectedMinimum, minimum.get(t));
+            assertEquals(expectedMaximum, maximum.get(t));
+            assertEquals(expectedParallelMaximum, parallelMaximum.get(t));
+        }
+        assertTrue(TimeIntegerMapping.sumAll(new ArrayList<>()).isZero());
+    }
+
+    @Test
+    public void testIntegrate() {
+        Random random = new Random(5);
+        TimeIntegerMapping mapping = new TimeIntegerMapping();
+        for (int i = 0; i < 200; ++i) {
+            int from = random.nextInt(100);
+            mapping.increase(from, from + 1 + random.nextInt(30), random.nextInt(11) - 5);
+            int start = random.nextInt(140) - 10;
+            int end = start + random.nextInt(40);
+            long expected = 0;
+            for (int t = start; t < end; ++t) {
+                expected += mapping.get(t);
+            }
+            assertEquals(expected, mapping.integrate(start, end));
+        }
+        mapping.set(Integer.MIN_VALUE, 1);
+        assertEquals(10L + mapping.integrate(0, 10), mapping.integrate(-10, 10));
+        assertEquals(0, mapping.integrate(7, 7));
+    }
+
+    @Test
+    public void testCoalescing() {
+        Random random = new Random(9);
+        TimeIntegerMapping plain = new TimeIntegerMapping();
+        TimeIntegerMapping coalescing = new TimeIntegerMapping();
+        coalescing.setCoalescing(true);
+        for (int i = 0; i < 2000; ++i) {
+            int from = random.nextInt(100);
+            int value = random.nextInt(3);
+            if (i % 2 == 0) {
+                plain.set(from, value);
+                coalescing.set(from, value);
+            } else {
+                int to = from + 1 + random.nextInt(20);
+                plain.increase(from, to, value - 1);
+                coalescing.increase(from, to, value - 1);
+            }
+            plain.compact();
+            assertEquals(plain.toString(), coalescing.toString());
+        }
+        assertEquals(plain.getStepCount(), coalescing.getStepCount());
+        assertEquals(0, coalescing.compact());
+
+        plain = new TimeIntegerMapping();
+        plain.increase(10, 20, 1);
+        plain.set(15, 1);
+        assertEquals(5, plain.getStepCount());
+        assertEquals(1, plain.compact());
+        assertEquals(4, plain.getStepCount());
+        assertEquals("[10 = 1, 20 = 0]", plain.toString());
+
+        TimeIntegerMapping uncompacted = new TimeIntegerMapping();
+        uncompacted.increase(10, 20, 1);
+        uncompacted.set(15, 1);
+        plain.set(12, 3);
+        uncompacted.set(12, 3);
+        assertEquals(3, plain.get(17));
+        assertEquals(1, uncompacted.get(17));
+    }
+
+    @Test
+    public void testBuilder() {
+        Random random = new Random(10);
+        TimeIntegerMapping expected = new TimeIntegerMapping();
+        TimeIntegerMapping.Builder builder = new TimeIntegerMapping.Builder();
+        int time = -50;
+        for (int i = 0; i < 500; ++i) {
+            time += random.nextInt(3);
+            int value = random.nextInt(4);
+            expected.set(time, value);
+            builder.append(time, value);
+        }
+        expected.compact();
+        TimeIntegerMapping built = builder.build();
+        assertEquals(expected.toString(), built.toString());
+        assertEquals(expected.getStepCount(), built.getStepCount());
+        built.increase(0, 10, 1);
+        expected.increase(0, 10, 1);
+        assertEquals(expected.toString(), built.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderRejectsDecreasingTimes() {
+        new TimeIntegerMapping.Builder().append(5, 1).append(4, 1);
+    }
+}
@@ -0,0 +1,129 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import org.junit.Test;
+
+/**
+ * Tests the change tracking and delta export of mappings.
+ */
+public class TrackedIdentifiableIntegerMappingTest {
+
+    private static int[] sorted(PrimitiveIterator.OfInt it) {
+        int[] ids = new int[0];
+        while (it.hasNext()) {
+            ids = Arrays.copyOf(ids, ids.length + 1);
+            ids[ids.length - 1] = it.nextInt();
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    @Test
+    public void testChangedSince() {
+        TrackedIdentifiableIntegerMapping<Identifiable> mapping = new TrackedIdentifiableIntegerMapping<>(100);
+        mapping.set(() -> 5, 1);
+        mapping.increase(() -> 7, 2);
+        int checkpoint = mapping.checkpoint();
+        assertFalse(mapping.changedSince(checkpoint).hasNext());
+
+        mapping.set(() -> 5, 3);
+        mapping.decrease(() -> 50, 4);
+        mapping.set(() -> 5, 4);
+        assertArrayEquals(new int[]{5, 50}, sorted(mapping.changedSince(checkpoint)));
+        assertArrayEquals(new int[]{5, 7, 50}, sorted(mapping.changedSince(0)));
+
+        mapping.set(() -> 120, 1);
+        assertArrayEquals(new int[]{5, 50, 120}, sorted(mapping.changedSince(checkpoint)));
+
+        mapping.resetDirty();
+        assertFalse(mapping.changedSince(0).hasNext());
+        mapping.set(() -> 7, 0);
+        assertArrayEquals(new int[]{7}, sorted(mapping.changedSince(0)));
+    }
+
+    @Test
+    public void testDelta() {
+        TrackedIdentifiableIntegerMapping<Identifiable> source = new TrackedIdentifiableIntegerMapping<>(1000);
+        TrackedIdentifiableIntegerMapping<Identifiable> target = new TrackedIdentifiableIntegerMapping<>(1000);
+        int checkpoint = source.checkpoint();
+        source.set(() -> 3, -17);
+        source.set(() -> 900, Integer.MAX_VALUE);
+        source.set(() -> 1200, Integer.MIN_VALUE);
+        byte[] delta = source.exportDelta(checkpoint);
+        assertTrue(delta.length < 20);
+
+        target.applyDelta(delta);
+        assertEquals(source, target);
+        assertArrayEquals(new int[]{3, 900, 1200}, sorted(target.changedSince(0)));
+    }
+
+    @Test
+    public void testDoubleDelta() {
+        TrackedIdentifiableDoubleMapping<Identifiable> source = new TrackedIdentifiableDoubleMapping<>(10);
+        source.set(() -> 2, 0.5);
+        source.increase(() -> 9, -1.25);
+        TrackedIdentifiableDoubleMapping<Identifiable> target = new TrackedIdentifiableDoubleMapping<>(10);
+        target.applyDelta(source.exportDelta(0));
+        assertEquals(source, target);
+
+        int checkpoint = source.checkpoint();
+        source.clamp(0, 1);
+        assertEquals(10, sorted(source.changedSince(checkpoint)).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedDelta() {
+        new TrackedIdentifiableIntegerMapping<>(10).applyDelta(new byte[]{10, 1, 20, 0});
+    }
+
+    @Test
+    public void testMalformedDeltaLeavesMappingUnchanged() {
+        TrackedIdentifiableIntegerMapping<Identifiable> mapping = new TrackedIdentifiableIntegerMapping<>(10);
+        try {
+            mapping.applyDelta(new byte[]{3, 2, 1, 10, 5, 2});
+            fail("Malformed delta accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(10, mapping.getDomainSize());
+        assertEquals(0, mapping.get(() -> 1));
+        assertFalse(mapping.changedSince(0).hasNext());
+
+        TrackedIdentifiableDoubleMapping<Identifiable> doubles = new TrackedIdentifiableDoubleMapping<>(10);
+        try {
+            doubles.applyDelta(new byte[]{3, 2, 1, 63, -16, 0, 0, 0, 0, 0, 0, 5, 0, 0, 0, 0, 0, 0, 0, 0});
+            fail("Malformed delta accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(10, doubles.getDomainSize());
+        assertEquals(0, doubles.get(() -> 1), 0);
+        assertFalse(doubles.changedSince(0).hasNext());
+    }
+
+    @Test
+    public void testScatterMarksOnlyScatteredIds() {
+        TrackedIdentifiableIntegerMapping<Identifiable> mapping = new TrackedIdentifiableIntegerMapping<>(100);
+        mapping.scatter(new int[]{40, 2}, new int[]{1, 1});
+        assertArrayEquals(new int[]{2, 40}, sorted(mapping.changedSince(0)));
+    }
+}
@@ -0,0 +1,163 @@
+/* zet evacuation tool copyright (c) 2007-20 zet evacuation team
+ *
+ * This program is free software; you can redistribute it and/or
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.zetool.container.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.zetool.container.collection.VersionedArraySet;
+
+/**
+ * Tests the mappings and the set that are reset by starting a new epoch.
+ */
+public class VersionedIdentifiableIntegerMappingTest {
+
+    @Test
+    public void testInitializeHidesOldValues() {
+        VersionedIdentifiableIntegerMapping<Identifiable> mapping = new VersionedIdentifiableIntegerMapping<>(10);
+        mapping.set(() -> 2, 5);
+        mapping.initializeWith(Integer.MAX_VALUE);
+        assertEquals(Integer.MAX_VALUE, mapping.get(() -> 2));
+
+        mapping.set(() -> 3, 1);
+        mapping.initializeWith(-1);
+        mapping.increase(() -> 3, 4);
+        mapping.decrease(() -> 4, 1);
+        assertEquals(3, mapping.get(() -> 3));
+        assertEquals(-2, mapping.get(() -> 4));
+        assertEquals(-1, mapping.get(() -> 2));
+        assertEquals(3, mapping.maximum());
+    }
+
+    @Test
+    public void testGrowingDomain() {
+        VersionedIdentifiableIntegerMapping<Identifiable> mapping = new VersionedIdentifiableIntegerMapping<>(2);
+        mapping.initializeWith(7);
+        mapping.increase(() -> 5, 1);
+        assertEquals(6, mapping.getDomainSize());
+        assertEquals(8, mapping.get(() -> 5));
+        assertEquals(7, mapping.get(() -> 4));
+    }
+
+    @Test
+    public void testEqualsDenseMapping() {
+        VersionedIdentifiableIntegerMapping<Identifiable> mapping = new VersionedIdentifiableIntegerMapping<>(3);
+        IdentifiableIntegerMapping<Identifiable> dense = new IdentifiableIntegerMapping<>(3);
+        dense.initializeWith(2);
+        dense.set(() -> 1, 0);
+        mapping.set(() -> 0, 9);
+        mapping.initializeWith(2);
+        mapping.set(() -> 1, 0);
+        assertTrue(mapping.equals(dense));
+        assertTrue(mapping.clone().equals(mapping));
+    }
+
+    @Test
+    public void testEqualsStaleMappings() {
+        VersionedIdentifiableIntegerMapping<Identifiable> mapping = new VersionedIdentifiableIntegerMapping<>(3);
+        VersionedIdentifiableIntegerMapping<Identifiable> other = new VersionedIdentifiableIntegerMapping<>(3);
+        mapping.set(() -> 0, 9);
+        mapping.initializeWith(4);
+        other.set(() -> 2, 1);
+        other.initializeWith(4);
+        assertTrue(mapping.equals(other));
+        assertTrue(other.equals(mapping));
+        assertEquals(mapping.hashCode(), other.hashCode());
+        other.set(() -> 2, 1);
+        assertFalse(mapping.equals(other));
+    }
+
+    @Test
+    public void testDoubleInitializeHidesOldValues() {
+        VersionedIdentifiableDoubleMapping<Identifiable> mapping = new VersionedIdentifiableDoubleMapping<>(4);
+        mapping.set(() -> 1, 5.5);
+        mapping.initializeWith(Double.POSITIVE_INFINITY);
+        assertEquals(Double.POSITIVE_INFINITY, mapping.getDouble(() -> 1), 0);
+
+        mapping.initializeWith(2.0);
+        mapping.increase(() -> 1, 0.5);
+        mapping.divide(() -> 2, 4);
+        mapping.decrease(() -> 3, 3);
+        assertEquals(2.5, mapping.getDouble(() -> 1), 0);
+        assertEquals(0.5, mapping.getDouble(() -> 2), 0);
+        assertEquals(-1, mapping.getDouble(() -> 3), 0);
+        assertEquals(2, mapping.getDouble(() -> 0), 0);
+        assertEquals("[0 = 2.0, 1 = 2.5, 2 = 0.5, 3 = -1.0]", mapping.toString());
+        assertEquals(3, mapping.round().get(() -> 1));
+    }
+
+    @Test
+    public void testDoubleEqualsAndGrowingDomain() {
+        VersionedIdentifiableDoubleMapping<Identifiable> mapping = new VersionedIdentifiableDoubleMapping<>(2);
+        IdentifiableDoubleMapping<Identifiable> dense = new IdentifiableDoubleMapping<>(6);
+        mapping.set(() -> 0, 9);
+        mapping.initializeWith(1);
+        mapping.set(() -> 5, 2);
+        dense.initializeWith(1);
+        dense.set(() -> 5, 2);
+        assertEquals(6, mapping.getDomainSize());
+        assertTrue(mapping.equals(dense));
+        assertTrue(dense.equals(mapping));
+
+        VersionedIdentifiableDoubleMapping<Identifiable> clone = mapping.clone();
+        clone.initializeWith(0);
+        assertTrue(mapping.equals(dense));
+        assertFalse(clone.equals(mapping));
+
+        mapping.scatter(new int[]{3}, new double[]{0.25});
+        assertEquals(0.25, mapping.gather(new int[]{3})[0], 0);
+        assertEquals(1, mapping.gather(new int[]{4})[0], 0);
+    }
+
+    @Test
+    public void testBooleanMapping() {
+        VersionedIdentifiableBooleanMapping<Identifiable> visited = new VersionedIdentifiableBooleanMapping<>(4);
+        visited.set(() -> 1, true);
+        visited.initializeWith(false);
+        assertFalse(visited.get(() -> 1));
+        visited.toggle(() -> 2);
+        assertTrue(visited.get(() -> 2));
+    }
+
+    @Test
+    public void testSet() {
+        VersionedArraySet<Identifiable> set = new VersionedArraySet<>(10);
+        Identifiable a = () -> 3;
+        Identifiable b = () -> 7;
+        set.add(a);
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertNull(set.get(3));
+        set.add(b);
+        assertFalse(set.contains(a));
+        assertSame(b, set.first());
+        assertSame(b, set.last());
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void testGatherAndScatter() {
+        VersionedIdentifiableIntegerMapping<Identifiable> mapping = new VersionedIdentifiableIntegerMapping<>(10);
+        mapping.set(() -> 2, 5);
+        mapping.initializeWith(3);
+        mapping.scatter(new int[]{4}, new int[]{1});
+        assertEquals(3, mapping.gather(new int[]{2})[0]);
+        assertEquals(1, mapping.gather(new int[]{4})[0]);
+    }
+}